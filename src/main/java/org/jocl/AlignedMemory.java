@@ -0,0 +1,226 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Methods for allocating direct buffers whose memory is aligned.<br>
+ * <br>
+ * The memory of buffers that are created with 
+ * {@link ByteBuffer#allocateDirect(int)} has no guaranteed alignment. 
+ * When such a buffer is used for creating a memory object with 
+ * <code>CL_MEM_USE_HOST_PTR</code>, many implementations for CPUs and
+ * integrated GPUs have to create an internal copy of the memory. The
+ * memory of the buffers that are returned by this class is allocated
+ * with <code>posix_memalign</code> (or <code>_aligned_malloc</code> on
+ * Windows), so that the memory can be used directly:
+ * <pre><code>
+ * ByteBuffer buffer = AlignedMemory.allocate(context, size);
+ * cl_mem mem = clCreateBuffer(context, 
+ *     CL_MEM_READ_WRITE | CL_MEM_USE_HOST_PTR, size, 
+ *     Pointer.to(buffer), null);
+ * ...
+ * clReleaseMemObject(mem);
+ * AlignedMemory.free(buffer);
+ * </code></pre>
+ * The memory is <b>not</b> freed by the garbage collector. It has to
+ * be freed explicitly with {@link #free(ByteBuffer)}, after all memory
+ * objects that use it have been released.
+ */
+public final class AlignedMemory
+{
+    /**
+     * The addresses of the buffers that have been allocated and not
+     * yet been freed
+     */
+    private static final Map<ByteBuffer, Long> addresses = 
+        new IdentityHashMap<ByteBuffer, Long>();
+    
+    /**
+     * The page size, or 0 if it was not obtained yet
+     */
+    private static long pageSize = 0;
+    
+    /**
+     * Allocates a new direct buffer with the given size, whose memory
+     * is aligned to the page size.
+     * 
+     * @param size The size, in bytes
+     * @return The new buffer
+     * @throws IllegalArgumentException If the size is not positive or 
+     * larger than <code>Integer.MAX_VALUE</code>
+     * @throws OutOfMemoryError If the memory could not be allocated
+     */
+    public static ByteBuffer allocate(long size)
+    {
+        return allocate(size, getPageSize());
+    }
+    
+    /**
+     * Allocates a new direct buffer with the given size, whose memory 
+     * is aligned to the page size and to the 
+     * <code>CL_DEVICE_MEM_BASE_ADDR_ALIGN</code> of all devices of 
+     * the given context.
+     * 
+     * @param context The context
+     * @param size The size, in bytes
+     * @return The new buffer
+     * @throws IllegalArgumentException If the size is not positive or 
+     * larger than <code>Integer.MAX_VALUE</code>
+     * @throws OutOfMemoryError If the memory could not be allocated
+     * @throws CLException If the device information could not be obtained
+     */
+    public static ByteBuffer allocate(cl_context context, long size)
+    {
+        long alignment = Math.max(
+            getPageSize(), getBaseAddressAlignment(context));
+        return allocate(size, alignment);
+    }
+    
+    /**
+     * Allocates a new direct buffer with the given size, whose memory
+     * has the given alignment. The buffer has the native byte order, 
+     * and its contents are initialized with zeros.
+     * 
+     * @param size The size, in bytes
+     * @param alignment The alignment, in bytes. This must be a power 
+     * of two and a multiple of the size of a pointer.
+     * @return The new buffer
+     * @throws IllegalArgumentException If the size is not positive or 
+     * larger than <code>Integer.MAX_VALUE</code>, or the alignment
+     * is not valid
+     * @throws OutOfMemoryError If the memory could not be allocated
+     */
+    public static ByteBuffer allocate(long size, long alignment)
+    {
+        if (size <= 0 || size > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                "The size must be in [1," + Integer.MAX_VALUE + "], " + 
+                "but is " + size);
+        }
+        if (alignment < Sizeof.POINTER || 
+            (alignment & (alignment - 1)) != 0)
+        {
+            throw new IllegalArgumentException(
+                "The alignment must be a power of two and a multiple " +
+                "of " + Sizeof.POINTER + ", but is " + alignment);
+        }
+        long address[] = new long[1];
+        ByteBuffer buffer = 
+            CL.allocateAlignedMemoryNative(size, alignment, address);
+        buffer.order(ByteOrder.nativeOrder());
+        synchronized (addresses)
+        {
+            addresses.put(buffer, address[0]);
+        }
+        return buffer;
+    }
+    
+    /**
+     * Free the memory of the given buffer, which must have been 
+     * allocated with one of the <code>allocate</code> methods of this 
+     * class. The buffer, and all buffers that have been derived from 
+     * it, may no longer be used after this method has been called.
+     * 
+     * @param buffer The buffer
+     * @throws IllegalArgumentException If the given buffer was not
+     * allocated by this class, or has already been freed
+     */
+    public static void free(ByteBuffer buffer)
+    {
+        Long address = null;
+        synchronized (addresses)
+        {
+            address = addresses.remove(buffer);
+        }
+        if (address == null)
+        {
+            throw new IllegalArgumentException(
+                "The buffer was not allocated by AlignedMemory, " +
+                "or has already been freed");
+        }
+        CL.freeAlignedMemoryNative(address);
+    }
+    
+    /**
+     * Returns the page size of the system, in bytes
+     * 
+     * @return The page size
+     */
+    public static synchronized long getPageSize()
+    {
+        if (pageSize == 0)
+        {
+            pageSize = CL.getPageSizeNative();
+        }
+        return pageSize;
+    }
+    
+    /**
+     * Returns the largest <code>CL_DEVICE_MEM_BASE_ADDR_ALIGN</code> 
+     * of all devices of the given context, in bytes
+     * 
+     * @param context The context
+     * @return The alignment
+     * @throws CLException If the device information could not be obtained
+     */
+    public static long getBaseAddressAlignment(cl_context context)
+    {
+        long numBytes[] = new long[1];
+        CL.checkSuccess(CL.clGetContextInfo(context, CL.CL_CONTEXT_DEVICES, 
+            0, null, numBytes));
+        int numDevices = (int)(numBytes[0] / Sizeof.cl_device_id);
+        cl_device_id devices[] = new cl_device_id[numDevices];
+        CL.checkSuccess(CL.clGetContextInfo(context, CL.CL_CONTEXT_DEVICES, 
+            numBytes[0], Pointer.to(devices), null));
+        
+        long result = 1;
+        int alignBits[] = new int[1];
+        for (cl_device_id device : devices)
+        {
+            CL.checkSuccess(CL.clGetDeviceInfo(device, 
+                CL.CL_DEVICE_MEM_BASE_ADDR_ALIGN, Sizeof.cl_uint, 
+                Pointer.to(alignBits), null));
+            result = Math.max(result, alignBits[0] / 8);
+        }
+        return result;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private AlignedMemory()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.Closeable;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Optional automatic release of OpenCL objects.<br>
+ * <br>
+ * An OpenCL object that is registered with {@link #register} will be
+ * released with the matching <code>clRelease*</code> function when its
+ * Java object becomes unreachable:
+ * <pre><code>
+ * cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, null);
+ * AutoRelease.Registration registration = AutoRelease.register(mem);
+ * ...
+ * // Either release it explicitly:
+ * registration.close();
+ * // or let it be released after 'mem' became unreachable
+ * </code></pre>
+ * Each registration owns exactly one reference to the OpenCL object. 
+ * The reference counts therefore stay correct when 
+ * <code>clRetain*</code> is used, as long as each additional reference 
+ * is either released explicitly, or covered by another registration 
+ * of the same object. An object that is registered may not be 
+ * released with <code>clRelease*</code> for the reference that is 
+ * owned by the registration. The reference should instead be released 
+ * explicitly with {@link Registration#close()}, which disarms the 
+ * automatic release. When the object was added to a 
+ * {@link ResourceScope} of the current thread, then registering it 
+ * removes it from the scope, because its reference is then owned by 
+ * the registration.<br>
+ * <br>
+ * The automatic release is triggered by the garbage collector, and 
+ * there is no guarantee about when it happens. Note that the same 
+ * OpenCL object may be represented by several Java objects (for 
+ * example, the program that is returned by <code>clGetKernelInfo</code>
+ * is a new <code>cl_program</code> object). Only the Java object 
+ * that was registered is tracked.<br>
+ * <br>
+ * Supported types are <code>cl_mem</code>, <code>cl_kernel</code>,
+ * <code>cl_program</code>, <code>cl_event</code>, <code>cl_sampler</code>,
+ * <code>cl_command_queue</code> and <code>cl_context</code>.
+ */
+public final class AutoRelease
+{
+    /**
+     * The registration of an OpenCL object for automatic release
+     */
+    public static final class Registration implements Closeable
+    {
+        /**
+         * The cleanup that releases the object
+         */
+        private final Cleanup cleanup;
+        
+        /**
+         * Creates a new registration
+         * 
+         * @param cleanup The cleanup
+         */
+        Registration(Cleanup cleanup)
+        {
+            this.cleanup = cleanup;
+        }
+        
+        /**
+         * Release the reference that is owned by this registration, 
+         * and disarm the automatic release. Calling this method more
+         * than once has no effect.
+         */
+        @Override
+        public void close()
+        {
+            cleanup.run();
+        }
+        
+        /**
+         * Returns whether the reference that is owned by this 
+         * registration has already been released
+         * 
+         * @return Whether the reference has been released
+         */
+        public boolean isReleased()
+        {
+            return cleanup.done.get();
+        }
+    }
+    
+    /**
+     * A phantom reference to a registered object, which stores the
+     * information that is required for releasing the OpenCL object
+     */
+    private static final class Cleanup 
+        extends PhantomReference<NativePointerObject>
+    {
+        /**
+         * The type of the object
+         */
+        private final int type;
+        
+        /**
+         * The native pointer of the object
+         */
+        private final long handle;
+        
+        /**
+         * Whether the object was already released
+         */
+        private final AtomicBoolean done;
+        
+        /**
+         * Creates a new cleanup for the given object
+         * 
+         * @param object The object
+         * @param type The type
+         */
+        Cleanup(NativePointerObject object, int type)
+        {
+            super(object, referenceQueue);
+            this.type = type;
+            this.handle = object.getNativePointer();
+            this.done = new AtomicBoolean(false);
+        }
+        
+        /**
+         * Release the object, if it was not released yet
+         */
+        void run()
+        {
+            if (!done.compareAndSet(false, true))
+            {
+                return;
+            }
+            pending.remove(this);
+            clear();
+            releaseHandle(type, handle);
+        }
+    }
+    
+    // The types of the objects that may be registered
+    private static final int TYPE_MEM = 0;
+    private static final int TYPE_KERNEL = 1;
+    private static final int TYPE_PROGRAM = 2;
+    private static final int TYPE_EVENT = 3;
+    private static final int TYPE_SAMPLER = 4;
+    private static final int TYPE_COMMAND_QUEUE = 5;
+    private static final int TYPE_CONTEXT = 6;
+    
+    /**
+     * The logger used in this class
+     */
+    private final static Logger logger = 
+        Logger.getLogger(AutoRelease.class.getName());
+    
+    /**
+     * The queue that receives the references to objects that
+     * became unreachable
+     */
+    private static final ReferenceQueue<NativePointerObject> referenceQueue =
+        new ReferenceQueue<NativePointerObject>();
+    
+    /**
+     * The cleanups of the objects that have not been released yet. 
+     * The phantom references have to be strongly reachable, because 
+     * otherwise they would not be enqueued.
+     */
+    private static final Set<Cleanup> pending = 
+        Collections.newSetFromMap(new ConcurrentHashMap<Cleanup, Boolean>());
+    
+    /**
+     * The thread that releases the objects that became unreachable
+     */
+    private static Thread releaseThread = null;
+    
+    /**
+     * Register the given object for automatic release. The returned
+     * registration owns one reference to the OpenCL object.
+     * 
+     * @param object The object
+     * @return The registration
+     * @throws NullPointerException If the object is <code>null</code>
+     * @throws IllegalArgumentException If the object has an unsupported
+     * type, or does not have a native pointer
+     */
+    public static Registration register(NativePointerObject object)
+    {
+        if (object == null)
+        {
+            throw new NullPointerException("The object is null");
+        }
+        if (object.getNativePointer() == 0)
+        {
+            throw new IllegalArgumentException(
+                "The object does not have a native pointer: " + object);
+        }
+        Cleanup cleanup = new Cleanup(object, typeOf(object));
+        ResourceScope.excludeReleased(object);
+        pending.add(cleanup);
+        ensureReleaseThread();
+        return new Registration(cleanup);
+    }
+    
+    /**
+     * Returns the number of registered objects that have not been 
+     * released yet
+     * 
+     * @return The number of registered objects
+     */
+    public static int getRegisteredCount()
+    {
+        return pending.size();
+    }
+    
+    /**
+     * Returns the type of the given object
+     * 
+     * @param object The object
+     * @return The type
+     * @throws IllegalArgumentException If the type is not supported
+     */
+    private static int typeOf(NativePointerObject object)
+    {
+        if (object instanceof cl_mem)
+        {
+            return TYPE_MEM;
+        }
+        if (object instanceof cl_kernel)
+        {
+            return TYPE_KERNEL;
+        }
+        if (object instanceof cl_program)
+        {
+            return TYPE_PROGRAM;
+        }
+        if (object instanceof cl_event)
+        {
+            return TYPE_EVENT;
+        }
+        if (object instanceof cl_sampler)
+        {
+            return TYPE_SAMPLER;
+        }
+        if (object instanceof cl_command_queue)
+        {
+            return TYPE_COMMAND_QUEUE;
+        }
+        if (object instanceof cl_context)
+        {
+            return TYPE_CONTEXT;
+        }
+        throw new IllegalArgumentException(
+            "Unsupported object type: " + object.getClass().getSimpleName());
+    }
+    
+    /**
+     * Release the OpenCL object with the given type and native pointer
+     * 
+     * @param type The type
+     * @param handle The native pointer
+     */
+    private static void releaseHandle(int type, long handle)
+    {
+        int result = CL.CL_SUCCESS;
+        try
+        {
+            // All types are released with the same functions that are
+            // used for releasing them explicitly
+            switch (type)
+            {
+                case TYPE_MEM:
+                {
+                    cl_mem mem = new cl_mem();
+                    mem.setNativePointer(handle);
+                    result = CL.clReleaseMemObject(mem);
+                    break;
+                }
+                    
+                case TYPE_KERNEL:
+                {
+                    cl_kernel kernel = new cl_kernel();
+                    kernel.setNativePointer(handle);
+                    result = CL.clReleaseKernel(kernel);
+                    break;
+                }
+                    
+                case TYPE_PROGRAM:
+                {
+                    cl_program program = new cl_program();
+                    program.setNativePointer(handle);
+                    result = CL.clReleaseProgram(program);
+                    break;
+                }
+                    
+                case TYPE_EVENT:
+                {
+                    cl_event event = new cl_event();
+                    event.setNativePointer(handle);
+                    result = CL.clReleaseEvent(event);
+                    break;
+                }
+                    
+                case TYPE_SAMPLER:
+                {
+                    cl_sampler sampler = new cl_sampler();
+                    sampler.setNativePointer(handle);
+                    result = CL.clReleaseSampler(sampler);
+                    break;
+                }
+                    
+                case TYPE_COMMAND_QUEUE:
+                {
+                    cl_command_queue queue = new cl_command_queue();
+                    queue.setNativePointer(handle);
+                    result = CL.clReleaseCommandQueue(queue);
+                    break;
+                }
+                    
+                case TYPE_CONTEXT:
+                {
+                    cl_context context = new cl_context();
+                    context.setNativePointer(handle);
+                    result = CL.clReleaseContext(context);
+                    break;
+                }
+                
+                default:
+                    break;
+            }
+        }
+        catch (CLException e)
+        {
+            result = e.getStatus();
+        }
+        if (result != CL.CL_SUCCESS)
+        {
+            logger.log(Level.WARNING, "Could not release object 0x" + 
+                Long.toHexString(handle) + ", result is " + 
+                CL.stringFor_errorCode(result));
+        }
+    }
+    
+    /**
+     * Make sure that the release thread is running
+     */
+    private static synchronized void ensureReleaseThread()
+    {
+        if (releaseThread != null)
+        {
+            return;
+        }
+        releaseThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                processReferenceQueue();
+            }
+        }, "JOCL-AutoRelease");
+        releaseThread.setPriority(Thread.MIN_PRIORITY);
+        releaseThread.setDaemon(true);
+        releaseThread.start();
+    }
+    
+    /**
+     * The main loop of the release thread
+     */
+    private static void processReferenceQueue()
+    {
+        while (true)
+        {
+            Reference<? extends NativePointerObject> reference = null;
+            try
+            {
+                reference = referenceQueue.remove();
+            }
+            catch (InterruptedException e)
+            {
+                // The release thread is a daemon thread that is not 
+                // supposed to be interrupted. Continue processing
+                // the queue, so that no object will be leaked.
+                continue;
+            }
+            try
+            {
+                ((Cleanup)reference).run();
+            }
+            catch (RuntimeException e)
+            {
+                // Any exception is logged, so that the release thread
+                // keeps running and the remaining objects are released
+                logger.log(Level.WARNING, "Error while releasing object", e);
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private AutoRelease()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -28,9 +28,10 @@
 package org.jocl;
 
 import java.lang.ref.*;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * JOCL - Java bindings for OpenCL.<br />
@@ -748,55 +749,6 @@ public final class CL
     private static boolean exceptionsEnabled = false;
 
 
-    /**
-     * An implementation of a ThreadFactory that creates low-priority
-     * daemon threads
-     */
-    private static ThreadFactory daemonThreadFactory = new ThreadFactory()
-    {
-        private long currentID = 0;
-
-        @Override
-        public Thread newThread(Runnable r)
-        {
-            Thread thread = new Thread(r, "AsyncOpThread-"+(currentID++));
-            thread.setPriority(Thread.MIN_PRIORITY);
-            thread.setDaemon(true);
-            return thread;
-        }
-
-    };
-
-    /**
-     * The executor which will manage the threads that prevent
-     * objects from being garbage collected during non-blocking
-     * operations.
-     */
-    private static Executor referenceReleaseExecutor =
-        new ThreadPoolExecutor(0, Integer.MAX_VALUE,
-        10, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
-        daemonThreadFactory)
-    {
-        @Override
-        protected void afterExecute(Runnable r, Throwable t) 
-        {
-            // See the implementation notes in 
-            // scheduleReferenceRelease(cl_event, Object, boolean)
-            if (referenceReleaseCounter++ == Long.MAX_VALUE)
-            {
-                // This is never supposed to happen
-                System.out.println(String.valueOf(r)); 
-            }
-        };
-    };
-
-    /**
-     * A counter for the released references. See the implementation notes 
-     * in {@link #scheduleReferenceRelease(cl_event, Object, boolean)}
-     */
-    private static long referenceReleaseCounter = 0;
-
-
 
     /**
      * Enables or disables exceptions. By default, the methods of this class
@@ -824,7 +776,7 @@ public final class CL
      * @throws CLException If exceptions have been enabled and
      * the given result code is not CL_SUCCESS
      */
-    private static int checkResult(int result)
+    static int checkResult(int result)
     {
         if (exceptionsEnabled && result != CL_SUCCESS)
         {
@@ -833,6 +785,74 @@ public final class CL
         return result;
     }
 
+    /**
+     * If the given result is different to CL_SUCCESS, this method will
+     * throw a CLException with an error message that corresponds to the
+     * given result code, regardless of whether exceptions have been 
+     * enabled. This is used by the utility classes of this library,
+     * which can not continue after an error.
+     *
+     * @param result The result to check
+     * @throws CLException If the given result code is not CL_SUCCESS
+     */
+    static void checkSuccess(int result)
+    {
+        if (result != CL_SUCCESS)
+        {
+            throw new CLException(stringFor_errorCode(result), result);
+        }
+    }
+
+    /**
+     * Returns the native pointer of the given object, or 0 if the
+     * given object is <code>null</code>. This is used for the methods
+     * that pass the handles of OpenCL objects directly to the native
+     * side, as primitive <code>long</code> values.
+     *
+     * @param object The object
+     * @return The native pointer
+     */
+    static long nativePointerOf(NativePointerObject object)
+    {
+        if (object == null)
+        {
+            return 0;
+        }
+        return object.getNativePointer();
+    }
+
+    /**
+     * Returns the size of the given event list, or 0 if the given
+     * list is <code>null</code>
+     *
+     * @param eventList The event list
+     * @return The size
+     */
+    private static int sizeOf(EventList eventList)
+    {
+        if (eventList == null)
+        {
+            return 0;
+        }
+        return eventList.size();
+    }
+
+    /**
+     * Returns the buffer of the given event list, or <code>null</code> 
+     * if the given list is <code>null</code> or empty
+     *
+     * @param eventList The event list
+     * @return The buffer
+     */
+    private static LongBuffer bufferOf(EventList eventList)
+    {
+        if (eventList == null || eventList.isEmpty())
+        {
+            return null;
+        }
+        return eventList.getBuffer();
+    }
+
 
 
 
@@ -2055,8 +2075,9 @@ public final class CL
     
     /**
      * Keep a reference to the given object, to prevent it from
-     * being garbage collected, until waiting for the given
-     * event on a separate thread has completed.
+     * being garbage collected, until the given event has completed. 
+     * The event will be released when it has completed. See 
+     * {@link ReferenceReleaseTracker} for details.
      *
      * @param event The event to wait for
      * @param object The object to which a reference should be kept
@@ -2064,61 +2085,12 @@ public final class CL
      * from outside. If this is <code>true</code>, then the event has to be
      * retained (in order to increase its reference count), so that it will
      * not become invalid when the user calls <code>clReleaseEvent</code>
-     * on it before the waiting operation started.
+     * on it before the operation has completed.
      */
-    private static void scheduleReferenceRelease(
-        final cl_event event, final Object object, final boolean doRetainEvent)
+    static void scheduleReferenceRelease(
+        cl_event event, Object object, boolean doRetainEvent)
     {
-        // Implementation notes:
-        // 
-        // When a non-blocking operation is scheduled, it might happen that
-        // the Java 'object' (a direct buffer which is about to be filled from 
-        // or written to an OpenCL memory object) is garbage collected before 
-        // the operation is complete. This could cause highly undeterministic 
-        // errors, possibly crashes or function calls that silently work 
-        // on bogus data.
-        // 
-        // To avoid this, for each non-blocking operation, a Runnable is 
-        // started (in an own thread), which only contains a reference to 
-        // the 'object' and waits for the OpenCL event that is associated with 
-        // the operation.
-        // 
-        // But without further precautions, there are no guarantees that the
-        // Runnable (and thus, the 'object') are NOT reclaimed by the garbage
-        // collector - even if the 'run()' method of the runnable is still
-        // being executed!
-        // 
-        // Thus, the 'referenceReleaseExecutor' has to make sure that the 
-        // reference is kept alive long enough: It has an overridden 
-        // 'afterExecute' method that will use the Runnable in an operation 
-        // that is not supposed to be executed, but still prevents the 
-        // Runnable from being garbage collected.
-        // 
-        // Right now, there is no possibility for introducing an ordering
-        // for strong reachability regarding garbage collection. This issue
-        // will be solved with Java 9, where the new method
-        // 'Reference.reachabilityFence(obj)' will allow to establish
-        // such an ordering.
-        // 
-        // For details, see http://stackoverflow.com/q/41147212/3182664
-        Runnable runnable = new Runnable()
-        {
-            @SuppressWarnings("unused")
-            private final Object localObject = object;
-            
-            @Override
-            public void run()
-            {
-                clWaitForEvents(1, new cl_event[]{event});
-                clReleaseEvent(event);
-            }
-        };
-        if (doRetainEvent)
-        {
-            clRetainEvent(event);
-        }
-        referenceReleaseExecutor.execute(runnable);
-
+        ReferenceReleaseTracker.track(event, object, doRetainEvent);
     }
 
 
@@ -6103,7 +6075,7 @@ public final class CL
         {
             checkResult(errcode_ret[0]);
         }
-        return result;
+        return ResourceScope.addToCurrent(MemoryTracker.created(result));
     }
 
     private static native cl_mem clCreateBufferNative(cl_context context, long flags, long size, Pointer host_ptr, int errcode_ret[]);
@@ -6126,12 +6098,12 @@ public final class CL
             }
             cl_mem result = clCreateSubBufferNative(buffer, flags, buffer_create_type, buffer_create_info, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateSubBufferNative(buffer, flags, buffer_create_type, buffer_create_info, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -6394,12 +6366,12 @@ public final class CL
             }
             cl_mem result = clCreateSubBuffer2Native(buffer, flags, buffer_create_type, buffer_create_info, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateSubBuffer2Native(buffer, flags, buffer_create_type, buffer_create_info, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
     private static native cl_mem clCreateSubBuffer2Native(cl_mem buffer, /*cl_mem_flags*/ long flags, /*cl_buffer_create_type*/ int buffer_create_type, cl_buffer_region buffer_create_info, int errcode_ret[]);
@@ -6890,7 +6862,7 @@ public final class CL
         {
             checkResult(errcode_ret[0]);
         }
-        return result;
+        return ResourceScope.addToCurrent(MemoryTracker.created(result));
     }
     private static native cl_mem clCreateImageNative(cl_context context, long flags, cl_image_format image_format, cl_image_desc image_desc, Pointer host_ptr, int errcode_ret[]);
 
@@ -7251,12 +7223,12 @@ public final class CL
             }
             cl_mem result = clCreatePipeNative(context, flags, pipe_packet_size, pipe_max_packets, properties, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreatePipeNative(context, flags, pipe_packet_size, pipe_max_packets, properties, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
     private static native cl_mem clCreatePipeNative(cl_context context, long flags, int pipe_packet_size, int pipe_max_packets, cl_pipe_properties properties, int errcode_ret[]);
@@ -7478,12 +7450,12 @@ public final class CL
             }
             cl_mem result = clCreateImage2DNative(context, flags, image_format, image_width, image_height, image_row_pitch, host_ptr, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateImage2DNative(context, flags, image_format, image_width, image_height, image_row_pitch, host_ptr, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -7737,12 +7709,12 @@ public final class CL
             }
             cl_mem result = clCreateImage3DNative(context, flags, image_format, image_width, image_height, image_depth, image_row_pitch, image_slice_pitch, host_ptr, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateImage3DNative(context, flags, image_format, image_width, image_height, image_depth, image_row_pitch, image_slice_pitch, host_ptr, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -7806,7 +7778,12 @@ public final class CL
      */
     public static int clRetainMemObject(cl_mem memobj)
     {
-        return checkResult(clRetainMemObjectNative(memobj));
+        int result = checkResult(clRetainMemObjectNative(memobj));
+        if (result == CL_SUCCESS)
+        {
+            MemoryTracker.retained(nativePointerOf(memobj));
+        }
+        return result;
     }
 
     private static native int clRetainMemObjectNative(cl_mem memobj);
@@ -7868,6 +7845,8 @@ public final class CL
      */
     public static int clReleaseMemObject(cl_mem memobj)
     {
+        ResourceScope.excludeReleased(memobj);
+        MemoryTracker.releasing(nativePointerOf(memobj));
         return checkResult(clReleaseMemObjectNative(memobj));
     }
 
@@ -9356,7 +9335,7 @@ public final class CL
         {
             throw new CLException("Could not allocate SVM pointer", -1);
         }
-        return result;
+        return MemoryTracker.svmAllocated(context, result, size);
     }
     private static native Pointer clSVMAllocNative(cl_context context, long flags, long size, int alignment);
 
@@ -9470,6 +9449,7 @@ public final class CL
     public static void clSVMFree(cl_context context, Pointer svm_pointer)
     {
         // OPENCL_2_0
+        MemoryTracker.svmFreed(svm_pointer);
         clSVMFreeNative(context, svm_pointer);
     }
     private static native void clSVMFreeNative(cl_context context, Pointer svm_pointer);
@@ -9782,12 +9762,12 @@ public final class CL
             }
             cl_sampler result = clCreateSamplerWithPropertiesNative(context, properties, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_sampler result = clCreateSamplerWithPropertiesNative(context, properties, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
     private static native cl_sampler clCreateSamplerWithPropertiesNative(cl_context context, cl_sampler_properties properties, int errcode_ret[]);
@@ -9940,12 +9920,12 @@ public final class CL
             }
             cl_sampler result = clCreateSamplerNative(context, normalized_coords, addressing_mode, filter_mode, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_sampler result = clCreateSamplerNative(context, normalized_coords, addressing_mode, filter_mode, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
 
@@ -10074,6 +10054,7 @@ public final class CL
      */
     public static int clReleaseSampler(cl_sampler sampler)
     {
+        ResourceScope.excludeReleased(sampler);
         return checkResult(clReleaseSamplerNative(sampler));
     }
 
@@ -10437,12 +10418,12 @@ public final class CL
             }
             cl_program result = clCreateProgramWithSourceNative(context, count, strings, lengths, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_program result = clCreateProgramWithSourceNative(context, count, strings, lengths, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
 
@@ -10657,12 +10638,12 @@ public final class CL
             }
             cl_program result = clCreateProgramWithBinaryNative(context, num_devices, device_list, lengths, binaries, binary_status, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_program result = clCreateProgramWithBinaryNative(context, num_devices, device_list, lengths, binaries, binary_status, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
 
@@ -10801,12 +10782,12 @@ public final class CL
             }
             cl_program result = clCreateProgramWithBuiltInKernelsNative(context, num_devices, device_list, kernel_names, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_program result = clCreateProgramWithBuiltInKernelsNative(context, num_devices, device_list, kernel_names, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
     private static native cl_program clCreateProgramWithBuiltInKernelsNative(cl_context  context, int num_devices, cl_device_id device_list[], String kernel_names, int errcode_ret[]);
@@ -10912,6 +10893,7 @@ public final class CL
      */
     public static int clReleaseProgram(cl_program program)
     {
+        ResourceScope.excludeReleased(program);
         return checkResult(clReleaseProgramNative(program));
     }
 
@@ -13115,17 +13097,67 @@ public final class CL
             }
             cl_kernel result = clCreateKernelNative(program, kernel_name, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_kernel result = clCreateKernelNative(program, kernel_name, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
     }
 
     private static native cl_kernel clCreateKernelNative(cl_program program, String kernel_name, int errcode_ret[]);
 
+    /**
+     * <p>
+     *       Make a shallow copy of the kernel object.
+     *   </p>
+     * <p>
+     *       The returned kernel object is a copy of <code>source_kernel</code>, 
+     *       including the kernel arguments that have been set, and the 
+     *       execution information. The copy and the source kernel may be
+     *       used concurrently, after which their arguments can be set 
+     *       independently.
+     * </p>
+     * <p>
+     *       <code>clCloneKernel</code> returns a valid non-zero kernel object
+     *       and <code>errcode_ret</code> is set to <span>CL_SUCCESS</span> if
+     *       the kernel is successfully copied. Otherwise it returns NULL, and
+     *       <code>errcode_ret</code> is set to <span>CL_INVALID_KERNEL</span>
+     *       if <code>source_kernel</code> is not a valid kernel object, or to 
+     *       <span>CL_OUT_OF_RESOURCES</span> or <span>CL_OUT_OF_HOST_MEMORY</span>
+     *       if there is a failure to allocate resources.
+     * </p>
+     * 
+     * @param source_kernel The kernel to copy
+     * @param errcode_ret The error code
+     * @return The new kernel
+     * @throws UnsupportedOperationException If the OpenCL implementation 
+     * does not provide <code>clCloneKernel</code>
+     * @since OpenCL 2.1
+     */
+    public static cl_kernel clCloneKernel(cl_kernel source_kernel, int errcode_ret[])
+    {
+        // OPENCL_2_1
+        if (exceptionsEnabled)
+        {
+            if (errcode_ret == null)
+            {
+                errcode_ret = new int[1];
+            }
+            cl_kernel result = clCloneKernelNative(source_kernel, errcode_ret);
+            checkResult(errcode_ret[0]);
+            return ResourceScope.addToCurrent(result);
+        }
+        else
+        {
+            cl_kernel result = clCloneKernelNative(source_kernel, errcode_ret);
+            return ResourceScope.addToCurrent(result);
+        }
+    }
+
+    private static native cl_kernel clCloneKernelNative(cl_kernel source_kernel, int errcode_ret[]);
+
     /**
      * <p>
      *       Creates kernel objects for all kernel functions in a program object.
@@ -13262,7 +13294,9 @@ public final class CL
      */
     public static int clCreateKernelsInProgram(cl_program program, int num_kernels, cl_kernel kernels[], int num_kernels_ret[])
     {
-        return checkResult(clCreateKernelsInProgramNative(program, num_kernels, kernels, num_kernels_ret));
+        int result = checkResult(clCreateKernelsInProgramNative(program, num_kernels, kernels, num_kernels_ret));
+        ResourceScope.addToCurrent(kernels);
+        return result;
     }
 
     private static native int clCreateKernelsInProgramNative(cl_program program, int num_kernels, cl_kernel kernels[], int num_kernels_ret[]);
@@ -13374,6 +13408,7 @@ public final class CL
      */
     public static int clReleaseKernel(cl_kernel kernel)
     {
+        ResourceScope.excludeReleased(kernel);
         return checkResult(clReleaseKernelNative(kernel));
     }
 
@@ -13606,6 +13641,162 @@ public final class CL
     }
     private static native int clSetKernelArgNative(cl_kernel kernel, int arg_index, long arg_size, Pointer arg_value);
 
+    /**
+     * Set all arguments that are contained in the given 
+     * {@link KernelArgs} for the given kernel, with a single native 
+     * call.<br>
+     * <br>
+     * This is equivalent to calling 
+     * {@link #clSetKernelArg(cl_kernel, int, long, Pointer)} for each
+     * of the arguments, in the order in which they have been added 
+     * to the given <code>KernelArgs</code>. If setting one of the 
+     * arguments fails, then the remaining arguments will not be set, 
+     * and the respective error code will be returned.
+     * 
+     * @param kernel The kernel
+     * @param args The kernel arguments
+     * @return The error code
+     * @throws NullPointerException If the given arguments are 
+     * <code>null</code>
+     */
+    public static int clSetKernelArgs(cl_kernel kernel, KernelArgs args)
+    {
+        return checkResult(clSetKernelArgsNative(nativePointerOf(kernel), args.getBuffer(), args.getSize()));
+    }
+    static native int clSetKernelArgsNative(long kernel, ByteBuffer args, int args_size);
+
+    /**
+     * Set the specified kernel argument to the given <code>int</code> 
+     * value.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_int, Pointer.to(new int[]{value}))</code>,
+     * but does not require any objects to be created.
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, int value)
+    {
+        return checkResult(clSetKernelArgIntNative(nativePointerOf(kernel), arg_index, value));
+    }
+    static native int clSetKernelArgIntNative(long kernel, int arg_index, int value);
+
+    /**
+     * Set the specified kernel argument to the given <code>long</code> 
+     * value.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_long, Pointer.to(new long[]{value}))</code>,
+     * but does not require any objects to be created.
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, long value)
+    {
+        return checkResult(clSetKernelArgLongNative(nativePointerOf(kernel), arg_index, value));
+    }
+    static native int clSetKernelArgLongNative(long kernel, int arg_index, long value);
+
+    /**
+     * Set the specified kernel argument to the given <code>float</code> 
+     * value.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_float, Pointer.to(new float[]{value}))</code>,
+     * but does not require any objects to be created.
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, float value)
+    {
+        return checkResult(clSetKernelArgFloatNative(nativePointerOf(kernel), arg_index, value));
+    }
+    static native int clSetKernelArgFloatNative(long kernel, int arg_index, float value);
+
+    /**
+     * Set the specified kernel argument to the given <code>double</code> 
+     * value.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_double, Pointer.to(new double[]{value}))</code>,
+     * but does not require any objects to be created.
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, double value)
+    {
+        return checkResult(clSetKernelArgDoubleNative(nativePointerOf(kernel), arg_index, value));
+    }
+    static native int clSetKernelArgDoubleNative(long kernel, int arg_index, double value);
+
+    /**
+     * Set the specified kernel argument to the given cl_mem.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_mem, Pointer.to(mem))</code>,
+     * but does not require any objects to be created. 
+     * If the given memory object is <code>null</code>, then the
+     * argument will be set to a <code>NULL</code> buffer.<br>
+     * <br>
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param mem The cl_mem
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, cl_mem mem)
+    {
+        return checkResult(clSetKernelArgHandleNative(nativePointerOf(kernel), arg_index, nativePointerOf(mem)));
+    }
+
+    /**
+     * Set the specified kernel argument to the given cl_sampler.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, Sizeof.cl_sampler, Pointer.to(sampler))</code>,
+     * but does not require any objects to be created. 
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param sampler The cl_sampler
+     * @return The error code
+     */
+    public static int clSetKernelArg(cl_kernel kernel, int arg_index, cl_sampler sampler)
+    {
+        return checkResult(clSetKernelArgHandleNative(nativePointerOf(kernel), arg_index, nativePointerOf(sampler)));
+    }
+    static native int clSetKernelArgHandleNative(long kernel, int arg_index, long handle);
+
+    /**
+     * Set the specified kernel argument, which must be declared with
+     * the <code>__local</code> qualifier, to have the given size.<br>
+     * <br>
+     * This is equivalent to calling 
+     * <code>clSetKernelArg(kernel, arg_index, local_size, null)</code>.
+     * 
+     * @param kernel The kernel
+     * @param arg_index The argument index
+     * @param local_size The size of the local memory, in bytes
+     * @return The error code
+     */
+    public static int clSetKernelArgLocal(cl_kernel kernel, int arg_index, long local_size)
+    {
+        return checkResult(clSetKernelArgLocalNative(nativePointerOf(kernel), arg_index, local_size));
+    }
+    static native int clSetKernelArgLocalNative(long kernel, int arg_index, long local_size);
+
 
 
     /**
@@ -14953,6 +15144,24 @@ public final class CL
 
     private static native int clWaitForEventsNative(int num_events, cl_event event_list[]);
 
+    /**
+     * Waits on the host thread for the events in the given 
+     * {@link EventList} to complete.<br>
+     * <br>
+     * This is equivalent to {@link #clWaitForEvents(int, cl_event[])},
+     * except for the event list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param event_list The event list
+     * @return The error code
+     */
+    public static int clWaitForEvents(EventList event_list)
+    {
+        return checkResult(clWaitForEventsEventListNative(sizeOf(event_list), bufferOf(event_list)));
+    }
+
+    static native int clWaitForEventsEventListNative(int num_events, LongBuffer event_list);
+
     /**
      * <p>
      *       Returns information about the event object.
@@ -15305,12 +15514,12 @@ public final class CL
             }
             cl_event result = clCreateUserEventNative(context, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
         else
         {
             cl_event result = clCreateUserEventNative(context, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(result);
         }
 
     }
@@ -15454,6 +15663,7 @@ public final class CL
      */
     public static int clReleaseEvent(cl_event event)
     {
+        ResourceScope.excludeReleased(event);
         return checkResult(clReleaseEventNative(event));
     }
 
@@ -15810,7 +16020,7 @@ public final class CL
         // OPENCL_1_1
         return checkResult(clSetEventCallbackNative(event, command_exec_callback_type, pfn_notify, user_data));
     }
-    private static native int clSetEventCallbackNative(cl_event event, int command_exec_callback_type, EventCallbackFunction pfn_notify, Object user_data);
+    static native int clSetEventCallbackNative(cl_event event, int command_exec_callback_type, EventCallbackFunction pfn_notify, Object user_data);
 
 
 
@@ -16035,7 +16245,7 @@ public final class CL
         return checkResult(clGetEventProfilingInfoNative(event, param_name, param_value_size, param_value, param_value_size_ret));
     }
 
-    private static native int clGetEventProfilingInfoNative(cl_event event, int param_name, long param_value_size, Pointer param_value, long param_value_size_ret[]);
+    static native int clGetEventProfilingInfoNative(cl_event event, int param_name, long param_value_size, Pointer param_value, long param_value_size_ret[]);
 
     /**
      * <p>
@@ -16442,6 +16652,58 @@ public final class CL
 
     private static native int clEnqueueReadBufferNative(cl_command_queue command_queue, cl_mem buffer, boolean blocking_read, long offset, long cb, Pointer ptr, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueue commands to read from a buffer object to host memory, 
+     * waiting for the events in the given {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueReadBuffer(cl_command_queue, cl_mem, boolean, long, long, Pointer, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param buffer The buffer
+     * @param blocking_read Whether the operation is blocking
+     * @param offset The offset in the buffer, in bytes
+     * @param cb The number of bytes
+     * @param ptr The pointer to the host memory
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     * @throws IllegalArgumentException If <code>blocking_read==false</code> 
+     * and the given Pointer is <i>not</i> a Pointer to a direct buffer.
+     */
+    public static int clEnqueueReadBuffer(cl_command_queue command_queue, cl_mem buffer, boolean blocking_read, long offset, long cb, Pointer ptr, EventList event_wait_list, cl_event event)
+    {
+        if (blocking_read)
+        {
+            return checkResult(clEnqueueReadBufferEventListNative(nativePointerOf(command_queue), nativePointerOf(buffer), blocking_read, offset, cb, ptr, sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+        }
+
+        // See implementation notes about NON_BLOCKING_OPERATIONS
+        if (!ptr.isDirectBufferPointer())
+        {
+            throw new IllegalArgumentException(
+                "Non-blocking read operations may only be " +
+                "performed using pointers to direct buffers");
+        }
+        boolean doRetainEvent = true;
+        if (event == null)
+        {
+            doRetainEvent = false;
+            event = new cl_event();
+        }
+        int result = clEnqueueReadBufferEventListNative(nativePointerOf(command_queue), nativePointerOf(buffer), blocking_read, offset, cb, ptr, sizeOf(event_wait_list), bufferOf(event_wait_list), event);
+        // Only schedule the reference release if the enqueue succeeds.
+        if (result == CL_SUCCESS)
+        {
+            scheduleReferenceRelease(event, ptr, doRetainEvent);
+        }
+        return checkResult(result);
+    }
+
+    static native int clEnqueueReadBufferEventListNative(long command_queue, long buffer, boolean blocking_read, long offset, long cb, Pointer ptr, int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
 
 
     /**
@@ -17039,6 +17301,58 @@ public final class CL
 
     private static native int clEnqueueWriteBufferNative(cl_command_queue command_queue, cl_mem buffer, boolean blocking_write, long offset, long cb, Pointer ptr, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueue commands to write to a buffer object from host memory, 
+     * waiting for the events in the given {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueWriteBuffer(cl_command_queue, cl_mem, boolean, long, long, Pointer, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param buffer The buffer
+     * @param blocking_write Whether the operation is blocking
+     * @param offset The offset in the buffer, in bytes
+     * @param cb The number of bytes
+     * @param ptr The pointer to the host memory
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     * @throws IllegalArgumentException If <code>blocking_write==false</code> 
+     * and the given Pointer is <i>not</i> a Pointer to a direct buffer.
+     */
+    public static int clEnqueueWriteBuffer(cl_command_queue command_queue, cl_mem buffer, boolean blocking_write, long offset, long cb, Pointer ptr, EventList event_wait_list, cl_event event)
+    {
+        if (blocking_write)
+        {
+            return checkResult(clEnqueueWriteBufferEventListNative(nativePointerOf(command_queue), nativePointerOf(buffer), blocking_write, offset, cb, ptr, sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+        }
+
+        // See implementation notes about NON_BLOCKING_OPERATIONS
+        if (!ptr.isDirectBufferPointer())
+        {
+            throw new IllegalArgumentException(
+                "Non-blocking write operations may only be " +
+                "performed using pointers to direct buffers");
+        }
+        boolean doRetainEvent = true;
+        if (event == null)
+        {
+            doRetainEvent = false;
+            event = new cl_event();
+        }
+        int result = clEnqueueWriteBufferEventListNative(nativePointerOf(command_queue), nativePointerOf(buffer), blocking_write, offset, cb, ptr, sizeOf(event_wait_list), bufferOf(event_wait_list), event);
+        // Only schedule the reference release if the enqueue succeeds.
+        if (result == CL_SUCCESS)
+        {
+            scheduleReferenceRelease(event, ptr, doRetainEvent);
+        }
+        return checkResult(result);
+    }
+
+    static native int clEnqueueWriteBufferEventListNative(long command_queue, long buffer, boolean blocking_write, long offset, long cb, Pointer ptr, int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
 
     /**
      * <p>
@@ -17816,6 +18130,32 @@ public final class CL
 
     private static native int clEnqueueCopyBufferNative(cl_command_queue command_queue, cl_mem src_buffer, cl_mem dst_buffer, long src_offset, long dst_offset, long cb, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueues a command to copy from one buffer object to another,
+     * waiting for the events in the given {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueCopyBuffer(cl_command_queue, cl_mem, cl_mem, long, long, long, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param src_buffer The source buffer
+     * @param dst_buffer The destination buffer
+     * @param src_offset The offset in the source buffer, in bytes
+     * @param dst_offset The offset in the destination buffer, in bytes
+     * @param cb The number of bytes to copy
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueCopyBuffer(cl_command_queue command_queue, cl_mem src_buffer, cl_mem dst_buffer, long src_offset, long dst_offset, long cb, EventList event_wait_list, cl_event event)
+    {
+        return checkResult(clEnqueueCopyBufferEventListNative(nativePointerOf(command_queue), nativePointerOf(src_buffer), nativePointerOf(dst_buffer), src_offset, dst_offset, cb, sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+    }
+
+    static native int clEnqueueCopyBufferEventListNative(long command_queue, long src_buffer, long dst_buffer, long src_offset, long dst_offset, long cb, int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
 
     /**
      * <p>
@@ -19884,11 +20224,56 @@ public final class CL
         {
             checkResult(errcode_ret[0]);
         }
-        return result;
+        return ResourceScope.addMappedToCurrent(command_queue, buffer, result);
     }
 
     private static native ByteBuffer clEnqueueMapBufferNative(cl_command_queue command_queue, cl_mem buffer, boolean blocking_map, long map_flags, long offset, long cb, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event, int errcode_ret[]);
 
+    /**
+     * Enqueues a command to map a region of the given buffer object into 
+     * the host address space, and returns a {@link MemoryView} for the 
+     * mapped region.<br>
+     * <br>
+     * This function behaves like 
+     * {@link #clEnqueueMapBuffer(cl_command_queue, cl_mem, boolean, long, long, long, int, cl_event[], cl_event, int[])},
+     * but the mapped region may be larger than 2 GB, which is the 
+     * maximum size of a <code>ByteBuffer</code>. The region is unmapped 
+     * with {@link #clEnqueueUnmapMemObject(cl_command_queue, cl_mem, MemoryView, int, cl_event[], cl_event)}.
+     * 
+     * @param command_queue The command queue
+     * @param buffer The buffer object
+     * @param blocking_map Whether the mapping is blocking
+     * @param map_flags The map flags
+     * @param offset The offset, in bytes
+     * @param cb The size of the region, in bytes
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The event wait list
+     * @param event The event
+     * @param errcode_ret The error code
+     * @return The memory view for the mapped region
+     */
+    public static MemoryView clEnqueueMapBufferView(cl_command_queue command_queue, cl_mem buffer, boolean blocking_map, long map_flags, long offset, long cb, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event, int errcode_ret[])
+    {
+        if (exceptionsEnabled && errcode_ret == null)
+        {
+            errcode_ret = new int[1];
+        }
+        long address = clEnqueueMapBufferAddressNative(command_queue, buffer, blocking_map, map_flags, offset, cb, num_events_in_wait_list, event_wait_list, event, errcode_ret);
+        if (exceptionsEnabled)
+        {
+            checkResult(errcode_ret[0]);
+        }
+        if (address == 0)
+        {
+            return null;
+        }
+        MemoryView result = new MemoryView(address, cb);
+        ResourceScope.addMappedToCurrent(command_queue, buffer, result.window(0));
+        return result;
+    }
+
+    private static native long clEnqueueMapBufferAddressNative(cl_command_queue command_queue, cl_mem buffer, boolean blocking_map, long map_flags, long offset, long cb, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event, int errcode_ret[]);
+
     /**
      * <p>
      *       Enqueues a command to map a region of an image object into the host address
@@ -20209,7 +20594,7 @@ public final class CL
         {
             checkResult(errcode_ret[0]);
         }
-        return result;
+        return ResourceScope.addMappedToCurrent(command_queue, image, result);
     }
 
     private static native ByteBuffer clEnqueueMapImageNative(cl_command_queue command_queue, cl_mem image, boolean blocking_map, long map_flags, long origin[], long region[], long image_row_pitch[], long image_slice_pitch[], int num_events_in_wait_list, cl_event event_wait_list[], cl_event event, int errcode_ret[]);
@@ -20395,6 +20780,7 @@ public final class CL
         // Only schedule the reference release if the enqueue succeeds.
         if (result == CL_SUCCESS)
         {
+            ResourceScope.excludeMappedFromCurrent(mapped_ptr);
             scheduleReferenceRelease(event, mapped_ptr, doRetainEvent);
         }
         return checkResult(result);
@@ -20402,6 +20788,26 @@ public final class CL
 
     private static native int clEnqueueUnmapMemObjectNative(cl_command_queue command_queue, cl_mem memobj, ByteBuffer mapped_ptr, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueues a command to unmap a region that has been mapped with
+     * {@link #clEnqueueMapBufferView(cl_command_queue, cl_mem, boolean, long, long, long, int, cl_event[], cl_event, int[])}.
+     * See {@link #clEnqueueUnmapMemObject(cl_command_queue, cl_mem, ByteBuffer, int, cl_event[], cl_event)}
+     * 
+     * @param command_queue The command queue
+     * @param memobj The memory object
+     * @param mapped_ptr The memory view of the mapped region
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The event wait list
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueUnmapMemObject(cl_command_queue command_queue, cl_mem memobj, MemoryView mapped_ptr, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event)
+    {
+        // The first window starts at the mapped pointer
+        ByteBuffer mappedBuffer = mapped_ptr == null ? null : mapped_ptr.window(0);
+        return clEnqueueUnmapMemObject(command_queue, memobj, mappedBuffer, num_events_in_wait_list, event_wait_list, event);
+    }
+
 
     /**
      * <p>
@@ -20979,6 +21385,214 @@ public final class CL
 
     private static native int clEnqueueNDRangeKernelNative(cl_command_queue command_queue, cl_kernel kernel, int work_dim, long global_work_offset[], long global_work_size[], long local_work_size[], int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueues a command to execute a one-dimensional kernel on a device.<br>
+     * <br>
+     * This is a convenience overload of 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}
+     * that receives the work sizes as primitive values. It does not
+     * require any arrays to be allocated on Java side, and the values 
+     * are passed to the OpenCL implementation without intermediate 
+     * native allocations.<br>
+     * <br>
+     * A <code>local_work_size</code> of 0 is equivalent to passing 
+     * a <code>null</code> array for the local work size to the
+     * array-based method, meaning that the OpenCL implementation 
+     * will determine how to break the global work-items into 
+     * work-groups.
+     * 
+     * @param command_queue The command queue
+     * @param kernel The kernel
+     * @param global_work_offset The global work offset
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size, or 0
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The wait list
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(cl_command_queue command_queue, cl_kernel kernel, long global_work_offset, long global_work_size, long local_work_size, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event)
+    {
+        return checkResult(clEnqueueNDRangeKernelSizesNative(nativePointerOf(command_queue), nativePointerOf(kernel), 1, 
+            global_work_offset, 0, 0, 
+            global_work_size, 0, 0, 
+            local_work_size, 0, 0, 
+            num_events_in_wait_list, event_wait_list, event));
+    }
+
+    /**
+     * Enqueues a command to execute a two-dimensional kernel on a device.<br>
+     * <br>
+     * This is a convenience overload of 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}
+     * that receives the work sizes as primitive values. See 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, long, long, long, int, cl_event[], cl_event)}
+     * for details.<br>
+     * <br>
+     * If all local work sizes are 0, then the OpenCL implementation
+     * will determine how to break the global work-items into 
+     * work-groups.
+     * 
+     * @param command_queue The command queue
+     * @param kernel The kernel
+     * @param global_work_offset0 The global work offset in dimension 0
+     * @param global_work_offset1 The global work offset in dimension 1
+     * @param global_work_size0 The global work size in dimension 0
+     * @param global_work_size1 The global work size in dimension 1
+     * @param local_work_size0 The local work size in dimension 0, or 0
+     * @param local_work_size1 The local work size in dimension 1, or 0
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The wait list
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(cl_command_queue command_queue, cl_kernel kernel, 
+        long global_work_offset0, long global_work_offset1, 
+        long global_work_size0, long global_work_size1, 
+        long local_work_size0, long local_work_size1, 
+        int num_events_in_wait_list, cl_event event_wait_list[], cl_event event)
+    {
+        return checkResult(clEnqueueNDRangeKernelSizesNative(nativePointerOf(command_queue), nativePointerOf(kernel), 2, 
+            global_work_offset0, global_work_offset1, 0, 
+            global_work_size0, global_work_size1, 0, 
+            local_work_size0, local_work_size1, 0, 
+            num_events_in_wait_list, event_wait_list, event));
+    }
+
+    /**
+     * Enqueues a command to execute a three-dimensional kernel on a device.<br>
+     * <br>
+     * This is a convenience overload of 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}
+     * that receives the work sizes as primitive values. See 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, long, long, long, int, cl_event[], cl_event)}
+     * for details.<br>
+     * <br>
+     * If all local work sizes are 0, then the OpenCL implementation
+     * will determine how to break the global work-items into 
+     * work-groups.
+     * 
+     * @param command_queue The command queue
+     * @param kernel The kernel
+     * @param global_work_offset0 The global work offset in dimension 0
+     * @param global_work_offset1 The global work offset in dimension 1
+     * @param global_work_offset2 The global work offset in dimension 2
+     * @param global_work_size0 The global work size in dimension 0
+     * @param global_work_size1 The global work size in dimension 1
+     * @param global_work_size2 The global work size in dimension 2
+     * @param local_work_size0 The local work size in dimension 0, or 0
+     * @param local_work_size1 The local work size in dimension 1, or 0
+     * @param local_work_size2 The local work size in dimension 2, or 0
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The wait list
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(cl_command_queue command_queue, cl_kernel kernel, 
+        long global_work_offset0, long global_work_offset1, long global_work_offset2, 
+        long global_work_size0, long global_work_size1, long global_work_size2, 
+        long local_work_size0, long local_work_size1, long local_work_size2, 
+        int num_events_in_wait_list, cl_event event_wait_list[], cl_event event)
+    {
+        return checkResult(clEnqueueNDRangeKernelSizesNative(nativePointerOf(command_queue), nativePointerOf(kernel), 3, 
+            global_work_offset0, global_work_offset1, global_work_offset2, 
+            global_work_size0, global_work_size1, global_work_size2, 
+            local_work_size0, local_work_size1, local_work_size2, 
+            num_events_in_wait_list, event_wait_list, event));
+    }
+
+    static native int clEnqueueNDRangeKernelSizesNative(long command_queue, long kernel, int work_dim, 
+        long global_work_offset0, long global_work_offset1, long global_work_offset2, 
+        long global_work_size0, long global_work_size1, long global_work_size2, 
+        long local_work_size0, long local_work_size1, long local_work_size2, 
+        int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
+
+    /**
+     * Enqueues a command to execute a kernel on a device, waiting for
+     * the events in the given {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param kernel The kernel
+     * @param work_dim The work dimension, between 1 and 3
+     * @param global_work_offset The global work offset, may be 
+     * <code>null</code>
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size, may be 
+     * <code>null</code>
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(cl_command_queue command_queue, cl_kernel kernel, int work_dim, long global_work_offset[], long global_work_size[], long local_work_size[], EventList event_wait_list, cl_event event)
+    {
+        return checkResult(clEnqueueNDRangeKernelEventListNative(nativePointerOf(command_queue), nativePointerOf(kernel), work_dim, 
+            workSizeOf(global_work_offset, 0, work_dim), workSizeOf(global_work_offset, 1, work_dim), workSizeOf(global_work_offset, 2, work_dim), 
+            workSizeOf(global_work_size, 0, work_dim), workSizeOf(global_work_size, 1, work_dim), workSizeOf(global_work_size, 2, work_dim), 
+            workSizeOf(local_work_size, 0, work_dim), workSizeOf(local_work_size, 1, work_dim), workSizeOf(local_work_size, 2, work_dim), 
+            sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+    }
+
+    /**
+     * Enqueues a command to execute a one-dimensional kernel on a device,
+     * waiting for the events in the given {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, long, long, long, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param kernel The kernel
+     * @param global_work_offset The global work offset
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size, or 0
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(cl_command_queue command_queue, cl_kernel kernel, 
+        long global_work_offset, long global_work_size, long local_work_size, 
+        EventList event_wait_list, cl_event event)
+    {
+        return checkResult(clEnqueueNDRangeKernelEventListNative(nativePointerOf(command_queue), nativePointerOf(kernel), 1, 
+            global_work_offset, 0, 0, 
+            global_work_size, 0, 0, 
+            local_work_size, 0, 0, 
+            sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+    }
+
+    static native int clEnqueueNDRangeKernelEventListNative(long command_queue, long kernel, int work_dim, 
+        long global_work_offset0, long global_work_offset1, long global_work_offset2, 
+        long global_work_size0, long global_work_size1, long global_work_size2, 
+        long local_work_size0, long local_work_size1, long local_work_size2, 
+        int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
+    /**
+     * Returns the specified element of the given work size array, or 0
+     * if the array is <code>null</code> or the index is not smaller than
+     * the given work dimension. This is used for passing the work sizes 
+     * to the native methods as individual values, which are marshalled 
+     * by a single native function.
+     * 
+     * @param array The array
+     * @param index The index
+     * @param work_dim The work dimension
+     * @return The value
+     */
+    static long workSizeOf(long array[], int index, int work_dim)
+    {
+        if (array == null || index >= work_dim)
+        {
+            return 0;
+        }
+        return array[index];
+    }
+
     /**
      * <p>
      *       Enqueues a command to execute a kernel on a device.
@@ -21567,6 +22181,29 @@ public final class CL
     }
     private static native int clEnqueueMarkerWithWaitListNative(cl_command_queue command_queue, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueues a marker command which waits for the events in the given 
+     * {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueMarkerWithWaitList(cl_command_queue, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     * @since OpenCL 1.2
+     */
+    public static int clEnqueueMarkerWithWaitList(cl_command_queue command_queue, EventList event_wait_list, cl_event event)
+    {
+        // OPENCL_1_2
+        return checkResult(clEnqueueMarkerWithWaitListEventListNative(nativePointerOf(command_queue), sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+    }
+
+    static native int clEnqueueMarkerWithWaitListEventListNative(long command_queue, int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
 
 
 
@@ -21731,6 +22368,81 @@ public final class CL
     }
     private static native int clEnqueueBarrierWithWaitListNative(cl_command_queue command_queue, int num_events_in_wait_list, cl_event event_wait_list[], cl_event event);
 
+    /**
+     * Enqueues a barrier command which waits for the events in the given 
+     * {@link EventList}.<br>
+     * <br>
+     * This is equivalent to 
+     * {@link #clEnqueueBarrierWithWaitList(cl_command_queue, int, cl_event[], cl_event)},
+     * except for the wait list, which is passed to OpenCL without
+     * creating a native copy.
+     * 
+     * @param command_queue The command queue
+     * @param event_wait_list The wait list, may be <code>null</code>
+     * @param event The event
+     * @return The error code
+     * @since OpenCL 1.2
+     */
+    public static int clEnqueueBarrierWithWaitList(cl_command_queue command_queue, EventList event_wait_list, cl_event event)
+    {
+        // OPENCL_1_2
+        return checkResult(clEnqueueBarrierWithWaitListEventListNative(nativePointerOf(command_queue), sizeOf(event_wait_list), bufferOf(event_wait_list), event));
+    }
+
+    static native int clEnqueueBarrierWithWaitListEventListNative(long command_queue, int num_events_in_wait_list, LongBuffer event_wait_list, cl_event event);
+
+    /**
+     * Enqueue all commands that have been recorded in the given 
+     * {@link CommandBatch}, with a single native call.<br>
+     * <br>
+     * The commands are enqueued in the order in which they have been 
+     * recorded. If enqueueing one of the commands fails, then the 
+     * remaining commands will not be enqueued, and the respective 
+     * error code will be returned. The error codes and the requested
+     * events of the individual commands may afterwards be obtained
+     * from the given batch.<br>
+     * <br>
+     * For non-blocking read- and write operations, references to the
+     * host buffers will be kept until the respective operations have
+     * completed, as described in {@link #clEnqueueReadBuffer} and 
+     * {@link #clEnqueueWriteBuffer}.
+     * 
+     * @param command_queue The command queue
+     * @param batch The command batch
+     * @return The error code
+     * @throws NullPointerException If the given batch is 
+     * <code>null</code>
+     */
+    public static int clEnqueueCommandBatch(cl_command_queue command_queue, CommandBatch batch)
+    {
+        int numCommands = batch.getCommandCount();
+        int result = CL_SUCCESS;
+        try
+        {
+            result = clEnqueueCommandBatchNative(nativePointerOf(command_queue), 
+                batch.getCommands(), batch.getCommandsSize(), numCommands, 
+                batch.getHostBuffers(), batch.getResults());
+        }
+        finally
+        {
+            // See implementation notes about NON_BLOCKING_OPERATIONS.
+            // The commands that have been enqueued successfully before
+            // the native method threw an exception are tracked as well.
+            for (int i = 0; i < numCommands; i++)
+            {
+                Object hostBuffer = batch.getNonBlockingHostBuffer(i);
+                if (hostBuffer != null && batch.getErrorCode(i) == CL_SUCCESS)
+                {
+                    cl_event event = batch.createEvent(i);
+                    scheduleReferenceRelease(event, hostBuffer, batch.isEventRequested(i));
+                }
+            }
+        }
+        return checkResult(result);
+    }
+
+    static native int clEnqueueCommandBatchNative(long command_queue, ByteBuffer commands, int commands_size, int num_commands, Object host_buffers[], ByteBuffer results);
+
 
 
     /**
@@ -23509,12 +24221,12 @@ public final class CL
             }
             cl_mem result = clCreateFromGLBufferNative(context, flags, bufobj, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateFromGLBufferNative(context, flags, bufobj, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -24311,12 +25023,12 @@ public final class CL
             }
             cl_mem result = clCreateFromGLTextureNative(context, flags, target, miplevel, texture, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateFromGLTextureNative(context, flags, target, miplevel, texture, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
     private static native cl_mem clCreateFromGLTextureNative(cl_context context, long flags, int target, int miplevel, int texture, int errcode_ret[]);
@@ -24533,12 +25245,12 @@ public final class CL
             }
             cl_mem result = clCreateFromGLTexture2DNative(context, flags, target, miplevel, texture, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateFromGLTexture2DNative(context, flags, target, miplevel, texture, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -24759,12 +25471,12 @@ public final class CL
             }
             cl_mem result = clCreateFromGLTexture3DNative(context, flags, target, miplevel, texture, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateFromGLTexture3DNative(context, flags, target, miplevel, texture, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -25048,12 +25760,12 @@ public final class CL
             }
             cl_mem result = clCreateFromGLRenderbufferNative(context, flags, renderbuffer, errcode_ret);
             checkResult(errcode_ret[0]);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
         else
         {
             cl_mem result = clCreateFromGLRenderbufferNative(context, flags, renderbuffer, errcode_ret);
-            return result;
+            return ResourceScope.addToCurrent(MemoryTracker.created(result));
         }
     }
 
@@ -26198,5 +26910,69 @@ public final class CL
                 "to direct buffers");
         }
     }
+        
+    //=========================================================================
+    // Native methods for the raw-handle API in CLRaw. These receive the
+    // handles of OpenCL objects as long values. Wait lists are given as
+    // arrays of event handles, and the handle of a resulting event is
+    // written into the first element of the given 'event' array.
+    
+    static native int clEnqueueNDRangeKernelRawNative(long command_queue, long kernel, int work_dim, long global_work_offset0, long global_work_offset1, long global_work_offset2, long global_work_size0, long global_work_size1, long global_work_size2, long local_work_size0, long local_work_size1, long local_work_size2, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clEnqueueWriteBufferRawNative(long command_queue, long buffer, boolean blocking_write, long offset, long cb, Buffer ptr, long ptr_offset, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clEnqueueReadBufferRawNative(long command_queue, long buffer, boolean blocking_read, long offset, long cb, Buffer ptr, long ptr_offset, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clEnqueueCopyBufferRawNative(long command_queue, long src_buffer, long dst_buffer, long src_offset, long dst_offset, long cb, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clEnqueueMarkerWithWaitListRawNative(long command_queue, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clEnqueueBarrierWithWaitListRawNative(long command_queue, int num_events_in_wait_list, long event_wait_list[], long event[]);
+    
+    static native int clWaitForEventsRawNative(int num_events, long event_list[]);
+    
+    static native int clFlushRawNative(long command_queue);
+    
+    static native int clFinishRawNative(long command_queue);
+    
+    static native int clRetainEventRawNative(long event);
+    
+    static native int clReleaseEventRawNative(long event);
+    
+    static native int clRetainMemObjectRawNative(long memobj);
+    
+    static native int clReleaseMemObjectRawNative(long memobj);
+    
+    static native int clRetainKernelRawNative(long kernel);
+    
+    static native int clReleaseKernelRawNative(long kernel);
+    
+    /**
+     * Register the given callback for the event with the given handle. 
+     * The callback receives a <code>null</code> event object, so that no
+     * object has to be created when it is called. 
+     */
+    static native int clSetEventCallbackRawNative(long event, int command_exec_callback_type, EventCallbackFunction pfn_notify, Object user_data);
+    
+    //=========================================================================
+    // Native methods for the aligned host memory in AlignedMemory
+    
+    static native ByteBuffer allocateAlignedMemoryNative(long size, long alignment, long address[]);
+    
+    static native void freeAlignedMemoryNative(long address);
+    
+    static native long getPageSizeNative();
+    
+    //=========================================================================
+    // Native method for releasing the entries of a ResourceScope. The 
+    // entries are released in reverse order, and the first error code
+    // is returned.
+    
+    static native int releaseScopeNative(int count, int types[], long handles[], long queues[], ByteBuffer buffers[]);
+    
+    //=========================================================================
+    // Native method for creating the windows of a MemoryView
+    
+    static native ByteBuffer createDirectByteBufferNative(long address, long size);
     
 }
@@ -0,0 +1,605 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A future that is completed when the command that is associated 
+ * with an OpenCL event has completed.<br>
+ * <br>
+ * Instances of this class are created by enqueueing a {@link Command}:
+ * <pre><code>
+ * CLFuture write = CLFuture.enqueue(new CLFuture.Command()
+ * {
+ *     public int enqueue(EventList waitList, cl_event event)
+ *     {
+ *         return clEnqueueWriteBuffer(queue, mem, CL_NON_BLOCKING, 
+ *             0, size, Pointer.to(buffer), waitList, event);
+ *     }
+ * });
+ * CLFuture launch = write.thenEnqueue(new CLFuture.Command()
+ * {
+ *     public int enqueue(EventList waitList, cl_event event)
+ *     {
+ *         return clEnqueueNDRangeKernel(queue, kernel, 
+ *             0, n, 0, waitList, event);
+ *     }
+ * });
+ * launch.addListener(new CLFuture.Listener()
+ * {
+ *     public void completed(CLFuture future)
+ *     {
+ *         System.out.println("Kernel took " + 
+ *             future.getDuration() + " ns");
+ *     }
+ * });
+ * </code></pre>
+ * The future is completed from a callback that is registered with 
+ * {@link CL#clSetEventCallback}, when the event reaches the 
+ * <code>CL_COMPLETE</code> status or an error status. The execution 
+ * status and the profiling information of the event are then stored
+ * in the future, and the future releases its reference to the event.
+ * If event callbacks are not supported (for example, for OpenCL 1.0 
+ * implementations), then the thread that creates the future will
+ * wait for the event.<br>
+ * <br>
+ * Commands that are enqueued with {@link #thenEnqueue(Command)} use 
+ * the event of this future in their wait list, so that they are 
+ * chained on the device, without waiting on the host.<br>
+ * <br>
+ * Listeners are usually called on a thread of the OpenCL 
+ * implementation. They should return quickly, and must not call 
+ * blocking OpenCL functions.
+ */
+public final class CLFuture implements Future<Integer>
+{
+    /**
+     * Interface for a command that is enqueued with an event
+     */
+    public interface Command
+    {
+        /**
+         * Enqueue the command. The given event has to be passed to
+         * the enqueue function, and the given wait list should be 
+         * passed as the wait list of the enqueue function. 
+         * 
+         * @param waitList The wait list. This is never <code>null</code>,
+         * but may be empty.
+         * @param event The event for the command
+         * @return The error code of the enqueue function
+         */
+        int enqueue(EventList waitList, cl_event event);
+    }
+    
+    /**
+     * Interface for classes that want to be informed when a 
+     * {@link CLFuture} has completed
+     */
+    public interface Listener
+    {
+        /**
+         * Will be called when the given future has completed
+         * 
+         * @param future The future
+         */
+        void completed(CLFuture future);
+    }
+    
+    /**
+     * Enqueue the given command, and return a future that will be 
+     * completed when the command has completed
+     * 
+     * @param command The command
+     * @return The future
+     * @throws CLException If the command returned an error code
+     */
+    public static CLFuture enqueue(Command command)
+    {
+        return enqueue(command, new EventList(0));
+    }
+    
+    /**
+     * Enqueue the given command so that it waits for all of the given 
+     * futures, and return a future that will be completed when the 
+     * command has completed
+     * 
+     * @param command The command
+     * @param futures The futures to wait for
+     * @return The future
+     * @throws CLException If the command returned an error code
+     */
+    public static CLFuture enqueueAfter(Command command, CLFuture ... futures)
+    {
+        EventList waitList = new EventList(futures.length);
+        List<cl_event> retained = new ArrayList<cl_event>(futures.length);
+        try
+        {
+            for (CLFuture future : futures)
+            {
+                cl_event event = future.retainEventIfPending();
+                if (event != null)
+                {
+                    retained.add(event);
+                    waitList.add(event);
+                }
+            }
+            return enqueue(command, waitList);
+        }
+        finally
+        {
+            for (cl_event event : retained)
+            {
+                CL.clReleaseEventRawNative(event.getNativePointer());
+            }
+        }
+    }
+    
+    /**
+     * Create a future for the given event. The future will retain the 
+     * event, so the caller may release the event after this call.
+     * 
+     * @param event The event
+     * @return The future
+     */
+    public static CLFuture create(cl_event event)
+    {
+        CL.clRetainEvent(event);
+        return createOwning(event);
+    }
+    
+    /**
+     * Enqueue the given command with the given wait list, and return 
+     * a future for its event
+     * 
+     * @param command The command
+     * @param waitList The wait list
+     * @return The future
+     * @throws CLException If the command returned an error code
+     */
+    private static CLFuture enqueue(Command command, EventList waitList)
+    {
+        cl_event event = new cl_event();
+        int result = command.enqueue(waitList, event);
+        CL.checkSuccess(result);
+        return createOwning(event);
+    }
+    
+    /**
+     * Create a future for the given event, which takes the ownership
+     * of one reference to the event
+     * 
+     * @param event The event
+     * @return The future
+     */
+    private static CLFuture createOwning(cl_event event)
+    {
+        CLFuture future = new CLFuture(event);
+        future.registerCallback();
+        return future;
+    }
+    
+    /**
+     * The callback that is registered for all futures. It receives the 
+     * future as the user data. Using a single callback object allows 
+     * the native layer to reuse its global reference for all 
+     * registrations.
+     */
+    private static final EventCallbackFunction completionCallback = 
+        new EventCallbackFunction()
+    {
+        @Override
+        public void function(cl_event event, 
+            int command_exec_callback_type, Object user_data)
+        {
+            ((CLFuture)user_data).complete(command_exec_callback_type);
+        }
+    };
+    
+    /**
+     * The event, or <code>null</code> when the future was completed
+     * and the event was released
+     */
+    private cl_event event;
+    
+    /**
+     * The latch that is released when this future was completed
+     */
+    private final CountDownLatch latch;
+    
+    /**
+     * The listeners that will be informed about the completion
+     */
+    private final List<Listener> listeners;
+    
+    /**
+     * The execution status of the event
+     */
+    private volatile int executionStatus;
+    
+    /**
+     * The CL_PROFILING_COMMAND_QUEUED value, or -1 if it is not available
+     */
+    private volatile long queued = -1;
+    
+    /**
+     * The CL_PROFILING_COMMAND_SUBMIT value, or -1 if it is not available
+     */
+    private volatile long submit = -1;
+    
+    /**
+     * The CL_PROFILING_COMMAND_START value, or -1 if it is not available
+     */
+    private volatile long start = -1;
+    
+    /**
+     * The CL_PROFILING_COMMAND_END value, or -1 if it is not available
+     */
+    private volatile long end = -1;
+    
+    /**
+     * Creates a new future for the given event
+     * 
+     * @param event The event
+     */
+    private CLFuture(cl_event event)
+    {
+        this.event = event;
+        this.latch = new CountDownLatch(1);
+        this.listeners = new ArrayList<Listener>();
+        this.executionStatus = CL.CL_QUEUED;
+    }
+    
+    /**
+     * Enqueue the given command so that it waits for the event of this 
+     * future, and return a future that will be completed when the 
+     * command has completed.
+     * 
+     * @param command The command
+     * @return The future
+     * @throws CLException If the command returned an error code
+     */
+    public CLFuture thenEnqueue(Command command)
+    {
+        return enqueueAfter(command, this);
+    }
+    
+    /**
+     * Add the given listener to this future. If this future already
+     * has completed, then the listener is called immediately, on the 
+     * calling thread.
+     * 
+     * @param listener The listener
+     */
+    public void addListener(Listener listener)
+    {
+        synchronized (this)
+        {
+            if (latch.getCount() > 0)
+            {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.completed(this);
+    }
+    
+    /**
+     * Returns the execution status of the event. This is 
+     * <code>CL_COMPLETE</code> if the command completed successfully,
+     * a negative value if the command was terminated abnormally, and
+     * <code>CL_QUEUED</code> if the future has not completed yet.
+     * 
+     * @return The execution status
+     */
+    public int getExecutionStatus()
+    {
+        return executionStatus;
+    }
+    
+    /**
+     * Returns the CL_PROFILING_COMMAND_QUEUED value of the event, 
+     * in nanoseconds, or -1 if profiling information is not available,
+     * or this future has not completed yet
+     * 
+     * @return The profiling value
+     */
+    public long getProfilingQueued()
+    {
+        return queued;
+    }
+    
+    /**
+     * Returns the CL_PROFILING_COMMAND_SUBMIT value of the event, 
+     * in nanoseconds, or -1 if profiling information is not available,
+     * or this future has not completed yet
+     * 
+     * @return The profiling value
+     */
+    public long getProfilingSubmit()
+    {
+        return submit;
+    }
+    
+    /**
+     * Returns the CL_PROFILING_COMMAND_START value of the event, 
+     * in nanoseconds, or -1 if profiling information is not available,
+     * or this future has not completed yet
+     * 
+     * @return The profiling value
+     */
+    public long getProfilingStart()
+    {
+        return start;
+    }
+    
+    /**
+     * Returns the CL_PROFILING_COMMAND_END value of the event, 
+     * in nanoseconds, or -1 if profiling information is not available,
+     * or this future has not completed yet
+     * 
+     * @return The profiling value
+     */
+    public long getProfilingEnd()
+    {
+        return end;
+    }
+    
+    /**
+     * Returns the duration of the command, in nanoseconds, or -1 if 
+     * profiling information is not available, or this future has not 
+     * completed yet. Profiling information is only available when the 
+     * command queue was created with <code>CL_QUEUE_PROFILING_ENABLE</code>.
+     * 
+     * @return The duration
+     */
+    public long getDuration()
+    {
+        if (start == -1 || end == -1)
+        {
+            return -1;
+        }
+        return end - start;
+    }
+    
+    /**
+     * Futures that are associated with OpenCL commands can not be 
+     * cancelled. This method will always return <code>false</code>.
+     * 
+     * @param mayInterruptIfRunning Ignored
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return false;
+    }
+    
+    /**
+     * Futures that are associated with OpenCL commands can not be 
+     * cancelled. This method will always return <code>false</code>.
+     * 
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean isCancelled()
+    {
+        return false;
+    }
+    
+    @Override
+    public boolean isDone()
+    {
+        return latch.getCount() == 0;
+    }
+    
+    /**
+     * Waits until the command has completed, and returns its 
+     * execution status, which is <code>CL_COMPLETE</code>.
+     * 
+     * @return The execution status
+     * @throws InterruptedException If the thread was interrupted
+     * @throws ExecutionException If the command was terminated 
+     * abnormally. The cause will be a {@link CLException} with 
+     * the execution status.
+     */
+    @Override
+    public Integer get() throws InterruptedException, ExecutionException
+    {
+        latch.await();
+        return result();
+    }
+    
+    /**
+     * Waits until the command has completed, for at most the given time,
+     * and returns its execution status, which is <code>CL_COMPLETE</code>.
+     * 
+     * @param timeout The timeout
+     * @param unit The time unit
+     * @return The execution status
+     * @throws InterruptedException If the thread was interrupted
+     * @throws ExecutionException If the command was terminated 
+     * abnormally. The cause will be a {@link CLException} with 
+     * the execution status.
+     * @throws TimeoutException If the command did not complete in time
+     */
+    @Override
+    public Integer get(long timeout, TimeUnit unit) 
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        if (!latch.await(timeout, unit))
+        {
+            throw new TimeoutException(
+                "Command did not complete after " + timeout + " " + unit);
+        }
+        return result();
+    }
+    
+    /**
+     * Returns the result of this future, which has to be completed
+     * 
+     * @return The result
+     * @throws ExecutionException If the command was terminated 
+     * abnormally
+     */
+    private Integer result() throws ExecutionException
+    {
+        int status = executionStatus;
+        if (status < 0)
+        {
+            throw new ExecutionException(new CLException(
+                "Command terminated with " + CL.stringFor_errorCode(status), 
+                status));
+        }
+        return status;
+    }
+    
+    /**
+     * If this future has not completed yet, retain its event and 
+     * return it. Otherwise, return <code>null</code>.
+     * 
+     * @return The retained event, or <code>null</code>
+     */
+    private synchronized cl_event retainEventIfPending()
+    {
+        if (event == null)
+        {
+            return null;
+        }
+        CL.clRetainEventRawNative(event.getNativePointer());
+        return event;
+    }
+    
+    /**
+     * Register the callback that completes this future. If callbacks
+     * are not supported, wait for the event and complete this future.
+     */
+    private void registerCallback()
+    {
+        int result = CL.CL_INVALID_OPERATION;
+        try
+        {
+            result = CL.clSetEventCallbackRawNative(
+                event.getNativePointer(), CL.CL_COMPLETE, 
+                completionCallback, this);
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // Fall back to waiting, below
+        }
+        if (result != CL.CL_SUCCESS)
+        {
+            CL.clWaitForEventsRawNative(1, 
+                new long[]{ event.getNativePointer() });
+            complete(queryExecutionStatus());
+        }
+    }
+    
+    /**
+     * Returns the CL_EVENT_COMMAND_EXECUTION_STATUS of the event
+     * 
+     * @return The execution status
+     */
+    private int queryExecutionStatus()
+    {
+        int status[] = { CL.CL_COMPLETE };
+        CL.clGetEventInfo(event, CL.CL_EVENT_COMMAND_EXECUTION_STATUS, 
+            Sizeof.cl_int, Pointer.to(status), null);
+        return status[0];
+    }
+    
+    /**
+     * Complete this future with the given execution status. This will
+     * obtain the profiling information, release the event, and inform
+     * all listeners.
+     * 
+     * @param status The execution status
+     */
+    private void complete(int status)
+    {
+        List<Listener> currentListeners = null;
+        synchronized (this)
+        {
+            if (event == null)
+            {
+                return;
+            }
+            queued = queryProfilingInfo(CL.CL_PROFILING_COMMAND_QUEUED);
+            submit = queryProfilingInfo(CL.CL_PROFILING_COMMAND_SUBMIT);
+            start = queryProfilingInfo(CL.CL_PROFILING_COMMAND_START);
+            end = queryProfilingInfo(CL.CL_PROFILING_COMMAND_END);
+            executionStatus = status;
+            CL.clReleaseEventRawNative(event.getNativePointer());
+            event = null;
+            currentListeners = new ArrayList<Listener>(listeners);
+            listeners.clear();
+            latch.countDown();
+        }
+        for (Listener listener : currentListeners)
+        {
+            listener.completed(this);
+        }
+    }
+    
+    /**
+     * Returns the specified profiling information of the event, or -1
+     * if it is not available
+     * 
+     * @param paramName The CL_PROFILING_* parameter name
+     * @return The profiling information
+     */
+    private long queryProfilingInfo(int paramName)
+    {
+        long value[] = { -1 };
+        int result = CL.clGetEventProfilingInfoNative(event, paramName, 
+            Sizeof.cl_ulong, Pointer.to(value), null);
+        if (result != CL.CL_SUCCESS)
+        {
+            return -1;
+        }
+        return value[0];
+    }
+    
+    /**
+     * Returns a String representation of this object.
+     * 
+     * @return A String representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        return "CLFuture[done=" + isDone() + 
+            ",executionStatus=" + executionStatus + "]";
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+/**
+ * A low-level variant of some of the functions in {@link CL}, which 
+ * receive and return the handles of OpenCL objects as primitive 
+ * <code>long</code> values.<br>
+ * <br>
+ * The functions in this class are intended for applications that 
+ * enqueue a large number of short commands, where the overhead of
+ * accessing and creating the {@link NativePointerObject} instances
+ * for each call is relevant. The handles may be obtained from existing
+ * objects with {@link NativePointerObject#getNativePointer()}:
+ * <pre><code>
+ * long queue = commandQueue.getNativePointer();
+ * long kernelHandle = kernel.getNativePointer();
+ * long event[] = new long[1];
+ * CLRaw.clEnqueueNDRangeKernel(queue, kernelHandle, 0, n, 0, 0, null, event);
+ * CLRaw.clWaitForEvents(1, event);
+ * CLRaw.clReleaseEvent(event[0]);
+ * </code></pre>
+ * Wait lists are given as arrays of event handles. When a method
+ * receives a <code>long event[]</code> array that is not 
+ * <code>null</code>, then the handle of the event that identifies
+ * the respective command will be written into the first element of
+ * this array. Such event handles have to be released with 
+ * {@link #clReleaseEvent(long)}. Handles may be converted into the
+ * usual objects with {@link #createEvent(long)} and 
+ * {@link #createMem(long)}, for example, in order to pass them to 
+ * the functions in {@link CL}.<br>
+ * <br>
+ * The functions in this class do not perform any validation of the 
+ * handles. Passing invalid handles may cause the virtual machine
+ * to crash. The error codes are checked in the same way as for the
+ * functions in {@link CL}: If exceptions have been enabled with
+ * {@link CL#setExceptionsEnabled(boolean)}, then a {@link CLException}
+ * will be thrown when an error code other than 
+ * <code>CL_SUCCESS</code> is returned.
+ */
+public final class CLRaw
+{
+    /**
+     * Enqueues a command to execute a kernel on a device, as in 
+     * {@link CL#clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}
+     * 
+     * @param command_queue The command queue handle
+     * @param kernel The kernel handle
+     * @param work_dim The work dimension, between 1 and 3
+     * @param global_work_offset The global work offset, may be 
+     * <code>null</code>
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size, may be 
+     * <code>null</code>
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(long command_queue, long kernel, 
+        int work_dim, long global_work_offset[], long global_work_size[], 
+        long local_work_size[], int num_events_in_wait_list, 
+        long event_wait_list[], long event[])
+    {
+        return CL.checkResult(CL.clEnqueueNDRangeKernelRawNative(
+            command_queue, kernel, work_dim,
+            CL.workSizeOf(global_work_offset, 0, work_dim), 
+            CL.workSizeOf(global_work_offset, 1, work_dim), 
+            CL.workSizeOf(global_work_offset, 2, work_dim),
+            CL.workSizeOf(global_work_size, 0, work_dim), 
+            CL.workSizeOf(global_work_size, 1, work_dim), 
+            CL.workSizeOf(global_work_size, 2, work_dim),
+            CL.workSizeOf(local_work_size, 0, work_dim), 
+            CL.workSizeOf(local_work_size, 1, work_dim), 
+            CL.workSizeOf(local_work_size, 2, work_dim),
+            num_events_in_wait_list, event_wait_list, event));
+    }
+    
+    /**
+     * Enqueues a command to execute a 1-dimensional kernel on a device.
+     * A global work offset of 0 and a local work size of 0 will be 
+     * passed as <code>NULL</code> to OpenCL.
+     * 
+     * @param command_queue The command queue handle
+     * @param kernel The kernel handle
+     * @param global_work_offset The global work offset
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     */
+    public static int clEnqueueNDRangeKernel(long command_queue, long kernel, 
+        long global_work_offset, long global_work_size, long local_work_size, 
+        int num_events_in_wait_list, long event_wait_list[], long event[])
+    {
+        return CL.checkResult(CL.clEnqueueNDRangeKernelRawNative(
+            command_queue, kernel, 1,
+            global_work_offset, 0, 0,
+            global_work_size, 0, 0,
+            local_work_size, 0, 0,
+            num_events_in_wait_list, event_wait_list, event));
+    }
+    
+    /**
+     * Enqueue a command to write to a buffer object from host memory,
+     * as in {@link CL#clEnqueueWriteBuffer}. The given pointer must be 
+     * a pointer to a direct buffer. For non-blocking operations, a 
+     * reference to this buffer will be kept until the operation has 
+     * completed.
+     * 
+     * @param command_queue The command queue handle
+     * @param buffer The memory object handle
+     * @param blocking_write Whether the write operation is blocking
+     * @param offset The offset in the memory object, in bytes
+     * @param cb The number of bytes to write
+     * @param ptr The pointer to the host memory
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     * @throws IllegalArgumentException If the given pointer is not a
+     * pointer to a direct buffer
+     */
+    public static int clEnqueueWriteBuffer(long command_queue, long buffer, 
+        boolean blocking_write, long offset, long cb, Pointer ptr, 
+        int num_events_in_wait_list, long event_wait_list[], long event[])
+    {
+        validateDirectBufferPointer(ptr);
+        if (blocking_write)
+        {
+            return CL.checkResult(CL.clEnqueueWriteBufferRawNative(
+                command_queue, buffer, true, offset, cb, 
+                ptr.getBuffer(), ptr.getByteOffset(), 
+                num_events_in_wait_list, event_wait_list, event));
+        }
+        long nativeEvent[] = event != null ? event : new long[1];
+        int result = CL.clEnqueueWriteBufferRawNative(
+            command_queue, buffer, false, offset, cb, 
+            ptr.getBuffer(), ptr.getByteOffset(), 
+            num_events_in_wait_list, event_wait_list, nativeEvent);
+        scheduleReferenceRelease(result, nativeEvent, ptr, event != null);
+        return CL.checkResult(result);
+    }
+    
+    /**
+     * Enqueue a command to read from a buffer object to host memory,
+     * as in {@link CL#clEnqueueReadBuffer}. The given pointer must be 
+     * a pointer to a direct buffer. For non-blocking operations, a 
+     * reference to this buffer will be kept until the operation has 
+     * completed.
+     * 
+     * @param command_queue The command queue handle
+     * @param buffer The memory object handle
+     * @param blocking_read Whether the read operation is blocking
+     * @param offset The offset in the memory object, in bytes
+     * @param cb The number of bytes to read
+     * @param ptr The pointer to the host memory
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     * @throws IllegalArgumentException If the given pointer is not a
+     * pointer to a direct buffer
+     */
+    public static int clEnqueueReadBuffer(long command_queue, long buffer, 
+        boolean blocking_read, long offset, long cb, Pointer ptr, 
+        int num_events_in_wait_list, long event_wait_list[], long event[])
+    {
+        validateDirectBufferPointer(ptr);
+        if (blocking_read)
+        {
+            return CL.checkResult(CL.clEnqueueReadBufferRawNative(
+                command_queue, buffer, true, offset, cb, 
+                ptr.getBuffer(), ptr.getByteOffset(), 
+                num_events_in_wait_list, event_wait_list, event));
+        }
+        long nativeEvent[] = event != null ? event : new long[1];
+        int result = CL.clEnqueueReadBufferRawNative(
+            command_queue, buffer, false, offset, cb, 
+            ptr.getBuffer(), ptr.getByteOffset(), 
+            num_events_in_wait_list, event_wait_list, nativeEvent);
+        scheduleReferenceRelease(result, nativeEvent, ptr, event != null);
+        return CL.checkResult(result);
+    }
+    
+    /**
+     * Enqueues a command to copy from one buffer object to another,
+     * as in {@link CL#clEnqueueCopyBuffer}
+     * 
+     * @param command_queue The command queue handle
+     * @param src_buffer The source memory object handle
+     * @param dst_buffer The destination memory object handle
+     * @param src_offset The offset in the source, in bytes
+     * @param dst_offset The offset in the destination, in bytes
+     * @param cb The number of bytes to copy
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     */
+    public static int clEnqueueCopyBuffer(long command_queue, 
+        long src_buffer, long dst_buffer, long src_offset, long dst_offset, 
+        long cb, int num_events_in_wait_list, long event_wait_list[], 
+        long event[])
+    {
+        return CL.checkResult(CL.clEnqueueCopyBufferRawNative(
+            command_queue, src_buffer, dst_buffer, src_offset, dst_offset, 
+            cb, num_events_in_wait_list, event_wait_list, event));
+    }
+    
+    /**
+     * Enqueues a marker command, as in 
+     * {@link CL#clEnqueueMarkerWithWaitList}
+     * 
+     * @param command_queue The command queue handle
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     */
+    public static int clEnqueueMarkerWithWaitList(long command_queue, 
+        int num_events_in_wait_list, long event_wait_list[], long event[])
+    {
+        return CL.checkResult(CL.clEnqueueMarkerWithWaitListRawNative(
+            command_queue, num_events_in_wait_list, event_wait_list, event));
+    }
+    
+    /**
+     * Enqueues a barrier command, as in 
+     * {@link CL#clEnqueueBarrierWithWaitList}
+     * 
+     * @param command_queue The command queue handle
+     * @param num_events_in_wait_list The number of events in the wait list
+     * @param event_wait_list The handles of the events to wait for
+     * @param event The array receiving the event handle, may be 
+     * <code>null</code>
+     * @return The error code
+     */
+    public static int clEnqueueBarrierWithWaitList(long command_queue, 
+        int num_events_in_wait_list, long event_wait_list[], long event[])
+    {
+        return CL.checkResult(CL.clEnqueueBarrierWithWaitListRawNative(
+            command_queue, num_events_in_wait_list, event_wait_list, event));
+    }
+    
+    /**
+     * Set an <code>int</code> kernel argument
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(long kernel, int arg_index, int value)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgIntNative(kernel, arg_index, value));
+    }
+    
+    /**
+     * Set a <code>long</code> kernel argument
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(long kernel, int arg_index, long value)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgLongNative(kernel, arg_index, value));
+    }
+    
+    /**
+     * Set a <code>float</code> kernel argument
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(long kernel, int arg_index, float value)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgFloatNative(kernel, arg_index, value));
+    }
+    
+    /**
+     * Set a <code>double</code> kernel argument
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param value The value
+     * @return The error code
+     */
+    public static int clSetKernelArg(long kernel, int arg_index, double value)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgDoubleNative(kernel, arg_index, value));
+    }
+    
+    /**
+     * Set a kernel argument that is the handle of a memory object
+     * or a sampler
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param handle The handle
+     * @return The error code
+     */
+    public static int clSetKernelArgHandle(long kernel, int arg_index, long handle)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgHandleNative(kernel, arg_index, handle));
+    }
+    
+    /**
+     * Set a kernel argument that is a pointer to local memory of
+     * the given size
+     * 
+     * @param kernel The kernel handle
+     * @param arg_index The argument index
+     * @param local_size The size of the local memory, in bytes
+     * @return The error code
+     */
+    public static int clSetKernelArgLocal(long kernel, int arg_index, long local_size)
+    {
+        return CL.checkResult(
+            CL.clSetKernelArgLocalNative(kernel, arg_index, local_size));
+    }
+    
+    /**
+     * Set all arguments that are contained in the given 
+     * {@link KernelArgs}, as in 
+     * {@link CL#clSetKernelArgs(cl_kernel, KernelArgs)}
+     * 
+     * @param kernel The kernel handle
+     * @param args The kernel arguments
+     * @return The error code
+     */
+    public static int clSetKernelArgs(long kernel, KernelArgs args)
+    {
+        return CL.checkResult(CL.clSetKernelArgsNative(
+            kernel, args.getBuffer(), args.getSize()));
+    }
+    
+    /**
+     * Waits for the given events to complete, as in 
+     * {@link CL#clWaitForEvents(int, cl_event[])}
+     * 
+     * @param num_events The number of events
+     * @param event_list The event handles
+     * @return The error code
+     */
+    public static int clWaitForEvents(int num_events, long event_list[])
+    {
+        return CL.checkResult(
+            CL.clWaitForEventsRawNative(num_events, event_list));
+    }
+    
+    /**
+     * Issues all previously queued commands to the device, as in
+     * {@link CL#clFlush(cl_command_queue)}
+     * 
+     * @param command_queue The command queue handle
+     * @return The error code
+     */
+    public static int clFlush(long command_queue)
+    {
+        return CL.checkResult(CL.clFlushRawNative(command_queue));
+    }
+    
+    /**
+     * Blocks until all previously queued commands have completed, 
+     * as in {@link CL#clFinish(cl_command_queue)}
+     * 
+     * @param command_queue The command queue handle
+     * @return The error code
+     */
+    public static int clFinish(long command_queue)
+    {
+        return CL.checkResult(CL.clFinishRawNative(command_queue));
+    }
+    
+    /**
+     * Increments the reference count of the given event
+     * 
+     * @param event The event handle
+     * @return The error code
+     */
+    public static int clRetainEvent(long event)
+    {
+        return CL.checkResult(CL.clRetainEventRawNative(event));
+    }
+    
+    /**
+     * Decrements the reference count of the given event
+     * 
+     * @param event The event handle
+     * @return The error code
+     */
+    public static int clReleaseEvent(long event)
+    {
+        ResourceScope.excludeReleased(ResourceScope.TYPE_EVENT, event);
+        return CL.checkResult(CL.clReleaseEventRawNative(event));
+    }
+    
+    /**
+     * Increments the reference count of the given memory object
+     * 
+     * @param memobj The memory object handle
+     * @return The error code
+     */
+    public static int clRetainMemObject(long memobj)
+    {
+        int result = CL.checkResult(CL.clRetainMemObjectRawNative(memobj));
+        if (result == CL.CL_SUCCESS)
+        {
+            MemoryTracker.retained(memobj);
+        }
+        return result;
+    }
+    
+    /**
+     * Decrements the reference count of the given memory object
+     * 
+     * @param memobj The memory object handle
+     * @return The error code
+     */
+    public static int clReleaseMemObject(long memobj)
+    {
+        ResourceScope.excludeReleased(ResourceScope.TYPE_MEM, memobj);
+        MemoryTracker.releasing(memobj);
+        return CL.checkResult(CL.clReleaseMemObjectRawNative(memobj));
+    }
+    
+    /**
+     * Increments the reference count of the given kernel
+     * 
+     * @param kernel The kernel handle
+     * @return The error code
+     */
+    public static int clRetainKernel(long kernel)
+    {
+        return CL.checkResult(CL.clRetainKernelRawNative(kernel));
+    }
+    
+    /**
+     * Decrements the reference count of the given kernel
+     * 
+     * @param kernel The kernel handle
+     * @return The error code
+     */
+    public static int clReleaseKernel(long kernel)
+    {
+        ResourceScope.excludeReleased(ResourceScope.TYPE_KERNEL, kernel);
+        return CL.checkResult(CL.clReleaseKernelRawNative(kernel));
+    }
+    
+    /**
+     * Creates a {@link cl_event} for the given event handle. The 
+     * reference count of the event is not modified.
+     * 
+     * @param event The event handle
+     * @return The event, or <code>null</code> if the given handle is 0
+     */
+    public static cl_event createEvent(long event)
+    {
+        if (event == 0)
+        {
+            return null;
+        }
+        cl_event result = new cl_event();
+        result.setNativePointer(event);
+        return result;
+    }
+    
+    /**
+     * Creates a {@link cl_mem} for the given memory object handle. The 
+     * reference count of the memory object is not modified.
+     * 
+     * @param memobj The memory object handle
+     * @return The memory object, or <code>null</code> if the given 
+     * handle is 0
+     */
+    public static cl_mem createMem(long memobj)
+    {
+        if (memobj == 0)
+        {
+            return null;
+        }
+        cl_mem result = new cl_mem();
+        result.setNativePointer(memobj);
+        return result;
+    }
+    
+    /**
+     * If the given result is <code>CL_SUCCESS</code>, keep a reference
+     * to the buffer of the given pointer until the event with the handle
+     * that is stored in the given array has completed.
+     * 
+     * @param result The result of the enqueue operation
+     * @param event The array containing the event handle
+     * @param ptr The pointer
+     * @param doRetainEvent Whether the event was requested by the caller
+     */
+    private static void scheduleReferenceRelease(
+        int result, long event[], Pointer ptr, boolean doRetainEvent)
+    {
+        // See implementation notes about NON_BLOCKING_OPERATIONS in CL
+        if (result == CL.CL_SUCCESS)
+        {
+            CL.scheduleReferenceRelease(
+                createEvent(event[0]), ptr, doRetainEvent);
+        }
+    }
+    
+    /**
+     * Make sure that the given pointer is a pointer to a direct buffer
+     * 
+     * @param ptr The pointer
+     * @throws IllegalArgumentException If the given pointer is not a
+     * pointer to a direct buffer
+     */
+    private static void validateDirectBufferPointer(Pointer ptr)
+    {
+        if (ptr == null || !ptr.isDirectBufferPointer())
+        {
+            throw new IllegalArgumentException(
+                "Read- and write operations with raw handles may " + 
+                "only be performed using pointers to direct buffers");
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private CLRaw()
+    {}
+}
@@ -0,0 +1,248 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.jocl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utility methods for the classes that store data in files of the 
+ * file system, with keys that are derived from device properties, 
+ * namely the {@link ProgramBinaryCache} and the {@link WorkGroupTuner},
+ * and for reading the string parameters of OpenCL objects
+ */
+final class CacheUtils
+{
+    /**
+     * Returns the value of the given string parameter of the given device
+     * 
+     * @param device The device
+     * @param paramName The parameter name
+     * @return The value
+     * @throws CLException If the parameter can not be obtained
+     */
+    static String getDeviceString(cl_device_id device, int paramName)
+    {
+        long size[] = new long[1];
+        CL.checkSuccess(CL.clGetDeviceInfo(device, paramName, 0, null, size));
+        byte buffer[] = new byte[(int)size[0]];
+        CL.checkSuccess(CL.clGetDeviceInfo(device, paramName, buffer.length, 
+            Pointer.to(buffer), null));
+        return toString(buffer);
+    }
+    
+    /**
+     * Returns the value of the given string parameter of the given 
+     * platform
+     * 
+     * @param platform The platform
+     * @param paramName The parameter name
+     * @return The value
+     * @throws CLException If the parameter can not be obtained
+     */
+    static String getPlatformString(cl_platform_id platform, int paramName)
+    {
+        long size[] = new long[1];
+        CL.checkSuccess(
+            CL.clGetPlatformInfo(platform, paramName, 0, null, size));
+        byte buffer[] = new byte[(int)size[0]];
+        CL.checkSuccess(CL.clGetPlatformInfo(platform, paramName, 
+            buffer.length, Pointer.to(buffer), null));
+        return toString(buffer);
+    }
+    
+    /**
+     * Returns the value of the given string parameter of the given kernel
+     * 
+     * @param kernel The kernel
+     * @param paramName The parameter name
+     * @return The value
+     * @throws CLException If the parameter can not be obtained
+     */
+    static String getKernelString(cl_kernel kernel, int paramName)
+    {
+        long size[] = new long[1];
+        CL.checkSuccess(CL.clGetKernelInfo(kernel, paramName, 0, null, size));
+        byte buffer[] = new byte[(int)size[0]];
+        CL.checkSuccess(CL.clGetKernelInfo(kernel, paramName, buffer.length, 
+            Pointer.to(buffer), null));
+        return toString(buffer);
+    }
+    
+    /**
+     * Creates a string from the given zero-terminated bytes, which are 
+     * decoded as UTF-8, independent of the default charset, so that 
+     * the keys that are derived from the string are the same on all 
+     * systems
+     * 
+     * @param bytes The bytes
+     * @return The string
+     */
+    static String toString(byte bytes[])
+    {
+        int length = bytes.length;
+        while (length > 0 && bytes[length - 1] == 0)
+        {
+            length--;
+        }
+        try
+        {
+            return new String(bytes, 0, length, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Returns the hexadecimal representation of the SHA-256 hash of the 
+     * given strings. The length of each string is included in the hash,
+     * so that different splits of the same characters result in 
+     * different hashes.
+     * 
+     * @param components The strings
+     * @return The hash
+     */
+    static String hash(String components[])
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String component : components)
+            {
+                byte bytes[] = component.getBytes("UTF-8");
+                digest.update(new byte[] { 
+                    (byte)(bytes.length >>> 24), (byte)(bytes.length >>> 16), 
+                    (byte)(bytes.length >>> 8), (byte)bytes.length });
+                digest.update(bytes);
+            }
+            return toHex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Returns the hexadecimal representation of the SHA-256 hash of the 
+     * given bytes
+     * 
+     * @param bytes The bytes
+     * @return The hash
+     */
+    static String hash(byte bytes[])
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return toHex(digest.digest(bytes));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Returns the hexadecimal representation of the given bytes
+     * 
+     * @param bytes The bytes
+     * @return The hexadecimal representation
+     */
+    private static String toHex(byte bytes[])
+    {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+        {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Rename the given temporary file to the given target file. If the 
+     * target file already exists, it is replaced. 
+     * 
+     * @param tempFile The temporary file
+     * @param file The target file
+     * @throws IOException If the file can not be renamed
+     */
+    static void replace(File tempFile, File file) throws IOException
+    {
+        // On some platforms, renaming does not replace an 
+        // existing file
+        if (!tempFile.renameTo(file))
+        {
+            file.delete();
+            if (!tempFile.renameTo(file))
+            {
+                throw new IOException(
+                    "Could not rename " + tempFile + " to " + file);
+            }
+        }
+    }
+    
+    /**
+     * Close the given stream, ignoring errors
+     * 
+     * @param closeable The stream, may be <code>null</code>
+     */
+    static void close(Closeable closeable)
+    {
+        if (closeable != null)
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch (IOException e)
+            {
+                // Ignored
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private CacheUtils()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,891 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A batch of commands that can be passed to the 
+ * {@link CL#clEnqueueCommandBatch(cl_command_queue, CommandBatch)}
+ * method, in order to enqueue all commands with a single native call.<br>
+ * <br>
+ * The commands are recorded into a direct byte buffer. Each method that
+ * records a command returns the index of this command in the batch. 
+ * These indices may be used for building the wait lists of subsequent
+ * commands, and for obtaining the error code and the event of the 
+ * respective command after the batch has been enqueued:
+ * <pre><code>
+ * CommandBatch batch = new CommandBatch();
+ * int write = batch.enqueueWriteBuffer(
+ *     input, CL_NON_BLOCKING, 0, size, Pointer.to(inputBuffer));
+ * batch.setKernelArgs(kernel, args);
+ * int launch = batch.enqueueNDRangeKernel(
+ *     kernel, 1, null, globalSize, null, write);
+ * int read = batch.enqueueReadBuffer(
+ *     output, CL_NON_BLOCKING, 0, size, Pointer.to(outputBuffer), launch);
+ * batch.requestEvent(read);
+ * 
+ * CL.clEnqueueCommandBatch(queue, batch);
+ * cl_event readEvent = batch.getEvent(read);
+ * </code></pre>
+ * Events of commands that are only referred to in wait lists are 
+ * released automatically. Events that have been requested with
+ * {@link #requestEvent(int)} have to be released by the caller.<br>
+ * <br>
+ * Host memory for read- and write operations must be given as pointers
+ * to direct buffers. For non-blocking operations, references to these
+ * buffers are kept until the respective operation has completed, 
+ * just as in {@link CL#clEnqueueReadBuffer} and 
+ * {@link CL#clEnqueueWriteBuffer}.<br>
+ * <br>
+ * A batch may be enqueued multiple times, or it may be {@link #clear() 
+ * cleared} and reused for recording a new sequence of commands. 
+ * Instances of this class are not thread-safe.
+ */
+public final class CommandBatch
+{
+    // Implementation note: The buffer contains one record for each
+    // command. Each record consists of a 16 byte header, the wait 
+    // list, and the payload of the command:
+    // 
+    // int  opcode
+    // int  recordSize  (in bytes, including the header)
+    // int  flags       (FLAG_* constants)
+    // int  numWaitCommands
+    // int  waitCommands[numWaitCommands]   (padded to 8 bytes)
+    // long payload[]                       (depending on the opcode)
+    // 
+    // The results buffer contains 16 bytes for each command:
+    // 
+    // long event
+    // int  errorCode
+    // int  (unused)
+    // 
+    // The layout is also used in the native clEnqueueCommandBatchNative 
+    // function, and must be kept in sync with it.
+    
+    /**
+     * The error code that is reported for commands that have not been 
+     * executed, because a previous command in the batch caused an error.
+     * This is a positive value, and thus differs from all error codes 
+     * that are defined in OpenCL.
+     */
+    public static final int NOT_EXECUTED = 1;
+    
+    /**
+     * Opcode for a record that only stores an existing event
+     */
+    static final int OP_EVENT = 0;
+    
+    /**
+     * Opcode for a record that stores the contents of a 
+     * {@link KernelArgs} object
+     */
+    static final int OP_SET_KERNEL_ARGS = 1;
+    
+    /**
+     * Opcode for clEnqueueWriteBuffer
+     */
+    static final int OP_WRITE_BUFFER = 2;
+    
+    /**
+     * Opcode for clEnqueueReadBuffer
+     */
+    static final int OP_READ_BUFFER = 3;
+    
+    /**
+     * Opcode for clEnqueueCopyBuffer
+     */
+    static final int OP_COPY_BUFFER = 4;
+    
+    /**
+     * Opcode for clEnqueueFillBuffer
+     */
+    static final int OP_FILL_BUFFER = 5;
+    
+    /**
+     * Opcode for clEnqueueNDRangeKernel
+     */
+    static final int OP_NDRANGE_KERNEL = 6;
+    
+    /**
+     * Opcode for clEnqueueMarkerWithWaitList
+     */
+    static final int OP_MARKER = 7;
+    
+    /**
+     * Opcode for clEnqueueBarrierWithWaitList
+     */
+    static final int OP_BARRIER = 8;
+    
+    /**
+     * Flag indicating that the event of a command was requested
+     * by the user, and will be returned
+     */
+    static final int FLAG_RETURN_EVENT = 1;
+    
+    /**
+     * Flag indicating that the event of a command is required
+     * for the wait list of another command in the batch
+     */
+    static final int FLAG_INTERNAL_EVENT = 2;
+    
+    /**
+     * Flag indicating that the event of a command is required
+     * for keeping a reference to a host buffer until a 
+     * non-blocking operation has completed
+     */
+    static final int FLAG_KEEP_EVENT = 4;
+    
+    /**
+     * The size of the header of each record, in bytes
+     */
+    private static final int HEADER_SIZE = 16;
+    
+    /**
+     * The size of the result of each command, in bytes
+     */
+    private static final int RESULT_SIZE = 16;
+    
+    /**
+     * The default initial capacity of the buffer, in bytes
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    /**
+     * The buffer storing the records
+     */
+    private ByteBuffer commands;
+    
+    /**
+     * The number of bytes in the buffer that are occupied by records
+     */
+    private int size;
+    
+    /**
+     * The offsets of the records, for each command index
+     */
+    private int recordOffsets[];
+    
+    /**
+     * The number of commands
+     */
+    private int commandCount;
+    
+    /**
+     * The buffer receiving the results of the commands
+     */
+    private ByteBuffer results;
+    
+    /**
+     * The host buffers of read- and write operations. This array is 
+     * passed to the native method directly, and only grows.
+     */
+    private Buffer hostBuffers[];
+    
+    /**
+     * The number of host buffers
+     */
+    private int hostBufferCount;
+    
+    /**
+     * Creates a new, empty command batch
+     */
+    public CommandBatch()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a new, empty command batch, with the given initial 
+     * capacity for the commands, in bytes. The capacity will be 
+     * increased as necessary.
+     * 
+     * @param initialCapacity The initial capacity, in bytes
+     * @throws IllegalArgumentException If the given capacity is negative
+     */
+    public CommandBatch(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException(
+                "The initial capacity may not be negative, but is " + 
+                initialCapacity);
+        }
+        commands = createBuffer(Math.max(HEADER_SIZE, initialCapacity));
+        results = createBuffer(RESULT_SIZE * 16);
+        recordOffsets = new int[16];
+        hostBuffers = new Buffer[16];
+        clear();
+    }
+    
+    /**
+     * Add the given event to this batch. The returned command index
+     * may be used in the wait lists of subsequent commands, in order
+     * to let them wait for the given event. The event will not be
+     * retained or released by this batch.
+     * 
+     * @param event The event
+     * @return The command index
+     * @throws IllegalArgumentException If the given event is 
+     * <code>null</code>
+     */
+    public int addEvent(cl_event event)
+    {
+        if (event == null)
+        {
+            throw new IllegalArgumentException(
+                "The event may not be null");
+        }
+        int offset = beginRecord(OP_EVENT, FLAG_INTERNAL_EVENT, null, 8);
+        commands.putLong(offset, event.getNativePointer());
+        return endRecord();
+    }
+    
+    /**
+     * Record a command that sets all arguments that are contained in 
+     * the given {@link KernelArgs} for the given kernel, as in
+     * {@link CL#clSetKernelArgs(cl_kernel, KernelArgs)}. The current
+     * contents of the given arguments will be copied into this batch.
+     * 
+     * @param kernel The kernel
+     * @param args The kernel arguments
+     * @return The command index
+     */
+    public int setKernelArgs(cl_kernel kernel, KernelArgs args)
+    {
+        int argsSize = args.getSize();
+        int offset = beginRecord(OP_SET_KERNEL_ARGS, 0, null, 16 + argsSize);
+        commands.putLong(offset, CL.nativePointerOf(kernel));
+        commands.putLong(offset + 8, argsSize);
+        ByteBuffer argsBuffer = args.getBuffer();
+        for (int i = 0; i < argsSize; i++)
+        {
+            commands.put(offset + 16 + i, argsBuffer.get(i));
+        }
+        return endRecord();
+    }
+    
+    /**
+     * Record a command to write to a buffer object from host memory,
+     * as in {@link CL#clEnqueueWriteBuffer}.
+     * 
+     * @param buffer The buffer
+     * @param blocking_write Whether the write operation is blocking
+     * @param offset The offset in the buffer, in bytes
+     * @param cb The number of bytes to write
+     * @param ptr The pointer to the host memory, which must be a
+     * pointer to a direct buffer
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     * @throws IllegalArgumentException If the given pointer is not
+     * a pointer to a direct buffer
+     */
+    public int enqueueWriteBuffer(cl_mem buffer, boolean blocking_write, 
+        long offset, long cb, Pointer ptr, int ... waitCommands)
+    {
+        return recordTransfer(OP_WRITE_BUFFER, buffer, blocking_write, 
+            offset, cb, ptr, waitCommands);
+    }
+    
+    /**
+     * Record a command to read from a buffer object to host memory,
+     * as in {@link CL#clEnqueueReadBuffer}.
+     * 
+     * @param buffer The buffer
+     * @param blocking_read Whether the read operation is blocking
+     * @param offset The offset in the buffer, in bytes
+     * @param cb The number of bytes to read
+     * @param ptr The pointer to the host memory, which must be a
+     * pointer to a direct buffer
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     * @throws IllegalArgumentException If the given pointer is not
+     * a pointer to a direct buffer
+     */
+    public int enqueueReadBuffer(cl_mem buffer, boolean blocking_read, 
+        long offset, long cb, Pointer ptr, int ... waitCommands)
+    {
+        return recordTransfer(OP_READ_BUFFER, buffer, blocking_read, 
+            offset, cb, ptr, waitCommands);
+    }
+    
+    /**
+     * Record a command to copy from one buffer object to another, 
+     * as in {@link CL#clEnqueueCopyBuffer}.
+     * 
+     * @param src_buffer The source buffer
+     * @param dst_buffer The destination buffer
+     * @param src_offset The offset in the source buffer, in bytes
+     * @param dst_offset The offset in the destination buffer, in bytes
+     * @param cb The number of bytes to copy
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     */
+    public int enqueueCopyBuffer(cl_mem src_buffer, cl_mem dst_buffer, 
+        long src_offset, long dst_offset, long cb, int ... waitCommands)
+    {
+        int offset = beginRecord(OP_COPY_BUFFER, 0, waitCommands, 40);
+        commands.putLong(offset, CL.nativePointerOf(src_buffer));
+        commands.putLong(offset + 8, CL.nativePointerOf(dst_buffer));
+        commands.putLong(offset + 16, src_offset);
+        commands.putLong(offset + 24, dst_offset);
+        commands.putLong(offset + 32, cb);
+        return endRecord();
+    }
+    
+    /**
+     * Record a command to fill a buffer object with a pattern, 
+     * as in {@link CL#clEnqueueFillBuffer}. The given pattern 
+     * will be copied into this batch.
+     * 
+     * @param buffer The buffer
+     * @param pattern The pattern
+     * @param offset The offset in the buffer, in bytes
+     * @param size The number of bytes to fill
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     */
+    public int enqueueFillBuffer(cl_mem buffer, byte pattern[], 
+        long offset, long size, int ... waitCommands)
+    {
+        int recordOffset = beginRecord(
+            OP_FILL_BUFFER, 0, waitCommands, 32 + pattern.length);
+        commands.putLong(recordOffset, CL.nativePointerOf(buffer));
+        commands.putLong(recordOffset + 8, offset);
+        commands.putLong(recordOffset + 16, size);
+        commands.putLong(recordOffset + 24, pattern.length);
+        for (int i = 0; i < pattern.length; i++)
+        {
+            commands.put(recordOffset + 32 + i, pattern[i]);
+        }
+        return endRecord();
+    }
+    
+    /**
+     * Record a command to execute a kernel, as in 
+     * {@link CL#clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}.
+     * The work sizes will be copied into this batch.
+     * 
+     * @param kernel The kernel
+     * @param work_dim The work dimension, between 1 and 3
+     * @param global_work_offset The global work offset, may be 
+     * <code>null</code>
+     * @param global_work_size The global work size
+     * @param local_work_size The local work size, may be 
+     * <code>null</code>
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     * @throws IllegalArgumentException If the work dimension is not
+     * between 1 and 3
+     */
+    public int enqueueNDRangeKernel(cl_kernel kernel, int work_dim, 
+        long global_work_offset[], long global_work_size[], 
+        long local_work_size[], int ... waitCommands)
+    {
+        if (work_dim < 1 || work_dim > 3)
+        {
+            throw new IllegalArgumentException(
+                "The work dimension must be between 1 and 3, but is " + 
+                work_dim);
+        }
+        int offset = beginRecord(OP_NDRANGE_KERNEL, 0, waitCommands, 88);
+        commands.putLong(offset, CL.nativePointerOf(kernel));
+        commands.putLong(offset + 8, work_dim);
+        for (int i = 0; i < 3; i++)
+        {
+            commands.putLong(offset + 16 + i * 8, 
+                CL.workSizeOf(global_work_offset, i, work_dim));
+            commands.putLong(offset + 40 + i * 8, 
+                CL.workSizeOf(global_work_size, i, work_dim));
+            commands.putLong(offset + 64 + i * 8, 
+                CL.workSizeOf(local_work_size, i, work_dim));
+        }
+        return endRecord();
+    }
+    
+    /**
+     * Record a marker command, as in 
+     * {@link CL#clEnqueueMarkerWithWaitList}.
+     * 
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     */
+    public int enqueueMarker(int ... waitCommands)
+    {
+        beginRecord(OP_MARKER, 0, waitCommands, 0);
+        return endRecord();
+    }
+    
+    /**
+     * Record a barrier command, as in 
+     * {@link CL#clEnqueueBarrierWithWaitList}.
+     * 
+     * @param waitCommands The indices of the commands to wait for
+     * @return The command index
+     */
+    public int enqueueBarrier(int ... waitCommands)
+    {
+        beginRecord(OP_BARRIER, 0, waitCommands, 0);
+        return endRecord();
+    }
+    
+    /**
+     * Request the event of the specified command. After the batch 
+     * has been enqueued, the event may be obtained with 
+     * {@link #getEvent(int)}, and has to be released by the caller. 
+     * 
+     * @param commandIndex The command index
+     * @throws IllegalArgumentException If the given index is not a 
+     * valid command index, or the specified command does not have 
+     * an event
+     */
+    public void requestEvent(int commandIndex)
+    {
+        checkIndex(commandIndex);
+        int opcode = commands.getInt(recordOffsets[commandIndex]);
+        if (opcode == OP_EVENT)
+        {
+            throw new IllegalArgumentException(
+                "The command with index " + commandIndex +
+                " refers to an existing event");
+        }
+        addFlag(commandIndex, FLAG_RETURN_EVENT);
+    }
+    
+    /**
+     * Returns the number of commands in this batch
+     * 
+     * @return The number of commands
+     */
+    public int getCommandCount()
+    {
+        return commandCount;
+    }
+    
+    /**
+     * Returns the error code of the specified command. After the batch
+     * has been enqueued, this will be <code>CL_SUCCESS</code> for all
+     * commands that have been enqueued successfully. If one command 
+     * caused an error, then this method will return the respective 
+     * error code for this command, and {@link #NOT_EXECUTED} for all 
+     * subsequent commands.
+     * 
+     * @param commandIndex The command index
+     * @return The error code
+     * @throws IndexOutOfBoundsException If the given index is not a 
+     * valid command index
+     */
+    public int getErrorCode(int commandIndex)
+    {
+        checkIndex(commandIndex);
+        return results.getInt(commandIndex * RESULT_SIZE + 8);
+    }
+    
+    /**
+     * Returns the event of the specified command, which was requested
+     * with {@link #requestEvent(int)}. This will return <code>null</code>
+     * if the event was not requested, or the command was not enqueued
+     * successfully. 
+     * 
+     * @param commandIndex The command index
+     * @return The event
+     * @throws IndexOutOfBoundsException If the given index is not a 
+     * valid command index
+     */
+    public cl_event getEvent(int commandIndex)
+    {
+        checkIndex(commandIndex);
+        int flags = getFlags(commandIndex);
+        if ((flags & FLAG_RETURN_EVENT) == 0)
+        {
+            return null;
+        }
+        return createEvent(commandIndex);
+    }
+    
+    /**
+     * Remove all commands from this batch. The memory that was 
+     * allocated for the commands will be retained.
+     */
+    public void clear()
+    {
+        size = 0;
+        commandCount = 0;
+        Arrays.fill(hostBuffers, 0, hostBufferCount, null);
+        hostBufferCount = 0;
+    }
+    
+    /**
+     * Returns the buffer containing the records
+     * 
+     * @return The buffer
+     */
+    ByteBuffer getCommands()
+    {
+        return commands;
+    }
+    
+    /**
+     * Returns the number of bytes in the buffer that are occupied 
+     * by records
+     * 
+     * @return The size
+     */
+    int getCommandsSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the buffer receiving the results
+     * 
+     * @return The results
+     */
+    ByteBuffer getResults()
+    {
+        return results;
+    }
+    
+    /**
+     * Returns the host buffers of the read- and write operations. This
+     * is the array that is used internally, and it may contain more
+     * elements than there are host buffers. The remaining elements are
+     * <code>null</code>.
+     * 
+     * @return The host buffers
+     */
+    Buffer[] getHostBuffers()
+    {
+        return hostBuffers;
+    }
+    
+    /**
+     * Returns the host buffer that is used by the specified command, 
+     * if this command is a non-blocking read- or write operation. 
+     * Otherwise, <code>null</code> is returned.
+     * 
+     * @param commandIndex The command index
+     * @return The host buffer
+     */
+    Buffer getNonBlockingHostBuffer(int commandIndex)
+    {
+        if ((getFlags(commandIndex) & FLAG_KEEP_EVENT) == 0)
+        {
+            return null;
+        }
+        int recordOffset = recordOffsets[commandIndex];
+        int payloadOffset = payloadOffset(recordOffset);
+        long hostBufferIndex = commands.getLong(payloadOffset + 32);
+        return hostBuffers[(int)hostBufferIndex];
+    }
+    
+    /**
+     * Returns whether the event of the specified command was requested
+     * with {@link #requestEvent(int)}
+     * 
+     * @param commandIndex The command index
+     * @return Whether the event was requested
+     */
+    boolean isEventRequested(int commandIndex)
+    {
+        return (getFlags(commandIndex) & FLAG_RETURN_EVENT) != 0;
+    }
+    
+    /**
+     * Create a new event for the native event handle that was stored 
+     * in the results for the specified command. Returns <code>null</code> 
+     * if there is no event for the specified command.
+     * 
+     * @param commandIndex The command index
+     * @return The event
+     */
+    cl_event createEvent(int commandIndex)
+    {
+        long handle = results.getLong(commandIndex * RESULT_SIZE);
+        if (handle == 0)
+        {
+            return null;
+        }
+        cl_event event = new cl_event();
+        event.setNativePointer(handle);
+        return event;
+    }
+    
+    /**
+     * Record a read- or write operation
+     * 
+     * @param opcode The opcode
+     * @param buffer The buffer
+     * @param blocking Whether the operation is blocking
+     * @param offset The offset in the buffer
+     * @param cb The number of bytes
+     * @param ptr The host pointer
+     * @param waitCommands The wait commands
+     * @return The command index
+     * @throws IllegalArgumentException If the given pointer is not
+     * a pointer to a direct buffer
+     */
+    private int recordTransfer(int opcode, cl_mem buffer, boolean blocking, 
+        long offset, long cb, Pointer ptr, int waitCommands[])
+    {
+        if (ptr == null || !ptr.isDirectBufferPointer())
+        {
+            throw new IllegalArgumentException(
+                "Read- and write operations in a command batch may " + 
+                "only be performed using pointers to direct buffers");
+        }
+        int flags = blocking ? 0 : FLAG_KEEP_EVENT;
+        int recordOffset = beginRecord(opcode, flags, waitCommands, 48);
+        commands.putLong(recordOffset, CL.nativePointerOf(buffer));
+        commands.putLong(recordOffset + 8, blocking ? 1 : 0);
+        commands.putLong(recordOffset + 16, offset);
+        commands.putLong(recordOffset + 24, cb);
+        if (hostBufferCount == hostBuffers.length)
+        {
+            hostBuffers = Arrays.copyOf(hostBuffers, hostBufferCount * 2);
+        }
+        commands.putLong(recordOffset + 32, hostBufferCount);
+        commands.putLong(recordOffset + 40, ptr.getByteOffset());
+        hostBuffers[hostBufferCount++] = ptr.getBuffer();
+        return endRecord();
+    }
+    
+    /**
+     * Begin a new record with the given opcode, flags and wait 
+     * commands, and return the offset where the payload has to be 
+     * written
+     * 
+     * @param opcode The opcode
+     * @param flags The flags
+     * @param waitCommands The wait commands, may be <code>null</code>
+     * @param payloadSize The size of the payload, in bytes
+     * @return The payload offset
+     * @throws IllegalArgumentException If the wait commands contain
+     * an index that does not refer to a previous command that has
+     * an event
+     */
+    private int beginRecord(
+        int opcode, int flags, int waitCommands[], int payloadSize)
+    {
+        int numWaitCommands = waitCommands == null ? 0 : waitCommands.length;
+        for (int i = 0; i < numWaitCommands; i++)
+        {
+            addFlag(waitCommands[i], FLAG_INTERNAL_EVENT);
+        }
+        int recordSize = HEADER_SIZE + 
+            padded(numWaitCommands * 4) + padded(payloadSize);
+        ensureCapacity(size + recordSize);
+        ensureCommandCapacity(commandCount + 1);
+        
+        int recordOffset = size;
+        commands.putInt(recordOffset, opcode);
+        commands.putInt(recordOffset + 4, recordSize);
+        commands.putInt(recordOffset + 8, flags);
+        commands.putInt(recordOffset + 12, numWaitCommands);
+        for (int i = 0; i < numWaitCommands; i++)
+        {
+            commands.putInt(recordOffset + HEADER_SIZE + i * 4, 
+                waitCommands[i]);
+        }
+        recordOffsets[commandCount] = recordOffset;
+        size += recordSize;
+        return payloadOffset(recordOffset);
+    }
+    
+    /**
+     * Finish the current record, and return its command index
+     * 
+     * @return The command index
+     */
+    private int endRecord()
+    {
+        int commandIndex = commandCount;
+        results.putLong(commandIndex * RESULT_SIZE, 0);
+        results.putInt(commandIndex * RESULT_SIZE + 8, NOT_EXECUTED);
+        commandCount++;
+        return commandIndex;
+    }
+    
+    /**
+     * Returns the offset of the payload of the record at the given offset
+     * 
+     * @param recordOffset The record offset
+     * @return The payload offset
+     */
+    private int payloadOffset(int recordOffset)
+    {
+        int numWaitCommands = commands.getInt(recordOffset + 12);
+        return recordOffset + HEADER_SIZE + padded(numWaitCommands * 4);
+    }
+    
+    /**
+     * Returns the flags of the specified command
+     * 
+     * @param commandIndex The command index
+     * @return The flags
+     */
+    private int getFlags(int commandIndex)
+    {
+        return commands.getInt(recordOffsets[commandIndex] + 8);
+    }
+    
+    /**
+     * Add the given flag to the specified command
+     * 
+     * @param commandIndex The command index
+     * @param flag The flag
+     * @throws IllegalArgumentException If the given index is not a 
+     * valid command index, or the specified command does not have 
+     * an event
+     */
+    private void addFlag(int commandIndex, int flag)
+    {
+        if (commandIndex < 0 || commandIndex >= commandCount)
+        {
+            throw new IllegalArgumentException(
+                "Invalid command index: " + commandIndex + 
+                ", the batch contains " + commandCount + " commands");
+        }
+        int recordOffset = recordOffsets[commandIndex];
+        int opcode = commands.getInt(recordOffset);
+        if (opcode == OP_SET_KERNEL_ARGS)
+        {
+            throw new IllegalArgumentException(
+                "The command with index " + commandIndex + 
+                " does not have an event");
+        }
+        int flags = commands.getInt(recordOffset + 8);
+        commands.putInt(recordOffset + 8, flags | flag);
+    }
+    
+    /**
+     * Make sure that the given index is a valid command index
+     * 
+     * @param commandIndex The command index
+     * @throws IndexOutOfBoundsException If the given index is not a 
+     * valid command index
+     */
+    private void checkIndex(int commandIndex)
+    {
+        if (commandIndex < 0 || commandIndex >= commandCount)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid command index: " + commandIndex + 
+                ", the batch contains " + commandCount + " commands");
+        }
+    }
+    
+    /**
+     * Make sure that the buffer has at least the given capacity
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= commands.capacity())
+        {
+            return;
+        }
+        int newCapacity = Math.max(capacity, commands.capacity() * 2);
+        ByteBuffer newCommands = createBuffer(newCapacity);
+        for (int i = 0; i < size; i++)
+        {
+            newCommands.put(i, commands.get(i));
+        }
+        commands = newCommands;
+    }
+    
+    /**
+     * Make sure that the record offsets and the results can store the 
+     * given number of commands
+     * 
+     * @param count The number of commands
+     */
+    private void ensureCommandCapacity(int count)
+    {
+        if (count > recordOffsets.length)
+        {
+            int newRecordOffsets[] = 
+                new int[Math.max(count, recordOffsets.length * 2)];
+            System.arraycopy(recordOffsets, 0, 
+                newRecordOffsets, 0, recordOffsets.length);
+            recordOffsets = newRecordOffsets;
+        }
+        if (count * RESULT_SIZE > results.capacity())
+        {
+            int newCapacity = 
+                Math.max(count * RESULT_SIZE, results.capacity() * 2);
+            ByteBuffer newResults = createBuffer(newCapacity);
+            for (int i = 0; i < commandCount * RESULT_SIZE; i++)
+            {
+                newResults.put(i, results.get(i));
+            }
+            results = newResults;
+        }
+    }
+    
+    /**
+     * Returns the given size, rounded up to a multiple of 8
+     * 
+     * @param size The size
+     * @return The padded size
+     */
+    private static int padded(int size)
+    {
+        return (size + 7) & ~7;
+    }
+    
+    /**
+     * Creates a direct byte buffer with the given capacity and 
+     * native byte order
+     * 
+     * @param capacity The capacity
+     * @return The buffer
+     */
+    private static ByteBuffer createBuffer(int capacity)
+    {
+        return ByteBuffer.allocateDirect(capacity).order(
+            ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Returns a String representation of this object.
+     * 
+     * @return A String representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        return "CommandBatch[commandCount=" + commandCount + 
+            ",size=" + size + "]";
+    }
+}
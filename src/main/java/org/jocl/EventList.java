@@ -0,0 +1,353 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A list of events that may be used as the wait list for the 
+ * enqueue functions in {@link CL}.<br>
+ * <br>
+ * The handles of the events are stored in a direct buffer, which 
+ * is passed to OpenCL without creating a native copy of the wait 
+ * list. An event list may be {@link #clear() cleared} and reused
+ * for building new wait lists, without allocating new memory:
+ * <pre><code>
+ * EventList waitList = new EventList();
+ * for (Node node : nodes)
+ * {
+ *     waitList.clear();
+ *     for (Node dependency : node.getDependencies())
+ *     {
+ *         waitList.add(dependency.getEvent());
+ *     }
+ *     clEnqueueNDRangeKernel(queue, node.getKernel(), 
+ *         0, node.getSize(), 0, waitList, node.getEvent());
+ * }
+ * </code></pre>
+ * Only the enqueue functions that are called most frequently have 
+ * overloads that accept an event list, namely 
+ * <code>clEnqueueReadBuffer</code>, <code>clEnqueueWriteBuffer</code>,
+ * <code>clEnqueueCopyBuffer</code>, <code>clEnqueueNDRangeKernel</code>,
+ * <code>clEnqueueMarkerWithWaitList</code> and 
+ * <code>clEnqueueBarrierWithWaitList</code>. The following functions
+ * deliberately do not have such overloads:
+ * <ul>
+ *   <li>
+ *     The rectangular and image transfers, fills and copies: 
+ *     <code>clEnqueueReadBufferRect</code>, 
+ *     <code>clEnqueueWriteBufferRect</code>, 
+ *     <code>clEnqueueCopyBufferRect</code>, 
+ *     <code>clEnqueueFillBuffer</code>, 
+ *     <code>clEnqueueReadImage</code>, 
+ *     <code>clEnqueueWriteImage</code>, 
+ *     <code>clEnqueueCopyImage</code>, 
+ *     <code>clEnqueueCopyImageToBuffer</code>, 
+ *     <code>clEnqueueCopyBufferToImage</code> and 
+ *     <code>clEnqueueFillImage</code>
+ *   </li>
+ *   <li>
+ *     The functions for mapping and migrating memory objects: 
+ *     <code>clEnqueueMapBuffer</code>, 
+ *     <code>clEnqueueMapBufferView</code>, 
+ *     <code>clEnqueueMapImage</code>, 
+ *     <code>clEnqueueUnmapMemObject</code> and 
+ *     <code>clEnqueueMigrateMemObjects</code>
+ *   </li>
+ *   <li>
+ *     The SVM functions: <code>clEnqueueSVMFree</code>, 
+ *     <code>clEnqueueSVMMemcpy</code>, <code>clEnqueueSVMMemFill</code>,
+ *     <code>clEnqueueSVMMap</code> and <code>clEnqueueSVMUnmap</code>
+ *   </li>
+ *   <li>
+ *     The OpenGL interoperability functions 
+ *     <code>clEnqueueAcquireGLObjects</code> and 
+ *     <code>clEnqueueReleaseGLObjects</code>
+ *   </li>
+ *   <li>
+ *     The rarely used <code>clEnqueueNativeKernel</code>, and the
+ *     deprecated <code>clEnqueueTask</code> and 
+ *     <code>clEnqueueWaitForEvents</code>
+ *   </li>
+ * </ul>
+ * These functions are usually not called often enough for the 
+ * creation of the native wait list to matter, compared to the cost 
+ * of the command itself. For these functions, the events may be 
+ * passed as an array that is created with {@link #toArray()}.<br>
+ * <br>
+ * The events that are added to an event list are neither retained 
+ * nor released by the list. The caller is responsible for making
+ * sure that the events are not released while the list is used
+ * as a wait list.<br>
+ * <br>
+ * Instances of this class are not thread-safe.
+ */
+public final class EventList
+{
+    /**
+     * The default initial capacity of the list
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    /**
+     * The buffer storing the event handles
+     */
+    private LongBuffer handles;
+    
+    /**
+     * The number of events in this list
+     */
+    private int size;
+    
+    /**
+     * Creates a new, empty event list
+     */
+    public EventList()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a new, empty event list with the given initial capacity.
+     * The capacity will be increased as necessary.
+     * 
+     * @param initialCapacity The initial capacity
+     * @throws IllegalArgumentException If the given capacity is negative
+     */
+    public EventList(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException(
+                "The initial capacity may not be negative, but is " + 
+                initialCapacity);
+        }
+        handles = createBuffer(Math.max(1, initialCapacity));
+        size = 0;
+    }
+    
+    /**
+     * Creates a new event list containing the given events
+     * 
+     * @param events The events
+     * @throws IllegalArgumentException If one of the given events 
+     * is <code>null</code>
+     */
+    public EventList(cl_event ... events)
+    {
+        this(events.length);
+        for (cl_event event : events)
+        {
+            add(event);
+        }
+    }
+    
+    /**
+     * Add the given event to this list
+     * 
+     * @param event The event
+     * @throws IllegalArgumentException If the given event is 
+     * <code>null</code>
+     */
+    public void add(cl_event event)
+    {
+        if (event == null)
+        {
+            throw new IllegalArgumentException(
+                "The event may not be null");
+        }
+        add(event.getNativePointer());
+    }
+    
+    /**
+     * Add the event with the given handle to this list. This may, for
+     * example, be a handle that was obtained from one of the functions
+     * in {@link CLRaw}.
+     * 
+     * @param event The event handle
+     */
+    public void add(long event)
+    {
+        ensureCapacity(size + 1);
+        handles.put(size, event);
+        size++;
+    }
+    
+    /**
+     * Add all events from the given list to this list
+     * 
+     * @param eventList The other list
+     */
+    public void addAll(EventList eventList)
+    {
+        int otherSize = eventList.size;
+        ensureCapacity(size + otherSize);
+        for (int i = 0; i < otherSize; i++)
+        {
+            handles.put(size + i, eventList.handles.get(i));
+        }
+        size += otherSize;
+    }
+    
+    /**
+     * Returns the handle of the event at the given index
+     * 
+     * @param index The index
+     * @return The event handle
+     * @throws IndexOutOfBoundsException If the index is negative or
+     * not smaller than the {@link #size()} of this list
+     */
+    public long getHandle(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", size: " + size);
+        }
+        return handles.get(index);
+    }
+    
+    /**
+     * Returns the number of events in this list
+     * 
+     * @return The number of events
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether this list is empty
+     * 
+     * @return Whether this list is empty
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    /**
+     * Remove all events from this list. The memory that was allocated
+     * for the event handles will be retained.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+    
+    /**
+     * Creates a new array containing the events of this list. This 
+     * may be used for passing the events to the enqueue functions in
+     * {@link CL} that do not have an overload for event lists. The
+     * returned events refer to the same native events as the events
+     * that have been added to this list. 
+     * 
+     * @return The events, or <code>null</code> if this list is empty
+     */
+    public cl_event[] toArray()
+    {
+        if (size == 0)
+        {
+            return null;
+        }
+        cl_event events[] = new cl_event[size];
+        for (int i = 0; i < size; i++)
+        {
+            events[i] = new cl_event();
+            events[i].setNativePointer(handles.get(i));
+        }
+        return events;
+    }
+    
+    /**
+     * Returns the buffer containing the event handles
+     * 
+     * @return The buffer
+     */
+    LongBuffer getBuffer()
+    {
+        return handles;
+    }
+    
+    /**
+     * Make sure that the buffer can store the given number of events
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= handles.capacity())
+        {
+            return;
+        }
+        int newCapacity = Math.max(capacity, handles.capacity() * 2);
+        LongBuffer newHandles = createBuffer(newCapacity);
+        for (int i = 0; i < size; i++)
+        {
+            newHandles.put(i, handles.get(i));
+        }
+        handles = newHandles;
+    }
+    
+    /**
+     * Creates a direct long buffer with the given capacity and 
+     * native byte order
+     * 
+     * @param capacity The capacity
+     * @return The buffer
+     */
+    private static LongBuffer createBuffer(int capacity)
+    {
+        return ByteBuffer.allocateDirect(capacity * Sizeof.cl_long).order(
+            ByteOrder.nativeOrder()).asLongBuffer();
+    }
+    
+    /**
+     * Returns a String representation of this object.
+     * 
+     * @return A String representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("EventList[");
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(",");
+            }
+            sb.append("0x").append(Long.toHexString(handles.get(i)));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Methods for transferring the contents of files directly between
+ * the file system and memory objects, without copying them into 
+ * arrays on the Java heap.<br>
+ * <br>
+ * The data is processed in windows, and each window is transferred 
+ * with a non-blocking command. The number of windows that are in 
+ * flight is limited, so that the memory usage does not depend on the 
+ * file size:
+ * <pre><code>
+ * cl_mem mem = clCreateBuffer(context, CL_MEM_READ_ONLY, 
+ *     file.length(), null, null);
+ * FileTransfer.upload(commandQueue, file, 0, mem, 0, file.length());
+ * ...
+ * FileTransfer.download(commandQueue, mem, 0, file.length(), result, 0);
+ * </code></pre>
+ * For uploads, each window of the file is mapped into memory with 
+ * <code>FileChannel#map</code>. For downloads, the windows are read 
+ * into rotating direct buffers, and each completed window is written
+ * to the file while the following windows are still being read.
+ */
+public final class FileTransfer
+{
+    /**
+     * A window of a download that is in flight
+     */
+    private static final class PendingWindow
+    {
+        /**
+         * The event of the read command
+         */
+        final cl_event event;
+        
+        /**
+         * The direct buffer that the window is read into
+         */
+        final ByteBuffer buffer;
+        
+        /**
+         * The position of the window, relative to the start of the 
+         * transferred data
+         */
+        final long position;
+        
+        /**
+         * Creates a new pending window
+         * 
+         * @param event The event
+         * @param buffer The direct buffer
+         * @param position The position
+         */
+        PendingWindow(cl_event event, ByteBuffer buffer, long position)
+        {
+            this.event = event;
+            this.buffer = buffer;
+            this.position = position;
+        }
+    }
+    
+    /**
+     * The default size of the windows, in bytes
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+    
+    /**
+     * The default maximum number of windows that are in flight
+     */
+    public static final int DEFAULT_MAX_WINDOWS_IN_FLIGHT = 4;
+    
+    /**
+     * Write the specified part of the given file into the given buffer,
+     * using the {@link #DEFAULT_WINDOW_SIZE default window size} and 
+     * the {@link #DEFAULT_MAX_WINDOWS_IN_FLIGHT default number of
+     * windows in flight}. This method returns when all writes are 
+     * complete.
+     * 
+     * @param commandQueue The command queue
+     * @param file The file
+     * @param fileOffset The offset in the file, in bytes
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @throws IOException If the file can not be read
+     * @throws CLException If a write command can not be enqueued or
+     * fails
+     */
+    public static void upload(cl_command_queue commandQueue, File file, 
+        long fileOffset, cl_mem buffer, long bufferOffset, long size) 
+        throws IOException
+    {
+        upload(commandQueue, file, fileOffset, buffer, bufferOffset, size, 
+            DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS_IN_FLIGHT);
+    }
+    
+    /**
+     * Write the specified part of the given file into the given buffer.
+     * The file is mapped in windows of the given size, and each window 
+     * is written with a non-blocking write into the consecutive part 
+     * of the buffer. When the given number of windows is in flight, 
+     * the oldest write is awaited before the next window is mapped.
+     * This method returns when all writes are complete.
+     * 
+     * @param commandQueue The command queue
+     * @param file The file
+     * @param fileOffset The offset in the file, in bytes
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @param windowSize The size of the windows, in bytes
+     * @param maxWindowsInFlight The maximum number of windows in flight
+     * @throws IOException If the file can not be read
+     * @throws CLException If a write command can not be enqueued or
+     * fails
+     * @throws IllegalArgumentException If the window size or the 
+     * number of windows in flight is not positive
+     */
+    public static void upload(cl_command_queue commandQueue, File file, 
+        long fileOffset, cl_mem buffer, long bufferOffset, long size, 
+        int windowSize, int maxWindowsInFlight) throws IOException
+    {
+        checkWindows(windowSize, maxWindowsInFlight);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            upload(commandQueue, channel, fileOffset, buffer, bufferOffset, 
+                size, windowSize, maxWindowsInFlight);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Write the specified part of the given file channel into the given 
+     * buffer. See {@link #upload(cl_command_queue, File, long, cl_mem, 
+     * long, long, int, int)}. The channel is not closed by this method.
+     * 
+     * @param commandQueue The command queue
+     * @param channel The file channel, which must be readable
+     * @param fileOffset The offset in the file, in bytes
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @param windowSize The size of the windows, in bytes
+     * @param maxWindowsInFlight The maximum number of windows in flight
+     * @throws IOException If the file can not be read
+     * @throws CLException If a write command can not be enqueued or
+     * fails
+     * @throws IllegalArgumentException If the window size or the 
+     * number of windows in flight is not positive
+     */
+    public static void upload(cl_command_queue commandQueue, 
+        FileChannel channel, long fileOffset, cl_mem buffer, 
+        long bufferOffset, long size, int windowSize, 
+        int maxWindowsInFlight) throws IOException
+    {
+        checkWindows(windowSize, maxWindowsInFlight);
+        Deque<cl_event> inFlight = new ArrayDeque<cl_event>();
+        try
+        {
+            long position = 0;
+            while (position < size)
+            {
+                if (inFlight.size() >= maxWindowsInFlight)
+                {
+                    complete(inFlight.removeFirst());
+                }
+                int length = (int)Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, fileOffset + position, 
+                    length);
+                
+                // The window is referenced by the pending write until 
+                // the write is complete. Afterwards, it is only 
+                // unmapped when it is garbage collected
+                cl_event event = new cl_event();
+                CL.checkSuccess(CL.clEnqueueWriteBuffer(commandQueue, buffer, 
+                    false, bufferOffset + position, length, 
+                    Pointer.to(window), 0, null, event));
+                inFlight.addLast(event);
+                CL.checkSuccess(CL.clFlush(commandQueue));
+                position += length;
+            }
+            while (!inFlight.isEmpty())
+            {
+                complete(inFlight.removeFirst());
+            }
+        }
+        finally
+        {
+            // Release the remaining events after an error. Their writes
+            // still have to finish, because they refer to the windows
+            while (!inFlight.isEmpty())
+            {
+                awaitAndRelease(inFlight.removeFirst());
+            }
+        }
+    }
+    
+    /**
+     * Write the specified part of the given buffer into the given file,
+     * using the {@link #DEFAULT_WINDOW_SIZE default window size} and 
+     * the {@link #DEFAULT_MAX_WINDOWS_IN_FLIGHT default number of
+     * windows in flight}. The file is created if it does not exist, 
+     * but it is not truncated. This method returns when all data has
+     * been written to the file.
+     * 
+     * @param commandQueue The command queue
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @param file The file
+     * @param fileOffset The offset in the file, in bytes
+     * @throws IOException If the file can not be written
+     * @throws CLException If a read command can not be enqueued or
+     * fails
+     */
+    public static void download(cl_command_queue commandQueue, 
+        cl_mem buffer, long bufferOffset, long size, File file, 
+        long fileOffset) throws IOException
+    {
+        download(commandQueue, buffer, bufferOffset, size, file, fileOffset,
+            DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS_IN_FLIGHT);
+    }
+    
+    /**
+     * Write the specified part of the given buffer into the given file.
+     * The buffer is read in windows of the given size into rotating 
+     * direct buffers, using non-blocking reads. When the given number
+     * of windows is in flight, the oldest read is awaited, its data is 
+     * written to the file, and its direct buffer is used for the next 
+     * window. The file is created if it does not exist, but it is not 
+     * truncated. This method returns when all data has been written
+     * to the file.
+     * 
+     * @param commandQueue The command queue
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @param file The file
+     * @param fileOffset The offset in the file, in bytes
+     * @param windowSize The size of the windows, in bytes
+     * @param maxWindowsInFlight The maximum number of windows in flight
+     * @throws IOException If the file can not be written
+     * @throws CLException If a read command can not be enqueued or
+     * fails
+     * @throws IllegalArgumentException If the window size or the 
+     * number of windows in flight is not positive
+     */
+    public static void download(cl_command_queue commandQueue, 
+        cl_mem buffer, long bufferOffset, long size, File file, 
+        long fileOffset, int windowSize, int maxWindowsInFlight) 
+        throws IOException
+    {
+        checkWindows(windowSize, maxWindowsInFlight);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            download(commandQueue, buffer, bufferOffset, size, channel, 
+                fileOffset, windowSize, maxWindowsInFlight);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+    
+    /**
+     * Write the specified part of the given buffer into the given file 
+     * channel. See {@link #download(cl_command_queue, cl_mem, long, 
+     * long, File, long, int, int)}. The channel is not closed by this 
+     * method.
+     * 
+     * @param commandQueue The command queue
+     * @param buffer The buffer object
+     * @param bufferOffset The offset in the buffer, in bytes
+     * @param size The number of bytes to transfer
+     * @param channel The file channel, which must be writable
+     * @param fileOffset The offset in the file, in bytes
+     * @param windowSize The size of the windows, in bytes
+     * @param maxWindowsInFlight The maximum number of windows in flight
+     * @throws IOException If the file can not be written
+     * @throws CLException If a read command can not be enqueued or
+     * fails
+     * @throws IllegalArgumentException If the window size or the 
+     * number of windows in flight is not positive
+     */
+    public static void download(cl_command_queue commandQueue, 
+        cl_mem buffer, long bufferOffset, long size, FileChannel channel, 
+        long fileOffset, int windowSize, int maxWindowsInFlight) 
+        throws IOException
+    {
+        checkWindows(windowSize, maxWindowsInFlight);
+        int windowCount = (int)Math.min(maxWindowsInFlight, 
+            (size + windowSize - 1) / windowSize);
+        Deque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+        for (int i = 0; i < windowCount; i++)
+        {
+            free.addLast(ByteBuffer.allocateDirect(
+                (int)Math.min(windowSize, size)));
+        }
+        Deque<PendingWindow> inFlight = new ArrayDeque<PendingWindow>();
+        try
+        {
+            long position = 0;
+            while (position < size || !inFlight.isEmpty())
+            {
+                if (position < size && !free.isEmpty())
+                {
+                    int length = (int)Math.min(windowSize, size - position);
+                    ByteBuffer window = free.removeFirst();
+                    window.clear();
+                    window.limit(length);
+                    cl_event event = new cl_event();
+                    CL.checkSuccess(CL.clEnqueueReadBuffer(
+                        commandQueue, buffer, false, bufferOffset + position, 
+                        length, Pointer.to(window), 0, null, event));
+                    inFlight.addLast(
+                        new PendingWindow(event, window, position));
+                    CL.checkSuccess(CL.clFlush(commandQueue));
+                    position += length;
+                    continue;
+                }
+                
+                // Write the oldest window to the file while the 
+                // following windows are still being read
+                PendingWindow pending = inFlight.removeFirst();
+                complete(pending.event);
+                ByteBuffer window = pending.buffer;
+                long filePosition = fileOffset + pending.position;
+                while (window.hasRemaining())
+                {
+                    filePosition += channel.write(window, filePosition);
+                }
+                free.addLast(window);
+            }
+        }
+        finally
+        {
+            // Release the remaining events after an error. Their reads
+            // still have to finish, because they refer to the windows
+            while (!inFlight.isEmpty())
+            {
+                awaitAndRelease(inFlight.removeFirst().event);
+            }
+        }
+    }
+    
+    /**
+     * Wait for the given event, release it, and check whether the 
+     * command was executed successfully
+     * 
+     * @param event The event
+     * @throws CLException If the command failed
+     */
+    private static void complete(cl_event event)
+    {
+        CL.checkSuccess(awaitAndRelease(event));
+    }
+    
+    /**
+     * Wait for the given event and release it
+     * 
+     * @param event The event
+     * @return The result of waiting for the event
+     */
+    private static int awaitAndRelease(cl_event event)
+    {
+        int result = CL.clWaitForEventsRawNative(
+            1, new long[] { event.getNativePointer() });
+        CL.clReleaseEventRawNative(event.getNativePointer());
+        return result;
+    }
+    
+    /**
+     * Make sure that the given window parameters are positive
+     * 
+     * @param windowSize The window size
+     * @param maxWindowsInFlight The maximum number of windows in flight
+     * @throws IllegalArgumentException If a value is not positive
+     */
+    private static void checkWindows(int windowSize, int maxWindowsInFlight)
+    {
+        if (windowSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The window size must be positive, but is " + windowSize);
+        }
+        if (maxWindowsInFlight <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of windows in flight must be positive, " + 
+                "but is " + maxWindowsInFlight);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private FileTransfer()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * A bridge between work that is performed on the host and commands 
+ * that are enqueued on an OpenCL device.<br>
+ * <br>
+ * A host event wraps a user event that is created with 
+ * {@link CL#clCreateUserEvent(cl_context, int[])}. The event may be 
+ * used in the wait lists of commands, so that these commands do not
+ * start before the host work has finished:
+ * <pre><code>
+ * HostEvent decoded = HostEvent.submit(context, executor, new Runnable()
+ * {
+ *     public void run()
+ *     {
+ *         decodeInto(inputBuffer);
+ *     }
+ * });
+ * EventList waitList = new EventList(decoded.getEvent());
+ * clEnqueueWriteBuffer(queue, mem, CL_NON_BLOCKING, 0, size, 
+ *     Pointer.to(inputBuffer), waitList, null);
+ * clEnqueueNDRangeKernel(queue, kernel, 0, n, 0, null, null);
+ * decoded.release();
+ * </code></pre>
+ * When the host work completes, the status of the user event is set 
+ * to <code>CL_COMPLETE</code> with 
+ * {@link CL#clSetUserEventStatus(cl_event, int)}. When it fails, the
+ * status is set to a negative value, which causes the commands that 
+ * are waiting for the event to be terminated.<br>
+ * <br>
+ * The host event owns one reference to the user event, which has to 
+ * be released with {@link #release()} when the event is no longer 
+ * needed for building wait lists. The commands that have already 
+ * been enqueued with the event keep their own references. If the
+ * host event is released before its status was set, then the user
+ * event will be released after the status was set.
+ */
+public final class HostEvent
+{
+    /**
+     * The execution status that is set for the user event when the
+     * host work failed, and the failure was not caused by a 
+     * {@link CLException} with a negative status
+     */
+    public static final int FAILED = CL.CL_JOCL_INTERNAL_ERROR;
+    
+    /**
+     * Creates a new host event for a user event in the given context.
+     * The returned host event has to be completed by calling 
+     * {@link #complete()} or {@link #fail(int)}.
+     * 
+     * @param context The context
+     * @return The host event
+     * @throws CLException If the user event could not be created
+     */
+    public static HostEvent create(cl_context context)
+    {
+        int errcode_ret[] = { CL.CL_SUCCESS };
+        cl_event event = ResourceScope.excludeFromCurrent(
+            CL.clCreateUserEvent(context, errcode_ret));
+        CL.checkSuccess(errcode_ret[0]);
+        return new HostEvent(event);
+    }
+    
+    /**
+     * Creates a new host event for a user event in the given context,
+     * and executes the given runnable with the given executor. The 
+     * host event will be completed when the runnable has finished, 
+     * or failed when the runnable throws an exception.
+     * 
+     * @param context The context
+     * @param executor The executor
+     * @param runnable The runnable
+     * @return The host event
+     * @throws CLException If the user event could not be created
+     */
+    public static HostEvent submit(
+        cl_context context, Executor executor, final Runnable runnable)
+    {
+        final HostEvent hostEvent = create(context);
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    runnable.run();
+                    hostEvent.complete();
+                }
+                catch (Throwable t)
+                {
+                    hostEvent.fail(t);
+                    rethrow(t);
+                }
+            }
+        });
+        return hostEvent;
+    }
+    
+    /**
+     * Creates a new host event for a user event in the given context,
+     * and executes the given callable with the given executor. The 
+     * host event will be completed when the callable has finished, 
+     * or failed when the callable throws an exception. The result of
+     * the callable is ignored.
+     * 
+     * @param context The context
+     * @param executor The executor
+     * @param callable The callable
+     * @return The host event
+     * @throws CLException If the user event could not be created
+     */
+    public static HostEvent submit(
+        cl_context context, Executor executor, final Callable<?> callable)
+    {
+        final HostEvent hostEvent = create(context);
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    callable.call();
+                    hostEvent.complete();
+                }
+                catch (Throwable t)
+                {
+                    hostEvent.fail(t);
+                    rethrow(t);
+                }
+            }
+        });
+        return hostEvent;
+    }
+    
+    /**
+     * Rethrow the given throwable if it is an unchecked exception or
+     * an error, so that it is not silently swallowed by the executor
+     * 
+     * @param t The throwable
+     */
+    private static void rethrow(Throwable t)
+    {
+        if (t instanceof RuntimeException)
+        {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error)
+        {
+            throw (Error)t;
+        }
+    }
+    
+    /**
+     * The user event
+     */
+    private final cl_event event;
+    
+    /**
+     * Whether the status of the user event has already been set
+     */
+    private boolean statusSet;
+    
+    /**
+     * Whether {@link #release()} has been called
+     */
+    private boolean released;
+    
+    /**
+     * Creates a new host event for the given user event
+     * 
+     * @param event The user event
+     */
+    private HostEvent(cl_event event)
+    {
+        this.event = event;
+        this.statusSet = false;
+        this.released = false;
+    }
+    
+    /**
+     * Returns the user event. This event may be used in the wait lists
+     * of enqueue functions, until {@link #release()} is called.
+     * 
+     * @return The user event
+     */
+    public cl_event getEvent()
+    {
+        return event;
+    }
+    
+    /**
+     * Set the status of the user event to <code>CL_COMPLETE</code>.
+     * If the status was already set, then this call has no effect.
+     * 
+     * @return Whether the status was set by this call
+     */
+    public boolean complete()
+    {
+        return setStatus(CL.CL_COMPLETE);
+    }
+    
+    /**
+     * Set the status of the user event to the given negative value, 
+     * which causes the commands that are waiting for the event to be
+     * terminated. If the status was already set, then this call has 
+     * no effect.
+     * 
+     * @param executionStatus The execution status
+     * @return Whether the status was set by this call
+     * @throws IllegalArgumentException If the given status is not negative
+     */
+    public boolean fail(int executionStatus)
+    {
+        if (executionStatus >= 0)
+        {
+            throw new IllegalArgumentException(
+                "The execution status must be negative, but is " + 
+                executionStatus);
+        }
+        return setStatus(executionStatus);
+    }
+    
+    /**
+     * Set the status of the user event to a negative value, depending
+     * on the given cause: If it is a {@link CLException} with a negative
+     * status, then this status is used. Otherwise, the status is set 
+     * to {@link #FAILED}. If the status was already set, then this call 
+     * has no effect.
+     * 
+     * @param cause The cause of the failure
+     * @return Whether the status was set by this call
+     */
+    public boolean fail(Throwable cause)
+    {
+        int executionStatus = FAILED;
+        if (cause instanceof CLException)
+        {
+            int status = ((CLException)cause).getStatus();
+            if (status < 0)
+            {
+                executionStatus = status;
+            }
+        }
+        return setStatus(executionStatus);
+    }
+    
+    /**
+     * Returns whether the status of the user event has been set
+     * 
+     * @return Whether the status was set
+     */
+    public synchronized boolean isDone()
+    {
+        return statusSet;
+    }
+    
+    /**
+     * Release the reference to the user event that is owned by this 
+     * host event. If the status of the user event has not been set 
+     * yet, then the event will be released after the status was set.
+     * Calling this method more than once has no effect.
+     */
+    public synchronized void release()
+    {
+        if (released)
+        {
+            return;
+        }
+        released = true;
+        if (statusSet)
+        {
+            CL.clReleaseEvent(event);
+        }
+    }
+    
+    /**
+     * Set the given status for the user event, if it was not set yet
+     * 
+     * @param executionStatus The execution status
+     * @return Whether the status was set by this call
+     */
+    private synchronized boolean setStatus(int executionStatus)
+    {
+        if (statusSet)
+        {
+            return false;
+        }
+        statusSet = true;
+        try
+        {
+            CL.clSetUserEventStatus(event, executionStatus);
+        }
+        finally
+        {
+            if (released)
+            {
+                CL.clReleaseEvent(event);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns a String representation of this object.
+     * 
+     * @return A String representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        return "HostEvent[event=" + event + ",done=" + isDone() + "]";
+    }
+}
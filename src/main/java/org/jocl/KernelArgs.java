@@ -0,0 +1,509 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A reusable list of kernel arguments, which can be passed to the 
+ * {@link CL#clSetKernelArgs(cl_kernel, KernelArgs)} method in order
+ * to set all arguments of a kernel with a single native call.<br>
+ * <br>
+ * The arguments are stored in a direct byte buffer. Setting an 
+ * argument that was already set before will overwrite the value
+ * in-place, so that a <code>KernelArgs</code> object that is reused 
+ * for multiple kernel launches does not cause any allocations:
+ * <pre><code>
+ * KernelArgs args = new KernelArgs();
+ * args.setMem(0, input);
+ * args.setMem(1, output);
+ * args.setLocal(2, 256 * Sizeof.cl_float);
+ * for (int i = 0; i &lt; n; i++)
+ * {
+ *     args.setInt(3, i);
+ *     CL.clSetKernelArgs(kernel, args);
+ *     CL.clEnqueueNDRangeKernel(queue, kernel, 0, size, 0, 0, null, null);
+ * }
+ * </code></pre>
+ * <br>
+ * Instances of this class are not thread-safe.
+ */
+public final class KernelArgs
+{
+    // Implementation note: The buffer contains one record for each 
+    // argument. Each record consists of a 16 byte header and the 
+    // argument value, padded to a multiple of 8 bytes:
+    // 
+    // int  argIndex
+    // int  kind        (KIND_VALUE or KIND_LOCAL)
+    // long argSize
+    // byte value[]     (only for KIND_VALUE)
+    // 
+    // The layout is also used in the native clSetKernelArgsNative 
+    // function, and must be kept in sync with it.
+    
+    /**
+     * The kind of a record that contains the argument value
+     */
+    static final int KIND_VALUE = 0;
+    
+    /**
+     * The kind of a record that describes a __local argument, 
+     * which only has a size, but no value
+     */
+    static final int KIND_LOCAL = 1;
+    
+    /**
+     * The size of the header of each record, in bytes
+     */
+    private static final int HEADER_SIZE = 16;
+    
+    /**
+     * The default initial capacity of the buffer, in bytes
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+    
+    /**
+     * The buffer storing the records
+     */
+    private ByteBuffer buffer;
+    
+    /**
+     * The number of bytes in the buffer that are occupied by records
+     */
+    private int size;
+    
+    /**
+     * The offsets of the records in the buffer, for each argument
+     * index. An offset of -1 indicates that the argument is not set.
+     */
+    private int recordOffsets[];
+    
+    /**
+     * Creates a new, empty list of kernel arguments
+     */
+    public KernelArgs()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a new, empty list of kernel arguments, with the given
+     * initial capacity for the arguments, in bytes. The capacity 
+     * will be increased as necessary.
+     * 
+     * @param initialCapacity The initial capacity, in bytes
+     * @throws IllegalArgumentException If the given capacity is negative
+     */
+    public KernelArgs(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException(
+                "The initial capacity may not be negative, but is " + 
+                initialCapacity);
+        }
+        buffer = createBuffer(Math.max(HEADER_SIZE, initialCapacity));
+        size = 0;
+        recordOffsets = new int[8];
+        clear();
+    }
+    
+    /**
+     * Set the specified argument to the given <code>int</code> value
+     * 
+     * @param argIndex The argument index
+     * @param value The value
+     * @return This object
+     */
+    public KernelArgs setInt(int argIndex, int value)
+    {
+        int offset = prepareValue(argIndex, Sizeof.cl_int);
+        buffer.putInt(offset, value);
+        return this;
+    }
+    
+    /**
+     * Set the specified argument to the given <code>long</code> value
+     * 
+     * @param argIndex The argument index
+     * @param value The value
+     * @return This object
+     */
+    public KernelArgs setLong(int argIndex, long value)
+    {
+        int offset = prepareValue(argIndex, Sizeof.cl_long);
+        buffer.putLong(offset, value);
+        return this;
+    }
+    
+    /**
+     * Set the specified argument to the given <code>float</code> value
+     * 
+     * @param argIndex The argument index
+     * @param value The value
+     * @return This object
+     */
+    public KernelArgs setFloat(int argIndex, float value)
+    {
+        int offset = prepareValue(argIndex, Sizeof.cl_float);
+        buffer.putFloat(offset, value);
+        return this;
+    }
+    
+    /**
+     * Set the specified argument to the given <code>double</code> value
+     * 
+     * @param argIndex The argument index
+     * @param value The value
+     * @return This object
+     */
+    public KernelArgs setDouble(int argIndex, double value)
+    {
+        int offset = prepareValue(argIndex, Sizeof.cl_double);
+        buffer.putDouble(offset, value);
+        return this;
+    }
+    
+    /**
+     * Set the specified argument to the given memory object. If the
+     * given memory object is <code>null</code>, then a <code>NULL</code>
+     * value will be used for the argument.
+     * 
+     * @param argIndex The argument index
+     * @param mem The memory object
+     * @return This object
+     */
+    public KernelArgs setMem(int argIndex, cl_mem mem)
+    {
+        return setHandle(argIndex, Sizeof.cl_mem, CL.nativePointerOf(mem));
+    }
+    
+    /**
+     * Set the specified argument to the given sampler
+     * 
+     * @param argIndex The argument index
+     * @param sampler The sampler
+     * @return This object
+     */
+    public KernelArgs setSampler(int argIndex, cl_sampler sampler)
+    {
+        return setHandle(
+            argIndex, Sizeof.cl_sampler, CL.nativePointerOf(sampler));
+    }
+    
+    /**
+     * Set the specified argument to be a <code>__local</code> memory
+     * argument with the given size
+     * 
+     * @param argIndex The argument index
+     * @param localSize The size of the local memory, in bytes
+     * @return This object
+     */
+    public KernelArgs setLocal(int argIndex, long localSize)
+    {
+        prepare(argIndex, KIND_LOCAL, localSize, 0);
+        return this;
+    }
+    
+    /**
+     * Set the specified argument to the given value. This may be used
+     * for arguments of vector- or structure types. The value will be
+     * copied.
+     * 
+     * @param argIndex The argument index
+     * @param value The value
+     * @return This object
+     * @throws NullPointerException If the given value is <code>null</code>
+     */
+    public KernelArgs setBytes(int argIndex, byte value[])
+    {
+        int offset = prepareValue(argIndex, value.length);
+        for (int i = 0; i < value.length; i++)
+        {
+            buffer.put(offset + i, value[i]);
+        }
+        return this;
+    }
+    
+    /**
+     * Remove all arguments from this list. The memory that was 
+     * allocated for the arguments will be retained.
+     */
+    public void clear()
+    {
+        size = 0;
+        for (int i = 0; i < recordOffsets.length; i++)
+        {
+            recordOffsets[i] = -1;
+        }
+    }
+    
+    /**
+     * Returns the number of arguments that are contained in this list
+     * 
+     * @return The number of arguments
+     */
+    public int getCount()
+    {
+        int count = 0;
+        for (int i = 0; i < recordOffsets.length; i++)
+        {
+            if (recordOffsets[i] != -1)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the buffer that contains the records
+     * 
+     * @return The buffer
+     */
+    ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+    
+    /**
+     * Returns the number of bytes in the buffer that are occupied 
+     * by records
+     * 
+     * @return The size
+     */
+    int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Set the specified argument to the given handle value, which is
+     * written with the given size
+     * 
+     * @param argIndex The argument index
+     * @param handleSize The size of the handle, in bytes
+     * @param handle The handle
+     * @return This object
+     */
+    private KernelArgs setHandle(int argIndex, int handleSize, long handle)
+    {
+        int offset = prepareValue(argIndex, handleSize);
+        if (handleSize == Sizeof.cl_long)
+        {
+            buffer.putLong(offset, handle);
+        }
+        else
+        {
+            buffer.putInt(offset, (int)handle);
+        }
+        return this;
+    }
+    
+    /**
+     * Prepare a record for a value argument with the given size, and 
+     * return the offset where the value has to be written
+     * 
+     * @param argIndex The argument index
+     * @param argSize The size of the argument, in bytes
+     * @return The offset for the value
+     */
+    private int prepareValue(int argIndex, int argSize)
+    {
+        return prepare(argIndex, KIND_VALUE, argSize, argSize);
+    }
+    
+    /**
+     * Prepare the record for the specified argument, and return the
+     * offset where the value has to be written. If a record for the 
+     * given argument already exists and has the same value size, then 
+     * it will be overwritten. Otherwise, the existing record will be 
+     * removed, and a new record will be appended.
+     * 
+     * @param argIndex The argument index
+     * @param kind The kind of the record
+     * @param argSize The argument size
+     * @param valueSize The size of the value that will be stored
+     * @return The offset for the value
+     * @throws IllegalArgumentException If the given argument index
+     * is negative
+     */
+    private int prepare(int argIndex, int kind, long argSize, int valueSize)
+    {
+        if (argIndex < 0)
+        {
+            throw new IllegalArgumentException(
+                "The argument index may not be negative, but is " + argIndex);
+        }
+        ensureIndexCapacity(argIndex);
+        int paddedValueSize = padded(valueSize);
+        int recordOffset = recordOffsets[argIndex];
+        if (recordOffset != -1)
+        {
+            if (recordSize(recordOffset) == HEADER_SIZE + paddedValueSize)
+            {
+                buffer.putInt(recordOffset + 4, kind);
+                buffer.putLong(recordOffset + 8, argSize);
+                return recordOffset + HEADER_SIZE;
+            }
+            remove(argIndex);
+        }
+        int recordSize = HEADER_SIZE + paddedValueSize;
+        ensureCapacity(size + recordSize);
+        recordOffset = size;
+        buffer.putInt(recordOffset, argIndex);
+        buffer.putInt(recordOffset + 4, kind);
+        buffer.putLong(recordOffset + 8, argSize);
+        recordOffsets[argIndex] = recordOffset;
+        size += recordSize;
+        return recordOffset + HEADER_SIZE;
+    }
+    
+    /**
+     * Remove the record for the given argument index, moving all 
+     * subsequent records to close the gap.
+     * 
+     * @param argIndex The argument index
+     */
+    private void remove(int argIndex)
+    {
+        int recordOffset = recordOffsets[argIndex];
+        int recordSize = recordSize(recordOffset);
+        int end = recordOffset + recordSize;
+        for (int i = end; i < size; i++)
+        {
+            buffer.put(i - recordSize, buffer.get(i));
+        }
+        size -= recordSize;
+        recordOffsets[argIndex] = -1;
+        for (int i = 0; i < recordOffsets.length; i++)
+        {
+            if (recordOffsets[i] > recordOffset)
+            {
+                recordOffsets[i] -= recordSize;
+            }
+        }
+    }
+    
+    /**
+     * Returns the total size of the record at the given offset
+     * 
+     * @param recordOffset The record offset
+     * @return The record size
+     */
+    private int recordSize(int recordOffset)
+    {
+        int kind = buffer.getInt(recordOffset + 4);
+        if (kind == KIND_LOCAL)
+        {
+            return HEADER_SIZE;
+        }
+        long argSize = buffer.getLong(recordOffset + 8);
+        return HEADER_SIZE + padded((int)argSize);
+    }
+    
+    /**
+     * Make sure that the record offsets array can store the offset 
+     * for the given argument index
+     * 
+     * @param argIndex The argument index
+     */
+    private void ensureIndexCapacity(int argIndex)
+    {
+        if (argIndex < recordOffsets.length)
+        {
+            return;
+        }
+        int newLength = Math.max(argIndex + 1, recordOffsets.length * 2);
+        int newRecordOffsets[] = new int[newLength];
+        System.arraycopy(
+            recordOffsets, 0, newRecordOffsets, 0, recordOffsets.length);
+        for (int i = recordOffsets.length; i < newLength; i++)
+        {
+            newRecordOffsets[i] = -1;
+        }
+        recordOffsets = newRecordOffsets;
+    }
+    
+    /**
+     * Make sure that the buffer has at least the given capacity
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= buffer.capacity())
+        {
+            return;
+        }
+        int newCapacity = Math.max(capacity, buffer.capacity() * 2);
+        ByteBuffer newBuffer = createBuffer(newCapacity);
+        for (int i = 0; i < size; i++)
+        {
+            newBuffer.put(i, buffer.get(i));
+        }
+        buffer = newBuffer;
+    }
+    
+    /**
+     * Returns the given size, rounded up to a multiple of 8
+     * 
+     * @param size The size
+     * @return The padded size
+     */
+    private static int padded(int size)
+    {
+        return (size + 7) & ~7;
+    }
+    
+    /**
+     * Creates a direct byte buffer with the given capacity and 
+     * native byte order
+     * 
+     * @param capacity The capacity
+     * @return The buffer
+     */
+    private static ByteBuffer createBuffer(int capacity)
+    {
+        return ByteBuffer.allocateDirect(capacity).order(
+            ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Returns a String representation of this object.
+     * 
+     * @return A String representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        return "KernelArgs[count=" + getCount() + ",size=" + size + "]";
+    }
+}
@@ -0,0 +1,1083 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.Arrays;
+
+/**
+ * A launcher for a kernel whose arguments are bound by name or index,
+ * based on the argument information that is provided by 
+ * {@link CL#clGetKernelArgInfo}.<br>
+ * <br>
+ * The argument information is only available when the program was 
+ * built with the <code>-cl-kernel-arg-info</code> option. It is read 
+ * once, and stored in a {@link Signature}, which may be shared by the 
+ * launchers of all kernel objects for the same kernel function.<br>
+ * <br>
+ * Arguments are bound with the typed <code>*Arg</code> methods. These 
+ * methods look up the argument and check its type once, and return 
+ * an object that writes the argument value directly into the 
+ * {@link KernelArgs} of the launcher. Launching the kernel passes 
+ * these arguments to {@link CL#clSetKernelArgs(cl_kernel, KernelArgs)} 
+ * or {@link CommandBatch#setKernelArgs(cl_kernel, KernelArgs)}, 
+ * without any further lookups or checks:
+ * <pre><code>
+ * // __kernel void scale(__global float *data, float factor, int n)
+ * KernelLauncher launcher = new KernelLauncher(kernel);
+ * KernelLauncher.MemArg data = launcher.memArg("data");
+ * KernelLauncher.FloatArg factor = launcher.floatArg("factor");
+ * KernelLauncher.IntArg n = launcher.intArg("n");
+ * 
+ * for (Task task : tasks)
+ * {
+ *     data.set(task.getMem());
+ *     factor.set(task.getFactor());
+ *     n.set(task.getSize());
+ *     launcher.launch(queue, 1, null, globalSize, null);
+ * }
+ * </code></pre>
+ * Instances of this class are not thread-safe.
+ */
+public final class KernelLauncher
+{
+    /**
+     * The kind of an argument that is a 32 bit integer
+     */
+    private static final int KIND_INT = 0;
+    
+    /**
+     * The kind of an argument that is a 64 bit integer
+     */
+    private static final int KIND_LONG = 1;
+    
+    /**
+     * The kind of an argument that is a <code>float</code>
+     */
+    private static final int KIND_FLOAT = 2;
+    
+    /**
+     * The kind of an argument that is a <code>double</code>
+     */
+    private static final int KIND_DOUBLE = 3;
+    
+    /**
+     * The kind of an argument that is a memory object, namely a 
+     * <code>__global</code> or <code>__constant</code> pointer,
+     * an image or a pipe
+     */
+    private static final int KIND_MEM = 4;
+    
+    /**
+     * The kind of an argument that is a <code>__local</code> pointer
+     */
+    private static final int KIND_LOCAL = 5;
+    
+    /**
+     * The kind of an argument that is a sampler
+     */
+    private static final int KIND_SAMPLER = 6;
+    
+    /**
+     * The kind of an argument of any other type, like a vector or a
+     * structure, whose value is given as bytes
+     */
+    private static final int KIND_VALUE = 7;
+    
+    /**
+     * The names of the kinds, for error messages
+     */
+    private static final String KIND_NAMES[] = 
+    {
+        "int", "long", "float", "double", "memory object", 
+        "local memory", "sampler", "value"
+    };
+    
+    /**
+     * The signature of a kernel function, consisting of the names, 
+     * type names and address qualifiers of its arguments. Instances
+     * of this class are immutable.
+     */
+    public static final class Signature
+    {
+        /**
+         * The function name
+         */
+        private final String functionName;
+        
+        /**
+         * The argument names
+         */
+        private final String argNames[];
+        
+        /**
+         * The argument type names
+         */
+        private final String argTypeNames[];
+        
+        /**
+         * The argument address qualifiers
+         */
+        private final int argAddressQualifiers[];
+        
+        /**
+         * The kinds of the arguments
+         */
+        private final int argKinds[];
+        
+        /**
+         * The sizes of the arguments, in bytes, or -1 if the size is 
+         * not known
+         */
+        private final int argSizes[];
+        
+        /**
+         * Creates the signature of the given kernel
+         * 
+         * @param kernel The kernel
+         * @throws CLException If the argument information is not 
+         * available
+         */
+        private Signature(cl_kernel kernel)
+        {
+            functionName = 
+                CacheUtils.getKernelString(kernel, CL.CL_KERNEL_FUNCTION_NAME);
+            int numArgs[] = new int[1];
+            CL.checkSuccess(CL.clGetKernelInfo(kernel, CL.CL_KERNEL_NUM_ARGS, 
+                Sizeof.cl_uint, Pointer.to(numArgs), null));
+            int n = numArgs[0];
+            argNames = new String[n];
+            argTypeNames = new String[n];
+            argAddressQualifiers = new int[n];
+            argKinds = new int[n];
+            argSizes = new int[n];
+            for (int i = 0; i < n; i++)
+            {
+                argNames[i] = getArgString(kernel, i, CL.CL_KERNEL_ARG_NAME);
+                argTypeNames[i] = 
+                    getArgString(kernel, i, CL.CL_KERNEL_ARG_TYPE_NAME);
+                int addressQualifier[] = new int[1];
+                CL.checkSuccess(CL.clGetKernelArgInfo(kernel, i, 
+                    CL.CL_KERNEL_ARG_ADDRESS_QUALIFIER, Sizeof.cl_uint, 
+                    Pointer.to(addressQualifier), null));
+                argAddressQualifiers[i] = addressQualifier[0];
+                argKinds[i] = 
+                    kindOf(argAddressQualifiers[i], argTypeNames[i]);
+                argSizes[i] = sizeOf(argTypeNames[i]);
+            }
+        }
+        
+        /**
+         * Returns the function name
+         * 
+         * @return The function name
+         */
+        public String getFunctionName()
+        {
+            return functionName;
+        }
+        
+        /**
+         * Returns the number of arguments
+         * 
+         * @return The number of arguments
+         */
+        public int getArgCount()
+        {
+            return argNames.length;
+        }
+        
+        /**
+         * Returns the name of the specified argument
+         * 
+         * @param argIndex The argument index
+         * @return The name
+         */
+        public String getArgName(int argIndex)
+        {
+            return argNames[argIndex];
+        }
+        
+        /**
+         * Returns the type name of the specified argument
+         * 
+         * @param argIndex The argument index
+         * @return The type name
+         */
+        public String getArgTypeName(int argIndex)
+        {
+            return argTypeNames[argIndex];
+        }
+        
+        /**
+         * Returns the address qualifier of the specified argument, 
+         * for example, <code>CL_KERNEL_ARG_ADDRESS_GLOBAL</code>
+         * 
+         * @param argIndex The argument index
+         * @return The address qualifier
+         */
+        public int getArgAddressQualifier(int argIndex)
+        {
+            return argAddressQualifiers[argIndex];
+        }
+        
+        /**
+         * Returns the size of the value of the specified argument, in 
+         * bytes. The size is only known for arguments with a scalar or
+         * vector type. For other arguments, like structures, as well 
+         * as for pointers, images and samplers, -1 is returned.
+         * 
+         * @param argIndex The argument index
+         * @return The size, or -1 if it is not known
+         */
+        public int getArgSize(int argIndex)
+        {
+            return argSizes[argIndex];
+        }
+        
+        /**
+         * Returns the index of the argument with the given name
+         * 
+         * @param argName The argument name
+         * @return The argument index
+         * @throws IllegalArgumentException If there is no argument 
+         * with the given name
+         */
+        public int indexOf(String argName)
+        {
+            for (int i = 0; i < argNames.length; i++)
+            {
+                if (argNames[i].equals(argName))
+                {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("The kernel " + 
+                functionName + " has no argument " + argName);
+        }
+        
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder(functionName).append("(");
+            for (int i = 0; i < argNames.length; i++)
+            {
+                if (i > 0)
+                {
+                    sb.append(", ");
+                }
+                sb.append(CL.stringFor_cl_kernel_arg_address_qualifier(
+                    argAddressQualifiers[i]));
+                sb.append(" ").append(argTypeNames[i]);
+                sb.append(" ").append(argNames[i]);
+            }
+            return sb.append(")").toString();
+        }
+    }
+    
+    /**
+     * Base class for the bound arguments
+     */
+    private static abstract class Arg
+    {
+        /**
+         * The kernel arguments
+         */
+        final KernelArgs args;
+        
+        /**
+         * The argument index
+         */
+        final int argIndex;
+        
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        Arg(KernelArgs args, int argIndex)
+        {
+            this.args = args;
+            this.argIndex = argIndex;
+        }
+    }
+    
+    /**
+     * A bound argument of type <code>int</code> or <code>uint</code>
+     */
+    public static final class IntArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        IntArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the value of this argument
+         * 
+         * @param value The value
+         */
+        public void set(int value)
+        {
+            args.setInt(argIndex, value);
+        }
+    }
+    
+    /**
+     * A bound argument of type <code>long</code> or <code>ulong</code>
+     */
+    public static final class LongArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        LongArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the value of this argument
+         * 
+         * @param value The value
+         */
+        public void set(long value)
+        {
+            args.setLong(argIndex, value);
+        }
+    }
+    
+    /**
+     * A bound argument of type <code>float</code>
+     */
+    public static final class FloatArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        FloatArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the value of this argument
+         * 
+         * @param value The value
+         */
+        public void set(float value)
+        {
+            args.setFloat(argIndex, value);
+        }
+    }
+    
+    /**
+     * A bound argument of type <code>double</code>
+     */
+    public static final class DoubleArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        DoubleArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the value of this argument
+         * 
+         * @param value The value
+         */
+        public void set(double value)
+        {
+            args.setDouble(argIndex, value);
+        }
+    }
+    
+    /**
+     * A bound argument that is a <code>__global</code> or 
+     * <code>__constant</code> pointer, an image or a pipe
+     */
+    public static final class MemArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        MemArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the memory object of this argument. If the given memory 
+         * object is <code>null</code>, then a <code>NULL</code> value 
+         * will be used for the argument.
+         * 
+         * @param mem The memory object
+         */
+        public void set(cl_mem mem)
+        {
+            args.setMem(argIndex, mem);
+        }
+    }
+    
+    /**
+     * A bound argument that is a <code>__local</code> pointer
+     */
+    public static final class LocalArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        LocalArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the size of the local memory of this argument
+         * 
+         * @param localSize The size, in bytes
+         */
+        public void set(long localSize)
+        {
+            args.setLocal(argIndex, localSize);
+        }
+    }
+    
+    /**
+     * A bound argument of type <code>sampler_t</code>
+     */
+    public static final class SamplerArg extends Arg
+    {
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         */
+        SamplerArg(KernelArgs args, int argIndex)
+        {
+            super(args, argIndex);
+        }
+        
+        /**
+         * Set the sampler of this argument
+         * 
+         * @param sampler The sampler
+         */
+        public void set(cl_sampler sampler)
+        {
+            args.setSampler(argIndex, sampler);
+        }
+    }
+    
+    /**
+     * A bound argument of any other type, like a vector or a structure
+     */
+    public static final class ValueArg extends Arg
+    {
+        /**
+         * The size of the argument, in bytes, or -1 if it is not known
+         */
+        private final int size;
+        
+        /**
+         * Creates a new bound argument
+         * 
+         * @param args The kernel arguments
+         * @param argIndex The argument index
+         * @param size The size of the argument, or -1 if it is not known
+         */
+        ValueArg(KernelArgs args, int argIndex, int size)
+        {
+            super(args, argIndex);
+            this.size = size;
+        }
+        
+        /**
+         * Set the value of this argument. The value will be copied.
+         * 
+         * @param value The value
+         * @throws IllegalArgumentException If the size of the argument
+         * is known, and the length of the given value is different
+         */
+        public void set(byte value[])
+        {
+            if (size != -1 && value != null && value.length != size)
+            {
+                throw new IllegalArgumentException("The argument " + 
+                    argIndex + " has a size of " + size + 
+                    " bytes, but the value has " + value.length + " bytes");
+            }
+            args.setBytes(argIndex, value);
+        }
+    }
+    
+    /**
+     * The kernel
+     */
+    private final cl_kernel kernel;
+    
+    /**
+     * The signature of the kernel
+     */
+    private final Signature signature;
+    
+    /**
+     * The kernel arguments
+     */
+    private final KernelArgs args;
+    
+    /**
+     * Creates a new launcher for the given kernel, reading the 
+     * signature of the kernel
+     * 
+     * @param kernel The kernel
+     * @throws CLException If the argument information is not available,
+     * because the program was not built with 
+     * <code>-cl-kernel-arg-info</code>
+     */
+    public KernelLauncher(cl_kernel kernel)
+    {
+        this(kernel, new Signature(kernel));
+    }
+    
+    /**
+     * Creates a new launcher for the given kernel, with the given 
+     * signature. This may be used for creating launchers for several 
+     * kernel objects of the same kernel function, for example, from a 
+     * {@link KernelPool}, without reading the signature again.
+     * 
+     * @param kernel The kernel
+     * @param signature The signature
+     */
+    public KernelLauncher(cl_kernel kernel, Signature signature)
+    {
+        this.kernel = kernel;
+        this.signature = signature;
+        this.args = new KernelArgs();
+    }
+    
+    /**
+     * Returns the kernel of this launcher
+     * 
+     * @return The kernel
+     */
+    public cl_kernel getKernel()
+    {
+        return kernel;
+    }
+    
+    /**
+     * Returns the signature of the kernel
+     * 
+     * @return The signature
+     */
+    public Signature getSignature()
+    {
+        return signature;
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 32 bit 
+     * integer
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public IntArg intArg(String argName)
+    {
+        return intArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a 32 bit integer
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public IntArg intArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_INT);
+        return new IntArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 64 bit 
+     * integer
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public LongArg longArg(String argName)
+    {
+        return longArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a 64 bit integer
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public LongArg longArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_LONG);
+        return new LongArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 
+     * <code>float</code>
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public FloatArg floatArg(String argName)
+    {
+        return floatArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a <code>float</code>
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public FloatArg floatArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_FLOAT);
+        return new FloatArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 
+     * <code>double</code>
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public DoubleArg doubleArg(String argName)
+    {
+        return doubleArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a <code>double</code>
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public DoubleArg doubleArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_DOUBLE);
+        return new DoubleArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 
+     * <code>__global</code> or <code>__constant</code> pointer, an 
+     * image or a pipe
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public MemArg memArg(String argName)
+    {
+        return memArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a <code>__global</code>
+     * or <code>__constant</code> pointer, an image or a pipe
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public MemArg memArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_MEM);
+        return new MemArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 
+     * <code>__local</code> pointer
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public LocalArg localArg(String argName)
+    {
+        return localArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a <code>__local</code> 
+     * pointer
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public LocalArg localArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_LOCAL);
+        return new LocalArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must be a 
+     * <code>sampler_t</code>
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public SamplerArg samplerArg(String argName)
+    {
+        return samplerArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must be a <code>sampler_t</code>
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public SamplerArg samplerArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_SAMPLER);
+        return new SamplerArg(args, argIndex);
+    }
+    
+    /**
+     * Bind the argument with the given name, which must have a type 
+     * that is not covered by the other methods, like a vector or a 
+     * structure type
+     * 
+     * @param argName The argument name
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public ValueArg valueArg(String argName)
+    {
+        return valueArg(signature.indexOf(argName));
+    }
+    
+    /**
+     * Bind the specified argument, which must have a type that is not
+     * covered by the other methods, like a vector or a structure type
+     * 
+     * @param argIndex The argument index
+     * @return The bound argument
+     * @throws IllegalArgumentException If there is no such argument,
+     * or it has a different type
+     */
+    public ValueArg valueArg(int argIndex)
+    {
+        checkKind(argIndex, KIND_VALUE);
+        return new ValueArg(args, argIndex, signature.argSizes[argIndex]);
+    }
+    
+    /**
+     * Set the bound arguments for the kernel, and enqueue the kernel 
+     * on the given command queue, as in 
+     * {@link CL#clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)}.
+     * 
+     * @param commandQueue The command queue
+     * @param workDim The work dimension
+     * @param globalWorkOffset The global work offset, may be 
+     * <code>null</code>
+     * @param globalWorkSize The global work size
+     * @param localWorkSize The local work size, may be <code>null</code>
+     * @param event The event, may be <code>null</code>
+     * @return The error code
+     */
+    public int launch(cl_command_queue commandQueue, int workDim, 
+        long globalWorkOffset[], long globalWorkSize[], 
+        long localWorkSize[], cl_event event)
+    {
+        int result = CL.clSetKernelArgs(kernel, args);
+        if (result != CL.CL_SUCCESS)
+        {
+            return result;
+        }
+        return CL.clEnqueueNDRangeKernel(commandQueue, kernel, workDim, 
+            globalWorkOffset, globalWorkSize, localWorkSize, 0, null, event);
+    }
+    
+    /**
+     * Set the bound arguments for the kernel, and enqueue the kernel 
+     * on the given command queue, without an event
+     * 
+     * @param commandQueue The command queue
+     * @param workDim The work dimension
+     * @param globalWorkOffset The global work offset, may be 
+     * <code>null</code>
+     * @param globalWorkSize The global work size
+     * @param localWorkSize The local work size, may be <code>null</code>
+     * @return The error code
+     */
+    public int launch(cl_command_queue commandQueue, int workDim, 
+        long globalWorkOffset[], long globalWorkSize[], 
+        long localWorkSize[])
+    {
+        return launch(commandQueue, workDim, globalWorkOffset, 
+            globalWorkSize, localWorkSize, null);
+    }
+    
+    /**
+     * Record commands for setting the bound arguments for the kernel 
+     * and for enqueueing the kernel in the given batch, as in 
+     * {@link CommandBatch#enqueueNDRangeKernel}. The current values of 
+     * the arguments are copied into the batch.
+     * 
+     * @param batch The command batch
+     * @param workDim The work dimension
+     * @param globalWorkOffset The global work offset, may be 
+     * <code>null</code>
+     * @param globalWorkSize The global work size
+     * @param localWorkSize The local work size, may be <code>null</code>
+     * @param waitCommands The indices of the commands to wait for
+     * @return The index of the kernel command
+     */
+    public int launch(CommandBatch batch, int workDim, 
+        long globalWorkOffset[], long globalWorkSize[], 
+        long localWorkSize[], int ... waitCommands)
+    {
+        batch.setKernelArgs(kernel, args);
+        return batch.enqueueNDRangeKernel(kernel, workDim, 
+            globalWorkOffset, globalWorkSize, localWorkSize, waitCommands);
+    }
+    
+    /**
+     * Make sure that the specified argument has the given kind
+     * 
+     * @param argIndex The argument index
+     * @param kind The kind
+     * @throws IllegalArgumentException If the argument index is not 
+     * valid, or the argument has a different kind
+     */
+    private void checkKind(int argIndex, int kind)
+    {
+        if (argIndex < 0 || argIndex >= signature.getArgCount())
+        {
+            throw new IllegalArgumentException("The kernel " + 
+                signature.functionName + " has no argument " + argIndex);
+        }
+        int actualKind = signature.argKinds[argIndex];
+        if (actualKind != kind)
+        {
+            throw new IllegalArgumentException("The argument " + 
+                signature.argNames[argIndex] + " of the kernel " + 
+                signature.functionName + " has type " + 
+                signature.argTypeNames[argIndex] + ", which is a " + 
+                KIND_NAMES[actualKind] + " argument, and not a " + 
+                KIND_NAMES[kind] + " argument");
+        }
+    }
+    
+    /**
+     * Returns the kind of an argument with the given address qualifier
+     * and type name
+     * 
+     * @param addressQualifier The address qualifier
+     * @param typeName The type name
+     * @return The kind
+     */
+    private static int kindOf(int addressQualifier, String typeName)
+    {
+        switch (addressQualifier)
+        {
+            case CL.CL_KERNEL_ARG_ADDRESS_GLOBAL:
+            case CL.CL_KERNEL_ARG_ADDRESS_CONSTANT:
+                return KIND_MEM;
+                
+            case CL.CL_KERNEL_ARG_ADDRESS_LOCAL:
+                return KIND_LOCAL;
+                
+            default:
+                break;
+        }
+        if (typeName.endsWith("*") || typeName.startsWith("image") || 
+            typeName.startsWith("pipe"))
+        {
+            return KIND_MEM;
+        }
+        if (Arrays.asList("int", "uint", "unsigned int").contains(typeName))
+        {
+            return KIND_INT;
+        }
+        if (Arrays.asList("long", "ulong", "unsigned long").contains(typeName))
+        {
+            return KIND_LONG;
+        }
+        if (typeName.equals("float"))
+        {
+            return KIND_FLOAT;
+        }
+        if (typeName.equals("double"))
+        {
+            return KIND_DOUBLE;
+        }
+        if (typeName.equals("sampler_t"))
+        {
+            return KIND_SAMPLER;
+        }
+        return KIND_VALUE;
+    }
+    
+    /**
+     * Returns the size of a value of the given scalar or vector type, 
+     * for example, 4 for <code>int</code> or 16 for <code>float3</code>, 
+     * whose size is that of a <code>float4</code>
+     * 
+     * @param typeName The type name
+     * @return The size, or -1 if the type is not a scalar or vector type
+     */
+    private static int sizeOf(String typeName)
+    {
+        int end = typeName.length();
+        while (end > 0 && Character.isDigit(typeName.charAt(end - 1)))
+        {
+            end--;
+        }
+        String baseName = typeName.substring(0, end);
+        int count = 1;
+        if (end < typeName.length())
+        {
+            count = Integer.parseInt(typeName.substring(end));
+            if (count == 3)
+            {
+                count = 4;
+            }
+            else if (count != 2 && count != 4 && count != 8 && count != 16)
+            {
+                return -1;
+            }
+        }
+        if (Arrays.asList("char", "uchar", "unsigned char").contains(baseName))
+        {
+            return count;
+        }
+        if (Arrays.asList("short", "ushort", "unsigned short", "half").contains(
+            baseName))
+        {
+            return count * 2;
+        }
+        if (Arrays.asList("int", "uint", "unsigned int", "float").contains(
+            baseName))
+        {
+            return count * 4;
+        }
+        if (Arrays.asList("long", "ulong", "unsigned long", "double").contains(
+            baseName))
+        {
+            return count * 8;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the value of the given string parameter of the specified
+     * kernel argument
+     * 
+     * @param kernel The kernel
+     * @param argIndex The argument index
+     * @param paramName The parameter name
+     * @return The value
+     */
+    private static String getArgString(
+        cl_kernel kernel, int argIndex, int paramName)
+    {
+        long size[] = new long[1];
+        CL.checkSuccess(CL.clGetKernelArgInfo(
+            kernel, argIndex, paramName, 0, null, size));
+        byte buffer[] = new byte[(int)size[0]];
+        CL.checkSuccess(CL.clGetKernelArgInfo(kernel, argIndex, paramName, 
+            buffer.length, Pointer.to(buffer), null));
+        return CacheUtils.toString(buffer);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "KernelLauncher[" + signature + "]";
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of kernel objects for one kernel function, which allows 
+ * launching the kernel from multiple threads concurrently.<br>
+ * <br>
+ * The arguments of a kernel are part of the kernel object, so a 
+ * single kernel object can not be used by multiple threads without
+ * synchronization. A kernel pool hands out a kernel object to each 
+ * thread that {@link #acquire() acquires} one, and the thread returns 
+ * it with {@link #release(cl_kernel)} after it enqueued the kernel:
+ * <pre><code>
+ * KernelPool pool = new KernelPool(kernel);
+ * ...
+ * cl_kernel k = pool.acquire();
+ * try
+ * {
+ *     clSetKernelArg(k, 0, Sizeof.cl_mem, Pointer.to(mem));
+ *     clEnqueueNDRangeKernel(queue, k, 1, null, globalSize, null, 0, null, null);
+ * }
+ * finally
+ * {
+ *     pool.release(k);
+ * }
+ * </code></pre>
+ * New kernel objects are created with {@link CL#clCloneKernel} from
+ * the prototype kernel, if the platform and all devices of the context
+ * of the prototype support OpenCL 2.1 or later. Otherwise, they are 
+ * created with {@link CL#clCreateKernel} from the program of the 
+ * prototype kernel, and their arguments are not set.<br>
+ * <br>
+ * The prototype kernel is not owned by the pool, and must not be 
+ * released before the pool is {@link #shutdown() shut down}. The 
+ * kernel objects that are created by the pool are released when it 
+ * is shut down.
+ */
+public final class KernelPool
+{
+    /**
+     * The prototype kernel
+     */
+    private final cl_kernel prototype;
+    
+    /**
+     * The program of the prototype kernel
+     */
+    private final cl_program program;
+    
+    /**
+     * The function name of the prototype kernel
+     */
+    private final String kernelName;
+    
+    /**
+     * The kernel objects that are available
+     */
+    private final Queue<cl_kernel> available = 
+        new ConcurrentLinkedQueue<cl_kernel>();
+    
+    /**
+     * All kernel objects that have been created by this pool
+     */
+    private final Queue<cl_kernel> created = 
+        new ConcurrentLinkedQueue<cl_kernel>();
+    
+    /**
+     * The number of kernel objects that have been created
+     */
+    private final AtomicInteger createdCount = new AtomicInteger();
+    
+    /**
+     * Whether clCloneKernel may be used
+     */
+    private volatile boolean cloneSupported;
+    
+    /**
+     * Whether this pool has been shut down
+     */
+    private volatile boolean shutdown;
+    
+    /**
+     * Creates a new kernel pool for the given prototype kernel
+     * 
+     * @param prototype The prototype kernel
+     */
+    public KernelPool(cl_kernel prototype)
+    {
+        this.prototype = prototype;
+        this.program = new cl_program();
+        CL.clGetKernelInfo(prototype, CL.CL_KERNEL_PROGRAM, 
+            Sizeof.cl_program, Pointer.to(program), null);
+        this.kernelName = CacheUtils.getKernelString(
+            prototype, CL.CL_KERNEL_FUNCTION_NAME);
+        this.cloneSupported = isOpenCL21(prototype);
+    }
+    
+    /**
+     * Returns a kernel object that is used exclusively by the caller
+     * until it is {@link #release(cl_kernel) released}. The arguments
+     * of the kernel object are those that have been set by the 
+     * previous user. For a new kernel object that was created with 
+     * <code>clCloneKernel</code>, they are those of the prototype. 
+     * For a new kernel object that was created with 
+     * <code>clCreateKernel</code>, they are not set, and the caller 
+     * has to set all arguments.
+     * 
+     * @return The kernel object
+     * @throws IllegalStateException If the pool has been shut down
+     * @throws CLException If a new kernel object can not be created
+     */
+    public cl_kernel acquire()
+    {
+        if (shutdown)
+        {
+            throw new IllegalStateException("The pool has been shut down");
+        }
+        cl_kernel kernel = available.poll();
+        if (kernel != null)
+        {
+            return kernel;
+        }
+        kernel = ResourceScope.excludeFromCurrent(createKernel());
+        created.add(kernel);
+        createdCount.incrementAndGet();
+        return kernel;
+    }
+    
+    /**
+     * Return the given kernel object, which has been obtained with
+     * {@link #acquire()}, to this pool. If the pool has been shut 
+     * down, the kernel object is released.
+     * 
+     * @param kernel The kernel object
+     */
+    public void release(cl_kernel kernel)
+    {
+        if (!shutdown)
+        {
+            available.add(kernel);
+            
+            // When the pool was shut down concurrently, the kernel may 
+            // have been added after shutdown() emptied the queue. If it
+            // is still in the queue, it is released here.
+            if (!shutdown || !available.remove(kernel))
+            {
+                return;
+            }
+        }
+        if (created.remove(kernel))
+        {
+            CL.clReleaseKernel(kernel);
+        }
+    }
+    
+    /**
+     * Returns the number of kernel objects that have been created 
+     * by this pool
+     * 
+     * @return The number of kernel objects
+     */
+    public int getCreatedCount()
+    {
+        return createdCount.get();
+    }
+    
+    /**
+     * Returns whether this pool creates its kernel objects with 
+     * <code>clCloneKernel</code>. This is <code>false</code> when the 
+     * platform or one of the devices does not support OpenCL 2.1, or
+     * when a previous attempt to clone the prototype kernel failed with
+     * <code>CL_INVALID_OPERATION</code>.
+     * 
+     * @return Whether clCloneKernel is used
+     */
+    public boolean isCloneSupported()
+    {
+        return cloneSupported;
+    }
+    
+    /**
+     * Shut down this pool, releasing all kernel objects that are 
+     * available. Kernel objects that are currently acquired are 
+     * released when they are returned.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        cl_kernel kernel = null;
+        while ((kernel = available.poll()) != null)
+        {
+            if (created.remove(kernel))
+            {
+                CL.clReleaseKernel(kernel);
+            }
+        }
+    }
+    
+    /**
+     * Create a new kernel object, by cloning the prototype if possible,
+     * and by creating a new kernel from the program otherwise
+     * 
+     * @return The kernel object
+     * @throws CLException If the kernel object can not be created
+     */
+    private cl_kernel createKernel()
+    {
+        if (cloneSupported)
+        {
+            int errorCode[] = new int[1];
+            try
+            {
+                cl_kernel kernel = CL.clCloneKernel(prototype, errorCode);
+                if (errorCode[0] == CL.CL_SUCCESS)
+                {
+                    return kernel;
+                }
+            }
+            catch (UnsupportedOperationException e)
+            {
+                // The function is not available
+                errorCode[0] = CL.CL_INVALID_OPERATION;
+            }
+            catch (CLException e)
+            {
+                errorCode[0] = e.getStatus();
+            }
+            
+            // Other errors may be transient, like CL_OUT_OF_RESOURCES, 
+            // so cloning is only disabled when it is not supported
+            if (errorCode[0] == CL.CL_INVALID_OPERATION)
+            {
+                cloneSupported = false;
+            }
+        }
+        int errorCode[] = new int[1];
+        cl_kernel kernel = CL.clCreateKernel(program, kernelName, errorCode);
+        CL.checkSuccess(errorCode[0]);
+        return kernel;
+    }
+    
+    /**
+     * Returns whether the platform and all devices of the context of 
+     * the given kernel support OpenCL 2.1 or later. The ICD loader may
+     * offer <code>clCloneKernel</code> even when the implementation 
+     * does not support it.
+     * 
+     * @param kernel The kernel
+     * @return Whether clCloneKernel is supported
+     */
+    private static boolean isOpenCL21(cl_kernel kernel)
+    {
+        cl_context context = new cl_context();
+        CL.clGetKernelInfo(kernel, CL.CL_KERNEL_CONTEXT, 
+            Sizeof.cl_context, Pointer.to(context), null);
+        long size[] = new long[1];
+        CL.clGetContextInfo(context, CL.CL_CONTEXT_DEVICES, 0, null, size);
+        int numDevices = (int)(size[0] / Sizeof.cl_device_id);
+        if (numDevices == 0)
+        {
+            return false;
+        }
+        cl_device_id devices[] = new cl_device_id[numDevices];
+        CL.clGetContextInfo(context, CL.CL_CONTEXT_DEVICES, size[0], 
+            Pointer.to(devices), null);
+        cl_platform_id platform = new cl_platform_id();
+        CL.clGetDeviceInfo(devices[0], CL.CL_DEVICE_PLATFORM, 
+            Sizeof.cl_platform_id, Pointer.to(platform), null);
+        if (!isAtLeast21(CacheUtils.getPlatformString(
+            platform, CL.CL_PLATFORM_VERSION)))
+        {
+            return false;
+        }
+        for (cl_device_id device : devices)
+        {
+            if (!isAtLeast21(CacheUtils.getDeviceString(
+                device, CL.CL_DEVICE_VERSION)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns whether the given version string, which has the form
+     * <code>"OpenCL &lt;major&gt;.&lt;minor&gt; &lt;info&gt;"</code>,
+     * describes OpenCL 2.1 or later
+     * 
+     * @param version The version string
+     * @return Whether the version is at least 2.1
+     */
+    private static boolean isAtLeast21(String version)
+    {
+        String tokens[] = version.trim().split("\\s+");
+        if (tokens.length < 2)
+        {
+            return false;
+        }
+        String numbers[] = tokens[1].split("\\.");
+        try
+        {
+            int major = Integer.parseInt(numbers[0]);
+            int minor = numbers.length > 1 ? Integer.parseInt(numbers[1]) : 0;
+            return major > 2 || (major == 2 && minor >= 1);
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A map from <code>long</code> keys to objects, using open addressing 
+ * with linear probing. This avoids the boxing of the keys and the 
+ * entry objects of a <code>HashMap</code>. The key 0 is reserved for
+ * empty slots, which is not a restriction for native handles.<br>
+ * <br>
+ * This class is not thread-safe.
+ * 
+ * @param <V> The value type
+ */
+final class LongObjectMap<V>
+{
+    /**
+     * The keys. A key of 0 marks an empty slot.
+     */
+    private long keys[];
+    
+    /**
+     * The values
+     */
+    private Object values[];
+    
+    /**
+     * The number of entries
+     */
+    private int size;
+    
+    /**
+     * Creates a new, empty map
+     */
+    LongObjectMap()
+    {
+        keys = new long[16];
+        values = new Object[16];
+    }
+    
+    /**
+     * Returns the value for the given key
+     * 
+     * @param key The key
+     * @return The value, or <code>null</code> if there is no entry 
+     * for the given key
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key)
+    {
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        return (V)values[index];
+    }
+    
+    /**
+     * Store the given value for the given key
+     * 
+     * @param key The key, which may not be 0
+     * @param value The value
+     * @return The previous value, or <code>null</code>
+     * @throws IllegalArgumentException If the key is 0
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value)
+    {
+        if (key == 0)
+        {
+            throw new IllegalArgumentException("The key may not be 0");
+        }
+        if ((size + 1) * 4 > keys.length * 3)
+        {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != 0)
+        {
+            if (keys[index] == key)
+            {
+                V old = (V)values[index];
+                values[index] = value;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return null;
+    }
+    
+    /**
+     * Remove the entry for the given key
+     * 
+     * @param key The key
+     * @return The value that was removed, or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key)
+    {
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        V old = (V)values[index];
+        
+        // Shift the following entries of the same probe sequence back,
+        // so that no tombstones are required
+        int mask = keys.length - 1;
+        int gap = index;
+        int current = (gap + 1) & mask;
+        while (keys[current] != 0)
+        {
+            int home = hash(keys[current]) & mask;
+            if (((current - home) & mask) >= ((current - gap) & mask))
+            {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return old;
+    }
+    
+    /**
+     * Returns the number of entries
+     * 
+     * @return The number of entries
+     */
+    int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns a new list containing the values of this map
+     * 
+     * @return The values
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values()
+    {
+        List<V> result = new ArrayList<V>(size);
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != 0)
+            {
+                result.add((V)values[i]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the index of the slot for the given key
+     * 
+     * @param key The key
+     * @return The index, or -1 if there is no entry for the key
+     */
+    private int indexOf(long key)
+    {
+        if (key == 0)
+        {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != 0)
+        {
+            if (keys[index] == key)
+            {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Resize the arrays to the given capacity, which is a power of two
+     * 
+     * @param capacity The new capacity
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity)
+    {
+        long oldKeys[] = keys;
+        Object oldValues[] = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != 0)
+            {
+                put(oldKeys[i], (V)oldValues[i]);
+            }
+        }
+    }
+    
+    /**
+     * Computes the hash of the given key. Native handles are usually 
+     * aligned, so the bits are mixed to spread them over the slots.
+     * 
+     * @param key The key
+     * @return The hash
+     */
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
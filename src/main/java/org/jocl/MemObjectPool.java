@@ -0,0 +1,703 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A pool of buffers for one context. Instead of creating and releasing
+ * buffers with {@link CL#clCreateBuffer(cl_context, long, long, Pointer, 
+ * int[])} and {@link CL#clReleaseMemObject(cl_mem)}, the buffers may be
+ * obtained with {@link #acquire(long, long)} and returned to the pool 
+ * with {@link #release(cl_mem)}:
+ * <pre><code>
+ * MemObjectPool pool = new MemObjectPool(context, 256 &lt;&lt; 20, 10000);
+ * cl_mem mem = pool.acquire(CL_MEM_READ_WRITE, size);
+ * ...
+ * pool.release(mem);
+ * ...
+ * pool.shutdown();
+ * </code></pre>
+ * The buffers are kept in buckets that are identified by their flags
+ * and their size class. The size of the buffers that are created by 
+ * the pool is the next power of two of the requested size, so the 
+ * returned buffers may be larger than requested. The size and flags 
+ * of a released buffer are obtained with 
+ * {@link CL#clGetMemObjectInfo(cl_mem, int, long, Pointer, long[])}.
+ * <br>
+ * <br>
+ * Each bucket consists of several lock-free stacks. Threads acquire and
+ * release buffers using the stack that is selected by their thread ID,
+ * and only take buffers from other stacks when their own stack is 
+ * empty. Acquiring and releasing buffers does not take locks. The most
+ * recently released buffer is reused first, so that buffers which are
+ * not needed under a steady load become idle and are released 
+ * eventually.<br>
+ * <br>
+ * The number of bytes that are kept in the pool is limited. Buffers 
+ * that are released while the limit is reached are released 
+ * immediately. Buffers that have not been used for longer than the 
+ * maximum idle time are released during later calls to 
+ * {@link #release(cl_mem)}, or when {@link #evictIdle()} is called.
+ * <br>
+ * <br>
+ * This class is thread-safe.
+ */
+public final class MemObjectPool
+{
+    /**
+     * A buffer that is kept in the pool
+     */
+    private static final class Entry
+    {
+        /**
+         * The buffer
+         */
+        final cl_mem mem;
+        
+        /**
+         * The size of the buffer
+         */
+        final long size;
+        
+        /**
+         * The time when the buffer was returned to the pool,
+         * in milliseconds
+         */
+        final long releaseTime;
+        
+        /**
+         * The next entry in the stack, which was released earlier
+         */
+        Entry next;
+        
+        /**
+         * Creates a new entry
+         * 
+         * @param mem The buffer
+         * @param size The size
+         * @param releaseTime The release time
+         */
+        Entry(cl_mem mem, long size, long releaseTime)
+        {
+            this.mem = mem;
+            this.size = size;
+            this.releaseTime = releaseTime;
+        }
+    }
+    
+    /**
+     * A lock-free stack of entries. The most recently released entry
+     * is at the top, so the entries are ordered by their release time.
+     * <br>
+     * <br>
+     * An entry object is pushed at most once, so that a thread that 
+     * pops an entry can not be affected by the same entry being popped
+     * and pushed again by other threads in the meantime. Entries that
+     * are pushed again are copied.
+     */
+    private static final class Stripe
+    {
+        /**
+         * The top of the stack
+         */
+        private final AtomicReference<Entry> top = 
+            new AtomicReference<Entry>();
+        
+        /**
+         * Push the given entry on top of this stack
+         * 
+         * @param entry The entry
+         */
+        void push(Entry entry)
+        {
+            while (true)
+            {
+                Entry current = top.get();
+                entry.next = current;
+                if (top.compareAndSet(current, entry))
+                {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Remove the entry at the top of this stack
+         * 
+         * @return The entry, or <code>null</code> if the stack is empty
+         */
+        Entry pop()
+        {
+            while (true)
+            {
+                Entry current = top.get();
+                if (current == null)
+                {
+                    return null;
+                }
+                if (top.compareAndSet(current, current.next))
+                {
+                    return current;
+                }
+            }
+        }
+        
+        /**
+         * Remove all entries from this stack
+         * 
+         * @return The former top entry, which is the start of the 
+         * list of all entries, or <code>null</code> if the stack 
+         * was empty
+         */
+        Entry popAll()
+        {
+            return top.getAndSet(null);
+        }
+    }
+    
+    /**
+     * The buffers with the same flags and size class
+     */
+    private static final class Bucket
+    {
+        /**
+         * The stacks of the bucket
+         */
+        final List<Stripe> stripes;
+        
+        /**
+         * Creates a new bucket with the given number of stripes
+         * 
+         * @param numStripes The number of stripes
+         */
+        Bucket(int numStripes)
+        {
+            stripes = new ArrayList<Stripe>(numStripes);
+            for (int i = 0; i < numStripes; i++)
+            {
+                stripes.add(new Stripe());
+            }
+        }
+    }
+    
+    /**
+     * The size of the smallest size class, as a power of two
+     */
+    private static final int MIN_ORDER = 8;
+    
+    /**
+     * The number of bits that are used for the size class in
+     * the keys of the buckets
+     */
+    private static final int ORDER_BITS = 6;
+    
+    /**
+     * The context
+     */
+    private final cl_context context;
+    
+    /**
+     * The maximum number of bytes that are kept in the pool
+     */
+    private final long maxPooledBytes;
+    
+    /**
+     * The maximum time that a buffer may stay in the pool without
+     * being used, in milliseconds
+     */
+    private final long maxIdleMillis;
+    
+    /**
+     * The number of stripes in each bucket, which is a power of two
+     */
+    private final int numStripes;
+    
+    /**
+     * The buckets, with keys that are created with 
+     * {@link #keyFor(long, int)}
+     */
+    private final ConcurrentMap<Long, Bucket> buckets;
+    
+    /**
+     * The number of bytes that are currently kept in the pool
+     */
+    private final AtomicLong pooledBytes;
+    
+    /**
+     * The number of buffers that are currently kept in the pool
+     */
+    private final AtomicLong pooledCount;
+    
+    /**
+     * The number of requests that have been served with a pooled buffer
+     */
+    private final AtomicLong hitCount;
+    
+    /**
+     * The number of requests that required a new buffer
+     */
+    private final AtomicLong missCount;
+    
+    /**
+     * The time of the last eviction of idle buffers, in milliseconds
+     */
+    private final AtomicLong lastEvictionTime;
+    
+    /**
+     * Whether this pool has been shut down
+     */
+    private volatile boolean shutdown;
+    
+    /**
+     * Creates a new pool for the given context
+     * 
+     * @param context The context
+     * @param maxPooledBytes The maximum number of bytes that are kept 
+     * in the pool
+     * @param maxIdleMillis The maximum time, in milliseconds, that a 
+     * buffer may stay in the pool without being used
+     * @throws IllegalArgumentException If any of the values is negative
+     */
+    public MemObjectPool(
+        cl_context context, long maxPooledBytes, long maxIdleMillis)
+    {
+        if (maxPooledBytes < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of bytes is negative: " + maxPooledBytes);
+        }
+        if (maxIdleMillis < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum idle time is negative: " + maxIdleMillis);
+        }
+        this.context = context;
+        this.maxPooledBytes = maxPooledBytes;
+        this.maxIdleMillis = maxIdleMillis;
+        int n = 1;
+        while (n < Runtime.getRuntime().availableProcessors())
+        {
+            n <<= 1;
+        }
+        this.numStripes = n;
+        this.buckets = new ConcurrentHashMap<Long, Bucket>();
+        this.pooledBytes = new AtomicLong();
+        this.pooledCount = new AtomicLong();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.lastEvictionTime = new AtomicLong(System.currentTimeMillis());
+    }
+    
+    /**
+     * Obtain a buffer with the given flags and at least the given size.
+     * If the pool contains a buffer with the same flags and size class,
+     * then this buffer is returned. Otherwise, a new buffer is created,
+     * with a size that is the next power of two of the given size.
+     * 
+     * @param flags The flags, e.g. <code>CL_MEM_READ_WRITE</code>. These 
+     * may not contain <code>CL_MEM_USE_HOST_PTR</code> or 
+     * <code>CL_MEM_COPY_HOST_PTR</code>.
+     * @param size The minimum size, in bytes
+     * @return The buffer
+     * @throws IllegalArgumentException If the size is not positive, or 
+     * the flags contain <code>CL_MEM_USE_HOST_PTR</code> or 
+     * <code>CL_MEM_COPY_HOST_PTR</code>
+     * @throws IllegalStateException If this pool was shut down
+     * @throws CLException If a new buffer could not be created
+     */
+    public cl_mem acquire(long flags, long size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The size must be positive, but is " + size);
+        }
+        if ((flags & (CL.CL_MEM_USE_HOST_PTR | CL.CL_MEM_COPY_HOST_PTR)) != 0)
+        {
+            throw new IllegalArgumentException(
+                "The flags may not contain CL_MEM_USE_HOST_PTR or " +
+                "CL_MEM_COPY_HOST_PTR");
+        }
+        if (shutdown)
+        {
+            throw new IllegalStateException("The pool has been shut down");
+        }
+        int order = ceilOrder(size);
+        Bucket bucket = buckets.get(keyFor(flags, order));
+        if (bucket != null)
+        {
+            Entry entry = poll(bucket);
+            if (entry != null)
+            {
+                pooledBytes.addAndGet(-entry.size);
+                pooledCount.decrementAndGet();
+                hitCount.incrementAndGet();
+                return entry.mem;
+            }
+        }
+        missCount.incrementAndGet();
+        int errcode_ret[] = { CL.CL_SUCCESS };
+        cl_mem mem = ResourceScope.excludeFromCurrent(CL.clCreateBuffer(
+            context, flags, 1L << order, null, errcode_ret));
+        CL.checkSuccess(errcode_ret[0]);
+        return mem;
+    }
+    
+    /**
+     * Return the given buffer to the pool. If the pool already contains
+     * the maximum number of bytes, or the pool has been shut down, then
+     * the buffer is released with {@link CL#clReleaseMemObject(cl_mem)}.
+     * <br>
+     * <br>
+     * The buffer should have been obtained with 
+     * {@link #acquire(long, long)}, and may not be used by the caller 
+     * after it was returned to the pool. All commands that use the 
+     * buffer must have finished before it is returned, for example, 
+     * by waiting for their events or calling {@link CL#clFinish} on 
+     * their command queues. Otherwise, another thread may acquire the
+     * buffer and use it in commands that run concurrently to them.
+     * 
+     * @param mem The buffer
+     * @throws CLException If the size or flags of the buffer could 
+     * not be obtained
+     */
+    public void release(cl_mem mem)
+    {
+        long now = System.currentTimeMillis();
+        long last = lastEvictionTime.get();
+        if (now - last > maxIdleMillis / 2 && 
+            lastEvictionTime.compareAndSet(last, now))
+        {
+            evictIdle(now);
+        }
+        
+        long size = queryLong(mem, CL.CL_MEM_SIZE, Sizeof.size_t);
+        long flags = queryLong(mem, CL.CL_MEM_FLAGS, Sizeof.cl_ulong);
+        if (shutdown || size < (1L << MIN_ORDER) || !reserve(size))
+        {
+            CL.clReleaseMemObject(mem);
+            return;
+        }
+        Long key = keyFor(flags, floorOrder(size));
+        Bucket bucket = buckets.get(key);
+        if (bucket == null)
+        {
+            Bucket newBucket = new Bucket(numStripes);
+            bucket = buckets.putIfAbsent(key, newBucket);
+            if (bucket == null)
+            {
+                bucket = newBucket;
+            }
+        }
+        pooledCount.incrementAndGet();
+        bucket.stripes.get(stripeIndex()).push(new Entry(mem, size, now));
+        if (shutdown)
+        {
+            clear();
+        }
+    }
+    
+    /**
+     * Release all buffers that have not been used for longer than
+     * the maximum idle time
+     * 
+     * @return The number of buffers that have been released
+     */
+    public int evictIdle()
+    {
+        long now = System.currentTimeMillis();
+        lastEvictionTime.set(now);
+        return evictIdle(now);
+    }
+    
+    /**
+     * Release all buffers that have not been used for longer than
+     * the maximum idle time, relative to the given time
+     * 
+     * @param now The current time, in milliseconds
+     * @return The number of buffers that have been released
+     */
+    private int evictIdle(long now)
+    {
+        int count = 0;
+        for (Bucket bucket : buckets.values())
+        {
+            for (Stripe stripe : bucket.stripes)
+            {
+                // Take all entries, and push copies of the ones that 
+                // are not idle back, starting with the oldest one. 
+                // Threads that acquire a buffer in the meantime may 
+                // not find one and create a new buffer instead.
+                List<Entry> kept = new ArrayList<Entry>();
+                Entry entry = stripe.popAll();
+                while (entry != null)
+                {
+                    if (now - entry.releaseTime > maxIdleMillis)
+                    {
+                        discard(entry);
+                        count++;
+                    }
+                    else
+                    {
+                        kept.add(entry);
+                    }
+                    entry = entry.next;
+                }
+                for (int i = kept.size() - 1; i >= 0; i--)
+                {
+                    Entry old = kept.get(i);
+                    stripe.push(new Entry(old.mem, old.size, old.releaseTime));
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Release all buffers that are currently kept in the pool
+     * 
+     * @return The number of buffers that have been released
+     */
+    public int clear()
+    {
+        int count = 0;
+        for (Bucket bucket : buckets.values())
+        {
+            for (Stripe stripe : bucket.stripes)
+            {
+                Entry entry = stripe.popAll();
+                while (entry != null)
+                {
+                    discard(entry);
+                    count++;
+                    entry = entry.next;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Shut down this pool. This releases all buffers that are kept in
+     * the pool. Buffers that are returned to the pool afterwards will 
+     * be released immediately, and no more buffers may be acquired.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        clear();
+    }
+    
+    /**
+     * Returns the number of bytes that are currently kept in the pool
+     * 
+     * @return The number of pooled bytes
+     */
+    public long getPooledBytes()
+    {
+        return pooledBytes.get();
+    }
+    
+    /**
+     * Returns the number of buffers that are currently kept in the pool
+     * 
+     * @return The number of pooled buffers
+     */
+    public long getPooledCount()
+    {
+        return pooledCount.get();
+    }
+    
+    /**
+     * Returns the number of calls to {@link #acquire(long, long)} that 
+     * have been served with a buffer from the pool
+     * 
+     * @return The number of hits
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+    
+    /**
+     * Returns the number of calls to {@link #acquire(long, long)} that 
+     * required a new buffer to be created
+     * 
+     * @return The number of misses
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "MemObjectPool[" +
+            "pooledBytes=" + pooledBytes.get() + "," +
+            "pooledCount=" + pooledCount.get() + "," +
+            "hits=" + hitCount.get() + "," +
+            "misses=" + missCount.get() + "]";
+    }
+    
+    /**
+     * Take the most recently released entry from a stripe of the given 
+     * bucket, preferring the stripe of the current thread
+     * 
+     * @param bucket The bucket
+     * @return The entry, or <code>null</code> if the bucket is empty
+     */
+    private Entry poll(Bucket bucket)
+    {
+        int index = stripeIndex();
+        for (int i = 0; i < numStripes; i++)
+        {
+            Entry entry = bucket.stripes.get(
+                (index + i) & (numStripes - 1)).pop();
+            if (entry != null)
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Try to add the given size to the number of pooled bytes
+     * 
+     * @param size The size
+     * @return Whether the size could be added without exceeding
+     * the maximum number of pooled bytes
+     */
+    private boolean reserve(long size)
+    {
+        while (true)
+        {
+            long current = pooledBytes.get();
+            if (current + size > maxPooledBytes)
+            {
+                return false;
+            }
+            if (pooledBytes.compareAndSet(current, current + size))
+            {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Release the buffer of the given entry, which has been removed
+     * from the pool
+     * 
+     * @param entry The entry
+     */
+    private void discard(Entry entry)
+    {
+        pooledBytes.addAndGet(-entry.size);
+        pooledCount.decrementAndGet();
+        CL.clReleaseMemObject(entry.mem);
+    }
+    
+    /**
+     * Returns the index of the stripe for the current thread
+     * 
+     * @return The stripe index
+     */
+    private int stripeIndex()
+    {
+        return (int)(Thread.currentThread().getId() & (numStripes - 1));
+    }
+    
+    /**
+     * Returns the key of the bucket for the given flags and order.
+     * Flags that do not specify the access are treated like
+     * <code>CL_MEM_READ_WRITE</code>, which is the default.
+     * 
+     * @param flags The flags
+     * @param order The order
+     * @return The key
+     */
+    private static Long keyFor(long flags, int order)
+    {
+        long accessFlags = CL.CL_MEM_READ_WRITE | 
+            CL.CL_MEM_READ_ONLY | CL.CL_MEM_WRITE_ONLY;
+        if ((flags & accessFlags) == 0)
+        {
+            flags |= CL.CL_MEM_READ_WRITE;
+        }
+        return Long.valueOf((flags << ORDER_BITS) | order);
+    }
+    
+    /**
+     * Returns the smallest order whose size is at least the given size,
+     * and at least {@link #MIN_ORDER}
+     * 
+     * @param size The size
+     * @return The order
+     */
+    private static int ceilOrder(long size)
+    {
+        int order = 64 - Long.numberOfLeadingZeros(size - 1);
+        return Math.max(MIN_ORDER, order);
+    }
+    
+    /**
+     * Returns the largest order whose size is at most the given size
+     * 
+     * @param size The size
+     * @return The order
+     */
+    private static int floorOrder(long size)
+    {
+        return 63 - Long.numberOfLeadingZeros(size);
+    }
+    
+    /**
+     * Obtain the specified integral value of the given memory object
+     * 
+     * @param mem The memory object
+     * @param paramName The parameter name
+     * @param paramSize The size of the parameter value
+     * @return The value
+     * @throws CLException If the value could not be obtained
+     */
+    private static long queryLong(cl_mem mem, int paramName, int paramSize)
+    {
+        long value[] = new long[1];
+        int result = CL.clGetMemObjectInfo(
+            mem, paramName, paramSize, Pointer.to(value), null);
+        CL.checkSuccess(result);
+        return value[0];
+    }
+}
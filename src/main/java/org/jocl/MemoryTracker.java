@@ -0,0 +1,578 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accounting of the memory objects and SVM allocations that are 
+ * created with JOCL.<br>
+ * <br>
+ * The tracking is disabled by default. It is enabled by setting the
+ * system property <code>org.jocl.memoryTracking</code> to 
+ * <code>true</code> when starting the JVM:
+ * <pre><code>
+ * java -Dorg.jocl.memoryTracking=true ...
+ * </code></pre>
+ * When it is disabled, the checks in the creation and release 
+ * functions are constant <code>false</code> conditions that are 
+ * removed by the JIT, so that there is no overhead.<br>
+ * <br>
+ * When it is enabled, every memory object that is created with one of
+ * the <code>clCreate*</code> functions and every SVM allocation is 
+ * recorded, together with its size and context. The tracker counts
+ * the references that are retained with 
+ * {@link CL#clRetainMemObject(cl_mem)} and released with 
+ * {@link CL#clReleaseMemObject(cl_mem)} or one of the equivalent 
+ * functions of this library, and removes a memory object from the 
+ * records when all of them have been released. The 
+ * <code>CL_MEM_REFERENCE_COUNT</code> of the implementation is not 
+ * used for this, because it is stale, and may include references that
+ * are held by the implementation, for example, for the parent of a 
+ * sub-buffer. Sub-buffers are recorded, but do not count as live 
+ * bytes, because they share the memory of their parent.
+ * <br>
+ * <br>
+ * For every n-th allocation, the stack trace of the allocation site is 
+ * recorded, where n is given by the system property 
+ * <code>org.jocl.memoryTracking.stackSampleInterval</code> (default: 
+ * 16, 1 records all stack traces, 0 disables them). At shutdown, 
+ * all objects that have not been released are logged as leaks.
+ */
+public final class MemoryTracker
+{
+    /**
+     * Whether the memory tracking is enabled
+     */
+    public static final boolean ENABLED = 
+        Boolean.getBoolean("org.jocl.memoryTracking");
+    
+    /**
+     * The interval for recording the stack traces of allocation sites
+     */
+    private static final int STACK_SAMPLE_INTERVAL = 
+        Integer.getInteger("org.jocl.memoryTracking.stackSampleInterval", 16);
+    
+    /**
+     * The logger used in this class
+     */
+    private final static Logger logger = 
+        Logger.getLogger(MemoryTracker.class.getName());
+    
+    /**
+     * The record of one memory object or SVM allocation
+     */
+    private static final class Record
+    {
+        /**
+         * The native handle of the memory object, or the SVM pointer
+         */
+        final long handle;
+        
+        /**
+         * The size, in bytes
+         */
+        final long size;
+        
+        /**
+         * The context statistics
+         */
+        final ContextStats contextStats;
+        
+        /**
+         * Whether this is a sub-buffer
+         */
+        final boolean subBuffer;
+        
+        /**
+         * Whether this is an SVM allocation
+         */
+        final boolean svm;
+        
+        /**
+         * The allocation site, or <code>null</code> if the stack 
+         * trace was not sampled
+         */
+        final Throwable site;
+        
+        /**
+         * The number of references that have been created and retained
+         * and not released yet
+         */
+        int references;
+        
+        /**
+         * Creates a new record
+         * 
+         * @param handle The handle
+         * @param size The size
+         * @param contextStats The context statistics
+         * @param subBuffer Whether this is a sub-buffer
+         * @param svm Whether this is an SVM allocation
+         * @param site The allocation site
+         */
+        Record(long handle, long size, ContextStats contextStats,
+            boolean subBuffer, boolean svm, Throwable site)
+        {
+            this.handle = handle;
+            this.size = size;
+            this.contextStats = contextStats;
+            this.subBuffer = subBuffer;
+            this.svm = svm;
+            this.site = site;
+            this.references = 1;
+        }
+        
+        /**
+         * Returns the number of bytes that this record contributes 
+         * to the live bytes
+         * 
+         * @return The number of bytes
+         */
+        long liveBytes()
+        {
+            return subBuffer ? 0 : size;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return (svm ? "SVM pointer" : subBuffer ? "sub-buffer" : "cl_mem") + 
+                "[0x" + Long.toHexString(handle) + ",size=" + size + 
+                ",context=0x" + Long.toHexString(contextStats.context) + "]";
+        }
+    }
+    
+    /**
+     * The statistics for one context
+     */
+    private static final class ContextStats
+    {
+        /**
+         * The native handle of the context
+         */
+        final long context;
+        
+        /**
+         * The number of live bytes
+         */
+        long liveBytes;
+        
+        /**
+         * The maximum number of live bytes
+         */
+        long highWaterMark;
+        
+        /**
+         * Creates new statistics for the given context
+         * 
+         * @param context The context handle
+         */
+        ContextStats(long context)
+        {
+            this.context = context;
+        }
+    }
+    
+    /**
+     * The records of the live memory objects and SVM allocations
+     */
+    private static final LongObjectMap<Record> records = 
+        new LongObjectMap<Record>();
+    
+    /**
+     * The statistics for each context
+     */
+    private static final LongObjectMap<ContextStats> contextStats = 
+        new LongObjectMap<ContextStats>();
+    
+    /**
+     * The number of live bytes in all contexts
+     */
+    private static long liveBytes;
+    
+    /**
+     * The maximum number of live bytes in all contexts
+     */
+    private static long highWaterMark;
+    
+    /**
+     * The number of allocations, used for sampling the stack traces
+     */
+    private static long allocationCount;
+    
+    static
+    {
+        if (ENABLED)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    logLeaks();
+                }
+            }, "JOCL-MemoryTracker"));
+        }
+    }
+    
+    /**
+     * Record the given memory object, which has just been created.
+     * This is called by the creation functions in {@link CL}.
+     * 
+     * @param mem The memory object, may be <code>null</code>
+     * @return The given memory object
+     */
+    static cl_mem created(cl_mem mem)
+    {
+        if (!ENABLED || mem == null || mem.getNativePointer() == 0)
+        {
+            return mem;
+        }
+        long size = queryMemObjectInfo(mem, CL.CL_MEM_SIZE, Sizeof.size_t);
+        long context = queryMemObjectInfo(mem, CL.CL_MEM_CONTEXT, Sizeof.cl_context);
+        long parent = queryMemObjectInfo(mem, CL.CL_MEM_ASSOCIATED_MEMOBJECT, Sizeof.cl_mem);
+        add(mem.getNativePointer(), size, context, parent != 0, false);
+        return mem;
+    }
+    
+    /**
+     * Record the given SVM allocation. This is called by 
+     * {@link CL#clSVMAlloc(cl_context, long, long, int)}.
+     * 
+     * @param context The context
+     * @param pointer The SVM pointer, may be <code>null</code>
+     * @param size The size
+     * @return The given pointer
+     */
+    static Pointer svmAllocated(cl_context context, Pointer pointer, long size)
+    {
+        if (!ENABLED || pointer == null || pointer.getNativePointer() == 0)
+        {
+            return pointer;
+        }
+        add(pointer.getNativePointer(), size, 
+            CL.nativePointerOf(context), false, true);
+        return pointer;
+    }
+    
+    /**
+     * Remove the record of the given SVM allocation. This is called by 
+     * {@link CL#clSVMFree(cl_context, Pointer)}.
+     * 
+     * @param pointer The SVM pointer
+     */
+    static void svmFreed(Pointer pointer)
+    {
+        if (!ENABLED || pointer == null)
+        {
+            return;
+        }
+        remove(pointer.getNativePointer());
+    }
+    
+    /**
+     * Count an additional reference for the memory object with the 
+     * given handle. This is called by the retain functions, after the 
+     * reference was successfully retained.
+     * 
+     * @param handle The native handle of the memory object
+     */
+    static void retained(long handle)
+    {
+        if (!ENABLED || handle == 0)
+        {
+            return;
+        }
+        updateReferences(handle, 1);
+    }
+    
+    /**
+     * Count the release of a reference of the memory object with the 
+     * given handle, and remove its record if this is the last reference
+     * that was created or retained. This is called by the release 
+     * functions, before the release.
+     * 
+     * @param handle The native handle of the memory object
+     */
+    static void releasing(long handle)
+    {
+        if (!ENABLED || handle == 0)
+        {
+            return;
+        }
+        updateReferences(handle, -1);
+    }
+    
+    /**
+     * Returns the number of bytes in all memory objects and SVM 
+     * allocations that are currently alive
+     * 
+     * @return The number of live bytes
+     */
+    public static synchronized long getLiveBytes()
+    {
+        return liveBytes;
+    }
+    
+    /**
+     * Returns the number of bytes in the memory objects and SVM 
+     * allocations of the given context that are currently alive
+     * 
+     * @param context The context
+     * @return The number of live bytes
+     */
+    public static synchronized long getLiveBytes(cl_context context)
+    {
+        ContextStats stats = contextStats.get(CL.nativePointerOf(context));
+        return stats == null ? 0 : stats.liveBytes;
+    }
+    
+    /**
+     * Returns the maximum number of live bytes in all contexts
+     * 
+     * @return The high-water mark
+     */
+    public static synchronized long getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+    
+    /**
+     * Returns the maximum number of live bytes in the given context
+     * 
+     * @param context The context
+     * @return The high-water mark
+     */
+    public static synchronized long getHighWaterMark(cl_context context)
+    {
+        ContextStats stats = contextStats.get(CL.nativePointerOf(context));
+        return stats == null ? 0 : stats.highWaterMark;
+    }
+    
+    /**
+     * Returns the number of memory objects and SVM allocations that 
+     * are currently alive
+     * 
+     * @return The number of live objects
+     */
+    public static synchronized int getLiveCount()
+    {
+        return records.size();
+    }
+    
+    /**
+     * Print all memory objects and SVM allocations that are currently
+     * alive, together with the sampled allocation sites, to the given 
+     * stream
+     * 
+     * @param stream The stream
+     */
+    public static void dump(PrintStream stream)
+    {
+        stream.print(createDump());
+        stream.flush();
+    }
+    
+    /**
+     * Log all objects that have not been released as leaks
+     */
+    private static void logLeaks()
+    {
+        if (getLiveCount() > 0)
+        {
+            logger.log(Level.WARNING, "Memory objects that have not been " + 
+                "released:\n" + createDump());
+        }
+    }
+    
+    /**
+     * Create a string that describes all live objects
+     * 
+     * @return The string
+     */
+    private static String createDump()
+    {
+        List<Record> live = null;
+        long bytes = 0;
+        synchronized (MemoryTracker.class)
+        {
+            live = records.values();
+            bytes = liveBytes;
+        }
+        StringWriter stringWriter = new StringWriter();
+        PrintWriter writer = new PrintWriter(stringWriter);
+        writer.println(live.size() + " live objects, " + bytes + " bytes");
+        for (Record record : live)
+        {
+            writer.println(record);
+            if (record.site != null)
+            {
+                StackTraceElement elements[] = record.site.getStackTrace();
+                for (StackTraceElement element : elements)
+                {
+                    writer.println("    at " + element);
+                }
+            }
+        }
+        writer.flush();
+        return stringWriter.toString();
+    }
+    
+    /**
+     * Add a record with the given properties
+     * 
+     * @param handle The handle
+     * @param size The size
+     * @param context The context handle
+     * @param subBuffer Whether this is a sub-buffer
+     * @param svm Whether this is an SVM allocation
+     */
+    private static synchronized void add(long handle, long size, 
+        long context, boolean subBuffer, boolean svm)
+    {
+        Throwable site = null;
+        if (STACK_SAMPLE_INTERVAL > 0 && 
+            allocationCount % STACK_SAMPLE_INTERVAL == 0)
+        {
+            site = new Throwable("Allocation site");
+        }
+        allocationCount++;
+        
+        ContextStats stats = contextStats.get(context);
+        if (stats == null)
+        {
+            stats = new ContextStats(context);
+            if (context != 0)
+            {
+                contextStats.put(context, stats);
+            }
+        }
+        Record record = 
+            new Record(handle, size, stats, subBuffer, svm, site);
+        Record old = records.put(handle, record);
+        if (old != null)
+        {
+            // The handle was reused, so the old object has been 
+            // released in a way that was not tracked
+            subtract(old);
+        }
+        stats.liveBytes += record.liveBytes();
+        stats.highWaterMark = Math.max(stats.highWaterMark, stats.liveBytes);
+        liveBytes += record.liveBytes();
+        highWaterMark = Math.max(highWaterMark, liveBytes);
+    }
+    
+    /**
+     * Remove the record for the given handle
+     * 
+     * @param handle The handle
+     */
+    private static synchronized void remove(long handle)
+    {
+        Record record = records.remove(handle);
+        if (record != null)
+        {
+            subtract(record);
+        }
+    }
+    
+    /**
+     * Add the given delta to the number of references of the record for
+     * the given handle, and remove the record if no references remain
+     * 
+     * @param handle The handle
+     * @param delta The delta
+     */
+    private static synchronized void updateReferences(long handle, int delta)
+    {
+        Record record = records.get(handle);
+        if (record == null)
+        {
+            return;
+        }
+        record.references += delta;
+        if (record.references <= 0)
+        {
+            records.remove(handle);
+            subtract(record);
+        }
+    }
+    
+    /**
+     * Subtract the live bytes of the given record from the statistics
+     * 
+     * @param record The record
+     */
+    private static void subtract(Record record)
+    {
+        record.contextStats.liveBytes -= record.liveBytes();
+        liveBytes -= record.liveBytes();
+    }
+    
+    /**
+     * Obtain the specified integral value of the given memory object
+     * 
+     * @param mem The memory object
+     * @param paramName The parameter name
+     * @param paramSize The size of the parameter value
+     * @return The value, or 0 if it could not be obtained
+     */
+    private static long queryMemObjectInfo(
+        cl_mem mem, int paramName, int paramSize)
+    {
+        long value[] = new long[1];
+        try
+        {
+            int result = CL.clGetMemObjectInfo(
+                mem, paramName, paramSize, Pointer.to(value), null);
+            if (result != CL.CL_SUCCESS)
+            {
+                return 0;
+            }
+        }
+        catch (CLException e)
+        {
+            return 0;
+        }
+        return value[0];
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MemoryTracker()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,750 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A view on a region of host memory that is addressed with 
+ * <code>long</code> offsets, and thus may be larger than 2 GB.<br>
+ * <br>
+ * A <code>ByteBuffer</code> can not be larger than 
+ * <code>Integer.MAX_VALUE</code> bytes. A memory view internally
+ * consists of <code>ByteBuffer</code> windows that cover 1 GB each. 
+ * The windows are created lazily, and overlap by 8 bytes, so that 
+ * each primitive value can be read and written with a single access 
+ * to one window.<br>
+ * <br>
+ * Memory views are obtained from 
+ * {@link CL#clEnqueueMapBufferView(cl_command_queue, cl_mem, boolean, 
+ * long, long, long, int, cl_event[], cl_event, int[])} and from
+ * {@link Pointer#getMemoryView(long, long)} for pointers that have
+ * been allocated with {@link CL#clSVMAlloc(cl_context, long, long, int)}.
+ * All values are read and written in native byte order. <br>
+ * <br>
+ * The memory view does not own the memory. Accessing it after the 
+ * memory has been unmapped or freed causes undefined behavior. The
+ * {@link #getNativeAddress() native address} may be used for accessing 
+ * the memory with other APIs, for example, a 
+ * <code>java.lang.foreign.MemorySegment</code> on Java 21 and above.
+ */
+public final class MemoryView
+{
+    /**
+     * The base-2 logarithm of the window size
+     */
+    private static final int WINDOW_SHIFT = 30;
+    
+    /**
+     * The size of the windows, not including the overlap
+     */
+    private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+    
+    /**
+     * The number of bytes by which the windows overlap
+     */
+    private static final int WINDOW_OVERLAP = 8;
+    
+    /**
+     * The native address of the memory, or 0 if this view wraps a
+     * buffer
+     */
+    private final long address;
+    
+    /**
+     * The buffer that this view wraps, or <code>null</code> if this
+     * view was created for a native address
+     */
+    private final ByteBuffer buffer;
+    
+    /**
+     * The size of the memory, in bytes
+     */
+    private final long size;
+    
+    /**
+     * The windows, which are created lazily
+     */
+    private final AtomicReferenceArray<ByteBuffer> windows;
+    
+    /**
+     * Creates a new view on the memory at the given native address
+     * 
+     * @param address The native address
+     * @param size The size, in bytes
+     */
+    MemoryView(long address, long size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException(
+                "The size may not be negative, but is " + size);
+        }
+        this.address = address;
+        this.buffer = null;
+        this.size = size;
+        this.windows = new AtomicReferenceArray<ByteBuffer>(
+            (int)((size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT));
+    }
+    
+    /**
+     * Creates a new view on the given buffer
+     * 
+     * @param buffer The buffer
+     */
+    private MemoryView(ByteBuffer buffer)
+    {
+        this.address = 0;
+        this.buffer = buffer;
+        this.size = buffer.capacity();
+        this.windows = new AtomicReferenceArray<ByteBuffer>(
+            (int)((size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT));
+    }
+    
+    /**
+     * Creates a memory view for the contents of the given buffer,
+     * from its position to its limit.
+     * 
+     * @param buffer The buffer
+     * @return The memory view
+     * @throws NullPointerException If the given buffer is 
+     * <code>null</code>
+     */
+    public static MemoryView wrap(ByteBuffer buffer)
+    {
+        return new MemoryView(buffer.slice().order(ByteOrder.nativeOrder()));
+    }
+    
+    /**
+     * Returns the size of this memory view, in bytes
+     * 
+     * @return The size
+     */
+    public long getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the native address of the memory of this view. This is 
+     * only intended for interoperability with other libraries that 
+     * access native memory. It is 0 if this view was created with
+     * {@link #wrap(ByteBuffer)}.
+     * 
+     * @return The native address
+     */
+    public long getNativeAddress()
+    {
+        return address;
+    }
+    
+    /**
+     * Returns a view on the specified part of this view
+     * 
+     * @param offset The offset, in bytes
+     * @param length The length, in bytes
+     * @return The memory view
+     * @throws IndexOutOfBoundsException If the specified part is not
+     * within this view
+     */
+    public MemoryView slice(long offset, long length)
+    {
+        checkRange(offset, length);
+        if (buffer != null)
+        {
+            return wrap(asByteBuffer(offset, (int)length));
+        }
+        return new MemoryView(address + offset, length);
+    }
+    
+    /**
+     * Returns a byte buffer for the specified part of this view. 
+     * The returned buffer has the native byte order.
+     * 
+     * @param offset The offset, in bytes
+     * @param length The length, in bytes
+     * @return The byte buffer
+     * @throws IndexOutOfBoundsException If the specified part is not
+     * within this view
+     */
+    public ByteBuffer asByteBuffer(long offset, int length)
+    {
+        checkRange(offset, length);
+        return createBuffer(offset, length);
+    }
+    
+    /**
+     * Returns a pointer to the memory of this view, which may be 
+     * passed to the functions of {@link CL}
+     * 
+     * @return The pointer
+     */
+    public Pointer getPointer()
+    {
+        if (buffer != null)
+        {
+            return Pointer.to(buffer);
+        }
+        Pointer pointer = new Pointer();
+        pointer.setNativePointer(address);
+        return pointer;
+    }
+    
+    /**
+     * Returns the byte at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public byte getByte(long offset)
+    {
+        checkRange(offset, 1);
+        return window(offset).get(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given byte at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putByte(long offset, byte value)
+    {
+        checkRange(offset, 1);
+        window(offset).put(windowOffset(offset), value);
+    }
+    
+    /**
+     * Returns the short value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public short getShort(long offset)
+    {
+        checkRange(offset, Sizeof.cl_short);
+        return window(offset).getShort(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given short value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putShort(long offset, short value)
+    {
+        checkRange(offset, Sizeof.cl_short);
+        window(offset).putShort(windowOffset(offset), value);
+    }
+    
+    /**
+     * Returns the int value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public int getInt(long offset)
+    {
+        checkRange(offset, Sizeof.cl_int);
+        return window(offset).getInt(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given int value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putInt(long offset, int value)
+    {
+        checkRange(offset, Sizeof.cl_int);
+        window(offset).putInt(windowOffset(offset), value);
+    }
+    
+    /**
+     * Returns the long value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public long getLong(long offset)
+    {
+        checkRange(offset, Sizeof.cl_long);
+        return window(offset).getLong(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given long value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putLong(long offset, long value)
+    {
+        checkRange(offset, Sizeof.cl_long);
+        window(offset).putLong(windowOffset(offset), value);
+    }
+    
+    /**
+     * Returns the float value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public float getFloat(long offset)
+    {
+        checkRange(offset, Sizeof.cl_float);
+        return window(offset).getFloat(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given float value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putFloat(long offset, float value)
+    {
+        checkRange(offset, Sizeof.cl_float);
+        window(offset).putFloat(windowOffset(offset), value);
+    }
+    
+    /**
+     * Returns the double value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @return The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public double getDouble(long offset)
+    {
+        checkRange(offset, Sizeof.cl_double);
+        return window(offset).getDouble(windowOffset(offset));
+    }
+    
+    /**
+     * Writes the given double value at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the offset is not valid
+     */
+    public void putDouble(long offset, double value)
+    {
+        checkRange(offset, Sizeof.cl_double);
+        window(offset).putDouble(windowOffset(offset), value);
+    }
+    
+    /**
+     * Copy bytes from this view, starting at the given offset, into
+     * the given array
+     * 
+     * @param offset The offset, in bytes
+     * @param dst The destination array
+     * @param dstIndex The index in the destination array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void get(long offset, byte dst[], int dstIndex, int length)
+    {
+        transfer(offset, dst, dstIndex, length, false);
+    }
+    
+    /**
+     * Copy bytes from the given array into this view, starting at 
+     * the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param src The source array
+     * @param srcIndex The index in the source array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void put(long offset, byte src[], int srcIndex, int length)
+    {
+        transfer(offset, src, srcIndex, length, true);
+    }
+    
+    /**
+     * Copy int values from this view, starting at the given offset, 
+     * into the given array
+     * 
+     * @param offset The offset, in bytes
+     * @param dst The destination array
+     * @param dstIndex The index in the destination array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void get(long offset, int dst[], int dstIndex, int length)
+    {
+        transfer(offset, dst, dstIndex, length, false);
+    }
+    
+    /**
+     * Copy int values from the given array into this view, starting 
+     * at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param src The source array
+     * @param srcIndex The index in the source array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void put(long offset, int src[], int srcIndex, int length)
+    {
+        transfer(offset, src, srcIndex, length, true);
+    }
+    
+    /**
+     * Copy long values from this view, starting at the given offset, 
+     * into the given array
+     * 
+     * @param offset The offset, in bytes
+     * @param dst The destination array
+     * @param dstIndex The index in the destination array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void get(long offset, long dst[], int dstIndex, int length)
+    {
+        transfer(offset, dst, dstIndex, length, false);
+    }
+    
+    /**
+     * Copy long values from the given array into this view, starting 
+     * at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param src The source array
+     * @param srcIndex The index in the source array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void put(long offset, long src[], int srcIndex, int length)
+    {
+        transfer(offset, src, srcIndex, length, true);
+    }
+    
+    /**
+     * Copy float values from this view, starting at the given offset, 
+     * into the given array
+     * 
+     * @param offset The offset, in bytes
+     * @param dst The destination array
+     * @param dstIndex The index in the destination array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void get(long offset, float dst[], int dstIndex, int length)
+    {
+        transfer(offset, dst, dstIndex, length, false);
+    }
+    
+    /**
+     * Copy float values from the given array into this view, starting 
+     * at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param src The source array
+     * @param srcIndex The index in the source array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void put(long offset, float src[], int srcIndex, int length)
+    {
+        transfer(offset, src, srcIndex, length, true);
+    }
+    
+    /**
+     * Copy double values from this view, starting at the given offset, 
+     * into the given array
+     * 
+     * @param offset The offset, in bytes
+     * @param dst The destination array
+     * @param dstIndex The index in the destination array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void get(long offset, double dst[], int dstIndex, int length)
+    {
+        transfer(offset, dst, dstIndex, length, false);
+    }
+    
+    /**
+     * Copy double values from the given array into this view, starting 
+     * at the given offset
+     * 
+     * @param offset The offset, in bytes
+     * @param src The source array
+     * @param srcIndex The index in the source array
+     * @param length The number of elements
+     * @throws IndexOutOfBoundsException If the offset or the array
+     * range are not valid
+     */
+    public void put(long offset, double src[], int srcIndex, int length)
+    {
+        transfer(offset, src, srcIndex, length, true);
+    }
+    
+    /**
+     * Returns the window that contains the given offset, creating it
+     * if necessary
+     * 
+     * @param offset The offset, in bytes
+     * @return The window
+     */
+    ByteBuffer window(long offset)
+    {
+        int index = (int)(offset >>> WINDOW_SHIFT);
+        ByteBuffer window = windows.get(index);
+        if (window == null)
+        {
+            long start = (long)index << WINDOW_SHIFT;
+            long length = Math.min(WINDOW_SIZE + WINDOW_OVERLAP, size - start);
+            window = createBuffer(start, (int)length);
+            if (!windows.compareAndSet(index, null, window))
+            {
+                window = windows.get(index);
+            }
+        }
+        return window;
+    }
+    
+    /**
+     * Creates a byte buffer with native byte order for the specified
+     * part of the memory
+     * 
+     * @param offset The offset, in bytes
+     * @param length The length, in bytes
+     * @return The byte buffer
+     */
+    private ByteBuffer createBuffer(long offset, int length)
+    {
+        ByteBuffer result = null;
+        if (buffer != null)
+        {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.limit((int)offset + length);
+            duplicate.position((int)offset);
+            result = duplicate.slice();
+        }
+        else
+        {
+            result = CL.createDirectByteBufferNative(address + offset, length);
+        }
+        return result.order(ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Returns the offset of the given offset inside its window
+     * 
+     * @param offset The offset
+     * @return The offset inside the window
+     */
+    private static int windowOffset(long offset)
+    {
+        return (int)(offset & (WINDOW_SIZE - 1));
+    }
+    
+    /**
+     * Copy the specified elements between this view and the given 
+     * primitive array
+     * 
+     * @param offset The offset, in bytes
+     * @param array The array
+     * @param index The index in the array
+     * @param length The number of elements
+     * @param toView Whether the elements are copied from the array
+     * into this view
+     */
+    private void transfer(
+        long offset, Object array, int index, int length, boolean toView)
+    {
+        int elementSize = elementSizeOf(array);
+        int arrayLength = java.lang.reflect.Array.getLength(array);
+        if (index < 0 || length < 0 || index > arrayLength - length)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid range " + index + "+" + length + 
+                " for array of length " + arrayLength);
+        }
+        checkRange(offset, (long)length * elementSize);
+        while (length > 0)
+        {
+            // All elements that start in the current window also end 
+            // in the current window, due to the overlap
+            int position = windowOffset(offset);
+            long available = WINDOW_SIZE - position;
+            int n = (int)Math.min(length, 
+                (available + elementSize - 1) / elementSize);
+            ByteBuffer buffer = window(offset).duplicate();
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.position(position);
+            transfer(buffer, array, index, n, toView);
+            offset += (long)n * elementSize;
+            index += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copy the specified elements between the given buffer, starting 
+     * at its position, and the given primitive array
+     * 
+     * @param buffer The buffer
+     * @param array The array
+     * @param index The index in the array
+     * @param length The number of elements
+     * @param toBuffer Whether the elements are copied from the array
+     * into the buffer
+     */
+    private static void transfer(ByteBuffer buffer, 
+        Object array, int index, int length, boolean toBuffer)
+    {
+        if (array instanceof byte[])
+        {
+            if (toBuffer)
+            {
+                buffer.put((byte[])array, index, length);
+            }
+            else
+            {
+                buffer.get((byte[])array, index, length);
+            }
+        }
+        else if (array instanceof int[])
+        {
+            if (toBuffer)
+            {
+                buffer.asIntBuffer().put((int[])array, index, length);
+            }
+            else
+            {
+                buffer.asIntBuffer().get((int[])array, index, length);
+            }
+        }
+        else if (array instanceof long[])
+        {
+            if (toBuffer)
+            {
+                buffer.asLongBuffer().put((long[])array, index, length);
+            }
+            else
+            {
+                buffer.asLongBuffer().get((long[])array, index, length);
+            }
+        }
+        else if (array instanceof float[])
+        {
+            if (toBuffer)
+            {
+                buffer.asFloatBuffer().put((float[])array, index, length);
+            }
+            else
+            {
+                buffer.asFloatBuffer().get((float[])array, index, length);
+            }
+        }
+        else
+        {
+            if (toBuffer)
+            {
+                buffer.asDoubleBuffer().put((double[])array, index, length);
+            }
+            else
+            {
+                buffer.asDoubleBuffer().get((double[])array, index, length);
+            }
+        }
+    }
+    
+    /**
+     * Returns the size of one element of the given primitive array
+     * 
+     * @param array The array
+     * @return The element size
+     */
+    private static int elementSizeOf(Object array)
+    {
+        if (array instanceof byte[])
+        {
+            return Sizeof.cl_char;
+        }
+        if (array instanceof int[] || array instanceof float[])
+        {
+            return Sizeof.cl_int;
+        }
+        return Sizeof.cl_long;
+    }
+    
+    /**
+     * Make sure that the specified range is within this view
+     * 
+     * @param offset The offset, in bytes
+     * @param length The length, in bytes
+     * @throws IndexOutOfBoundsException If the range is not valid
+     */
+    private void checkRange(long offset, long length)
+    {
+        if (offset < 0 || length < 0 || offset > size - length)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid range " + offset + "+" + length + 
+                " for memory view of size " + size);
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "MemoryView[address=0x" + Long.toHexString(address) + 
+            ",size=" + size + "]";
+    }
+}
@@ -102,6 +102,14 @@ public class NativePointerObject
      */
     NativePointerObject(NativePointerObject other)
     {
+        // A pointer that is only defined by its native address, like 
+        // the pointer of a MemoryView that is larger than 2 GB, keeps 
+        // its address. Otherwise, the copy refers to the buffer or
+        // the pointers, and the native pointer is not copied.
+        if (other.buffer == null && other.pointers == null)
+        {
+            this.nativePointer = other.nativePointer;
+        }
         this.buffer = other.buffer;
         this.pointers = other.pointers;
         this.byteOffset = other.byteOffset;
@@ -134,6 +142,19 @@ public class NativePointerObject
         return nativePointer;
     }
     
+    /**
+     * Set the native pointer value. This is only intended for 
+     * creating objects for native handles that have been obtained 
+     * in a different way than by the native methods that usually 
+     * initialize the respective objects.
+     * 
+     * @param nativePointer The native pointer value
+     */
+    void setNativePointer(long nativePointer)
+    {
+        this.nativePointer = nativePointer;
+    }
+    
     /**
      * Returns the byte offset
      * 
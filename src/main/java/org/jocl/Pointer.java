@@ -567,6 +567,11 @@ public final class Pointer extends NativePointerObject
      * <br>
      * (It will work for all pointers to ByteBuffers, but for 
      * other pointer types, <code>null</code> will be returned)
+     * <br>
+     * A byte buffer can not be larger than 2 GB. When the end of the 
+     * specified segment is beyond 2 GB, this method returns 
+     * <code>null</code>, and {@link #getMemoryView(long, long)} has 
+     * to be used.
      *
      * @param byteOffset The offset in bytes
      * @param byteSize The size of the byte buffer, in bytes
@@ -574,6 +579,10 @@ public final class Pointer extends NativePointerObject
      */
     public ByteBuffer getByteBuffer(long byteOffset, long byteSize)
     {
+        if (byteOffset + byteSize > Integer.MAX_VALUE)
+        {
+            return null;
+        }
         Buffer buffer = getBuffer();
         if (buffer == null)
         {
@@ -589,5 +598,37 @@ public final class Pointer extends NativePointerObject
         return byteBuffer.slice();
     }
     
+    /**
+     * Returns a {@link MemoryView} for the specified segment of the 
+     * memory that this pointer points to. In contrast to 
+     * {@link #getByteBuffer(long, long)}, the segment may be larger 
+     * than 2 GB.<br>
+     * <br>
+     * This function is solely intended for pointers that
+     * have been allocated with {@link CL#clSVMAlloc}.
+     * <br>
+     * (It will work for all pointers to ByteBuffers, but for 
+     * other pointer types, <code>null</code> will be returned)
+     *
+     * @param byteOffset The offset in bytes
+     * @param byteSize The size of the memory view, in bytes
+     * @return The memory view
+     */
+    public MemoryView getMemoryView(long byteOffset, long byteSize)
+    {
+        long nativePointer = getNativePointer();
+        if (nativePointer != 0)
+        {
+            return new MemoryView(
+                nativePointer + getByteOffset() + byteOffset, byteSize);
+        }
+        ByteBuffer byteBuffer = getByteBuffer(byteOffset, byteSize);
+        if (byteBuffer == null)
+        {
+            return null;
+        }
+        return MemoryView.wrap(byteBuffer);
+    }
+    
     
 }
@@ -0,0 +1,657 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A cache for program binaries in a directory of the file system,
+ * which avoids rebuilding programs from their source code every time 
+ * that the JVM is started.<br>
+ * <br>
+ * The {@link #build(cl_context, cl_device_id[], String, String)} 
+ * method creates and builds a program. When binaries for all devices 
+ * are found in the cache, the program is created with 
+ * {@link CL#clCreateProgramWithBinary}. Otherwise, or when the 
+ * binaries are rejected by the implementation, the program is built 
+ * from its source code, and the resulting binaries are stored in the 
+ * cache:
+ * <pre><code>
+ * ProgramBinaryCache cache = new ProgramBinaryCache(
+ *     new File(System.getProperty("user.home"), ".myapp/kernels"), 
+ *     256L &lt;&lt; 20);
+ * cl_program program = cache.build(context, devices, source, "-cl-mad-enable");
+ * </code></pre>
+ * The binary of each device is stored in one file. The name of the 
+ * file is a hash of the source code, the build options, the device 
+ * name, the driver version and the platform version. Each file 
+ * contains a checksum, and files that are corrupt are deleted. Files 
+ * are written to a temporary file first, which is then renamed, so
+ * that other processes never see partially written files. When the
+ * total size of the files exceeds the given limit, the files that 
+ * have been used least recently are deleted.<br>
+ * <br>
+ * Failures to read or write the cache files are logged, and do not 
+ * affect the build.
+ */
+public final class ProgramBinaryCache
+{
+    /**
+     * The logger used in this class
+     */
+    private final static Logger logger = 
+        Logger.getLogger(ProgramBinaryCache.class.getName());
+    
+    /**
+     * The magic number at the start of each cache file
+     */
+    private static final int MAGIC = 0x4A4F4342;
+    
+    /**
+     * The version of the cache file format
+     */
+    private static final int FORMAT_VERSION = 1;
+    
+    /**
+     * The file extension of the cache files
+     */
+    private static final String EXTENSION = ".bin";
+    
+    /**
+     * The prefix of the temporary files
+     */
+    private static final String TEMP_PREFIX = "binary";
+    
+    /**
+     * The suffix of the temporary files
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    /**
+     * The age, in milliseconds, after which a temporary file is assumed 
+     * to be left over from a process that terminated while writing it
+     */
+    private static final long TEMP_FILE_MAX_AGE_MS = 60 * 60 * 1000L;
+    
+    /**
+     * The directory of the cache files
+     */
+    private final File directory;
+    
+    /**
+     * The maximum total size of the cache files, in bytes
+     */
+    private final long maxBytes;
+    
+    /**
+     * The number of builds that used cached binaries
+     */
+    private int hitCount;
+    
+    /**
+     * The number of builds from source code
+     */
+    private int missCount;
+    
+    /**
+     * Creates a new cache that stores the binaries in the given 
+     * directory. The directory is created if it does not exist.
+     * 
+     * @param directory The directory
+     * @param maxBytes The maximum total size of the cache files, 
+     * in bytes
+     * @throws IllegalArgumentException If the maximum size is negative
+     */
+    public ProgramBinaryCache(File directory, long maxBytes)
+    {
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum size may not be negative, but is " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            logger.log(Level.WARNING, 
+                "Could not create cache directory " + directory);
+        }
+    }
+    
+    /**
+     * Create a program for the given devices from the given source code,
+     * and build it with the given options, using the cached binaries if 
+     * possible.<br>
+     * <br>
+     * The returned program has been built successfully for all devices. 
+     * The caller is responsible for releasing it.
+     * 
+     * @param context The context
+     * @param devices The devices
+     * @param source The source code
+     * @param options The build options, may be <code>null</code>
+     * @return The program
+     * @throws CLException If the program can not be built from its 
+     * source code
+     */
+    public cl_program build(cl_context context, cl_device_id devices[], 
+        String source, String options)
+    {
+        File files[] = new File[devices.length];
+        for (int i = 0; i < devices.length; i++)
+        {
+            files[i] = new File(directory, 
+                computeKey(devices[i], source, options) + EXTENSION);
+        }
+        cl_program program = buildFromBinaries(
+            context, devices, files, options);
+        if (program != null)
+        {
+            synchronized (this)
+            {
+                hitCount++;
+            }
+            return ResourceScope.addToCurrent(program);
+        }
+        synchronized (this)
+        {
+            missCount++;
+        }
+        program = ResourceScope.excludeFromCurrent(
+            CL.clCreateProgramWithSource(context, 1, 
+                new String[] { source }, null, null));
+        int result = CL.CL_SUCCESS;
+        try
+        {
+            result = CL.clBuildProgram(
+                program, devices.length, devices, options, null, null);
+        }
+        catch (CLException e)
+        {
+            CL.clReleaseProgram(program);
+            throw e;
+        }
+        if (result != CL.CL_SUCCESS)
+        {
+            CL.clReleaseProgram(program);
+            CL.checkSuccess(result);
+        }
+        storeBinaries(program, devices, files);
+        return ResourceScope.addToCurrent(program);
+    }
+    
+    /**
+     * Returns the number of builds that used cached binaries
+     * 
+     * @return The number of hits
+     */
+    public synchronized int getHitCount()
+    {
+        return hitCount;
+    }
+    
+    /**
+     * Returns the number of builds that had to use the source code
+     * 
+     * @return The number of misses
+     */
+    public synchronized int getMissCount()
+    {
+        return missCount;
+    }
+    
+    /**
+     * Returns the total size of the cache files, in bytes
+     * 
+     * @return The size
+     */
+    public synchronized long getSize()
+    {
+        long size = 0;
+        for (File file : listCacheFiles())
+        {
+            size += file.length();
+        }
+        return size;
+    }
+    
+    /**
+     * Delete all cache files
+     */
+    public synchronized void clear()
+    {
+        for (File file : listCacheFiles())
+        {
+            delete(file);
+        }
+    }
+    
+    /**
+     * Try to create and build a program from the binaries in the given
+     * files. Returns <code>null</code> if a file is missing or corrupt,
+     * or if the binaries are rejected by the implementation.
+     * 
+     * @param context The context
+     * @param devices The devices
+     * @param files The files, one for each device
+     * @param options The build options
+     * @return The program, or <code>null</code>
+     */
+    private cl_program buildFromBinaries(cl_context context, 
+        cl_device_id devices[], File files[], String options)
+    {
+        byte binaries[][] = new byte[devices.length][];
+        long lengths[] = new long[devices.length];
+        for (int i = 0; i < devices.length; i++)
+        {
+            binaries[i] = readBinary(files[i]);
+            if (binaries[i] == null)
+            {
+                return null;
+            }
+            lengths[i] = binaries[i].length;
+        }
+        int binaryStatus[] = new int[devices.length];
+        int errorCode[] = new int[1];
+        cl_program program = null;
+        try
+        {
+            program = ResourceScope.excludeFromCurrent(
+                CL.clCreateProgramWithBinary(context, devices.length, 
+                    devices, lengths, binaries, binaryStatus, errorCode));
+        }
+        catch (CLException e)
+        {
+            errorCode[0] = e.getStatus();
+        }
+        if (errorCode[0] != CL.CL_SUCCESS)
+        {
+            logger.log(Level.FINE, "Cached binaries have been rejected: " + 
+                CL.stringFor_errorCode(errorCode[0]));
+            if (program != null && program.getNativePointer() != 0)
+            {
+                CL.clReleaseProgram(program);
+            }
+            deleteRejected(files, binaryStatus);
+            return null;
+        }
+        for (int i = 0; i < devices.length; i++)
+        {
+            if (binaryStatus[i] != CL.CL_SUCCESS)
+            {
+                CL.clReleaseProgram(program);
+                deleteRejected(files, binaryStatus);
+                return null;
+            }
+        }
+        
+        int result = CL.CL_SUCCESS;
+        try
+        {
+            result = CL.clBuildProgram(
+                program, devices.length, devices, options, null, null);
+        }
+        catch (CLException e)
+        {
+            result = e.getStatus();
+        }
+        if (result != CL.CL_SUCCESS)
+        {
+            logger.log(Level.FINE, "Build from cached binaries failed: " + 
+                CL.stringFor_errorCode(result));
+            CL.clReleaseProgram(program);
+            for (File file : files)
+            {
+                delete(file);
+            }
+            return null;
+        }
+        
+        // Mark the files as recently used
+        long now = System.currentTimeMillis();
+        for (File file : files)
+        {
+            file.setLastModified(now);
+        }
+        return program;
+    }
+    
+    /**
+     * Store the binaries of the given program in the given files, and
+     * evict old files if necessary
+     * 
+     * @param program The program
+     * @param devices The devices
+     * @param files The files, one for each device
+     */
+    private void storeBinaries(
+        cl_program program, cl_device_id devices[], File files[])
+    {
+        // The binaries are returned in the order of the program devices
+        int numDevices[] = new int[1];
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_NUM_DEVICES, 
+            Sizeof.cl_uint, Pointer.to(numDevices), null);
+        cl_device_id programDevices[] = new cl_device_id[numDevices[0]];
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_DEVICES, 
+            (long)numDevices[0] * Sizeof.cl_device_id, 
+            Pointer.to(programDevices), null);
+        long sizes[] = new long[numDevices[0]];
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_BINARY_SIZES, 
+            (long)numDevices[0] * Sizeof.size_t, Pointer.to(sizes), null);
+        byte binaries[][] = new byte[numDevices[0]][];
+        Pointer binaryPointers[] = new Pointer[numDevices[0]];
+        for (int i = 0; i < numDevices[0]; i++)
+        {
+            binaries[i] = new byte[(int)sizes[i]];
+            binaryPointers[i] = Pointer.to(binaries[i]);
+        }
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_BINARIES, 
+            (long)numDevices[0] * Sizeof.POINTER, 
+            Pointer.to(binaryPointers), null);
+        
+        synchronized (this)
+        {
+            for (int i = 0; i < devices.length; i++)
+            {
+                for (int j = 0; j < programDevices.length; j++)
+                {
+                    if (programDevices[j].equals(devices[i]) && 
+                        binaries[j].length > 0)
+                    {
+                        writeBinary(files[i], binaries[j]);
+                    }
+                }
+            }
+            evict();
+        }
+    }
+    
+    /**
+     * Delete the files whose binaries have been rejected
+     * 
+     * @param files The files
+     * @param binaryStatus The binary status for each file
+     */
+    private void deleteRejected(File files[], int binaryStatus[])
+    {
+        for (int i = 0; i < files.length; i++)
+        {
+            if (binaryStatus[i] != CL.CL_SUCCESS)
+            {
+                delete(files[i]);
+            }
+        }
+    }
+    
+    /**
+     * Delete the temporary files that have been left over by processes 
+     * that terminated while writing them, and the cache files that have 
+     * been used least recently, until the total size does not exceed 
+     * the maximum size
+     */
+    private void evict()
+    {
+        deleteOrphanedTempFiles();
+        File files[] = listCacheFiles();
+        long size = 0;
+        final long lastModified[] = new long[files.length];
+        Integer order[] = new Integer[files.length];
+        for (int i = 0; i < files.length; i++)
+        {
+            size += files[i].length();
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer i0, Integer i1)
+            {
+                long t0 = lastModified[i0];
+                long t1 = lastModified[i1];
+                return t0 < t1 ? -1 : t0 > t1 ? 1 : 0;
+            }
+        });
+        for (int i = 0; i < order.length && size > maxBytes; i++)
+        {
+            File file = files[order[i]];
+            long length = file.length();
+            if (delete(file))
+            {
+                size -= length;
+            }
+        }
+    }
+    
+    /**
+     * Delete the temporary files in the cache directory that are older 
+     * than {@link #TEMP_FILE_MAX_AGE_MS}. Younger files may still be 
+     * written by another process.
+     */
+    private void deleteOrphanedTempFiles()
+    {
+        File files[] = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        long minLastModified = 
+            System.currentTimeMillis() - TEMP_FILE_MAX_AGE_MS;
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX) &&
+                file.lastModified() < minLastModified)
+            {
+                delete(file);
+            }
+        }
+    }
+    
+    /**
+     * Read the binary from the given file. Returns <code>null</code> if
+     * the file does not exist or can not be read. If the file is corrupt,
+     * meaning that its header, length or checksum do not match, it is 
+     * deleted and <code>null</code> is returned. Files that can not be 
+     * read for other reasons, for example because they are locked by 
+     * another process, are kept.
+     * 
+     * @param file The file
+     * @return The binary, or <code>null</code>
+     */
+    private static byte[] readBinary(File file)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+        DataInputStream inputStream = null;
+        boolean corrupt = true;
+        try
+        {
+            inputStream = new DataInputStream(new FileInputStream(file));
+            int magic = inputStream.readInt();
+            int version = inputStream.readInt();
+            int length = inputStream.readInt();
+            long checksum = inputStream.readLong();
+            if (magic != MAGIC || version != FORMAT_VERSION || 
+                length < 0 || length != file.length() - 20)
+            {
+                return null;
+            }
+            byte binary[] = new byte[length];
+            inputStream.readFully(binary);
+            CRC32 crc = new CRC32();
+            crc.update(binary);
+            if (crc.getValue() != checksum)
+            {
+                return null;
+            }
+            corrupt = false;
+            return binary;
+        }
+        catch (EOFException e)
+        {
+            // The file is shorter than its header
+            logger.log(Level.FINE, "Could not read " + file, e);
+            return null;
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.FINE, "Could not read " + file, e);
+            corrupt = false;
+            return null;
+        }
+        finally
+        {
+            CacheUtils.close(inputStream);
+            if (corrupt)
+            {
+                logger.log(Level.FINE, "Deleting invalid cache file " + file);
+                delete(file);
+            }
+        }
+    }
+    
+    /**
+     * Write the given binary into the given file. The binary is written
+     * into a temporary file, which is then renamed.
+     * 
+     * @param file The file
+     * @param binary The binary
+     */
+    private void writeBinary(File file, byte binary[])
+    {
+        File tempFile = null;
+        DataOutputStream outputStream = null;
+        try
+        {
+            tempFile = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, directory);
+            outputStream = new DataOutputStream(new FileOutputStream(tempFile));
+            CRC32 crc = new CRC32();
+            crc.update(binary);
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeInt(binary.length);
+            outputStream.writeLong(crc.getValue());
+            outputStream.write(binary);
+            outputStream.close();
+            outputStream = null;
+            
+            CacheUtils.replace(tempFile, file);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, "Could not write " + file, e);
+            if (tempFile != null)
+            {
+                delete(tempFile);
+            }
+        }
+        finally
+        {
+            CacheUtils.close(outputStream);
+        }
+    }
+    
+    /**
+     * Returns the cache files in the cache directory
+     * 
+     * @return The cache files
+     */
+    private File[] listCacheFiles()
+    {
+        File files[] = directory.listFiles();
+        if (files == null)
+        {
+            return new File[0];
+        }
+        int n = 0;
+        for (File file : files)
+        {
+            if (file.getName().endsWith(EXTENSION))
+            {
+                files[n++] = file;
+            }
+        }
+        return Arrays.copyOf(files, n);
+    }
+    
+    /**
+     * Compute the key for the binary of the given program source, 
+     * options and device
+     * 
+     * @param device The device
+     * @param source The source code
+     * @param options The build options
+     * @return The key, as a hexadecimal string
+     */
+    private static String computeKey(
+        cl_device_id device, String source, String options)
+    {
+        cl_platform_id platform = new cl_platform_id();
+        CL.clGetDeviceInfo(device, CL.CL_DEVICE_PLATFORM, 
+            Sizeof.cl_platform_id, Pointer.to(platform), null);
+        String components[] = 
+        {
+            source,
+            String.valueOf(options),
+            CacheUtils.getDeviceString(device, CL.CL_DEVICE_NAME),
+            CacheUtils.getDeviceString(device, CL.CL_DRIVER_VERSION),
+            CacheUtils.getPlatformString(platform, CL.CL_PLATFORM_VERSION)
+        };
+        return CacheUtils.hash(components);
+    }
+    
+    /**
+     * Delete the given file, logging a failure
+     * 
+     * @param file The file
+     * @return Whether the file was deleted
+     */
+    private static boolean delete(File file)
+    {
+        if (file.exists() && !file.delete())
+        {
+            logger.log(Level.FINE, "Could not delete " + file);
+            return false;
+        }
+        return true;
+    }
+}
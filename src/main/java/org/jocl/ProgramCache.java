@@ -0,0 +1,489 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache for programs and kernels that are shared between the 
+ * components of an application.<br>
+ * <br>
+ * Programs are identified by their context, their source code and 
+ * their build options. The first request for a program builds it, and 
+ * all kernels of the program are created with 
+ * {@link CL#clCreateKernelsInProgram}. Later requests return the same 
+ * program and kernels. When several threads request the same program 
+ * at the same time, only one of them builds it, and the others wait 
+ * for the result:
+ * <pre><code>
+ * ProgramCache cache = new ProgramCache();
+ * cl_kernel kernel = cache.getKernel(context, source, options, "add");
+ * </code></pre>
+ * The programs and kernels are owned by the cache, and must not be 
+ * released by the caller. They are released with 
+ * {@link #release(cl_context)} or {@link #releaseAll()}.<br>
+ * <br>
+ * The programs are stored for the native handle of their context. 
+ * After a context was released, the implementation may return the 
+ * same handle for a new context, and the cache would return the 
+ * programs of the old context for it. So {@link #release(cl_context)} 
+ * must be called before a context is released:
+ * <pre><code>
+ * cache.release(context);
+ * clReleaseContext(context);
+ * </code></pre>
+ * <br>
+ * Note that the arguments of a kernel are part of the kernel object. 
+ * Components that set arguments of a shared kernel concurrently have 
+ * to synchronize on the kernel.
+ */
+public final class ProgramCache
+{
+    /**
+     * The key of a program
+     */
+    private static final class Key
+    {
+        /**
+         * The native handle of the context
+         */
+        private final long context;
+        
+        /**
+         * The source code
+         */
+        private final String source;
+        
+        /**
+         * The build options, or <code>null</code>
+         */
+        private final String options;
+        
+        /**
+         * Creates a new key
+         * 
+         * @param context The context handle
+         * @param source The source code
+         * @param options The build options
+         */
+        Key(long context, String source, String options)
+        {
+            this.context = context;
+            this.source = source;
+            this.options = options;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            int result = (int)(context ^ (context >>> 32));
+            result = 31 * result + source.hashCode();
+            result = 31 * result + (options == null ? 0 : options.hashCode());
+            return result;
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (!(object instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key)object;
+            return context == other.context && 
+                source.equals(other.source) && 
+                (options == null ? other.options == null : 
+                    options.equals(other.options));
+        }
+    }
+    
+    /**
+     * A built program and its kernels
+     */
+    private static final class Entry
+    {
+        /**
+         * The program
+         */
+        final cl_program program;
+        
+        /**
+         * The kernels of the program, by name
+         */
+        final Map<String, cl_kernel> kernels;
+        
+        /**
+         * Creates a new entry
+         * 
+         * @param program The program
+         * @param kernels The kernels
+         */
+        Entry(cl_program program, Map<String, cl_kernel> kernels)
+        {
+            this.program = program;
+            this.kernels = kernels;
+        }
+    }
+    
+    /**
+     * The binary cache that is used for building the programs, or
+     * <code>null</code>
+     */
+    private final ProgramBinaryCache binaryCache;
+    
+    /**
+     * The builds of the programs, which may be pending or completed
+     */
+    private final ConcurrentMap<Key, FutureTask<Entry>> builds = 
+        new ConcurrentHashMap<Key, FutureTask<Entry>>();
+    
+    /**
+     * Creates a new cache that builds the programs from their source code
+     */
+    public ProgramCache()
+    {
+        this(null);
+    }
+    
+    /**
+     * Creates a new cache that builds the programs with the given 
+     * binary cache
+     * 
+     * @param binaryCache The binary cache, may be <code>null</code>
+     */
+    public ProgramCache(ProgramBinaryCache binaryCache)
+    {
+        this.binaryCache = binaryCache;
+    }
+    
+    /**
+     * Returns the program for the given source code and options, 
+     * building it for all devices of the given context if necessary.
+     * 
+     * @param context The context
+     * @param source The source code
+     * @param options The build options, may be <code>null</code>
+     * @return The program
+     * @throws CLException If the program can not be built
+     */
+    public cl_program getProgram(
+        cl_context context, String source, String options)
+    {
+        return getEntry(context, source, options).program;
+    }
+    
+    /**
+     * Returns the kernel with the given name from the program for the 
+     * given source code and options, building the program for all 
+     * devices of the given context if necessary.
+     * 
+     * @param context The context
+     * @param source The source code
+     * @param options The build options, may be <code>null</code>
+     * @param kernelName The kernel name
+     * @return The kernel
+     * @throws CLException If the program can not be built
+     * @throws IllegalArgumentException If the program does not contain
+     * a kernel with the given name
+     */
+    public cl_kernel getKernel(cl_context context, String source, 
+        String options, String kernelName)
+    {
+        cl_kernel kernel = 
+            getEntry(context, source, options).kernels.get(kernelName);
+        if (kernel == null)
+        {
+            throw new IllegalArgumentException(
+                "The program does not contain a kernel " + kernelName);
+        }
+        return kernel;
+    }
+    
+    /**
+     * Release all programs and kernels of the given context. This must 
+     * only be called when the programs and kernels are no longer used,
+     * and no program of the context is currently built. It has to be 
+     * called before the context itself is released, because the 
+     * programs are stored for the native handle of the context, which 
+     * may be reused for a new context.
+     * 
+     * @param context The context
+     */
+    public void release(cl_context context)
+    {
+        long handle = CL.nativePointerOf(context);
+        Iterator<Map.Entry<Key, FutureTask<Entry>>> iterator = 
+            builds.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<Key, FutureTask<Entry>> mapEntry = iterator.next();
+            if (mapEntry.getKey().context == handle)
+            {
+                iterator.remove();
+                release(mapEntry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Release all programs and kernels. This must only be called when 
+     * the programs and kernels are no longer used, and no program is 
+     * currently built.
+     */
+    public void releaseAll()
+    {
+        Iterator<FutureTask<Entry>> iterator = builds.values().iterator();
+        while (iterator.hasNext())
+        {
+            FutureTask<Entry> build = iterator.next();
+            iterator.remove();
+            release(build);
+        }
+    }
+    
+    /**
+     * Returns the number of programs in this cache
+     * 
+     * @return The number of programs
+     */
+    public int size()
+    {
+        return builds.size();
+    }
+    
+    /**
+     * Returns the entry for the given key, building it if necessary
+     * 
+     * @param context The context
+     * @param source The source code
+     * @param options The build options
+     * @return The entry
+     * @throws CLException If the program can not be built
+     */
+    private Entry getEntry(
+        final cl_context context, final String source, final String options)
+    {
+        Key key = new Key(CL.nativePointerOf(context), source, options);
+        FutureTask<Entry> build = builds.get(key);
+        if (build == null)
+        {
+            FutureTask<Entry> newBuild = new FutureTask<Entry>(
+                new Callable<Entry>()
+                {
+                    @Override
+                    public Entry call()
+                    {
+                        return build(context, source, options);
+                    }
+                });
+            build = builds.putIfAbsent(key, newBuild);
+            if (build == null)
+            {
+                build = newBuild;
+                newBuild.run();
+            }
+        }
+        try
+        {
+            return build.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CLException("Interrupted while waiting for build");
+        }
+        catch (ExecutionException e)
+        {
+            // Remove the failed build, so that it may be retried
+            builds.remove(key, build);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new CLException("Build failed: " + cause);
+        }
+    }
+    
+    /**
+     * Build the program for the given source code and options, and 
+     * create its kernels
+     * 
+     * @param context The context
+     * @param source The source code
+     * @param options The build options
+     * @return The entry
+     * @throws CLException If the program can not be built
+     */
+    private Entry build(cl_context context, String source, String options)
+    {
+        cl_program program = null;
+        if (binaryCache != null)
+        {
+            program = ResourceScope.excludeFromCurrent(
+                binaryCache.build(context, getDevices(context), 
+                    source, options));
+        }
+        else
+        {
+            program = ResourceScope.excludeFromCurrent(
+                CL.clCreateProgramWithSource(context, 1, 
+                    new String[] { source }, null, null));
+            int result = CL.CL_SUCCESS;
+            try
+            {
+                result = CL.clBuildProgram(
+                    program, 0, null, options, null, null);
+            }
+            catch (CLException e)
+            {
+                CL.clReleaseProgram(program);
+                throw e;
+            }
+            if (result != CL.CL_SUCCESS)
+            {
+                CL.clReleaseProgram(program);
+                CL.checkSuccess(result);
+            }
+        }
+        
+        cl_kernel kernels[] = new cl_kernel[0];
+        try
+        {
+            int numKernels[] = new int[1];
+            CL.checkSuccess(
+                CL.clCreateKernelsInProgram(program, 0, null, numKernels));
+            kernels = new cl_kernel[numKernels[0]];
+            for (int i = 0; i < kernels.length; i++)
+            {
+                kernels[i] = new cl_kernel();
+            }
+            if (kernels.length > 0)
+            {
+                CL.checkSuccess(CL.clCreateKernelsInProgram(
+                    program, kernels.length, kernels, null));
+                for (int i = kernels.length - 1; i >= 0; i--)
+                {
+                    ResourceScope.excludeFromCurrent(kernels[i]);
+                }
+            }
+            Map<String, cl_kernel> kernelsByName = 
+                new HashMap<String, cl_kernel>();
+            for (cl_kernel kernel : kernels)
+            {
+                String name = CacheUtils.getKernelString(
+                    kernel, CL.CL_KERNEL_FUNCTION_NAME);
+                kernelsByName.put(name, kernel);
+            }
+            return new Entry(program, 
+                Collections.unmodifiableMap(kernelsByName));
+        }
+        catch (RuntimeException e)
+        {
+            // The program was built, but its kernels could not be 
+            // created. Release the kernels that have been created, 
+            // and the program, which is not stored in the cache.
+            for (cl_kernel kernel : kernels)
+            {
+                if (kernel.getNativePointer() != 0)
+                {
+                    CL.clReleaseKernel(kernel);
+                }
+            }
+            CL.clReleaseProgram(program);
+            throw e;
+        }
+    }
+    
+    /**
+     * Release the program and kernels of the given build, if it 
+     * completed successfully
+     * 
+     * @param build The build
+     */
+    private static void release(FutureTask<Entry> build)
+    {
+        Entry entry = null;
+        try
+        {
+            if (!build.isDone())
+            {
+                return;
+            }
+            entry = build.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e)
+        {
+            return;
+        }
+        for (cl_kernel kernel : entry.kernels.values())
+        {
+            CL.clReleaseKernel(kernel);
+        }
+        CL.clReleaseProgram(entry.program);
+    }
+    
+    /**
+     * Returns the devices of the given context
+     * 
+     * @param context The context
+     * @return The devices
+     */
+    private static cl_device_id[] getDevices(cl_context context)
+    {
+        int numDevices[] = new int[1];
+        CL.clGetContextInfo(context, CL.CL_CONTEXT_NUM_DEVICES, 
+            Sizeof.cl_uint, Pointer.to(numDevices), null);
+        cl_device_id devices[] = new cl_device_id[numDevices[0]];
+        CL.clGetContextInfo(context, CL.CL_CONTEXT_DEVICES, 
+            (long)devices.length * Sizeof.cl_device_id, 
+            Pointer.to(devices), null);
+        return devices;
+    }
+}
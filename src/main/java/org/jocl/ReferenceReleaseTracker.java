@@ -0,0 +1,317 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for keeping objects strongly reachable until the 
+ * non-blocking operations that use these objects have completed.<br>
+ * <br>
+ * For each tracked operation, a callback is registered with
+ * <code>clSetEventCallback</code>. When the event of the operation 
+ * reaches the <code>CL_COMPLETE</code> status (or an error status),
+ * the callback passes the operation to a single dispatcher thread,
+ * which releases the event and the reference to the object.<br>
+ * <br>
+ * If event callbacks are not supported (for example, for OpenCL 1.0
+ * implementations), then the dispatcher thread will wait for the 
+ * event of the operation with <code>clWaitForEvents</code> instead.
+ */
+class ReferenceReleaseTracker
+{
+    // Implementation notes:
+    // 
+    // When a non-blocking operation is scheduled, it might happen that
+    // the Java 'object' (a direct buffer which is about to be filled from 
+    // or written to an OpenCL memory object) is garbage collected before 
+    // the operation is complete. This could cause highly undeterministic 
+    // errors, possibly crashes or function calls that silently work 
+    // on bogus data.
+    // 
+    // To avoid this, each operation is stored in the 'pending' set until
+    // its event has completed. The set is reachable from a static field, 
+    // so the objects of all pending operations are strongly reachable, 
+    // regardless of whether the callback or the dispatcher thread still 
+    // refer to them. This establishes the ordering that would otherwise
+    // require 'Reference.reachabilityFence(obj)', which is only available
+    // in Java 9 and later.
+    // 
+    // For details, see http://stackoverflow.com/q/41147212/3182664
+    
+    /**
+     * The logger used in this class
+     */
+    private final static Logger logger = 
+        Logger.getLogger(ReferenceReleaseTracker.class.getName());
+    
+    /**
+     * The operations whose events have not completed yet
+     */
+    private static final Set<Operation> pending = 
+        Collections.newSetFromMap(new ConcurrentHashMap<Operation, Boolean>());
+    
+    /**
+     * The queue of operations that are processed by the dispatcher 
+     * thread. These are either operations whose events have completed,
+     * or operations for which no callback could be registered
+     */
+    private static final BlockingQueue<Operation> queue = 
+        new LinkedBlockingQueue<Operation>();
+    
+    /**
+     * Whether event callbacks are supported. This will be set to
+     * <code>false</code> when the attempt to register a callback
+     * caused an UnsupportedOperationException.
+     */
+    private static volatile boolean callbacksSupported = true;
+    
+    /**
+     * The dispatcher thread
+     */
+    private static Thread dispatcher = null;
+    
+    /**
+     * The callback that is registered for all operations. It receives 
+     * the operation as the user data, and passes it to the dispatcher
+     * thread. Using a single callback object allows the native layer
+     * to reuse its global reference for all registrations.
+     */
+    private static final EventCallbackFunction completionCallback = 
+        new EventCallbackFunction()
+    {
+        @Override
+        public void function(cl_event event, int command_exec_callback_type, 
+            Object user_data)
+        {
+            queue.offer((Operation)user_data);
+        }
+    };
+    
+    /**
+     * A non-blocking operation whose object has to be kept strongly
+     * reachable until its event has completed
+     */
+    private static final class Operation
+    {
+        /**
+         * The event of the operation
+         */
+        final cl_event event;
+        
+        /**
+         * The object to which a reference should be kept
+         */
+        final Object object;
+        
+        /**
+         * Whether the dispatcher has to wait for the event, because
+         * no callback could be registered for it
+         */
+        volatile boolean waitRequired;
+        
+        /**
+         * Creates a new operation
+         * 
+         * @param event The event
+         * @param object The object
+         */
+        Operation(cl_event event, Object object)
+        {
+            this.event = event;
+            this.object = object;
+        }
+    }
+    
+    /**
+     * Keep a reference to the given object, to prevent it from
+     * being garbage collected, until the given event has completed.
+     * The given event will be released when it has completed.
+     * 
+     * @param event The event to wait for
+     * @param object The object to which a reference should be kept
+     * @param doRetainEvent Whether the event has to be retained, 
+     * because it was given to the calling method from outside
+     */
+    static void track(cl_event event, Object object, boolean doRetainEvent)
+    {
+        if (doRetainEvent)
+        {
+            CL.clRetainEvent(event);
+        }
+        ensureDispatcher();
+        
+        Operation operation = new Operation(event, object);
+        pending.add(operation);
+        if (!registerCallback(operation))
+        {
+            operation.waitRequired = true;
+            queue.offer(operation);
+        }
+    }
+    
+    /**
+     * Returns the number of operations whose events have not
+     * been released yet
+     * 
+     * @return The number of pending operations
+     */
+    static int getPendingCount()
+    {
+        return pending.size();
+    }
+    
+    /**
+     * Try to register a callback that passes the given operation to 
+     * the dispatcher thread when its event has completed. Returns 
+     * whether the callback could be registered.
+     * 
+     * @param operation The operation
+     * @return Whether the callback was registered
+     */
+    private static boolean registerCallback(Operation operation)
+    {
+        if (!callbacksSupported)
+        {
+            return false;
+        }
+        try
+        {
+            int result = CL.clSetEventCallbackRawNative(
+                operation.event.getNativePointer(), CL.CL_COMPLETE, 
+                completionCallback, operation);
+            if (result != CL.CL_SUCCESS)
+            {
+                logger.fine("Could not register event callback, " + 
+                    "result is " + CL.stringFor_errorCode(result));
+                return false;
+            }
+            return true;
+        }
+        catch (UnsupportedOperationException e)
+        {
+            logger.fine("Event callbacks are not supported, " + 
+                "waiting for events on dispatcher thread");
+            callbacksSupported = false;
+            return false;
+        }
+    }
+    
+    /**
+     * Make sure that the dispatcher thread is running
+     */
+    private static synchronized void ensureDispatcher()
+    {
+        if (dispatcher != null)
+        {
+            return;
+        }
+        dispatcher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dispatch();
+            }
+        }, "JOCL-ReferenceRelease");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+    
+    /**
+     * The main loop of the dispatcher thread
+     */
+    private static void dispatch()
+    {
+        while (true)
+        {
+            Operation operation = null;
+            try
+            {
+                operation = queue.take();
+            }
+            catch (InterruptedException e)
+            {
+                // The dispatcher is a daemon thread that is not 
+                // supposed to be interrupted. Continue processing
+                // the queue, so that no event will be leaked.
+                continue;
+            }
+            try
+            {
+                release(operation);
+            }
+            catch (RuntimeException e)
+            {
+                // Any exception is logged, so that the dispatcher keeps
+                // running and the remaining events are released
+                logger.log(Level.WARNING, 
+                    "Error while releasing event " + operation.event, e);
+            }
+            finally
+            {
+                pending.remove(operation);
+            }
+        }
+    }
+    
+    /**
+     * Release the event of the given operation, after waiting for 
+     * its completion if necessary
+     * 
+     * @param operation The operation
+     */
+    private static void release(Operation operation)
+    {
+        try
+        {
+            if (operation.waitRequired)
+            {
+                CL.clWaitForEvents(1, new cl_event[]{ operation.event });
+            }
+        }
+        finally
+        {
+            CL.clReleaseEvent(operation.event);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ReferenceReleaseTracker()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scope for OpenCL objects that are released together.<br>
+ * <br>
+ * While a scope is open, the memory objects, programs, kernels, user 
+ * events and samplers that are created by the current thread with the
+ * <code>clCreate*</code> functions of {@link CL}, and the regions that 
+ * are mapped with <code>clEnqueueMapBuffer</code> or 
+ * <code>clEnqueueMapImage</code>, are added to the scope. When the 
+ * scope is closed, the mapped regions are unmapped and the objects 
+ * are released, in reverse order, with a single native call:
+ * <pre><code>
+ * ResourceScope scope = ResourceScope.open();
+ * try
+ * {
+ *     cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, null);
+ *     cl_event event = scope.newEvent();
+ *     clEnqueueWriteBuffer(queue, mem, CL_NON_BLOCKING, 0, size, 
+ *         Pointer.to(data), 0, null, event);
+ *     ...
+ * }
+ * finally
+ * {
+ *     scope.close();
+ * }
+ * </code></pre>
+ * Regions that are unmapped explicitly with 
+ * <code>clEnqueueUnmapMemObject</code> on the same thread are removed
+ * from the scope again. Similarly, objects that are released explicitly
+ * on the same thread with one of the <code>clRelease*</code> functions 
+ * of {@link CL} or {@link CLRaw}, or that are registered with 
+ * {@link AutoRelease#register(NativePointerObject)}, are removed from 
+ * the scope, so that they are not released a second time when the 
+ * scope is closed. Objects that have been added to a scope should not
+ * be registered with {@link AutoRelease} on other threads.<br>
+ * <br>
+ * <b>Events that are returned by enqueue functions are not added to 
+ * the scope.</b> The event parameter of these functions is optional, 
+ * and the events are often released individually, as soon as the 
+ * command has completed. Events that should be released with the 
+ * scope may be created with {@link #newEvent()} before they are 
+ * passed to the enqueue function, or added with 
+ * {@link #add(NativePointerObject)}. Events that are created with
+ * <code>clCreateUserEvent</code> are added like the other objects.
+ * <br>
+ * <br>
+ * Scopes are nested: Objects are added to the innermost scope that 
+ * is open on the current thread. A scope must be closed by the 
+ * thread that opened it. Command queues and contexts are not added 
+ * to scopes, and neither are the objects that are created internally 
+ * by pools and allocators like {@link MemObjectPool}.
+ */
+public final class ResourceScope implements Closeable
+{
+    // The types of the entries. These constants must be kept in sync 
+    // with the RESOURCE_SCOPE_* constants in JOCL.cpp
+    static final int TYPE_MEM = 0;
+    static final int TYPE_KERNEL = 1;
+    static final int TYPE_PROGRAM = 2;
+    static final int TYPE_EVENT = 3;
+    static final int TYPE_SAMPLER = 4;
+    static final int TYPE_MAPPED = 5;
+    
+    /**
+     * The innermost scope of each thread
+     */
+    private static final ThreadLocal<ResourceScope> currentScope = 
+        new ThreadLocal<ResourceScope>();
+    
+    /**
+     * The number of scopes that are currently open, on all threads. 
+     * This is used for skipping the lookup of the current scope when
+     * no scopes are used at all.
+     */
+    private static final AtomicInteger openScopes = new AtomicInteger();
+    
+    /**
+     * The scope that was current when this scope was opened
+     */
+    private final ResourceScope parent;
+    
+    /**
+     * The thread that opened this scope
+     */
+    private final Thread thread;
+    
+    /**
+     * The types of the entries
+     */
+    private int types[];
+    
+    /**
+     * The objects of the entries. For mapped regions, this is the 
+     * memory object.
+     */
+    private NativePointerObject objects[];
+    
+    /**
+     * The command queues of the mapped regions
+     */
+    private cl_command_queue queues[];
+    
+    /**
+     * The buffers of the mapped regions
+     */
+    private ByteBuffer buffers[];
+    
+    /**
+     * The number of entries
+     */
+    private int size;
+    
+    /**
+     * Whether this scope has been closed
+     */
+    private boolean closed;
+    
+    /**
+     * Open a new scope, which becomes the current scope of the 
+     * calling thread
+     * 
+     * @return The new scope
+     */
+    public static ResourceScope open()
+    {
+        ResourceScope scope = new ResourceScope(currentScope.get());
+        currentScope.set(scope);
+        openScopes.incrementAndGet();
+        return scope;
+    }
+    
+    /**
+     * Returns the innermost scope that is open on the calling thread
+     * 
+     * @return The current scope, or <code>null</code> if there is none
+     */
+    public static ResourceScope current()
+    {
+        if (openScopes.get() == 0)
+        {
+            return null;
+        }
+        ResourceScope scope = currentScope.get();
+        while (scope != null && scope.closed)
+        {
+            scope = scope.parent;
+        }
+        return scope;
+    }
+    
+    /**
+     * Add the given object to the current scope, if there is one. 
+     * This is called by the creation functions in {@link CL}.
+     * 
+     * @param <T> The type of the object
+     * @param object The object
+     * @return The given object
+     */
+    static <T extends NativePointerObject> T addToCurrent(T object)
+    {
+        ResourceScope scope = current();
+        if (scope != null && object != null)
+        {
+            scope.add(object);
+        }
+        return object;
+    }
+    
+    /**
+     * Add the given objects to the current scope, if there is one.
+     * This is called by the creation functions in {@link CL}.
+     * 
+     * @param objects The objects
+     */
+    static void addToCurrent(NativePointerObject objects[])
+    {
+        ResourceScope scope = current();
+        if (scope != null && objects != null)
+        {
+            for (NativePointerObject object : objects)
+            {
+                if (object != null)
+                {
+                    scope.add(object);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove the most recent entry for the given object from the 
+     * current scope, if there is one. Mapped regions of a memory
+     * object are not affected. This is used by the classes that 
+     * create objects which they release themselves, like pools and 
+     * allocators. 
+     * 
+     * @param <T> The type of the object
+     * @param object The object
+     * @return The given object
+     */
+    static <T extends NativePointerObject> T excludeFromCurrent(T object)
+    {
+        ResourceScope scope = current();
+        if (scope != null && object != null)
+        {
+            int index = scope.lastIndexOf(object);
+            if (index != -1)
+            {
+                scope.remove(index);
+            }
+        }
+        return object;
+    }
+    
+    /**
+     * Remove the most recent entry for the given object from the scope 
+     * that contains it, if it was added to the current scope or one of 
+     * its parents. This is called by the release functions in 
+     * {@link CL} and by {@link AutoRelease#register}, so that an object
+     * that is released explicitly, or whose reference is owned by a 
+     * registration, is not released again when the scope is closed.
+     * Objects of types that are not added to scopes are ignored.
+     * 
+     * @param object The object
+     */
+    static void excludeReleased(NativePointerObject object)
+    {
+        if (object == null)
+        {
+            return;
+        }
+        int type = findType(object);
+        if (type != -1)
+        {
+            excludeReleased(type, object.getNativePointer());
+        }
+    }
+    
+    /**
+     * Remove the most recent entry for the object with the given type
+     * and native pointer from the scope that contains it, if it was 
+     * added to the current scope or one of its parents. This is called
+     * by the release functions in {@link CLRaw}.
+     * 
+     * @param type The type
+     * @param handle The native pointer of the object
+     */
+    static void excludeReleased(int type, long handle)
+    {
+        if (handle == 0)
+        {
+            return;
+        }
+        for (ResourceScope scope = current(); scope != null; 
+            scope = scope.parent)
+        {
+            if (scope.closed)
+            {
+                continue;
+            }
+            for (int i = scope.size - 1; i >= 0; i--)
+            {
+                if (scope.types[i] == type && 
+                    scope.objects[i].getNativePointer() == handle)
+                {
+                    scope.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove the entry for the given mapped region from the scope that 
+     * contains it, if it was added to the current scope or one of its
+     * parents. This is called when the region is unmapped explicitly,
+     * so that it is not unmapped again when the scope is closed.
+     * 
+     * @param buffer The buffer for the mapped region
+     * @return The given buffer
+     */
+    static ByteBuffer excludeMappedFromCurrent(ByteBuffer buffer)
+    {
+        if (buffer == null)
+        {
+            return null;
+        }
+        for (ResourceScope scope = current(); scope != null; 
+            scope = scope.parent)
+        {
+            if (scope.closed)
+            {
+                continue;
+            }
+            for (int i = scope.size - 1; i >= 0; i--)
+            {
+                if (scope.types[i] == TYPE_MAPPED && 
+                    scope.buffers[i] == buffer)
+                {
+                    scope.remove(i);
+                    return buffer;
+                }
+            }
+        }
+        return buffer;
+    }
+    
+    /**
+     * Add the given mapped region to the current scope, if there is 
+     * one. This is called by the map functions in {@link CL}.
+     * 
+     * @param queue The command queue that was used for mapping
+     * @param mem The memory object
+     * @param buffer The buffer for the mapped region
+     * @return The given buffer
+     */
+    static ByteBuffer addMappedToCurrent(
+        cl_command_queue queue, cl_mem mem, ByteBuffer buffer)
+    {
+        ResourceScope scope = current();
+        if (scope != null && buffer != null)
+        {
+            scope.addEntry(TYPE_MAPPED, mem, queue, buffer);
+        }
+        return buffer;
+    }
+    
+    /**
+     * Creates a new scope
+     * 
+     * @param parent The parent scope
+     */
+    private ResourceScope(ResourceScope parent)
+    {
+        this.parent = parent;
+        this.thread = Thread.currentThread();
+        this.types = new int[16];
+        this.objects = new NativePointerObject[16];
+        this.queues = new cl_command_queue[16];
+        this.buffers = new ByteBuffer[16];
+    }
+    
+    /**
+     * Add the given object to this scope. The object will be released 
+     * when this scope is closed. Supported types are <code>cl_mem</code>,
+     * <code>cl_kernel</code>, <code>cl_program</code>, 
+     * <code>cl_event</code> and <code>cl_sampler</code>. The native 
+     * pointer of the object is only obtained when the scope is closed, 
+     * so an event may be added before it is passed to an enqueue 
+     * function. 
+     * 
+     * @param <T> The type of the object
+     * @param object The object
+     * @return The given object
+     * @throws IllegalArgumentException If the object has an unsupported
+     * type
+     * @throws IllegalStateException If this scope has been closed
+     */
+    public <T extends NativePointerObject> T add(T object)
+    {
+        addEntry(typeOf(object), object, null, null);
+        return object;
+    }
+    
+    /**
+     * Creates a new event that is added to this scope, so that it will 
+     * be released when this scope is closed
+     * 
+     * @return The new event
+     * @throws IllegalStateException If this scope has been closed
+     */
+    public cl_event newEvent()
+    {
+        return add(new cl_event());
+    }
+    
+    /**
+     * Returns the number of entries in this scope
+     * 
+     * @return The number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Close this scope. This unmaps all mapped regions and releases
+     * all objects of this scope, in reverse order. The parent scope 
+     * becomes the current scope again. Calling this method more than 
+     * once has no effect.
+     * 
+     * @throws IllegalStateException If this scope is not closed by 
+     * the thread that opened it
+     * @throws CLException If exceptions are enabled and releasing one 
+     * of the objects failed. All other objects are released anyway.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        if (Thread.currentThread() != thread)
+        {
+            throw new IllegalStateException(
+                "The scope must be closed by the thread that opened it");
+        }
+        closed = true;
+        if (currentScope.get() == this)
+        {
+            if (parent == null)
+            {
+                currentScope.remove();
+            }
+            else
+            {
+                currentScope.set(parent);
+            }
+        }
+        openScopes.decrementAndGet();
+        
+        long handles[] = new long[size];
+        long queueHandles[] = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            handles[i] = objects[i].getNativePointer();
+            queueHandles[i] = CL.nativePointerOf(queues[i]);
+            if (types[i] == TYPE_MEM)
+            {
+                MemoryTracker.releasing(handles[i]);
+            }
+        }
+        int n = size;
+        int entryTypes[] = types;
+        ByteBuffer entryBuffers[] = buffers;
+        size = 0;
+        types = null;
+        objects = null;
+        queues = null;
+        buffers = null;
+        if (n > 0)
+        {
+            CL.checkResult(CL.releaseScopeNative(
+                n, entryTypes, handles, queueHandles, entryBuffers));
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ResourceScope[size=" + size + ",closed=" + closed + "]";
+    }
+    
+    /**
+     * Add the given entry to this scope
+     * 
+     * @param type The type
+     * @param object The object
+     * @param queue The command queue, for mapped regions
+     * @param buffer The buffer, for mapped regions
+     * @throws IllegalStateException If this scope has been closed
+     */
+    private void addEntry(int type, NativePointerObject object, 
+        cl_command_queue queue, ByteBuffer buffer)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The scope has been closed");
+        }
+        if (size == types.length)
+        {
+            int newLength = size * 2;
+            types = Arrays.copyOf(types, newLength);
+            objects = Arrays.copyOf(objects, newLength);
+            queues = Arrays.copyOf(queues, newLength);
+            buffers = Arrays.copyOf(buffers, newLength);
+        }
+        types[size] = type;
+        objects[size] = object;
+        queues[size] = queue;
+        buffers[size] = buffer;
+        size++;
+    }
+    
+    /**
+     * Returns the index of the most recent entry of this scope that is
+     * not a mapped region, and whose object is the given object or has
+     * the same native pointer
+     * 
+     * @param object The object
+     * @return The index, or -1 if there is no such entry
+     */
+    private int lastIndexOf(NativePointerObject object)
+    {
+        for (int i = size - 1; i >= 0; i--)
+        {
+            if (types[i] == TYPE_MAPPED)
+            {
+                continue;
+            }
+            NativePointerObject entry = objects[i];
+            if (entry == object)
+            {
+                return i;
+            }
+            long handle = object.getNativePointer();
+            if (handle != 0 && entry.getNativePointer() == handle && 
+                entry.getClass() == object.getClass())
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Remove the entry at the given index from this scope
+     * 
+     * @param index The index
+     */
+    private void remove(int index)
+    {
+        int n = size - index - 1;
+        System.arraycopy(types, index + 1, types, index, n);
+        System.arraycopy(objects, index + 1, objects, index, n);
+        System.arraycopy(queues, index + 1, queues, index, n);
+        System.arraycopy(buffers, index + 1, buffers, index, n);
+        size--;
+        objects[size] = null;
+        queues[size] = null;
+        buffers[size] = null;
+    }
+    
+    /**
+     * Returns the type of the given object
+     * 
+     * @param object The object
+     * @return The type
+     * @throws IllegalArgumentException If the type is not supported
+     */
+    private static int typeOf(NativePointerObject object)
+    {
+        int type = findType(object);
+        if (type == -1)
+        {
+            throw new IllegalArgumentException("Unsupported object type: " + 
+                (object == null ? "null" : object.getClass().getSimpleName()));
+        }
+        return type;
+    }
+    
+    /**
+     * Returns the type of the given object
+     * 
+     * @param object The object
+     * @return The type, or -1 if the type is not supported
+     */
+    private static int findType(NativePointerObject object)
+    {
+        if (object instanceof cl_mem)
+        {
+            return TYPE_MEM;
+        }
+        if (object instanceof cl_kernel)
+        {
+            return TYPE_KERNEL;
+        }
+        if (object instanceof cl_program)
+        {
+            return TYPE_PROGRAM;
+        }
+        if (object instanceof cl_event)
+        {
+            return TYPE_EVENT;
+        }
+        if (object instanceof cl_sampler)
+        {
+            return TYPE_SAMPLER;
+        }
+        return -1;
+    }
+}
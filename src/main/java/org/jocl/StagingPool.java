@@ -0,0 +1,430 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pool of pinned host memory for uploading data to the device.<br>
+ * <br>
+ * The pool creates one buffer with <code>CL_MEM_ALLOC_HOST_PTR</code>,
+ * which is usually allocated in page-locked host memory, and maps it 
+ * once with {@link CL#clEnqueueMapBuffer}. The mapped memory is divided
+ * into slices of a fixed size. A slice is obtained with 
+ * {@link #acquire()}, filled via its {@link Slice#getBuffer() buffer}, 
+ * and uploaded into a device buffer with 
+ * {@link Slice#upload(cl_command_queue, cl_mem, long, long)}:
+ * <pre><code>
+ * StagingPool pool = new StagingPool(context, queue, 4 &lt;&lt; 20, 8);
+ * StagingPool.Slice slice = pool.acquire();
+ * slice.getBuffer().asFloatBuffer().put(data);
+ * CLFuture upload = slice.upload(queue, mem, 0, data.length * 4);
+ * clFlush(queue);
+ * </code></pre>
+ * The upload is done with {@link CL#clEnqueueCopyBuffer}, from the
+ * staging buffer into the device buffer. The slice is returned to
+ * the pool when the copy command has completed, and may not be used
+ * by the caller after it was uploaded.<br>
+ * <br>
+ * Note that the staging buffer remains mapped while it is used as
+ * the source of copy commands. The OpenCL specification leaves this
+ * undefined, but it is the common pattern for pinned memory on 
+ * discrete GPUs. Implementations for which this does not work should
+ * use {@link CL#clEnqueueWriteBuffer} instead.<br>
+ * <br>
+ * This class is thread-safe.
+ */
+public final class StagingPool
+{
+    /**
+     * A part of the mapped staging buffer
+     */
+    public final class Slice
+    {
+        /**
+         * The offset of the slice in the staging buffer
+         */
+        private final long offset;
+        
+        /**
+         * The buffer for the mapped memory of this slice
+         */
+        private final ByteBuffer buffer;
+        
+        /**
+         * Whether this slice is currently handed out
+         */
+        private final AtomicBoolean acquired;
+        
+        /**
+         * Creates a new slice
+         * 
+         * @param offset The offset
+         * @param buffer The buffer
+         */
+        Slice(long offset, ByteBuffer buffer)
+        {
+            this.offset = offset;
+            this.buffer = buffer;
+            this.acquired = new AtomicBoolean(false);
+        }
+        
+        /**
+         * Returns the buffer for the mapped memory of this slice. The 
+         * buffer has the native byte order, and its capacity is the 
+         * slice size. Its position and limit are reset when the slice 
+         * is acquired.
+         * 
+         * @return The buffer
+         */
+        public ByteBuffer getBuffer()
+        {
+            return buffer;
+        }
+        
+        /**
+         * Enqueue a copy of the given number of bytes from this slice
+         * into the given device buffer. The slice is returned to the 
+         * pool when the copy has completed. The queue has to be 
+         * flushed by the caller.
+         * 
+         * @param queue The command queue
+         * @param dst The destination buffer
+         * @param dstOffset The offset in the destination buffer
+         * @param size The number of bytes to copy
+         * @return The future for the copy command
+         * @throws IllegalArgumentException If the size is not positive, 
+         * or larger than the slice size
+         * @throws IllegalStateException If this slice is not acquired
+         * @throws CLException If the copy command could not be enqueued
+         */
+        public CLFuture upload(final cl_command_queue queue, 
+            final cl_mem dst, final long dstOffset, final long size)
+        {
+            if (size <= 0 || size > sliceSize)
+            {
+                throw new IllegalArgumentException(
+                    "The size must be in [1," + sliceSize + "], " +
+                    "but is " + size);
+            }
+            if (!acquired.get())
+            {
+                throw new IllegalStateException(
+                    "The slice is not acquired");
+            }
+            CLFuture future = null;
+            try
+            {
+                future = CLFuture.enqueue(new CLFuture.Command()
+                {
+                    @Override
+                    public int enqueue(EventList waitList, cl_event event)
+                    {
+                        return CL.clEnqueueCopyBuffer(queue, mem, dst, 
+                            offset, dstOffset, size, waitList, event);
+                    }
+                });
+            }
+            catch (RuntimeException e)
+            {
+                recycle();
+                throw e;
+            }
+            future.addListener(new CLFuture.Listener()
+            {
+                @Override
+                public void completed(CLFuture future)
+                {
+                    recycle();
+                }
+            });
+            return future;
+        }
+        
+        /**
+         * Return this slice to the pool without uploading it. Calling
+         * this method for a slice that is not acquired has no effect.
+         */
+        public void recycle()
+        {
+            if (acquired.compareAndSet(true, false))
+            {
+                available.offer(this);
+            }
+        }
+    }
+    
+    /**
+     * The staging buffer
+     */
+    private final cl_mem mem;
+    
+    /**
+     * The queue that was used for mapping the staging buffer
+     */
+    private final cl_command_queue mapQueue;
+    
+    /**
+     * The mapped memory of the staging buffer
+     */
+    private final ByteBuffer mappedBuffer;
+    
+    /**
+     * The size of each slice
+     */
+    private final long sliceSize;
+    
+    /**
+     * The number of slices
+     */
+    private final int sliceCount;
+    
+    /**
+     * The slices that are currently available
+     */
+    private final BlockingQueue<Slice> available;
+    
+    /**
+     * The marker that is added to the available slices when this pool
+     * is released, to wake up the threads that are waiting in 
+     * {@link #acquire()}
+     */
+    private final Slice releasedMarker;
+    
+    /**
+     * Whether this pool has been released
+     */
+    private volatile boolean released;
+    
+    /**
+     * Creates a new staging pool with the given number of slices
+     * of the given size. The staging buffer is mapped with the 
+     * given queue.
+     * 
+     * @param context The context
+     * @param queue The command queue for mapping the staging buffer
+     * @param sliceSize The size of each slice, in bytes
+     * @param sliceCount The number of slices
+     * @throws IllegalArgumentException If the size or number of slices
+     * is not positive, or the total size is 2GB or more
+     * @throws CLException If the staging buffer could not be created
+     * or mapped
+     */
+    public StagingPool(cl_context context, cl_command_queue queue, 
+        long sliceSize, int sliceCount)
+    {
+        if (sliceSize <= 0 || sliceCount <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The slice size and count must be positive, but are " + 
+                sliceSize + " and " + sliceCount);
+        }
+        long totalSize = sliceSize * sliceCount;
+        if (totalSize / sliceCount != sliceSize || 
+            totalSize > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                "The total size must be smaller than 2GB");
+        }
+        this.sliceSize = sliceSize;
+        this.sliceCount = sliceCount;
+        this.mapQueue = queue;
+        
+        int errcode_ret[] = { CL.CL_SUCCESS };
+        this.mem = ResourceScope.excludeFromCurrent(CL.clCreateBuffer(
+            context, CL.CL_MEM_READ_ONLY | CL.CL_MEM_ALLOC_HOST_PTR, 
+            totalSize, null, errcode_ret));
+        CL.checkSuccess(errcode_ret[0]);
+        ByteBuffer mapped = null;
+        try
+        {
+            mapped = CL.clEnqueueMapBuffer(queue, mem, CL.CL_TRUE, 
+                CL.CL_MAP_WRITE, 0, totalSize, 0, null, null, errcode_ret);
+        }
+        catch (CLException e)
+        {
+            errcode_ret[0] = e.getStatus();
+        }
+        if (errcode_ret[0] != CL.CL_SUCCESS)
+        {
+            CL.clReleaseMemObject(mem);
+            CL.checkSuccess(errcode_ret[0]);
+        }
+        this.mappedBuffer = mapped;
+        
+        // The region stays mapped until the pool is released, which 
+        // unmaps it explicitly. The entry that the map call added to 
+        // the current scope is removed, so that the scope does not 
+        // unmap it as well.
+        ResourceScope.excludeMappedFromCurrent(mappedBuffer);
+        
+        this.available = new LinkedBlockingQueue<Slice>();
+        for (int i = 0; i < sliceCount; i++)
+        {
+            long offset = i * sliceSize;
+            ByteBuffer b = mappedBuffer.duplicate();
+            b.position((int)offset);
+            b.limit((int)(offset + sliceSize));
+            ByteBuffer buffer = b.slice().order(ByteOrder.nativeOrder());
+            available.add(new Slice(offset, buffer));
+        }
+        this.releasedMarker = new Slice(-1, null);
+    }
+    
+    /**
+     * Obtain a slice, waiting until one becomes available
+     * 
+     * @return The slice
+     * @throws InterruptedException If the thread was interrupted
+     * while waiting
+     * @throws IllegalStateException If the pool was released, before
+     * or while waiting
+     */
+    public Slice acquire() throws InterruptedException
+    {
+        checkReleased();
+        return prepare(available.take());
+    }
+    
+    /**
+     * Obtain a slice if one is available
+     * 
+     * @return The slice, or <code>null</code> if no slice is available
+     * @throws IllegalStateException If the pool was released
+     */
+    public Slice tryAcquire()
+    {
+        checkReleased();
+        Slice slice = available.poll();
+        if (slice == null)
+        {
+            return null;
+        }
+        return prepare(slice);
+    }
+    
+    /**
+     * Returns the size of each slice, in bytes
+     * 
+     * @return The slice size
+     */
+    public long getSliceSize()
+    {
+        return sliceSize;
+    }
+    
+    /**
+     * Returns the number of slices
+     * 
+     * @return The slice count
+     */
+    public int getSliceCount()
+    {
+        return sliceCount;
+    }
+    
+    /**
+     * Returns the number of slices that are currently available
+     * 
+     * @return The number of available slices
+     */
+    public int getAvailableCount()
+    {
+        if (released)
+        {
+            return 0;
+        }
+        return available.size();
+    }
+    
+    /**
+     * Release this pool. This unmaps and releases the staging buffer. 
+     * All uploads should have completed before this method is called.
+     * Threads that are waiting in {@link #acquire()} will receive an
+     * IllegalStateException.
+     */
+    public synchronized void release()
+    {
+        if (released)
+        {
+            return;
+        }
+        released = true;
+        available.offer(releasedMarker);
+        CL.clEnqueueUnmapMemObject(mapQueue, mem, mappedBuffer, 0, null, null);
+        CL.clFinish(mapQueue);
+        CL.clReleaseMemObject(mem);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "StagingPool[" +
+            "sliceSize=" + sliceSize + "," +
+            "sliceCount=" + sliceCount + "," +
+            "available=" + available.size() + "]";
+    }
+    
+    /**
+     * Prepare the given slice for being handed out
+     * 
+     * @param slice The slice
+     * @return The slice
+     * @throws IllegalStateException If the slice is the marker for
+     * a released pool
+     */
+    private Slice prepare(Slice slice)
+    {
+        if (slice == releasedMarker)
+        {
+            // Pass the marker on to the next waiting thread
+            available.offer(releasedMarker);
+            throw new IllegalStateException("The pool has been released");
+        }
+        slice.acquired.set(true);
+        slice.buffer.clear();
+        return slice;
+    }
+    
+    /**
+     * Throws an IllegalStateException if this pool was released
+     * 
+     * @throws IllegalStateException If this pool was released
+     */
+    private void checkReleased()
+    {
+        if (released)
+        {
+            throw new IllegalStateException("The pool has been released");
+        }
+    }
+}
@@ -0,0 +1,737 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A sub-allocator for device memory. It reserves large buffers, called
+ * arenas, with {@link CL#clCreateBuffer(cl_context, long, long, Pointer, 
+ * int[])}, and hands out regions of these arenas as sub-buffers that 
+ * are created with {@link CL#clCreateSubBuffer(cl_mem, long, int, 
+ * cl_buffer_region, int[])}:
+ * <pre><code>
+ * SubBufferAllocator allocator = 
+ *     new SubBufferAllocator(context, CL_MEM_READ_WRITE, 64 &lt;&lt; 20);
+ * SubBufferAllocator.Allocation allocation = allocator.allocate(size);
+ * clEnqueueWriteBuffer(queue, allocation.getMem(), ...);
+ * ...
+ * allocator.free(allocation);
+ * ...
+ * allocator.release();
+ * </code></pre>
+ * The regions are managed with a buddy system: The size of each region
+ * is the smallest power-of-two multiple of the minimum block size that 
+ * can hold the requested size. There is one free list for each of 
+ * these size classes, and freed regions are merged with their buddies. 
+ * The minimum block size is at least the largest 
+ * <code>CL_DEVICE_MEM_BASE_ADDR_ALIGN</code> of the devices in the 
+ * context, so that the origins of all regions are properly aligned.<br>
+ * <br>
+ * Arenas are created on demand. Requests that are larger than the 
+ * arena size are served with a dedicated buffer. Arenas that are 
+ * no longer used may be released with {@link #trim()}.<br>
+ * <br>
+ * This class is thread-safe.
+ */
+public final class SubBufferAllocator
+{
+    /**
+     * A region that was handed out by a {@link SubBufferAllocator}
+     */
+    public static final class Allocation
+    {
+        /**
+         * The arena that contains the region, or <code>null</code> if
+         * this is a dedicated buffer
+         */
+        private final Arena arena;
+        
+        /**
+         * The origin of the region in the arena, in bytes
+         */
+        private final long origin;
+        
+        /**
+         * The size class of the region
+         */
+        private final int order;
+        
+        /**
+         * The requested size, in bytes
+         */
+        private final long size;
+        
+        /**
+         * The sub-buffer, or the dedicated buffer
+         */
+        private cl_mem mem;
+        
+        /**
+         * Creates a new allocation
+         * 
+         * @param arena The arena
+         * @param origin The origin
+         * @param order The order
+         * @param size The requested size
+         * @param mem The memory object
+         */
+        Allocation(Arena arena, long origin, int order, long size, cl_mem mem)
+        {
+            this.arena = arena;
+            this.origin = origin;
+            this.order = order;
+            this.size = size;
+            this.mem = mem;
+        }
+        
+        /**
+         * Returns the memory object of this allocation. This is a 
+         * sub-buffer of an arena, or a dedicated buffer. It may not
+         * be used after the allocation was freed.
+         * 
+         * @return The memory object
+         */
+        public cl_mem getMem()
+        {
+            return mem;
+        }
+        
+        /**
+         * Returns the origin of this allocation in its arena, in bytes.
+         * This is 0 for dedicated buffers.
+         * 
+         * @return The origin
+         */
+        public long getOrigin()
+        {
+            return origin;
+        }
+        
+        /**
+         * Returns the requested size of this allocation, in bytes
+         * 
+         * @return The size
+         */
+        public long getSize()
+        {
+            return size;
+        }
+        
+        /**
+         * Returns whether this allocation is a dedicated buffer, because
+         * the requested size was larger than the arena size
+         * 
+         * @return Whether this is a dedicated buffer
+         */
+        public boolean isDedicated()
+        {
+            return arena == null;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Allocation[" +
+                "origin=" + origin + "," +
+                "size=" + size + "," +
+                "dedicated=" + isDedicated() + "]";
+        }
+    }
+    
+    /**
+     * A buffer from which the regions are allocated
+     */
+    private static final class Arena
+    {
+        /**
+         * The buffer
+         */
+        private final cl_mem mem;
+        
+        /**
+         * The free lists, containing the origins of the free 
+         * blocks for each order
+         */
+        private final List<TreeSet<Long>> freeLists;
+        
+        /**
+         * The number of regions that are currently allocated
+         */
+        private int allocationCount;
+        
+        /**
+         * Creates a new arena with the given buffer, consisting of
+         * a single free block of the given maximum order
+         * 
+         * @param mem The buffer
+         * @param maxOrder The maximum order
+         */
+        Arena(cl_mem mem, int maxOrder)
+        {
+            this.mem = mem;
+            this.freeLists = new ArrayList<TreeSet<Long>>(maxOrder + 1);
+            for (int i = 0; i <= maxOrder; i++)
+            {
+                freeLists.add(new TreeSet<Long>());
+            }
+            freeLists.get(maxOrder).add(0L);
+        }
+    }
+    
+    /**
+     * The minimum size of a block, if the alignment of the devices
+     * is smaller than this
+     */
+    private static final long MIN_BLOCK_SIZE = 256;
+    
+    /**
+     * The context
+     */
+    private final cl_context context;
+    
+    /**
+     * The flags for the arenas and dedicated buffers
+     */
+    private final long flags;
+    
+    /**
+     * The size of the smallest blocks, which is a power of two
+     */
+    private final long blockSize;
+    
+    /**
+     * The order of the arenas. The size of an arena is 
+     * blockSize &lt;&lt; maxOrder
+     */
+    private final int maxOrder;
+    
+    /**
+     * The arenas
+     */
+    private final List<Arena> arenas;
+    
+    /**
+     * The number of bytes in blocks that are currently allocated
+     */
+    private long allocatedBytes;
+    
+    /**
+     * The number of bytes that have been requested for the 
+     * currently allocated blocks
+     */
+    private long requestedBytes;
+    
+    /**
+     * The number of dedicated buffers that are currently allocated
+     */
+    private int dedicatedCount;
+    
+    /**
+     * The number of bytes in dedicated buffers
+     */
+    private long dedicatedBytes;
+    
+    /**
+     * Whether this allocator has been released
+     */
+    private boolean released;
+    
+    /**
+     * Creates a new allocator for the given context. The given arena 
+     * size will be rounded up to a power-of-two multiple of the 
+     * alignment of the devices in the context.
+     * 
+     * @param context The context
+     * @param flags The flags for the arenas, e.g. 
+     * <code>CL_MEM_READ_WRITE</code>. These may not contain
+     * <code>CL_MEM_USE_HOST_PTR</code> or <code>CL_MEM_COPY_HOST_PTR</code>.
+     * @param arenaSize The size of the arenas, in bytes
+     * @throws IllegalArgumentException If the arena size is not positive,
+     * or the flags contain <code>CL_MEM_USE_HOST_PTR</code> or 
+     * <code>CL_MEM_COPY_HOST_PTR</code>
+     * @throws CLException If the device information could not be obtained
+     */
+    public SubBufferAllocator(cl_context context, long flags, long arenaSize)
+    {
+        if (arenaSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The arena size must be positive, but is " + arenaSize);
+        }
+        long hostPtrFlags = CL.CL_MEM_USE_HOST_PTR | CL.CL_MEM_COPY_HOST_PTR;
+        if ((flags & hostPtrFlags) != 0)
+        {
+            throw new IllegalArgumentException(
+                "The flags may not contain CL_MEM_USE_HOST_PTR or " +
+                "CL_MEM_COPY_HOST_PTR");
+        }
+        this.context = context;
+        this.flags = flags;
+        this.blockSize = computeBlockSize(context);
+        int order = 0;
+        while ((blockSize << order) < arenaSize)
+        {
+            order++;
+        }
+        this.maxOrder = order;
+        this.arenas = new ArrayList<Arena>();
+    }
+    
+    /**
+     * Computes the size of the smallest blocks, which is the largest
+     * base address alignment of all devices of the given context, 
+     * and at least {@link #MIN_BLOCK_SIZE}
+     * 
+     * @param context The context
+     * @return The block size
+     */
+    private static long computeBlockSize(cl_context context)
+    {
+        long alignment = AlignedMemory.getBaseAddressAlignment(context);
+        long result = MIN_BLOCK_SIZE;
+        while (result < alignment)
+        {
+            result <<= 1;
+        }
+        return result;
+    }
+    
+    /**
+     * Allocate a region with the given size. If the size is larger
+     * than the arena size, a dedicated buffer will be created.
+     * 
+     * @param size The size, in bytes
+     * @return The allocation
+     * @throws IllegalArgumentException If the size is not positive
+     * @throws IllegalStateException If this allocator was released
+     * @throws CLException If an arena, a sub-buffer or a dedicated 
+     * buffer could not be created
+     */
+    public synchronized Allocation allocate(long size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The size must be positive, but is " + size);
+        }
+        if (released)
+        {
+            throw new IllegalStateException(
+                "The allocator has already been released");
+        }
+        if (size > getArenaSize())
+        {
+            cl_mem mem = createBuffer(size);
+            dedicatedCount++;
+            dedicatedBytes += size;
+            return new Allocation(null, 0, -1, size, mem);
+        }
+        int order = orderFor(size);
+        Arena arena = null;
+        long origin = -1;
+        for (Arena a : arenas)
+        {
+            origin = takeBlock(a, order);
+            if (origin >= 0)
+            {
+                arena = a;
+                break;
+            }
+        }
+        boolean newArena = false;
+        if (arena == null)
+        {
+            arena = new Arena(createBuffer(getArenaSize()), maxOrder);
+            arenas.add(arena);
+            newArena = true;
+            origin = takeBlock(arena, order);
+        }
+        
+        int errcode_ret[] = { CL.CL_SUCCESS };
+        cl_mem mem = null;
+        try
+        {
+            mem = ResourceScope.excludeFromCurrent(CL.clCreateSubBuffer(
+                arena.mem, 0, CL.CL_BUFFER_CREATE_TYPE_REGION, 
+                new cl_buffer_region(origin, size), errcode_ret));
+        }
+        catch (CLException e)
+        {
+            errcode_ret[0] = e.getStatus();
+        }
+        if (errcode_ret[0] != CL.CL_SUCCESS)
+        {
+            // Undo the allocation of the block, and of the arena if it
+            // was created for this allocation
+            putBlock(arena, origin, order);
+            if (newArena)
+            {
+                arenas.remove(arena);
+                CL.clReleaseMemObject(arena.mem);
+            }
+            CL.checkSuccess(errcode_ret[0]);
+        }
+        arena.allocationCount++;
+        allocatedBytes += blockSize << order;
+        requestedBytes += size;
+        return new Allocation(arena, origin, order, size, mem);
+    }
+    
+    /**
+     * Free the given allocation. This releases the sub-buffer or the 
+     * dedicated buffer, and returns the region to the free list of 
+     * its size class. Freeing an allocation twice has no effect.
+     * 
+     * @param allocation The allocation
+     */
+    public synchronized void free(Allocation allocation)
+    {
+        if (allocation.mem == null)
+        {
+            return;
+        }
+        CL.clReleaseMemObject(allocation.mem);
+        allocation.mem = null;
+        if (allocation.isDedicated())
+        {
+            dedicatedCount--;
+            dedicatedBytes -= allocation.size;
+            return;
+        }
+        Arena arena = allocation.arena;
+        arena.allocationCount--;
+        allocatedBytes -= blockSize << allocation.order;
+        requestedBytes -= allocation.size;
+        if (!released)
+        {
+            putBlock(arena, allocation.origin, allocation.order);
+        }
+    }
+    
+    /**
+     * Release all arenas that do not contain any allocated regions
+     * 
+     * @return The number of arenas that have been released
+     */
+    public synchronized int trim()
+    {
+        int count = 0;
+        Iterator<Arena> iterator = arenas.iterator();
+        while (iterator.hasNext())
+        {
+            Arena arena = iterator.next();
+            if (arena.allocationCount == 0)
+            {
+                CL.clReleaseMemObject(arena.mem);
+                iterator.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Release this allocator. This releases all arenas. Sub-buffers 
+     * that are still allocated should be freed before. After this 
+     * method has been called, no more regions may be allocated.
+     */
+    public synchronized void release()
+    {
+        if (released)
+        {
+            return;
+        }
+        released = true;
+        for (Arena arena : arenas)
+        {
+            CL.clReleaseMemObject(arena.mem);
+        }
+        arenas.clear();
+    }
+    
+    /**
+     * Returns the size of the arenas, in bytes
+     * 
+     * @return The arena size
+     */
+    public long getArenaSize()
+    {
+        return blockSize << maxOrder;
+    }
+    
+    /**
+     * Returns the size of the smallest regions, in bytes. This is a 
+     * multiple of the base address alignment of the devices.
+     * 
+     * @return The block size
+     */
+    public long getBlockSize()
+    {
+        return blockSize;
+    }
+    
+    /**
+     * Returns the number of arenas
+     * 
+     * @return The number of arenas
+     */
+    public synchronized int getArenaCount()
+    {
+        return arenas.size();
+    }
+    
+    /**
+     * Returns the number of bytes that are reserved in arenas
+     * 
+     * @return The number of reserved bytes
+     */
+    public synchronized long getReservedBytes()
+    {
+        return arenas.size() * getArenaSize();
+    }
+    
+    /**
+     * Returns the number of bytes in regions that are currently 
+     * allocated, including the padding of the regions to their
+     * size class
+     * 
+     * @return The number of allocated bytes
+     */
+    public synchronized long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+    
+    /**
+     * Returns the number of bytes that have been requested for 
+     * the regions that are currently allocated
+     * 
+     * @return The number of requested bytes
+     */
+    public synchronized long getRequestedBytes()
+    {
+        return requestedBytes;
+    }
+    
+    /**
+     * Returns the number of dedicated buffers that are currently 
+     * allocated
+     * 
+     * @return The number of dedicated buffers
+     */
+    public synchronized int getDedicatedCount()
+    {
+        return dedicatedCount;
+    }
+    
+    /**
+     * Returns the number of bytes in dedicated buffers that are 
+     * currently allocated
+     * 
+     * @return The number of bytes in dedicated buffers
+     */
+    public synchronized long getDedicatedBytes()
+    {
+        return dedicatedBytes;
+    }
+    
+    /**
+     * Returns the size of the largest free block in all arenas
+     * 
+     * @return The size of the largest free block, in bytes
+     */
+    public synchronized long getLargestFreeBlockSize()
+    {
+        for (int order = maxOrder; order >= 0; order--)
+        {
+            for (Arena arena : arenas)
+            {
+                if (!arena.freeLists.get(order).isEmpty())
+                {
+                    return blockSize << order;
+                }
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Returns the occupancy of the arenas, which is the ratio of the
+     * allocated bytes and the reserved bytes. This is 0.0 if there
+     * are no arenas.
+     * 
+     * @return The occupancy
+     */
+    public synchronized double getOccupancy()
+    {
+        long reservedBytes = getReservedBytes();
+        if (reservedBytes == 0)
+        {
+            return 0.0;
+        }
+        return (double)allocatedBytes / reservedBytes;
+    }
+    
+    /**
+     * Returns the external fragmentation of the arenas. This is 
+     * <code>1 - largestFreeBlock / freeBytes</code>, which is 0.0 
+     * if all free memory is available as a single block, and 
+     * approaches 1.0 if the free memory is scattered over many 
+     * small blocks.
+     * 
+     * @return The fragmentation
+     */
+    public synchronized double getFragmentation()
+    {
+        long freeBytes = getReservedBytes() - allocatedBytes;
+        if (freeBytes == 0)
+        {
+            return 0.0;
+        }
+        return 1.0 - (double)getLargestFreeBlockSize() / freeBytes;
+    }
+    
+    /**
+     * Returns the internal fragmentation of the allocated regions, 
+     * which is the ratio of the padding bytes and the allocated bytes
+     * 
+     * @return The internal fragmentation
+     */
+    public synchronized double getInternalFragmentation()
+    {
+        if (allocatedBytes == 0)
+        {
+            return 0.0;
+        }
+        return (double)(allocatedBytes - requestedBytes) / allocatedBytes;
+    }
+    
+    @Override
+    public synchronized String toString()
+    {
+        return "SubBufferAllocator[" +
+            "arenaSize=" + getArenaSize() + "," +
+            "blockSize=" + blockSize + "," +
+            "arenas=" + arenas.size() + "," +
+            "allocatedBytes=" + allocatedBytes + "," +
+            "requestedBytes=" + requestedBytes + "," +
+            "dedicated=" + dedicatedCount + "," +
+            "occupancy=" + getOccupancy() + "," +
+            "fragmentation=" + getFragmentation() + "]";
+    }
+    
+    /**
+     * Returns the smallest order whose blocks can hold the given size
+     * 
+     * @param size The size
+     * @return The order
+     */
+    private int orderFor(long size)
+    {
+        int order = 0;
+        while ((blockSize << order) < size)
+        {
+            order++;
+        }
+        return order;
+    }
+    
+    /**
+     * Take a free block with the given order from the given arena,
+     * splitting larger blocks if necessary
+     * 
+     * @param arena The arena
+     * @param order The order
+     * @return The origin of the block, or -1 if the arena does
+     * not contain a free block that is large enough
+     */
+    private long takeBlock(Arena arena, int order)
+    {
+        int current = order;
+        while (current <= maxOrder && arena.freeLists.get(current).isEmpty())
+        {
+            current++;
+        }
+        if (current > maxOrder)
+        {
+            return -1;
+        }
+        long origin = arena.freeLists.get(current).pollFirst();
+        while (current > order)
+        {
+            current--;
+            arena.freeLists.get(current).add(origin + (blockSize << current));
+        }
+        return origin;
+    }
+    
+    /**
+     * Put the block with the given origin and order back into the
+     * free lists of the given arena, merging it with its buddies
+     * 
+     * @param arena The arena
+     * @param origin The origin
+     * @param order The order
+     */
+    private void putBlock(Arena arena, long origin, int order)
+    {
+        long current = origin;
+        int currentOrder = order;
+        while (currentOrder < maxOrder)
+        {
+            long buddy = current ^ (blockSize << currentOrder);
+            if (!arena.freeLists.get(currentOrder).remove(buddy))
+            {
+                break;
+            }
+            current = Math.min(current, buddy);
+            currentOrder++;
+        }
+        arena.freeLists.get(currentOrder).add(current);
+    }
+    
+    /**
+     * Create a buffer with the given size
+     * 
+     * @param size The size
+     * @return The buffer
+     * @throws CLException If the buffer could not be created
+     */
+    private cl_mem createBuffer(long size)
+    {
+        int errcode_ret[] = { CL.CL_SUCCESS };
+        cl_mem mem = ResourceScope.excludeFromCurrent(
+            CL.clCreateBuffer(context, flags, size, null, errcode_ret));
+        CL.checkSuccess(errcode_ret[0]);
+        return mem;
+    }
+}
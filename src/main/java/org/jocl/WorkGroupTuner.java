@@ -0,0 +1,901 @@
+/*
+ * JOCL - Java bindings for OpenCL
+ *
+ * Copyright (c) 2009-2015 Marco Hutter - http://www.jocl.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.jocl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A class for finding the local work size that results in the shortest
+ * execution time of a kernel, and for storing it in a database file.
+ * <br>
+ * <br>
+ * The candidates for the local work size are derived from the 
+ * <code>CL_KERNEL_WORK_GROUP_SIZE</code> and the 
+ * <code>CL_KERNEL_PREFERRED_WORK_GROUP_SIZE_MULTIPLE</code> of the 
+ * kernel, and from the <code>CL_DEVICE_MAX_WORK_ITEM_SIZES</code> of 
+ * the device. Each candidate is timed with profiling events, so the 
+ * command queue must have been created with 
+ * <code>CL_QUEUE_PROFILING_ENABLE</code>. A <code>null</code> local 
+ * work size, which lets the implementation choose the local work size, 
+ * is always one of the candidates.<br>
+ * <br>
+ * The best local work size is stored in the database, with a key that 
+ * consists of the kernel function name, a hash of the program source 
+ * code, the device name and driver version, and a bucket for the global 
+ * work size, where each dimension is rounded up to the next power of 
+ * two. Since global work sizes in the same bucket may have different 
+ * divisors, each key may store several local work sizes, and the first 
+ * one that divides the global work size is used. The part of the key 
+ * that depends on the kernel and the device is computed once for each 
+ * <code>cl_kernel</code> object and device. The {@link #launch} method 
+ * enqueues a kernel with the stored local work size, and tunes the 
+ * kernel when no suitable local work size is stored for it:
+ * <pre><code>
+ * WorkGroupTuner tuner = new WorkGroupTuner(
+ *     new File(System.getProperty("user.home"), ".myapp/tuning.properties"));
+ * clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(mem));
+ * tuner.launch(queue, kernel, 1, null, new long[]{ n }, null);
+ * </code></pre>
+ * Tuning executes the kernel several times with its current arguments,
+ * so the kernel must not depend on the results of previous executions, 
+ * or the caller must restore its inputs afterwards.<br>
+ * <br>
+ * Failures to read or write the database file are logged, and do not
+ * affect the launches. Instances of this class are thread-safe.
+ */
+public final class WorkGroupTuner
+{
+    /**
+     * The logger used in this class
+     */
+    private final static Logger logger = 
+        Logger.getLogger(WorkGroupTuner.class.getName());
+    
+    /**
+     * The default number of timed executions of each candidate
+     */
+    public static final int DEFAULT_RUNS = 3;
+    
+    /**
+     * The value that is stored for a <code>null</code> local work size
+     */
+    private static final String DEFAULT_VALUE = "default";
+    
+    /**
+     * The separator for the local work sizes that are stored for 
+     * one key
+     */
+    private static final String SEPARATOR = ";";
+    
+    /**
+     * The database file
+     */
+    private final File file;
+    
+    /**
+     * The number of timed executions of each candidate
+     */
+    private final int runs;
+    
+    /**
+     * The best local work sizes, as strings, for the keys
+     */
+    private final Properties database;
+    
+    /**
+     * The prefixes of the keys, consisting of the function name and the
+     * hash of the program source and device properties, for the kernels
+     * and devices. The entries are removed when the kernel objects are
+     * garbage collected.
+     */
+    private final Map<cl_kernel, Map<cl_device_id, String>> keyPrefixes;
+    
+    /**
+     * The number of times that a kernel was tuned
+     */
+    private int tuneCount;
+    
+    /**
+     * Creates a new tuner that stores the best local work sizes in the 
+     * given file, with {@link #DEFAULT_RUNS} timed executions for each 
+     * candidate
+     * 
+     * @param file The database file
+     */
+    public WorkGroupTuner(File file)
+    {
+        this(file, DEFAULT_RUNS);
+    }
+    
+    /**
+     * Creates a new tuner that stores the best local work sizes in the 
+     * given file. The local work sizes that are already contained in 
+     * the file are read.
+     * 
+     * @param file The database file
+     * @param runs The number of timed executions of each candidate. The
+     * shortest of these execution times is used for the comparison.
+     * @throws IllegalArgumentException If the number of runs is not
+     * positive
+     */
+    public WorkGroupTuner(File file, int runs)
+    {
+        if (runs <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of runs must be positive, but is " + runs);
+        }
+        this.file = file;
+        this.runs = runs;
+        this.database = new Properties();
+        this.keyPrefixes = new WeakHashMap<cl_kernel, Map<cl_device_id, String>>();
+        load();
+    }
+    
+    /**
+     * Enqueue the given kernel with its current arguments, as in 
+     * {@link CL#clEnqueueNDRangeKernel(cl_command_queue, cl_kernel, int, long[], long[], long[], int, cl_event[], cl_event)},
+     * using the best local work size for the global work size. If no 
+     * local work size is stored for the kernel, device and global work 
+     * size that divides the global work size, then the kernel is tuned 
+     * first.
+     * 
+     * @param commandQueue The command queue
+     * @param kernel The kernel
+     * @param workDim The work dimension
+     * @param globalWorkOffset The global work offset, may be 
+     * <code>null</code>
+     * @param globalWorkSize The global work size
+     * @param event The event, may be <code>null</code>
+     * @return The error code
+     * @throws IllegalArgumentException If the kernel has to be tuned, 
+     * and the command queue does not have profiling enabled
+     */
+    public int launch(cl_command_queue commandQueue, cl_kernel kernel, 
+        int workDim, long globalWorkOffset[], long globalWorkSize[], 
+        cl_event event)
+    {
+        long localWorkSize[] = 
+            getLocalWorkSize(commandQueue, kernel, workDim, globalWorkSize);
+        return CL.clEnqueueNDRangeKernel(commandQueue, kernel, workDim, 
+            globalWorkOffset, globalWorkSize, localWorkSize, 0, null, event);
+    }
+    
+    /**
+     * Returns the best local work size for the given kernel, on the 
+     * device of the given command queue, for the given global work size.
+     * If no local work size that divides the global work size is stored 
+     * for them, then the kernel is tuned first, as in {@link #tune}.
+     * 
+     * @param commandQueue The command queue
+     * @param kernel The kernel
+     * @param workDim The work dimension
+     * @param globalWorkSize The global work size
+     * @return The local work size. This may be <code>null</code> if 
+     * the implementation should choose the local work size.
+     * @throws IllegalArgumentException If the kernel has to be tuned, 
+     * and the command queue does not have profiling enabled
+     */
+    public long[] getLocalWorkSize(cl_command_queue commandQueue, 
+        cl_kernel kernel, int workDim, long globalWorkSize[])
+    {
+        cl_device_id device = getDevice(commandQueue);
+        String key = computeKey(kernel, device, workDim, globalWorkSize);
+        String value;
+        synchronized (this)
+        {
+            value = database.getProperty(key);
+        }
+        if (value != null)
+        {
+            for (String entry : value.split(SEPARATOR))
+            {
+                if (DEFAULT_VALUE.equals(entry))
+                {
+                    return null;
+                }
+                long localWorkSize[] = parse(entry, workDim);
+                if (localWorkSize != null && 
+                    divides(localWorkSize, globalWorkSize))
+                {
+                    return localWorkSize;
+                }
+            }
+        }
+        return tune(commandQueue, kernel, workDim, globalWorkSize);
+    }
+    
+    /**
+     * Execute the given kernel with its current arguments, once with 
+     * each candidate local work size, on the given command queue, and 
+     * store the local work size that resulted in the shortest execution 
+     * time. It is stored in front of the local work sizes that are 
+     * already stored for other global work sizes in the same bucket. 
+     * This method blocks until all executions are finished.
+     * 
+     * @param commandQueue The command queue
+     * @param kernel The kernel
+     * @param workDim The work dimension
+     * @param globalWorkSize The global work size
+     * @return The best local work size. This may be <code>null</code> if
+     * the implementation should choose the local work size.
+     * @throws IllegalArgumentException If the command queue does not 
+     * have profiling enabled
+     * @throws CLException If the kernel can not be executed with any
+     * of the candidates
+     */
+    public long[] tune(cl_command_queue commandQueue, 
+        cl_kernel kernel, int workDim, long globalWorkSize[])
+    {
+        long properties[] = new long[1];
+        CL.checkSuccess(CL.clGetCommandQueueInfo(commandQueue, 
+            CL.CL_QUEUE_PROPERTIES, Sizeof.cl_ulong, 
+            Pointer.to(properties), null));
+        if ((properties[0] & CL.CL_QUEUE_PROFILING_ENABLE) == 0)
+        {
+            throw new IllegalArgumentException(
+                "The command queue does not have profiling enabled");
+        }
+        cl_device_id device = getDevice(commandQueue);
+        List<long[]> candidates = 
+            computeCandidates(kernel, device, workDim, globalWorkSize);
+        
+        long bestLocalWorkSize[] = null;
+        long bestTime = Long.MAX_VALUE;
+        int lastError = CL.CL_SUCCESS;
+        for (long localWorkSize[] : candidates)
+        {
+            long time[] = new long[1];
+            int result = measure(commandQueue, kernel, workDim, 
+                globalWorkSize, localWorkSize, time);
+            if (result != CL.CL_SUCCESS)
+            {
+                // The kernel may require more resources than are 
+                // available for the candidate
+                logger.log(Level.FINE, "Candidate " + 
+                    format(localWorkSize) + " failed with " + 
+                    CL.stringFor_errorCode(result));
+                lastError = result;
+                continue;
+            }
+            if (bestTime == Long.MAX_VALUE || time[0] < bestTime)
+            {
+                bestTime = time[0];
+                bestLocalWorkSize = localWorkSize;
+            }
+        }
+        if (bestTime == Long.MAX_VALUE)
+        {
+            CL.checkSuccess(lastError);
+        }
+        
+        String key = computeKey(kernel, device, workDim, globalWorkSize);
+        String best = format(bestLocalWorkSize);
+        synchronized (this)
+        {
+            StringBuilder sb = new StringBuilder(best);
+            String value = database.getProperty(key);
+            if (value != null)
+            {
+                for (String entry : value.split(SEPARATOR))
+                {
+                    if (!entry.equals(best))
+                    {
+                        sb.append(SEPARATOR).append(entry);
+                    }
+                }
+            }
+            database.setProperty(key, sb.toString());
+            tuneCount++;
+            store();
+        }
+        logger.log(Level.FINE, "Best local work size for " + key + 
+            " is " + best + ", " + bestTime + " ns");
+        return bestLocalWorkSize;
+    }
+    
+    /**
+     * Returns the number of times that a kernel was tuned
+     * 
+     * @return The number of times that a kernel was tuned
+     */
+    public synchronized int getTuneCount()
+    {
+        return tuneCount;
+    }
+    
+    /**
+     * Returns the number of keys in the database
+     * 
+     * @return The number of keys
+     */
+    public synchronized int size()
+    {
+        return database.size();
+    }
+    
+    /**
+     * Remove all local work sizes from the database, and delete the
+     * database file
+     */
+    public synchronized void clear()
+    {
+        database.clear();
+        if (file.exists() && !file.delete())
+        {
+            logger.log(Level.WARNING, "Could not delete " + file);
+        }
+    }
+    
+    /**
+     * Execute the given kernel with the given local work size, and 
+     * store the shortest execution time, in nanoseconds, in the given 
+     * array
+     * 
+     * @param commandQueue The command queue
+     * @param kernel The kernel
+     * @param workDim The work dimension
+     * @param globalWorkSize The global work size
+     * @param localWorkSize The local work size, may be <code>null</code>
+     * @param time The array that will store the time
+     * @return The error code
+     */
+    private int measure(cl_command_queue commandQueue, cl_kernel kernel, 
+        int workDim, long globalWorkSize[], long localWorkSize[], 
+        long time[])
+    {
+        long minTime = Long.MAX_VALUE;
+        
+        // The first execution is not timed, because it may include 
+        // one-time costs of the implementation
+        for (int r = -1; r < runs; r++)
+        {
+            cl_event event = new cl_event();
+            try
+            {
+                int result;
+                try
+                {
+                    result = CL.clEnqueueNDRangeKernel(commandQueue, kernel, 
+                        workDim, null, globalWorkSize, localWorkSize, 
+                        0, null, event);
+                    if (result == CL.CL_SUCCESS)
+                    {
+                        result = CL.clWaitForEvents(
+                            1, new cl_event[] { event });
+                    }
+                }
+                catch (CLException e)
+                {
+                    result = e.getStatus();
+                }
+                if (result != CL.CL_SUCCESS)
+                {
+                    return result;
+                }
+                long start[] = new long[1];
+                long end[] = new long[1];
+                CL.checkSuccess(CL.clGetEventProfilingInfo(event, 
+                    CL.CL_PROFILING_COMMAND_START, Sizeof.cl_ulong, 
+                    Pointer.to(start), null));
+                CL.checkSuccess(CL.clGetEventProfilingInfo(event, 
+                    CL.CL_PROFILING_COMMAND_END, Sizeof.cl_ulong, 
+                    Pointer.to(end), null));
+                if (r >= 0)
+                {
+                    minTime = Math.min(minTime, end[0] - start[0]);
+                }
+            }
+            finally
+            {
+                if (event.getNativePointer() != 0)
+                {
+                    CL.clReleaseEventRawNative(event.getNativePointer());
+                }
+            }
+        }
+        time[0] = minTime;
+        return CL.CL_SUCCESS;
+    }
+    
+    /**
+     * Compute the candidates for the local work size of the given 
+     * kernel on the given device. The candidates consist of all local 
+     * work sizes whose components are powers of two that divide the 
+     * global work size, and do not exceed the maximum work item sizes, 
+     * and whose total size is a multiple of the preferred work group 
+     * size multiple and does not exceed the kernel work group size.
+     * The list also contains <code>null</code>.
+     * 
+     * @param kernel The kernel
+     * @param device The device
+     * @param workDim The work dimension
+     * @param globalWorkSize The global work size
+     * @return The candidates
+     */
+    private static List<long[]> computeCandidates(cl_kernel kernel, 
+        cl_device_id device, int workDim, long globalWorkSize[])
+    {
+        long maxWorkGroupSize = getKernelSize(kernel, device, 
+            CL.CL_KERNEL_WORK_GROUP_SIZE);
+        long multiple = getKernelSize(kernel, device, 
+            CL.CL_KERNEL_PREFERRED_WORK_GROUP_SIZE_MULTIPLE);
+        int maxDimensions[] = new int[1];
+        CL.checkSuccess(CL.clGetDeviceInfo(device, 
+            CL.CL_DEVICE_MAX_WORK_ITEM_DIMENSIONS, Sizeof.cl_uint, 
+            Pointer.to(maxDimensions), null));
+        long maxWorkItemSizes[] = getDeviceSizes(device, 
+            CL.CL_DEVICE_MAX_WORK_ITEM_SIZES, maxDimensions[0]);
+        
+        List<long[]> candidates = new ArrayList<long[]>();
+        candidates.add(null);
+        addCandidates(candidates, new long[workDim], 0, 1, 
+            globalWorkSize, maxWorkItemSizes, maxWorkGroupSize, 
+            Math.max(1, multiple));
+        return candidates;
+    }
+    
+    /**
+     * Recursively add the candidates for the local work size to the 
+     * given list
+     * 
+     * @param candidates The list of candidates
+     * @param localWorkSize The local work size that is being assembled
+     * @param dimension The current dimension
+     * @param totalSize The product of the local work sizes of the 
+     * previous dimensions
+     * @param globalWorkSize The global work size
+     * @param maxWorkItemSizes The maximum work item sizes
+     * @param maxWorkGroupSize The maximum work group size
+     * @param multiple The preferred work group size multiple
+     */
+    private static void addCandidates(List<long[]> candidates, 
+        long localWorkSize[], int dimension, long totalSize, 
+        long globalWorkSize[], long maxWorkItemSizes[], 
+        long maxWorkGroupSize, long multiple)
+    {
+        if (dimension == localWorkSize.length)
+        {
+            if (totalSize % multiple == 0)
+            {
+                candidates.add(localWorkSize.clone());
+            }
+            return;
+        }
+        for (long size = 1; 
+            size <= maxWorkItemSizes[dimension] && 
+            totalSize * size <= maxWorkGroupSize; size *= 2)
+        {
+            if (globalWorkSize[dimension] % size != 0)
+            {
+                break;
+            }
+            localWorkSize[dimension] = size;
+            addCandidates(candidates, localWorkSize, dimension + 1, 
+                totalSize * size, globalWorkSize, maxWorkItemSizes, 
+                maxWorkGroupSize, multiple);
+        }
+    }
+    
+    /**
+     * Compute the database key for the given kernel, device and global 
+     * work size
+     * 
+     * @param kernel The kernel
+     * @param device The device
+     * @param workDim The work dimension
+     * @param globalWorkSize The global work size
+     * @return The key
+     */
+    private String computeKey(cl_kernel kernel, 
+        cl_device_id device, int workDim, long globalWorkSize[])
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getKeyPrefix(kernel, device)).append(".");
+        for (int i = 0; i < workDim; i++)
+        {
+            if (i > 0)
+            {
+                sb.append("x");
+            }
+            sb.append(bucket(globalWorkSize[i]));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Returns the part of the database key that consists of the function 
+     * name of the given kernel, and a hash of the program source code 
+     * and the name and driver version of the given device. For programs
+     * that do not have a source code, because they have been created 
+     * from binaries, the binary for the given device is used instead of
+     * the source code. This part is only computed once for each kernel 
+     * and device. 
+     * 
+     * @param kernel The kernel
+     * @param device The device
+     * @return The key prefix
+     */
+    private String getKeyPrefix(cl_kernel kernel, cl_device_id device)
+    {
+        synchronized (this)
+        {
+            Map<cl_device_id, String> devicePrefixes = 
+                keyPrefixes.get(kernel);
+            if (devicePrefixes != null)
+            {
+                String prefix = devicePrefixes.get(device);
+                if (prefix != null)
+                {
+                    return prefix;
+                }
+            }
+        }
+        String functionName = 
+            CacheUtils.getKernelString(kernel, CL.CL_KERNEL_FUNCTION_NAME);
+        cl_program program = new cl_program();
+        CL.checkSuccess(CL.clGetKernelInfo(kernel, CL.CL_KERNEL_PROGRAM, 
+            Sizeof.cl_program, Pointer.to(program), null));
+        String programCode = getProgramString(program, CL.CL_PROGRAM_SOURCE);
+        if (programCode.length() == 0)
+        {
+            programCode = "binary:" + 
+                CacheUtils.hash(getProgramBinary(program, device));
+        }
+        String components[] = 
+        {
+            functionName,
+            programCode,
+            CacheUtils.getDeviceString(device, CL.CL_DEVICE_NAME),
+            CacheUtils.getDeviceString(device, CL.CL_DRIVER_VERSION)
+        };
+        String prefix = 
+            functionName + "." + CacheUtils.hash(components).substring(0, 16);
+        synchronized (this)
+        {
+            Map<cl_device_id, String> devicePrefixes = 
+                keyPrefixes.get(kernel);
+            if (devicePrefixes == null)
+            {
+                devicePrefixes = new HashMap<cl_device_id, String>();
+                keyPrefixes.put(kernel, devicePrefixes);
+            }
+            devicePrefixes.put(device, prefix);
+        }
+        return prefix;
+    }
+    
+    /**
+     * Returns the bucket for the given global work size, which is the 
+     * smallest power of two that is not smaller than the size
+     * 
+     * @param size The size
+     * @return The bucket
+     */
+    private static long bucket(long size)
+    {
+        if (size <= 1)
+        {
+            return 1;
+        }
+        return Long.highestOneBit(size - 1) << 1;
+    }
+    
+    /**
+     * Returns whether all components of the given local work size 
+     * divide the respective components of the given global work size
+     * 
+     * @param localWorkSize The local work size
+     * @param globalWorkSize The global work size
+     * @return Whether the local work size divides the global work size
+     */
+    private static boolean divides(
+        long localWorkSize[], long globalWorkSize[])
+    {
+        for (int i = 0; i < localWorkSize.length; i++)
+        {
+            if (localWorkSize[i] <= 0 || 
+                globalWorkSize[i] % localWorkSize[i] != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the string representation of the given local work size 
+     * that is stored in the database
+     * 
+     * @param localWorkSize The local work size, may be <code>null</code>
+     * @return The string
+     */
+    private static String format(long localWorkSize[])
+    {
+        if (localWorkSize == null)
+        {
+            return DEFAULT_VALUE;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < localWorkSize.length; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(",");
+            }
+            sb.append(localWorkSize[i]);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Parse the given string representation of a local work size 
+     * 
+     * @param value The string
+     * @param workDim The work dimension
+     * @return The local work size, or <code>null</code> if the value
+     * is not valid
+     */
+    private static long[] parse(String value, int workDim)
+    {
+        String tokens[] = value.split(",");
+        if (tokens.length != workDim)
+        {
+            logger.log(Level.WARNING, "Invalid local work size " + value);
+            return null;
+        }
+        long localWorkSize[] = new long[workDim];
+        try
+        {
+            for (int i = 0; i < workDim; i++)
+            {
+                localWorkSize[i] = Long.parseLong(tokens[i].trim());
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            logger.log(Level.WARNING, "Invalid local work size " + value);
+            return null;
+        }
+        return localWorkSize;
+    }
+    
+    /**
+     * Read the database file, if it exists
+     */
+    private void load()
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = new FileInputStream(file);
+            database.load(inputStream);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, "Could not read " + file, e);
+        }
+        finally
+        {
+            CacheUtils.close(inputStream);
+        }
+    }
+    
+    /**
+     * Write the database file. The database is written into a temporary
+     * file, which is then renamed.
+     */
+    private void store()
+    {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            logger.log(Level.WARNING, 
+                "Could not create directory " + directory);
+            return;
+        }
+        File tempFile = null;
+        OutputStream outputStream = null;
+        try
+        {
+            tempFile = File.createTempFile("tuning", ".tmp", directory);
+            outputStream = new FileOutputStream(tempFile);
+            database.store(outputStream, "JOCL work group sizes");
+            outputStream.close();
+            outputStream = null;
+            
+            CacheUtils.replace(tempFile, file);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, "Could not write " + file, e);
+            if (tempFile != null)
+            {
+                tempFile.delete();
+            }
+        }
+        finally
+        {
+            CacheUtils.close(outputStream);
+        }
+    }
+    
+    /**
+     * Returns the device of the given command queue
+     * 
+     * @param commandQueue The command queue
+     * @return The device
+     */
+    private static cl_device_id getDevice(cl_command_queue commandQueue)
+    {
+        cl_device_id device = new cl_device_id();
+        CL.checkSuccess(CL.clGetCommandQueueInfo(commandQueue, 
+            CL.CL_QUEUE_DEVICE, Sizeof.cl_device_id, Pointer.to(device), null));
+        return device;
+    }
+    
+    /**
+     * Returns the value of the given <code>size_t</code> parameter of 
+     * the given kernel on the given device
+     * 
+     * @param kernel The kernel
+     * @param device The device
+     * @param paramName The parameter name
+     * @return The value
+     */
+    private static long getKernelSize(
+        cl_kernel kernel, cl_device_id device, int paramName)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            Sizeof.size_t).order(ByteOrder.nativeOrder());
+        CL.checkSuccess(CL.clGetKernelWorkGroupInfo(kernel, device, paramName, 
+            Sizeof.size_t, Pointer.to(buffer), null));
+        return readSize(buffer, 0);
+    }
+    
+    /**
+     * Returns the values of the given <code>size_t[]</code> parameter 
+     * of the given device
+     * 
+     * @param device The device
+     * @param paramName The parameter name
+     * @param n The number of values
+     * @return The values
+     */
+    private static long[] getDeviceSizes(
+        cl_device_id device, int paramName, int n)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            n * Sizeof.size_t).order(ByteOrder.nativeOrder());
+        CL.checkSuccess(CL.clGetDeviceInfo(device, paramName, 
+            n * Sizeof.size_t, Pointer.to(buffer), null));
+        long values[] = new long[n];
+        for (int i = 0; i < n; i++)
+        {
+            values[i] = readSize(buffer, i * Sizeof.size_t);
+        }
+        return values;
+    }
+    
+    /**
+     * Read a <code>size_t</code> value from the given buffer
+     * 
+     * @param buffer The buffer
+     * @param index The byte index
+     * @return The value
+     */
+    private static long readSize(ByteBuffer buffer, int index)
+    {
+        if (Sizeof.size_t == Sizeof.cl_int)
+        {
+            return buffer.getInt(index) & 0xFFFFFFFFL;
+        }
+        return buffer.getLong(index);
+    }
+    
+    /**
+     * Returns the value of the given string parameter of the given 
+     * program
+     * 
+     * @param program The program
+     * @param paramName The parameter name
+     * @return The value
+     */
+    private static String getProgramString(
+        cl_program program, int paramName)
+    {
+        long size[] = new long[1];
+        CL.checkSuccess(CL.clGetProgramInfo(program, paramName, 0, null, size));
+        byte buffer[] = new byte[(int)size[0]];
+        CL.checkSuccess(CL.clGetProgramInfo(program, paramName, buffer.length, 
+            Pointer.to(buffer), null));
+        return CacheUtils.toString(buffer);
+    }
+    
+    /**
+     * Returns the binary of the given program for the given device
+     * 
+     * @param program The program
+     * @param device The device
+     * @return The binary, or an empty array if the program has no 
+     * binary for the device
+     */
+    private static byte[] getProgramBinary(
+        cl_program program, cl_device_id device)
+    {
+        // The binaries are returned in the order of the program devices
+        int numDevices[] = new int[1];
+        CL.checkSuccess(CL.clGetProgramInfo(program, 
+            CL.CL_PROGRAM_NUM_DEVICES, Sizeof.cl_uint, 
+            Pointer.to(numDevices), null));
+        int n = numDevices[0];
+        cl_device_id programDevices[] = new cl_device_id[n];
+        CL.checkSuccess(CL.clGetProgramInfo(program, CL.CL_PROGRAM_DEVICES, 
+            (long)n * Sizeof.cl_device_id, Pointer.to(programDevices), null));
+        long sizes[] = new long[n];
+        CL.checkSuccess(CL.clGetProgramInfo(program, 
+            CL.CL_PROGRAM_BINARY_SIZES, (long)n * Sizeof.size_t, 
+            Pointer.to(sizes), null));
+        byte binaries[][] = new byte[n][];
+        Pointer binaryPointers[] = new Pointer[n];
+        for (int i = 0; i < n; i++)
+        {
+            binaries[i] = new byte[(int)sizes[i]];
+            binaryPointers[i] = Pointer.to(binaries[i]);
+        }
+        CL.checkSuccess(CL.clGetProgramInfo(program, CL.CL_PROGRAM_BINARIES, 
+            (long)n * Sizeof.POINTER, Pointer.to(binaryPointers), null));
+        for (int i = 0; i < n; i++)
+        {
+            if (programDevices[i].equals(device))
+            {
+                return binaries[i];
+            }
+        }
+        return new byte[0];
+    }
+}
@@ -79,6 +79,7 @@ clGetProgramInfoFunctionPointerType clGetProgramInfoFP = NULL;
 clGetProgramBuildInfoFunctionPointerType clGetProgramBuildInfoFP = NULL;
 clCreateKernelFunctionPointerType clCreateKernelFP = NULL;
 clCreateKernelsInProgramFunctionPointerType clCreateKernelsInProgramFP = NULL;
+clCloneKernelFunctionPointerType clCloneKernelFP = NULL;
 clRetainKernelFunctionPointerType clRetainKernelFP = NULL;
 clReleaseKernelFunctionPointerType clReleaseKernelFP = NULL;
 clSetKernelArgFunctionPointerType clSetKernelArgFP = NULL;
@@ -342,6 +342,10 @@ typedef CL_API_ENTRY cl_int (CL_API_CALL
                          cl_kernel *    /* kernels */,
                          cl_uint *      /* num_kernels_ret */) CL_API_SUFFIX__VERSION_1_0;
 
+typedef CL_API_ENTRY cl_kernel (CL_API_CALL
+*clCloneKernelFunctionPointerType)(cl_kernel     /* source_kernel */,
+              cl_int*       /* errcode_ret */);
+
 typedef CL_API_ENTRY cl_int (CL_API_CALL
 *clRetainKernelFunctionPointerType)(cl_kernel    /* kernel */) CL_API_SUFFIX__VERSION_1_0;
 
@@ -950,6 +954,7 @@ extern clGetProgramInfoFunctionPointerType clGetProgramInfoFP;
 extern clGetProgramBuildInfoFunctionPointerType clGetProgramBuildInfoFP;
 extern clCreateKernelFunctionPointerType clCreateKernelFP;
 extern clCreateKernelsInProgramFunctionPointerType clCreateKernelsInProgramFP;
+extern clCloneKernelFunctionPointerType clCloneKernelFP;
 extern clRetainKernelFunctionPointerType clRetainKernelFP;
 extern clReleaseKernelFunctionPointerType clReleaseKernelFP;
 extern clSetKernelArgFunctionPointerType clSetKernelArgFP;
@@ -90,6 +90,7 @@ void initFunctionPointers()
     initFunctionPointer(&clGetProgramBuildInfoFP, "clGetProgramBuildInfo");
     initFunctionPointer(&clCreateKernelFP, "clCreateKernel");
     initFunctionPointer(&clCreateKernelsInProgramFP, "clCreateKernelsInProgram");
+    initFunctionPointer(&clCloneKernelFP, "clCloneKernel");
     initFunctionPointer(&clRetainKernelFP, "clRetainKernel");
     initFunctionPointer(&clReleaseKernelFP, "clReleaseKernel");
     initFunctionPointer(&clSetKernelArgFP, "clSetKernelArg");
@@ -28,9 +28,19 @@
 #include "JOCL.hpp"
 
 #include <string.h>
+#include <limits.h>
 #include <string>
 #include <map>
 
+#ifdef _WIN32
+#include <windows.h>
+#include <malloc.h>
+#else
+#include <pthread.h>
+#include <stdlib.h>
+#include <unistd.h>
+#endif
+
 #include "Logger.hpp"
 #include "JOCLCommon.hpp"
 #include "JNIUtils.hpp"
@@ -55,6 +65,337 @@ static jmethodID EventCallback_function; // (Lorg/jocl/cl_event;ILjava/lang/Obje
 static jmethodID PrintfCallbackFunction_function; // (Lorg/jocl/cl_program;Ljava/lang/Object;)V
 static jmethodID SVMFreeFunction_function; // (Lorg/jocl/cl_command_queue;I[Lorg/jocl/Pointer;Ljava/lang/Object;)V
 
+// The size of the header of each record in the buffer of a 
+// KernelArgs object, and the kinds of the records. These 
+// constants must be kept in sync with KernelArgs.java
+#define KERNEL_ARG_HEADER_SIZE 16
+#define KERNEL_ARG_KIND_VALUE 0
+#define KERNEL_ARG_KIND_LOCAL 1
+
+// The layout of the records in the buffer of a CommandBatch object, 
+// the opcodes and the flags of the commands. These constants must 
+// be kept in sync with CommandBatch.java
+#define COMMAND_BATCH_HEADER_SIZE 16
+#define COMMAND_BATCH_RESULT_SIZE 16
+#define COMMAND_BATCH_NOT_EXECUTED 1
+#define COMMAND_BATCH_OP_EVENT 0
+#define COMMAND_BATCH_OP_SET_KERNEL_ARGS 1
+#define COMMAND_BATCH_OP_WRITE_BUFFER 2
+#define COMMAND_BATCH_OP_READ_BUFFER 3
+#define COMMAND_BATCH_OP_COPY_BUFFER 4
+#define COMMAND_BATCH_OP_FILL_BUFFER 5
+#define COMMAND_BATCH_OP_NDRANGE_KERNEL 6
+#define COMMAND_BATCH_OP_MARKER 7
+#define COMMAND_BATCH_OP_BARRIER 8
+#define COMMAND_BATCH_FLAG_RETURN_EVENT 1
+#define COMMAND_BATCH_FLAG_INTERNAL_EVENT 2
+#define COMMAND_BATCH_FLAG_KEEP_EVENT 4
+
+// The types of the entries of a ResourceScope. These constants 
+// must be kept in sync with ResourceScope.java
+#define RESOURCE_SCOPE_TYPE_MEM 0
+#define RESOURCE_SCOPE_TYPE_KERNEL 1
+#define RESOURCE_SCOPE_TYPE_PROGRAM 2
+#define RESOURCE_SCOPE_TYPE_EVENT 3
+#define RESOURCE_SCOPE_TYPE_SAMPLER 4
+#define RESOURCE_SCOPE_TYPE_MAPPED 5
+#define COMMAND_BATCH_MAX_STACK_EVENTS 16
+
+
+
+
+//============================================================================
+// Attachment of the threads that call the callback functions.
+// 
+// The callback functions are usually called by threads of the OpenCL
+// implementation, which are not attached to the JVM. Attaching and 
+// detaching these threads for each call is expensive. Therefore, they
+// are attached once, as daemon threads, and they are detached when 
+// they terminate, using a thread-local storage slot that has a 
+// destructor (pthread_key_create on POSIX, FlsAlloc on Windows).
+
+// Whether the thread-local storage slot has been created
+static bool callbackThreadSlotCreated = false;
+
+#ifdef _WIN32
+static DWORD callbackThreadSlot = FLS_OUT_OF_INDEXES;
+#else
+static pthread_key_t callbackThreadSlot;
+#endif
+
+/**
+ * The destructor of the thread-local storage slot. This is called 
+ * when a thread that was attached by attachCallbackThread terminates, 
+ * and detaches it from the JVM.
+ */
+#ifdef _WIN32
+static void WINAPI detachCallbackThread(void *value)
+#else
+static void detachCallbackThread(void *value)
+#endif
+{
+    if (value != NULL && callbackThreadSlotCreated && globalJvm != NULL)
+    {
+        globalJvm->DetachCurrentThread();
+    }
+}
+
+/**
+ * Create the thread-local storage slot that is used for detaching the 
+ * callback threads. This is called once, in JNI_OnLoad. If the slot
+ * can not be created, callback threads will remain attached until 
+ * the JVM terminates.
+ */
+static void initCallbackThreads()
+{
+#ifdef _WIN32
+    callbackThreadSlot = FlsAlloc(&detachCallbackThread);
+    callbackThreadSlotCreated = (callbackThreadSlot != FLS_OUT_OF_INDEXES);
+#else
+    callbackThreadSlotCreated = (pthread_key_create(&callbackThreadSlot, &detachCallbackThread) == 0);
+#endif
+    if (!callbackThreadSlotCreated)
+    {
+        Logger::log(LOG_WARNING, "Could not create slot for detaching callback threads\n");
+    }
+}
+
+/**
+ * Delete the thread-local storage slot that is used for detaching
+ * the callback threads. This is called in JNI_OnUnload. 
+ */
+static void shutdownCallbackThreads()
+{
+    if (!callbackThreadSlotCreated)
+    {
+        return;
+    }
+    callbackThreadSlotCreated = false;
+#ifdef _WIN32
+    FlsFree(callbackThreadSlot);
+#else
+    pthread_key_delete(callbackThreadSlot);
+#endif
+}
+
+/**
+ * Returns the JNIEnv for the current thread. If the current thread 
+ * is not attached to the JVM, it will be attached as a daemon thread, 
+ * and remain attached until it terminates. Returns NULL if the thread
+ * could not be attached.
+ */
+static JNIEnv* attachCallbackThread()
+{
+    JNIEnv *env = NULL;
+    if (globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4) == JNI_OK)
+    {
+        return env;
+    }
+    if (globalJvm->AttachCurrentThreadAsDaemon((JNI_ENV_TYPE)&env, NULL) != JNI_OK)
+    {
+        Logger::log(LOG_ERROR, "Could not attach callback thread to the JVM\n");
+        return NULL;
+    }
+    Logger::log(LOG_DEBUGTRACE, "Attached callback thread to the JVM\n");
+    if (callbackThreadSlotCreated)
+    {
+        // Any non-NULL value causes the destructor to be called
+#ifdef _WIN32
+        FlsSetValue(callbackThreadSlot, (void*)env);
+#else
+        pthread_setspecific(callbackThreadSlot, (void*)env);
+#endif
+    }
+    return env;
+}
+
+
+
+//============================================================================
+// Registrations of event callbacks.
+//
+// Event callbacks are registered at a high rate, often with the same 
+// callback object and different user data, for example, by 
+// org.jocl.CLFuture and org.jocl.ReferenceReleaseTracker. Creating and 
+// deleting a global reference to the callback object for each 
+// registration is avoided by keeping the global reference of the last 
+// callback object, together with a count of the registrations that 
+// are using it.
+
+/**
+ * A global reference that is shared by several registrations
+ */
+typedef struct SharedGlobalRef
+{
+    /**
+     * The global reference
+     */
+    jobject globalRef;
+
+    /**
+     * The number of users of this reference. This includes the cache
+     * when this is the cached reference.
+     */
+    int count;
+} SharedGlobalRef;
+
+/**
+ * The information for one registration of an event callback
+ */
+typedef struct EventCallbackInfo
+{
+    /**
+     * The shared global reference to the callback object
+     */
+    SharedGlobalRef *pfn_notify;
+
+    /**
+     * A global reference to the user data, or NULL
+     */
+    jobject globalUser_data;
+
+    /**
+     * Whether a cl_event object should be created and passed to 
+     * the callback function
+     */
+    bool passEvent;
+} EventCallbackInfo;
+
+// The global reference to the callback object of the last registration
+static SharedGlobalRef *lastEventCallback = NULL;
+
+// The mutex for lastEventCallback and the SharedGlobalRef counts
+#ifdef _WIN32
+static CRITICAL_SECTION eventCallbackMutex;
+#define LOCK_EVENT_CALLBACKS() EnterCriticalSection(&eventCallbackMutex)
+#define UNLOCK_EVENT_CALLBACKS() LeaveCriticalSection(&eventCallbackMutex)
+#else
+static pthread_mutex_t eventCallbackMutex = PTHREAD_MUTEX_INITIALIZER;
+#define LOCK_EVENT_CALLBACKS() pthread_mutex_lock(&eventCallbackMutex)
+#define UNLOCK_EVENT_CALLBACKS() pthread_mutex_unlock(&eventCallbackMutex)
+#endif
+
+/**
+ * Decrement the count of the given shared global reference, and delete
+ * it if it is no longer used. Must be called while holding the mutex.
+ */
+static void releaseSharedGlobalRef(JNIEnv *env, SharedGlobalRef *sharedRef)
+{
+    sharedRef->count--;
+    if (sharedRef->count == 0)
+    {
+        env->DeleteGlobalRef(sharedRef->globalRef);
+        delete sharedRef;
+    }
+}
+
+/**
+ * Initialize the mutex for the event callback registrations. This is
+ * called once, in JNI_OnLoad.
+ */
+static void initEventCallbacks()
+{
+#ifdef _WIN32
+    InitializeCriticalSection(&eventCallbackMutex);
+#endif
+}
+
+/**
+ * Release the cached callback object reference. This is called in 
+ * JNI_OnUnload.
+ */
+static void shutdownEventCallbacks(JNIEnv *env)
+{
+    LOCK_EVENT_CALLBACKS();
+    if (lastEventCallback != NULL)
+    {
+        releaseSharedGlobalRef(env, lastEventCallback);
+        lastEventCallback = NULL;
+    }
+    UNLOCK_EVENT_CALLBACKS();
+}
+
+/**
+ * Create the information for the registration of the given event 
+ * callback. If the callback object is the same as the one of the 
+ * previous registration, its global reference is reused. Returns 
+ * NULL if an error occurred.
+ */
+static EventCallbackInfo* initEventCallbackInfo(JNIEnv *env, jobject pfn_notify, jobject user_data, bool passEvent)
+{
+    EventCallbackInfo *callbackInfo = new (std::nothrow) EventCallbackInfo();
+    if (callbackInfo == NULL)
+    {
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory while creating event callback info");
+        return NULL;
+    }
+    callbackInfo->passEvent = passEvent;
+    callbackInfo->globalUser_data = NULL;
+    if (user_data != NULL)
+    {
+        callbackInfo->globalUser_data = env->NewGlobalRef(user_data);
+        if (env->ExceptionCheck())
+        {
+            delete callbackInfo;
+            return NULL;
+        }
+    }
+
+    LOCK_EVENT_CALLBACKS();
+    if (lastEventCallback == NULL || !env->IsSameObject(lastEventCallback->globalRef, pfn_notify))
+    {
+        SharedGlobalRef *sharedRef = new (std::nothrow) SharedGlobalRef();
+        jobject globalRef = NULL;
+        if (sharedRef != NULL)
+        {
+            globalRef = env->NewGlobalRef(pfn_notify);
+        }
+        if (globalRef == NULL)
+        {
+            UNLOCK_EVENT_CALLBACKS();
+            delete sharedRef;
+            if (callbackInfo->globalUser_data != NULL)
+            {
+                env->DeleteGlobalRef(callbackInfo->globalUser_data);
+            }
+            delete callbackInfo;
+            ThrowByName(env, "java/lang/OutOfMemoryError",
+                "Out of memory while creating event callback info");
+            return NULL;
+        }
+        sharedRef->globalRef = globalRef;
+
+        // One count for the cache
+        sharedRef->count = 1;
+        if (lastEventCallback != NULL)
+        {
+            releaseSharedGlobalRef(env, lastEventCallback);
+        }
+        lastEventCallback = sharedRef;
+    }
+    lastEventCallback->count++;
+    callbackInfo->pfn_notify = lastEventCallback;
+    UNLOCK_EVENT_CALLBACKS();
+    return callbackInfo;
+}
+
+/**
+ * Delete the given event callback information, releasing its global
+ * references
+ */
+static void deleteEventCallbackInfo(JNIEnv *env, EventCallbackInfo *callbackInfo)
+{
+    if (callbackInfo->globalUser_data != NULL)
+    {
+        env->DeleteGlobalRef(callbackInfo->globalUser_data);
+    }
+    LOCK_EVENT_CALLBACKS();
+    releaseSharedGlobalRef(env, callbackInfo->pfn_notify);
+    UNLOCK_EVENT_CALLBACKS();
+    delete callbackInfo;
+}
+
 
 
 /**
@@ -83,6 +424,8 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *jvm, void *reserved)
     if (initPointerUtils(env) == JNI_ERR) return JNI_ERR;
 
     globalJvm = jvm;
+    initCallbackThreads();
+    initEventCallbacks();
 
     jclass cls = NULL;
 
@@ -125,9 +468,16 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *jvm, void *reserved)
  */
 JNIEXPORT void JNICALL JNI_OnUnload(JavaVM *vm, void *reserved)
 {
+    JNIEnv *env = NULL;
+    if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4) == JNI_OK)
+    {
+        shutdownEventCallbacks(env);
+    }
+    shutdownCallbackThreads();
     unloadImplementationLibrary();
 }
 
+
 /**
  * Create a Java org.jocl.Pointer object that has the given native 
  * pointer. If the given size is greater than 0, the object will
@@ -142,7 +492,9 @@ jobject createJavaPointerObject(JNIEnv *env, void *nativePointer, size_t nativeS
         return NULL;
     }
     jobject buffer = NULL;
-	if (nativeSize > 0)
+	// A direct byte buffer can not be larger than 2 GB. Larger regions 
+	// are only accessible via Pointer#getMemoryView
+	if (nativeSize > 0 && nativeSize <= (size_t)INT_MAX)
 	{
 		buffer = env->NewDirectByteBuffer(nativePointer, (jlong)nativeSize);
 		if (env->ExceptionCheck())
@@ -179,11 +531,10 @@ void CL_CALLBACK CreateContextFunction(const char *errinfo, const void *private_
     }
     jobject user_data = callbackInfo->globalUser_data;
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     jstring errinfoString = env->NewStringUTF(errinfo);
@@ -195,10 +546,6 @@ void CL_CALLBACK CreateContextFunction(const char *errinfo, const void *private_
     env->CallVoidMethod(pfn_notify, CreateContextFunction_function, errinfoString, private_infoObject, cb, user_data);
 
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 
 }
 
@@ -214,11 +561,10 @@ void CL_CALLBACK BuildProgramFunction(cl_program program, void *user_dataInfo)
 {
     Logger::log(LOG_DEBUGTRACE, "Executing BuildProgramFunction\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     CallbackInfo *callbackInfo = (CallbackInfo*)user_dataInfo;
@@ -239,10 +585,6 @@ void CL_CALLBACK BuildProgramFunction(cl_program program, void *user_dataInfo)
     }
     deleteCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
@@ -256,11 +598,10 @@ void CL_CALLBACK EnqueueNativeKernelFunction(void *argsInfo)
 {
     Logger::log(LOG_DEBUGTRACE, "Executing EnqueueNativeKernelFunction\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     CallbackInfo *callbackInfo = (CallbackInfo*)argsInfo;
@@ -273,10 +614,6 @@ void CL_CALLBACK EnqueueNativeKernelFunction(void *argsInfo)
     }
     deleteCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
@@ -293,11 +630,10 @@ void CL_CALLBACK MemObjectDestructorCallback(cl_mem memobj, void *user_dataInfo)
 {
     Logger::log(LOG_DEBUGTRACE, "Executing MemObjectDestructorCallback\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     CallbackInfo *callbackInfo = (CallbackInfo*)user_dataInfo;
@@ -318,53 +654,48 @@ void CL_CALLBACK MemObjectDestructorCallback(cl_mem memobj, void *user_dataInfo)
     }
     deleteCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
 
 /**
  * A pointer to this function will be passed to the clSetEventCallback
- * function if a Java callback object was given. The argsInfo is a pointer to a
- * CallbackInfo that was initialized and is associated with the respective
+ * function if a Java callback object was given. The argsInfo is a pointer to an
+ * EventCallbackInfo that was initialized and is associated with the respective
  * call to clSetEventCallback.
  */
 void CL_CALLBACK EventCallback(cl_event event, cl_int command_exec_callback_type, void *user_dataInfo)
 {
     Logger::log(LOG_DEBUGTRACE, "Executing EventCallback\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
-    CallbackInfo *callbackInfo = (CallbackInfo*)user_dataInfo;
-    jobject pfn_notify = callbackInfo->globalPfn_notify;
-    if (pfn_notify != NULL)
-    {
-        jobject user_data = callbackInfo->globalUser_data;
+    EventCallbackInfo *callbackInfo = (EventCallbackInfo*)user_dataInfo;
+    jobject pfn_notify = callbackInfo->pfn_notify->globalRef;
+    jobject user_data = callbackInfo->globalUser_data;
 
-        // Create the event object which will be passed to the callback function
-        jobject eventObject = env->NewObject(cl_event_Class, cl_event_Constructor);
+    // Create the event object which will be passed to the callback function,
+    // unless the registration did not ask for it
+    jobject eventObject = NULL;
+    if (callbackInfo->passEvent)
+    {
+        eventObject = env->NewObject(cl_event_Class, cl_event_Constructor);
         if (env->ExceptionCheck())
         {
+            deleteEventCallbackInfo(env, callbackInfo);
+            finishCallback(env);
             return;
         }
         setNativePointer(env, eventObject, (jlong)event);
-
-        env->CallVoidMethod(pfn_notify, EventCallback_function, eventObject, command_exec_callback_type, user_data);
     }
-    deleteCallbackInfo(env, callbackInfo);
+
+    env->CallVoidMethod(pfn_notify, EventCallback_function, eventObject, command_exec_callback_type, user_data);
+    deleteEventCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
@@ -379,11 +710,10 @@ void CL_CALLBACK PrintfCallbackFunction(cl_context context, cl_uint printf_data_
 {
     Logger::log(LOG_DEBUGTRACE, "Executing PrintfCallbackFunction\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     CallbackInfo *callbackInfo = (CallbackInfo*)user_dataInfo;
@@ -411,10 +741,6 @@ void CL_CALLBACK PrintfCallbackFunction(cl_context context, cl_uint printf_data_
     }
     deleteCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
@@ -428,11 +754,10 @@ void CL_CALLBACK SVMFreeCallbackFunction(cl_command_queue queue, cl_uint num_svn
 {
     Logger::log(LOG_DEBUGTRACE, "Executing SVMFreeCallbackFunction\n");
 
-    JNIEnv *env = NULL;
-    jint attached = globalJvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_4);
-    if (attached != JNI_OK)
+    JNIEnv *env = attachCallbackThread();
+    if (env == NULL)
     {
-        globalJvm->AttachCurrentThread((JNI_ENV_TYPE)&env, NULL);
+        return;
     }
 
     CallbackInfo *callbackInfo = (CallbackInfo*)user_dataInfo;
@@ -469,10 +794,6 @@ void CL_CALLBACK SVMFreeCallbackFunction(cl_command_queue queue, cl_uint num_svn
     }
     deleteCallbackInfo(env, callbackInfo);
     finishCallback(env);
-    if (attached != JNI_OK)
-    {
-        globalJvm->DetachCurrentThread();
-    }
 }
 
 
@@ -3579,6 +3900,53 @@ JNIEXPORT jobject JNICALL Java_org_jocl_CL_clCreateKernelNative
 
 }
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clCloneKernelNative
+ * Signature: (Lorg/jocl/cl_kernel;[I)Lorg/jocl/cl_kernel;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_clCloneKernelNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject source_kernel, jintArray errcode_ret)
+{
+    Logger::log(LOG_TRACE, "Executing clCloneKernel\n");
+    if (clCloneKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clCloneKernel is not supported");
+        return NULL;
+    }
+
+    // Native variables declaration
+    cl_kernel nativeSource_kernel = NULL;
+    cl_int nativeErrcode_ret = 0;
+    cl_kernel nativeKernel = NULL;
+
+    // Obtain native variable values
+    if (source_kernel != NULL)
+    {
+        nativeSource_kernel = (cl_kernel)env->GetLongField(source_kernel, NativePointerObject_nativePointer);
+    }
+
+    nativeKernel = (clCloneKernelFP)(nativeSource_kernel, &nativeErrcode_ret);
+
+    // Write back native variable values and clean up
+    if (!set(env, errcode_ret, 0, nativeErrcode_ret)) return NULL;
+
+    if (nativeKernel == NULL)
+    {
+        return NULL;
+    }
+
+    // Create and return the Java cl_kernel object
+    jobject kernel = env->NewObject(cl_kernel_Class, cl_kernel_Constructor);
+    if (env->ExceptionCheck())
+    {
+        return NULL;
+    }
+    setNativePointer(env, kernel, (jlong)nativeKernel);
+    return kernel;
+}
+
 /*
  * Class:     org_jocl_CL
  * Method:    clCreateKernelsInProgramNative
@@ -3749,63 +4117,281 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgNative
     return result;
 }
 
-//#if defined(CL_VERSION_2_0)
+
+
+
+/**
+ * Set the kernel arguments that are stored in the given data, which
+ * is the contents of the buffer of a KernelArgs object with the given
+ * size. The layout of the records is described in KernelArgs.java:
+ * int  argIndex
+ * int  kind        (KERNEL_ARG_KIND_VALUE or KERNEL_ARG_KIND_LOCAL)
+ * long argSize
+ * byte value[]     (only for KERNEL_ARG_KIND_VALUE, padded to 8 bytes)
+ * Returns the first error code that is reported by clSetKernelArg,
+ * or CL_SUCCESS.
+ */
+cl_int setKernelArgs(cl_kernel kernel, char *data, size_t size)
+{
+    size_t position = 0;
+    while (position + KERNEL_ARG_HEADER_SIZE <= size)
+    {
+        jint argIndex = 0;
+        jint kind = 0;
+        jlong argSize = 0;
+        memcpy(&argIndex, data + position, sizeof(jint));
+        memcpy(&kind, data + position + 4, sizeof(jint));
+        memcpy(&argSize, data + position + 8, sizeof(jlong));
+
+        void *argValue = NULL;
+        size_t recordSize = KERNEL_ARG_HEADER_SIZE;
+        if (kind == KERNEL_ARG_KIND_VALUE)
+        {
+            argValue = (void*)(data + position + KERNEL_ARG_HEADER_SIZE);
+            recordSize += ((size_t)argSize + 7) & ~((size_t)7);
+        }
+        cl_int result = (clSetKernelArgFP)(kernel, (cl_uint)argIndex, (size_t)argSize, argValue);
+        if (result != CL_SUCCESS)
+        {
+            Logger::log(LOG_ERROR, "Error while setting kernel argument %d\n", (int)argIndex);
+            return result;
+        }
+        position += recordSize;
+    }
+    return CL_SUCCESS;
+}
 
 /*
  * Class:     org_jocl_CL
- * Method:    clSetKernelArgSVMPointerNative
- * Signature: (Lorg/jocl/cl_kernel;ILorg/jocl/Pointer;)I
+ * Method:    clSetKernelArgsNative
+ * Signature: (JLjava/nio/ByteBuffer;I)I
  */
-JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgSVMPointerNative
-  (JNIEnv *env, jclass UNUSED(cls), jobject kernel, jint arg_index, jobject arg_value)
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgsNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jobject args, jint args_size)
 {
-    Logger::log(LOG_TRACE, "Executing clSetKernelArgSVMPointer\n");
-    if (clSetKernelArgSVMPointerFP == NULL)
+    Logger::log(LOG_TRACE, "Executing clSetKernelArgs\n");
+    if (clSetKernelArgFP == NULL)
     {
         ThrowByName(env, "java/lang/UnsupportedOperationException",
-            "The function clSetKernelArgSVMPointer is not supported");
+            "The function clSetKernelArg is not supported");
         return CL_INVALID_OPERATION;
     }
 
-    // Native variables declaration
-    cl_kernel nativeKernel = NULL;
-    cl_uint nativeArg_index = 0;
-    void *nativeArg_value;
-
-    // Obtain native variable values
-    if (kernel != NULL)
-    {
-        nativeKernel = (cl_kernel)env->GetLongField(kernel, NativePointerObject_nativePointer);
-    }
-    nativeArg_index = (cl_uint)arg_index;
-    PointerData *arg_valuePointerData = initPointerData(env, arg_value);
-    if (arg_valuePointerData == NULL)
+    char *data = (char*)env->GetDirectBufferAddress(args);
+    if (data == NULL)
     {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The kernel arguments must be stored in a direct buffer");
         return CL_INVALID_HOST_PTR;
     }
-    nativeArg_value = (void*)arg_valuePointerData->pointer;
+    return setKernelArgs((cl_kernel)kernel, data, (size_t)args_size);
+}
+
 
-    int result = (clSetKernelArgSVMPointerFP)(nativeKernel, nativeArg_index, nativeArg_value);
 
-    // Write back native variable values and clean up
-    if (!releasePointerData(env, arg_valuePointerData, JNI_ABORT)) return CL_INVALID_HOST_PTR;
 
-    return result;
-}
 
 /*
  * Class:     org_jocl_CL
- * Method:    clSetKernelExecInfoNative
- * Signature: (Lorg/jocl/cl_kernel;IJLorg/jocl/Pointer;)I
+ * Method:    clSetKernelArgIntNative
+ * Signature: (JII)I
  */
-JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelExecInfoNative
-  (JNIEnv *env, jclass UNUSED(cls), jobject kernel, jint param_name, jlong param_value_size, jobject param_value)
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgIntNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jint value)
 {
-    Logger::log(LOG_TRACE, "Executing clSetKernelExecInfo\n");
-    if (clSetKernelExecInfoFP == NULL)
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
     {
         ThrowByName(env, "java/lang/UnsupportedOperationException",
-            "The function clSetKernelExecInfo is not supported");
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_int nativeValue = (cl_int)value;
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, sizeof(cl_int), &nativeValue);
+}
+
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgLongNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgLongNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jlong value)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_long nativeValue = (cl_long)value;
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, sizeof(cl_long), &nativeValue);
+}
+
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgFloatNative
+ * Signature: (JIF)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgFloatNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jfloat value)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_float nativeValue = (cl_float)value;
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, sizeof(cl_float), &nativeValue);
+}
+
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgDoubleNative
+ * Signature: (JID)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgDoubleNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jdouble value)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_double nativeValue = (cl_double)value;
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, sizeof(cl_double), &nativeValue);
+}
+
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgHandleNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgHandleNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jlong handle)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    void *nativeHandle = (void*)handle;
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, sizeof(void*), &nativeHandle);
+}
+
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgLocalNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgLocalNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel, jint arg_index, jlong local_size)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArg\n");
+    if (clSetKernelArgFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArg is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clSetKernelArgFP)((cl_kernel)kernel, (cl_uint)arg_index, (size_t)local_size, NULL);
+}
+
+//#if defined(CL_VERSION_2_0)
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgSVMPointerNative
+ * Signature: (Lorg/jocl/cl_kernel;ILorg/jocl/Pointer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgSVMPointerNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject kernel, jint arg_index, jobject arg_value)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelArgSVMPointer\n");
+    if (clSetKernelArgSVMPointerFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelArgSVMPointer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    // Native variables declaration
+    cl_kernel nativeKernel = NULL;
+    cl_uint nativeArg_index = 0;
+    void *nativeArg_value;
+
+    // Obtain native variable values
+    if (kernel != NULL)
+    {
+        nativeKernel = (cl_kernel)env->GetLongField(kernel, NativePointerObject_nativePointer);
+    }
+    nativeArg_index = (cl_uint)arg_index;
+    PointerData *arg_valuePointerData = initPointerData(env, arg_value);
+    if (arg_valuePointerData == NULL)
+    {
+        return CL_INVALID_HOST_PTR;
+    }
+    nativeArg_value = (void*)arg_valuePointerData->pointer;
+
+    int result = (clSetKernelArgSVMPointerFP)(nativeKernel, nativeArg_index, nativeArg_value);
+
+    // Write back native variable values and clean up
+    if (!releasePointerData(env, arg_valuePointerData, JNI_ABORT)) return CL_INVALID_HOST_PTR;
+
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelExecInfoNative
+ * Signature: (Lorg/jocl/cl_kernel;IJLorg/jocl/Pointer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelExecInfoNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject kernel, jint param_name, jlong param_value_size, jobject param_value)
+{
+    Logger::log(LOG_TRACE, "Executing clSetKernelExecInfo\n");
+    if (clSetKernelExecInfoFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetKernelExecInfo is not supported");
         return CL_INVALID_OPERATION;
     }
 
@@ -4252,10 +4838,11 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetEventCallbackNative
         nativeEvent = (cl_event)env->GetLongField(event, NativePointerObject_nativePointer);
     }
     nativeCommand_exec_callback_type = (cl_int)command_exec_callback_type;
+    EventCallbackInfo *callbackInfo = NULL;
     if (pfn_notify != NULL)
     {
         nativePfn_notify = &EventCallback;
-        CallbackInfo *callbackInfo = initCallbackInfo(env, pfn_notify, user_data);
+        callbackInfo = initEventCallbackInfo(env, pfn_notify, user_data, true);
         if (callbackInfo == NULL)
         {
             return CL_OUT_OF_HOST_MEMORY;
@@ -4264,7 +4851,45 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetEventCallbackNative
     }
 
     int result = (clSetEventCallbackFP)(nativeEvent, nativeCommand_exec_callback_type, nativePfn_notify, nativeUser_data);
+    if (result != CL_SUCCESS && callbackInfo != NULL)
+    {
+        deleteEventCallbackInfo(env, callbackInfo);
+    }
+
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetEventCallbackRawNative
+ * Signature: (JILorg/jocl/EventCallbackFunction;Ljava/lang/Object;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetEventCallbackRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong event, jint command_exec_callback_type, jobject pfn_notify, jobject user_data)
+{
+    Logger::log(LOG_TRACE, "Executing clSetEventCallbackRaw\n");
+    if (clSetEventCallbackFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clSetEventCallback is not supported");
+        return CL_INVALID_OPERATION;
+    }
+    if (pfn_notify == NULL)
+    {
+        return CL_INVALID_VALUE;
+    }
 
+    // The callback function receives a null event object
+    EventCallbackInfo *callbackInfo = initEventCallbackInfo(env, pfn_notify, user_data, false);
+    if (callbackInfo == NULL)
+    {
+        return CL_OUT_OF_HOST_MEMORY;
+    }
+    int result = (clSetEventCallbackFP)((cl_event)event, (cl_int)command_exec_callback_type, &EventCallback, (void*)callbackInfo);
+    if (result != CL_SUCCESS)
+    {
+        deleteEventCallbackInfo(env, callbackInfo);
+    }
     return result;
 }
 
@@ -5686,13 +6311,12 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCopyBufferToImageNative
 
 
 
-/*
- * Class:     org_jocl_CL
- * Method:    clEnqueueMapBufferNative
- * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_mem;ZJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;[I)Ljava/nio/ByteBuffer;
+/**
+ * Enqueues the mapping of the given buffer, and returns the pointer to 
+ * the mapped memory. Returns NULL if the mapping failed or if an 
+ * exception occurred.
  */
-JNIEXPORT jobject JNICALL Java_org_jocl_CL_clEnqueueMapBufferNative
-  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject buffer, jboolean blocking_map, jlong map_flags, jlong offset, jlong cb, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event, jintArray errcode_ret)
+static void *enqueueMapBuffer(JNIEnv *env, jobject command_queue, jobject buffer, jboolean blocking_map, jlong map_flags, jlong offset, jlong cb, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event, jintArray errcode_ret)
 {
     Logger::log(LOG_TRACE, "Executing clEnqueueMapBuffer\n");
     if (clEnqueueMapBufferFP == NULL)
@@ -5752,12 +6376,39 @@ JNIEXPORT jobject JNICALL Java_org_jocl_CL_clEnqueueMapBufferNative
     setNativePointer(env, event, (jlong)nativeEvent);
     if (!set(env, errcode_ret, 0, nativeErrcode_ret)) return NULL;
 
+    return nativeHostPointer;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMapBufferNative
+ * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_mem;ZJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;[I)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_clEnqueueMapBufferNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject buffer, jboolean blocking_map, jlong map_flags, jlong offset, jlong cb, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event, jintArray errcode_ret)
+{
+    void *nativeHostPointer = enqueueMapBuffer(env, command_queue, buffer, blocking_map, map_flags, offset, cb, num_events_in_wait_list, event_wait_list, event, errcode_ret);
+
     // Create and return a ByteBuffer for the mapped memory
     if (nativeHostPointer == NULL)
     {
         return NULL;
     }
-    return env->NewDirectByteBuffer(nativeHostPointer, (jlong)nativeCb);
+    return env->NewDirectByteBuffer(nativeHostPointer, cb);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMapBufferAddressNative
+ * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_mem;ZJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;[I)J
+ */
+JNIEXPORT jlong JNICALL Java_org_jocl_CL_clEnqueueMapBufferAddressNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject buffer, jboolean blocking_map, jlong map_flags, jlong offset, jlong cb, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event, jintArray errcode_ret)
+{
+    // The address is returned instead of a ByteBuffer, because a
+    // ByteBuffer can not cover mapped regions larger than 2 GB
+    void *nativeHostPointer = enqueueMapBuffer(env, command_queue, buffer, blocking_map, map_flags, offset, cb, num_events_in_wait_list, event_wait_list, event, errcode_ret);
+    return (jlong)nativeHostPointer;
 }
 
 /*
@@ -6098,39 +6749,92 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelNative
 
 
 
+/**
+ * The work sizes of an NDRange kernel launch, which are passed to 
+ * the native methods as individual values. The sizes are stored in
+ * local arrays, so that no allocations are required.
+ */
+struct NDRangeSizes
+{
+    size_t globalWorkOffset[3];
+    size_t globalWorkSize[3];
+    size_t localWorkSize[3];
+
+    // The pointers that are passed to clEnqueueNDRangeKernel. An offset
+    // that is all zeros is passed as NULL (which is required for 
+    // OpenCL 1.0), and a local work size that is all zeros is passed 
+    // as NULL, meaning that the local work size is determined by the
+    // implementation.
+    size_t *globalWorkOffsetPointer;
+    size_t *localWorkSizePointer;
+};
+
+/**
+ * Initialize the given NDRangeSizes from the given values
+ */
+static void initNDRangeSizes(NDRangeSizes &sizes, jint workDim,
+    jlong globalWorkOffset0, jlong globalWorkOffset1, jlong globalWorkOffset2,
+    jlong globalWorkSize0, jlong globalWorkSize1, jlong globalWorkSize2,
+    jlong localWorkSize0, jlong localWorkSize1, jlong localWorkSize2)
+{
+    sizes.globalWorkOffset[0] = (size_t)globalWorkOffset0;
+    sizes.globalWorkOffset[1] = (size_t)globalWorkOffset1;
+    sizes.globalWorkOffset[2] = (size_t)globalWorkOffset2;
+    sizes.globalWorkSize[0] = (size_t)globalWorkSize0;
+    sizes.globalWorkSize[1] = (size_t)globalWorkSize1;
+    sizes.globalWorkSize[2] = (size_t)globalWorkSize2;
+    sizes.localWorkSize[0] = (size_t)localWorkSize0;
+    sizes.localWorkSize[1] = (size_t)localWorkSize1;
+    sizes.localWorkSize[2] = (size_t)localWorkSize2;
+    sizes.globalWorkOffsetPointer = NULL;
+    sizes.localWorkSizePointer = NULL;
+    for (int i=0; i<workDim && i<3; i++)
+    {
+        if (sizes.globalWorkOffset[i] != 0)
+        {
+            sizes.globalWorkOffsetPointer = sizes.globalWorkOffset;
+        }
+        if (sizes.localWorkSize[i] != 0)
+        {
+            sizes.localWorkSizePointer = sizes.localWorkSize;
+        }
+    }
+}
+
 /*
  * Class:     org_jocl_CL
- * Method:    clEnqueueTaskNative
- * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_kernel;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
+ * Method:    clEnqueueNDRangeKernelSizesNative
+ * Signature: (JJIJJJJJJJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
  */
-JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueTaskNative
-  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject kernel, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event)
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelSizesNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong kernel, jint work_dim, jlong global_work_offset0, jlong global_work_offset1, jlong global_work_offset2, jlong global_work_size0, jlong global_work_size1, jlong global_work_size2, jlong local_work_size0, jlong local_work_size1, jlong local_work_size2, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event)
 {
-    Logger::log(LOG_TRACE, "Executing clEnqueueTask\n");
-    if (clEnqueueTaskFP == NULL)
+    Logger::log(LOG_TRACE, "Executing clEnqueueNDRangeKernel\n");
+    if (clEnqueueNDRangeKernelFP == NULL)
     {
         ThrowByName(env, "java/lang/UnsupportedOperationException",
-            "The function clEnqueueTask is not supported");
+            "The function clEnqueueNDRangeKernel is not supported");
         return CL_INVALID_OPERATION;
     }
 
     // Native variables declaration
     cl_command_queue nativeCommand_queue = NULL;
     cl_kernel nativeKernel = NULL;
+    cl_uint nativeWork_dim = 0;
+    NDRangeSizes sizes;
     cl_uint nativeNum_events_in_wait_list = 0;
     cl_event *nativeEvent_wait_list = NULL;
     cl_event nativeEvent = NULL;
     cl_event *nativeEventPointer = NULL;
 
     // Obtain native variable values
-    if (command_queue != NULL)
-    {
-        nativeCommand_queue = (cl_command_queue)env->GetLongField(command_queue, NativePointerObject_nativePointer);
-    }
-    if (kernel != NULL)
-    {
-        nativeKernel = (cl_kernel)env->GetLongField(kernel, NativePointerObject_nativePointer);
-    }
+    nativeCommand_queue = (cl_command_queue)command_queue;
+    nativeKernel = (cl_kernel)kernel;
+    nativeWork_dim = (cl_uint)work_dim;
+    initNDRangeSizes(sizes, work_dim,
+        global_work_offset0, global_work_offset1, global_work_offset2,
+        global_work_size0, global_work_size1, global_work_size2,
+        local_work_size0, local_work_size1, local_work_size2);
     nativeNum_events_in_wait_list = (cl_uint)num_events_in_wait_list;
     if (event_wait_list != NULL)
     {
@@ -6145,7 +6849,7 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueTaskNative
         nativeEventPointer = &nativeEvent;
     }
 
-    int result = (clEnqueueTaskFP)(nativeCommand_queue, nativeKernel, nativeNum_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+    int result = (clEnqueueNDRangeKernelFP)(nativeCommand_queue, nativeKernel, nativeWork_dim, sizes.globalWorkOffsetPointer, sizes.globalWorkSize, sizes.localWorkSizePointer, nativeNum_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
 
     // Write back native variable values and clean up
     delete[] nativeEvent_wait_list;
@@ -6159,23 +6863,82 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueTaskNative
 
 /*
  * Class:     org_jocl_CL
- * Method:    clEnqueueNativeKernelNative
- * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/EnqueueNativeKernelFunction;Ljava/lang/Object;JI[Lorg/jocl/cl_mem;[Lorg/jocl/Pointer;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
+ * Method:    clEnqueueTaskNative
+ * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_kernel;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
  */
-JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNativeKernelNative
-  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject user_func, jobject args, jlong cb_args, jint num_mem_objects, jobjectArray mem_list, jobjectArray args_mem_loc, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event)
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueTaskNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject kernel, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event)
 {
-    Logger::log(LOG_TRACE, "Executing clEnqueueNativeKernel\n");
-    if (clEnqueueNativeKernelFP == NULL)
+    Logger::log(LOG_TRACE, "Executing clEnqueueTask\n");
+    if (clEnqueueTaskFP == NULL)
     {
         ThrowByName(env, "java/lang/UnsupportedOperationException",
-            "The function clEnqueueNativeKernel is not supported");
+            "The function clEnqueueTask is not supported");
         return CL_INVALID_OPERATION;
     }
 
     // Native variables declaration
     cl_command_queue nativeCommand_queue = NULL;
-    EnqueueNativeKernelFunctionPointer nativeUser_func = NULL;
+    cl_kernel nativeKernel = NULL;
+    cl_uint nativeNum_events_in_wait_list = 0;
+    cl_event *nativeEvent_wait_list = NULL;
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = NULL;
+
+    // Obtain native variable values
+    if (command_queue != NULL)
+    {
+        nativeCommand_queue = (cl_command_queue)env->GetLongField(command_queue, NativePointerObject_nativePointer);
+    }
+    if (kernel != NULL)
+    {
+        nativeKernel = (cl_kernel)env->GetLongField(kernel, NativePointerObject_nativePointer);
+    }
+    nativeNum_events_in_wait_list = (cl_uint)num_events_in_wait_list;
+    if (event_wait_list != NULL)
+    {
+        nativeEvent_wait_list = createEventList(env, event_wait_list, nativeNum_events_in_wait_list);
+        if (nativeEvent_wait_list == NULL)
+        {
+            return CL_OUT_OF_HOST_MEMORY;
+        }
+    }
+    if (event != NULL)
+    {
+        nativeEventPointer = &nativeEvent;
+    }
+
+    int result = (clEnqueueTaskFP)(nativeCommand_queue, nativeKernel, nativeNum_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    // Write back native variable values and clean up
+    delete[] nativeEvent_wait_list;
+    setNativePointer(env, event, (jlong)nativeEvent);
+
+    return result;
+}
+
+
+
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNativeKernelNative
+ * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/EnqueueNativeKernelFunction;Ljava/lang/Object;JI[Lorg/jocl/cl_mem;[Lorg/jocl/Pointer;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNativeKernelNative
+  (JNIEnv *env, jclass UNUSED(cls), jobject command_queue, jobject user_func, jobject args, jlong cb_args, jint num_mem_objects, jobjectArray mem_list, jobjectArray args_mem_loc, jint num_events_in_wait_list, jobjectArray event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueNativeKernel\n");
+    if (clEnqueueNativeKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueNativeKernel is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    // Native variables declaration
+    cl_command_queue nativeCommand_queue = NULL;
+    EnqueueNativeKernelFunctionPointer nativeUser_func = NULL;
     void *nativeArgs = NULL;
     size_t nativeCb_args = 0;
     cl_uint nativeNum_mem_objects = 0;
@@ -6388,6 +7151,319 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListNative
 }
 
 
+
+/**
+ * Returns the long value at the given index of the payload of a 
+ * record in the buffer of a CommandBatch
+ */
+static jlong commandBatchLong(char *payload, int index)
+{
+    jlong value = 0;
+    memcpy(&value, payload + index * sizeof(jlong), sizeof(jlong));
+    return value;
+}
+
+/**
+ * Returns the native pointer of the host memory for a read- or write
+ * command in a CommandBatch. This is the address of the direct buffer
+ * with the given index in the given array, plus the given byte offset.
+ * Returns NULL and throws an IllegalArgumentException if the address 
+ * of the buffer can not be obtained.
+ */
+static void* commandBatchHostPointer(JNIEnv *env, jobjectArray hostBuffers, jlong index, jlong byteOffset)
+{
+    jobject hostBuffer = env->GetObjectArrayElement(hostBuffers, (jsize)index);
+    if (env->ExceptionCheck())
+    {
+        return NULL;
+    }
+    char *address = (char*)env->GetDirectBufferAddress(hostBuffer);
+    env->DeleteLocalRef(hostBuffer);
+    if (address == NULL)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The host memory must be a direct buffer");
+        return NULL;
+    }
+    return (void*)(address + byteOffset);
+}
+
+/**
+ * Enqueue the command that is described by the given record of a 
+ * CommandBatch. The layout of the records is described in 
+ * CommandBatch.java. The given wait list contains the events of 
+ * the commands that the command has to wait for. If the given 
+ * event pointer is not NULL, it will receive the event of the 
+ * command. Returns the error code of the respective function.
+ */
+static cl_int enqueueCommandBatchRecord(JNIEnv *env, cl_command_queue commandQueue, 
+    jint opcode, char *payload, jobjectArray hostBuffers,
+    cl_uint numEvents, cl_event *eventWaitList, cl_event *event)
+{
+    switch (opcode)
+    {
+        case COMMAND_BATCH_OP_SET_KERNEL_ARGS:
+        {
+            cl_kernel kernel = (cl_kernel)commandBatchLong(payload, 0);
+            size_t argsSize = (size_t)commandBatchLong(payload, 1);
+            return setKernelArgs(kernel, payload + 2 * sizeof(jlong), argsSize);
+        }
+
+        case COMMAND_BATCH_OP_WRITE_BUFFER:
+        case COMMAND_BATCH_OP_READ_BUFFER:
+        {
+            cl_mem buffer = (cl_mem)commandBatchLong(payload, 0);
+            cl_bool blocking = commandBatchLong(payload, 1) != 0 ? CL_TRUE : CL_FALSE;
+            size_t offset = (size_t)commandBatchLong(payload, 2);
+            size_t cb = (size_t)commandBatchLong(payload, 3);
+            void *ptr = commandBatchHostPointer(env, hostBuffers,
+                commandBatchLong(payload, 4), commandBatchLong(payload, 5));
+            if (ptr == NULL)
+            {
+                return CL_INVALID_HOST_PTR;
+            }
+            if (opcode == COMMAND_BATCH_OP_WRITE_BUFFER)
+            {
+                if (clEnqueueWriteBufferFP == NULL)
+                {
+                    ThrowByName(env, "java/lang/UnsupportedOperationException",
+                        "The function clEnqueueWriteBuffer is not supported");
+                    return CL_INVALID_OPERATION;
+                }
+                return (clEnqueueWriteBufferFP)(commandQueue, buffer, blocking, offset, cb, ptr, numEvents, eventWaitList, event);
+            }
+            if (clEnqueueReadBufferFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueReadBuffer is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            return (clEnqueueReadBufferFP)(commandQueue, buffer, blocking, offset, cb, ptr, numEvents, eventWaitList, event);
+        }
+
+        case COMMAND_BATCH_OP_COPY_BUFFER:
+        {
+            if (clEnqueueCopyBufferFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueCopyBuffer is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            cl_mem srcBuffer = (cl_mem)commandBatchLong(payload, 0);
+            cl_mem dstBuffer = (cl_mem)commandBatchLong(payload, 1);
+            size_t srcOffset = (size_t)commandBatchLong(payload, 2);
+            size_t dstOffset = (size_t)commandBatchLong(payload, 3);
+            size_t cb = (size_t)commandBatchLong(payload, 4);
+            return (clEnqueueCopyBufferFP)(commandQueue, srcBuffer, dstBuffer, srcOffset, dstOffset, cb, numEvents, eventWaitList, event);
+        }
+
+        case COMMAND_BATCH_OP_FILL_BUFFER:
+        {
+            if (clEnqueueFillBufferFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueFillBuffer is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            cl_mem buffer = (cl_mem)commandBatchLong(payload, 0);
+            size_t offset = (size_t)commandBatchLong(payload, 1);
+            size_t size = (size_t)commandBatchLong(payload, 2);
+            size_t patternSize = (size_t)commandBatchLong(payload, 3);
+            void *pattern = (void*)(payload + 4 * sizeof(jlong));
+            return (clEnqueueFillBufferFP)(commandQueue, buffer, pattern, patternSize, offset, size, numEvents, eventWaitList, event);
+        }
+
+        case COMMAND_BATCH_OP_NDRANGE_KERNEL:
+        {
+            if (clEnqueueNDRangeKernelFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueNDRangeKernel is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            cl_kernel kernel = (cl_kernel)commandBatchLong(payload, 0);
+            jint workDim = (jint)commandBatchLong(payload, 1);
+            NDRangeSizes sizes;
+            initNDRangeSizes(sizes, workDim,
+                commandBatchLong(payload, 2), commandBatchLong(payload, 3), commandBatchLong(payload, 4),
+                commandBatchLong(payload, 5), commandBatchLong(payload, 6), commandBatchLong(payload, 7),
+                commandBatchLong(payload, 8), commandBatchLong(payload, 9), commandBatchLong(payload, 10));
+            return (clEnqueueNDRangeKernelFP)(commandQueue, kernel, (cl_uint)workDim,
+                sizes.globalWorkOffsetPointer, sizes.globalWorkSize,
+                sizes.localWorkSizePointer, numEvents, eventWaitList, event);
+        }
+
+        case COMMAND_BATCH_OP_MARKER:
+        {
+            if (clEnqueueMarkerWithWaitListFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueMarkerWithWaitList is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            return (clEnqueueMarkerWithWaitListFP)(commandQueue, numEvents, eventWaitList, event);
+        }
+
+        case COMMAND_BATCH_OP_BARRIER:
+        {
+            if (clEnqueueBarrierWithWaitListFP == NULL)
+            {
+                ThrowByName(env, "java/lang/UnsupportedOperationException",
+                    "The function clEnqueueBarrierWithWaitList is not supported");
+                return CL_INVALID_OPERATION;
+            }
+            return (clEnqueueBarrierWithWaitListFP)(commandQueue, numEvents, eventWaitList, event);
+        }
+    }
+    Logger::log(LOG_ERROR, "Invalid command batch opcode: %d\n", (int)opcode);
+    return CL_INVALID_VALUE;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCommandBatchNative
+ * Signature: (JLjava/nio/ByteBuffer;II[Ljava/lang/Object;Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCommandBatchNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jobject commands, jint commands_size, jint num_commands, jobjectArray host_buffers, jobject results)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueCommandBatch\n");
+
+    char *data = (char*)env->GetDirectBufferAddress(commands);
+    char *resultData = (char*)env->GetDirectBufferAddress(results);
+    if (data == NULL || resultData == NULL)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The command batch must be stored in direct buffers");
+        return CL_INVALID_HOST_PTR;
+    }
+    cl_command_queue nativeCommand_queue = (cl_command_queue)command_queue;
+
+    // The events of all commands, as they are also written into
+    // the results. These are needed for building the wait lists
+    cl_event *events = new cl_event[num_commands > 0 ? num_commands : 1];
+    if (events == NULL)
+    {
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory while enqueueing command batch");
+        return CL_OUT_OF_HOST_MEMORY;
+    }
+    jint *flags = new jint[num_commands > 0 ? num_commands : 1];
+    if (flags == NULL)
+    {
+        delete[] events;
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory while enqueueing command batch");
+        return CL_OUT_OF_HOST_MEMORY;
+    }
+
+    cl_int result = CL_SUCCESS;
+    size_t position = 0;
+    int executed = 0;
+    for (int i = 0; i < num_commands; i++)
+    {
+        if (position + COMMAND_BATCH_HEADER_SIZE > (size_t)commands_size)
+        {
+            Logger::log(LOG_ERROR, "Invalid command batch size: %d\n", (int)commands_size);
+            result = CL_INVALID_VALUE;
+            break;
+        }
+        char *record = data + position;
+        jint opcode = 0;
+        jint recordSize = 0;
+        jint numWaitCommands = 0;
+        memcpy(&opcode, record, sizeof(jint));
+        memcpy(&recordSize, record + 4, sizeof(jint));
+        memcpy(&flags[i], record + 8, sizeof(jint));
+        memcpy(&numWaitCommands, record + 12, sizeof(jint));
+        char *payload = record + COMMAND_BATCH_HEADER_SIZE +
+            ((numWaitCommands * sizeof(jint) + 7) & ~((size_t)7));
+        events[i] = NULL;
+
+        if (opcode == COMMAND_BATCH_OP_EVENT)
+        {
+            // Existing events are not owned by the batch, and thus,
+            // they must never be released here
+            events[i] = (cl_event)commandBatchLong(payload, 0);
+            flags[i] = 0;
+            result = CL_SUCCESS;
+        }
+        else
+        {
+            // Build the wait list from the events of previous commands
+            cl_event stackWaitList[COMMAND_BATCH_MAX_STACK_EVENTS];
+            cl_event *waitList = NULL;
+            if (numWaitCommands > COMMAND_BATCH_MAX_STACK_EVENTS)
+            {
+                waitList = new cl_event[numWaitCommands];
+                if (waitList == NULL)
+                {
+                    ThrowByName(env, "java/lang/OutOfMemoryError",
+                        "Out of memory while enqueueing command batch");
+                    result = CL_OUT_OF_HOST_MEMORY;
+                    break;
+                }
+            }
+            else if (numWaitCommands > 0)
+            {
+                waitList = stackWaitList;
+            }
+            for (int w = 0; w < numWaitCommands; w++)
+            {
+                jint waitCommand = 0;
+                memcpy(&waitCommand, record + COMMAND_BATCH_HEADER_SIZE + w * sizeof(jint), sizeof(jint));
+                waitList[w] = events[waitCommand];
+            }
+
+            cl_event *eventPointer = flags[i] != 0 ? &events[i] : NULL;
+            result = enqueueCommandBatchRecord(env, nativeCommand_queue, opcode, payload,
+                host_buffers, (cl_uint)numWaitCommands, waitList, eventPointer);
+            if (waitList != stackWaitList)
+            {
+                delete[] waitList;
+            }
+        }
+
+        jlong eventValue = (jlong)events[i];
+        memcpy(resultData + i * COMMAND_BATCH_RESULT_SIZE, &eventValue, sizeof(jlong));
+        memcpy(resultData + i * COMMAND_BATCH_RESULT_SIZE + 8, &result, sizeof(jint));
+        executed = i + 1;
+        if (result != CL_SUCCESS || env->ExceptionCheck())
+        {
+            break;
+        }
+        position += (size_t)recordSize;
+    }
+
+    // Mark the remaining commands as not executed
+    jint notExecuted = COMMAND_BATCH_NOT_EXECUTED;
+    for (int i = executed; i < num_commands; i++)
+    {
+        jlong eventValue = 0;
+        memcpy(resultData + i * COMMAND_BATCH_RESULT_SIZE, &eventValue, sizeof(jlong));
+        memcpy(resultData + i * COMMAND_BATCH_RESULT_SIZE + 8, &notExecuted, sizeof(jint));
+    }
+
+    // Release the events that have only been created for the
+    // wait lists of other commands
+    for (int i = 0; i < executed; i++)
+    {
+        if (flags[i] == COMMAND_BATCH_FLAG_INTERNAL_EVENT && events[i] != NULL)
+        {
+            if (clReleaseEventFP != NULL)
+            {
+                (clReleaseEventFP)(events[i]);
+            }
+            jlong eventValue = 0;
+            memcpy(resultData + i * COMMAND_BATCH_RESULT_SIZE, &eventValue, sizeof(jlong));
+        }
+    }
+    delete[] events;
+    delete[] flags;
+    return result;
+}
+
+
 //#endif // defined(CL_VERSION_1_2)
 
 
@@ -7696,6 +8772,11 @@ void registerAllNatives(JNIEnv *env, jclass cls)
     nativeMethod.signature = "(Lorg/jocl/cl_program;I[Lorg/jocl/cl_kernel;[I)I";
     env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clCloneKernelNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clCloneKernelNative;
+    nativeMethod.signature = "(Lorg/jocl/cl_kernel;[I)Lorg/jocl/cl_kernel;";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
     nativeMethod.name = "clRetainKernelNative";
     nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clRetainKernelNative;
     nativeMethod.signature = "(Lorg/jocl/cl_kernel;)I";
@@ -7711,6 +8792,41 @@ void registerAllNatives(JNIEnv *env, jclass cls)
     nativeMethod.signature = "(Lorg/jocl/cl_kernel;IJLorg/jocl/Pointer;)I";
     env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clSetKernelArgsNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgsNative;
+    nativeMethod.signature = "(JLjava/nio/ByteBuffer;I)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgIntNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgIntNative;
+    nativeMethod.signature = "(JII)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgLongNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgLongNative;
+    nativeMethod.signature = "(JIJ)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgFloatNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgFloatNative;
+    nativeMethod.signature = "(JIF)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgDoubleNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgDoubleNative;
+    nativeMethod.signature = "(JID)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgHandleNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgHandleNative;
+    nativeMethod.signature = "(JIJ)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clSetKernelArgLocalNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgLocalNative;
+    nativeMethod.signature = "(JIJ)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
     nativeMethod.name = "clSetKernelArgSVMPointerNative";
     nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetKernelArgSVMPointerNative;
     nativeMethod.signature = "(Lorg/jocl/cl_kernel;ILorg/jocl/Pointer;)I";
@@ -7771,6 +8887,11 @@ void registerAllNatives(JNIEnv *env, jclass cls)
     nativeMethod.signature = "(Lorg/jocl/cl_event;ILorg/jocl/EventCallbackFunction;Ljava/lang/Object;)I";
     env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clSetEventCallbackRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetEventCallbackRawNative;
+    nativeMethod.signature = "(JILorg/jocl/EventCallbackFunction;Ljava/lang/Object;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
     nativeMethod.name = "clGetEventProfilingInfoNative";
     nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clGetEventProfilingInfoNative;
     nativeMethod.signature = "(Lorg/jocl/cl_event;IJLorg/jocl/Pointer;[J)I";
@@ -7876,6 +8997,11 @@ void registerAllNatives(JNIEnv *env, jclass cls)
     nativeMethod.signature = "(Lorg/jocl/cl_command_queue;Lorg/jocl/cl_kernel;I[J[J[JI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I";
     env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clEnqueueNDRangeKernelSizesNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueNDRangeKernelSizesNative;
+    nativeMethod.signature = "(JJIJJJJJJJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
     nativeMethod.name = "clEnqueueTaskNative";
     nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueTaskNative;
     nativeMethod.signature = "(Lorg/jocl/cl_command_queue;Lorg/jocl/cl_kernel;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I";
@@ -7896,6 +9022,11 @@ void registerAllNatives(JNIEnv *env, jclass cls)
     nativeMethod.signature = "(Lorg/jocl/cl_command_queue;I[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I";
     env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clEnqueueCommandBatchNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueCommandBatchNative;
+    nativeMethod.signature = "(JLjava/nio/ByteBuffer;II[Ljava/lang/Object;Ljava/nio/ByteBuffer;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
     nativeMethod.name = "clSetPrintfCallbackNative";
     nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clSetPrintfCallbackNative;
     nativeMethod.signature = "(Lorg/jocl/cl_context;Lorg/jocl/PrintfCallbackFunction;Ljava/lang/Object;)I";
@@ -8012,6 +9143,146 @@ nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clGetGLContextInfoAPPLENative;
 nativeMethod.signature = "(Lorg/jocl/cl_context;JIJLorg/jocl/Pointer;[J)I";
 env->RegisterNatives(cls, &nativeMethod, 1);
 
+    nativeMethod.name = "clEnqueueNDRangeKernelRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueNDRangeKernelRawNative;
+    nativeMethod.signature = "(JJIJJJJJJJJJI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueWriteBufferRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueWriteBufferRawNative;
+    nativeMethod.signature = "(JJZJJLjava/nio/Buffer;JI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueReadBufferRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueReadBufferRawNative;
+    nativeMethod.signature = "(JJZJJLjava/nio/Buffer;JI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueCopyBufferRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueCopyBufferRawNative;
+    nativeMethod.signature = "(JJJJJJI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueMarkerWithWaitListRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueMarkerWithWaitListRawNative;
+    nativeMethod.signature = "(JI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueBarrierWithWaitListRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueBarrierWithWaitListRawNative;
+    nativeMethod.signature = "(JI[J[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clWaitForEventsRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clWaitForEventsRawNative;
+    nativeMethod.signature = "(I[J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clFlushRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clFlushRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clFinishRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clFinishRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clRetainEventRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clRetainEventRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clReleaseEventRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clReleaseEventRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clRetainMemObjectRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clRetainMemObjectRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clReleaseMemObjectRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clReleaseMemObjectRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clRetainKernelRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clRetainKernelRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clReleaseKernelRawNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clReleaseKernelRawNative;
+    nativeMethod.signature = "(J)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueNDRangeKernelEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueNDRangeKernelEventListNative;
+    nativeMethod.signature = "(JJIJJJJJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueWriteBufferEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueWriteBufferEventListNative;
+    nativeMethod.signature = "(JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueReadBufferEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueReadBufferEventListNative;
+    nativeMethod.signature = "(JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueCopyBufferEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueCopyBufferEventListNative;
+    nativeMethod.signature = "(JJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueMarkerWithWaitListEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueMarkerWithWaitListEventListNative;
+    nativeMethod.signature = "(JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueBarrierWithWaitListEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueBarrierWithWaitListEventListNative;
+    nativeMethod.signature = "(JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clWaitForEventsEventListNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clWaitForEventsEventListNative;
+    nativeMethod.signature = "(ILjava/nio/LongBuffer;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "allocateAlignedMemoryNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_allocateAlignedMemoryNative;
+    nativeMethod.signature = "(JJ[J)Ljava/nio/ByteBuffer;";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "freeAlignedMemoryNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_freeAlignedMemoryNative;
+    nativeMethod.signature = "(J)V";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "getPageSizeNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_getPageSizeNative;
+    nativeMethod.signature = "()J";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "releaseScopeNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_releaseScopeNative;
+    nativeMethod.signature = "(I[I[J[J[Ljava/nio/ByteBuffer;)I";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "clEnqueueMapBufferAddressNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_clEnqueueMapBufferAddressNative;
+    nativeMethod.signature = "(Lorg/jocl/cl_command_queue;Lorg/jocl/cl_mem;ZJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;[I)J";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
+    nativeMethod.name = "createDirectByteBufferNative";
+    nativeMethod.fnPtr = (void*)Java_org_jocl_CL_createDirectByteBufferNative;
+    nativeMethod.signature = "(JJ)Ljava/nio/ByteBuffer;";
+    env->RegisterNatives(cls, &nativeMethod, 1);
+
 }
 
 //===========================================================================
@@ -8114,6 +9385,1027 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clGetGLContextInfoKHRNative
 }
 */
 
+
+
+
+//============================================================================
+// Functions for the raw-handle API in CLRaw.java. These functions
+// receive the handles of OpenCL objects as jlong values, and wait 
+// lists and output events as jlongArrays, so that no Java objects
+// have to be created or inspected for the handles.
+
+// The maximum number of events in a wait list that is stored on
+// the stack. Longer wait lists are allocated with new[]
+#define RAW_MAX_STACK_EVENTS 16
+
+/**
+ * Fill the given event list with the event handles from the given
+ * array, which must contain at least the given number of elements.
+ * If the number of events is not larger than RAW_MAX_STACK_EVENTS,
+ * the given stack array will be filled and returned. Otherwise, a
+ * new array will be allocated, which has to be deleted by the caller
+ * if it is not equal to the stack array. Returns NULL if the given 
+ * array is NULL or the number of events is 0. Returns NULL and sets
+ * 'error' to a nonzero value if an error occurred.
+ */
+static cl_event* createRawEventList(JNIEnv *env, jlongArray eventWaitList, cl_uint numEvents, cl_event *stackEvents, int *error)
+{
+    *error = 0;
+    if (eventWaitList == NULL || numEvents == 0)
+    {
+        return NULL;
+    }
+    if (env->GetArrayLength(eventWaitList) < (jsize)numEvents)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The event wait list contains less than num_events_in_wait_list elements");
+        *error = 1;
+        return NULL;
+    }
+    cl_event *events = stackEvents;
+    if (numEvents > RAW_MAX_STACK_EVENTS)
+    {
+        events = new cl_event[numEvents];
+        if (events == NULL)
+        {
+            ThrowByName(env, "java/lang/OutOfMemoryError",
+                "Out of memory during event array creation");
+            *error = 1;
+            return NULL;
+        }
+    }
+    jlong stackHandles[RAW_MAX_STACK_EVENTS];
+    jlong *handles = stackHandles;
+    if (numEvents > RAW_MAX_STACK_EVENTS)
+    {
+        handles = new jlong[numEvents];
+        if (handles == NULL)
+        {
+            delete[] events;
+            ThrowByName(env, "java/lang/OutOfMemoryError",
+                "Out of memory during event array creation");
+            *error = 1;
+            return NULL;
+        }
+    }
+    env->GetLongArrayRegion(eventWaitList, 0, (jsize)numEvents, handles);
+    for (cl_uint i=0; i<numEvents; i++)
+    {
+        events[i] = (cl_event)handles[i];
+    }
+    if (handles != stackHandles)
+    {
+        delete[] handles;
+    }
+    return events;
+}
+
+/**
+ * Delete the given event list if it is not equal to the given
+ * stack array
+ */
+static void deleteRawEventList(cl_event *events, cl_event *stackEvents)
+{
+    if (events != stackEvents)
+    {
+        delete[] events;
+    }
+}
+
+/**
+ * Write the given event handle into the first element of the 
+ * given array, if the array is not NULL
+ */
+static void setRawEvent(JNIEnv *env, jlongArray event, cl_event nativeEvent)
+{
+    if (event != NULL)
+    {
+        jlong handle = (jlong)nativeEvent;
+        env->SetLongArrayRegion(event, 0, 1, &handle);
+    }
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNDRangeKernelRawNative
+ * Signature: (JJIJJJJJJJJJI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong kernel, jint work_dim, jlong global_work_offset0, jlong global_work_offset1, jlong global_work_offset2, jlong global_work_size0, jlong global_work_size1, jlong global_work_size2, jlong local_work_size0, jlong local_work_size1, jlong local_work_size2, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueNDRangeKernel (raw)\n");
+    if (clEnqueueNDRangeKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueNDRangeKernel is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    NDRangeSizes sizes;
+    initNDRangeSizes(sizes, work_dim,
+        global_work_offset0, global_work_offset1, global_work_offset2,
+        global_work_size0, global_work_size1, global_work_size2,
+        local_work_size0, local_work_size1, local_work_size2);
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueNDRangeKernelFP)((cl_command_queue)command_queue, (cl_kernel)kernel, (cl_uint)work_dim, sizes.globalWorkOffsetPointer, sizes.globalWorkSize, sizes.localWorkSizePointer, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueWriteBufferRawNative
+ * Signature: (JJZJJLjava/nio/Buffer;JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueWriteBufferRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong buffer, jboolean blocking_write, jlong offset, jlong cb, jobject ptr, jlong ptr_offset, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueWriteBuffer (raw)\n");
+    if (clEnqueueWriteBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueWriteBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    char *address = (char*)env->GetDirectBufferAddress(ptr);
+    if (address == NULL)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The host memory must be a direct buffer");
+        return CL_INVALID_HOST_PTR;
+    }
+    void *nativePtr = (void*)(address + ptr_offset);
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueWriteBufferFP)((cl_command_queue)command_queue, (cl_mem)buffer, blocking_write ? CL_TRUE : CL_FALSE, (size_t)offset, (size_t)cb, nativePtr, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueReadBufferRawNative
+ * Signature: (JJZJJLjava/nio/Buffer;JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueReadBufferRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong buffer, jboolean blocking_read, jlong offset, jlong cb, jobject ptr, jlong ptr_offset, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueReadBuffer (raw)\n");
+    if (clEnqueueReadBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueReadBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    char *address = (char*)env->GetDirectBufferAddress(ptr);
+    if (address == NULL)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The host memory must be a direct buffer");
+        return CL_INVALID_HOST_PTR;
+    }
+    void *nativePtr = (void*)(address + ptr_offset);
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueReadBufferFP)((cl_command_queue)command_queue, (cl_mem)buffer, blocking_read ? CL_TRUE : CL_FALSE, (size_t)offset, (size_t)cb, nativePtr, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCopyBufferRawNative
+ * Signature: (JJJJJJI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCopyBufferRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong src_buffer, jlong dst_buffer, jlong src_offset, jlong dst_offset, jlong cb, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueCopyBuffer (raw)\n");
+    if (clEnqueueCopyBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueCopyBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueCopyBufferFP)((cl_command_queue)command_queue, (cl_mem)src_buffer, (cl_mem)dst_buffer, (size_t)src_offset, (size_t)dst_offset, (size_t)cb, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMarkerWithWaitListRawNative
+ * Signature: (JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMarkerWithWaitListRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueMarkerWithWaitList (raw)\n");
+    if (clEnqueueMarkerWithWaitListFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueMarkerWithWaitList is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueMarkerWithWaitListFP)((cl_command_queue)command_queue, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueBarrierWithWaitListRawNative
+ * Signature: (JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jint num_events_in_wait_list, jlongArray event_wait_list, jlongArray event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueBarrierWithWaitList (raw)\n");
+    if (clEnqueueBarrierWithWaitListFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueBarrierWithWaitList is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_wait_list = createRawEventList(env, event_wait_list, (cl_uint)num_events_in_wait_list, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueBarrierWithWaitListFP)((cl_command_queue)command_queue, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    deleteRawEventList(nativeEvent_wait_list, stackEvents);
+    setRawEvent(env, event, nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clWaitForEventsRawNative
+ * Signature: (I[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clWaitForEventsRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jint num_events, jlongArray event_list)
+{
+    Logger::log(LOG_TRACE, "Executing clWaitForEvents (raw)\n");
+    if (clWaitForEventsFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clWaitForEvents is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    cl_event stackEvents[RAW_MAX_STACK_EVENTS];
+    int error = 0;
+    cl_event *nativeEvent_list = createRawEventList(env, event_list, (cl_uint)num_events, stackEvents, &error);
+    if (error != 0)
+    {
+        return CL_INVALID_EVENT;
+    }
+
+    int result = (clWaitForEventsFP)((cl_uint)num_events, nativeEvent_list);
+
+    deleteRawEventList(nativeEvent_list, stackEvents);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clFlushRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clFlushRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue)
+{
+    Logger::log(LOG_TRACE, "Executing clFlush (raw)\n");
+    if (clFlushFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clFlush is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clFlushFP)((cl_command_queue)command_queue);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clFinishRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clFinishRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue)
+{
+    Logger::log(LOG_TRACE, "Executing clFinish (raw)\n");
+    if (clFinishFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clFinish is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clFinishFP)((cl_command_queue)command_queue);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainEventRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainEventRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong event)
+{
+    Logger::log(LOG_TRACE, "Executing clRetainEvent (raw)\n");
+    if (clRetainEventFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clRetainEvent is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clRetainEventFP)((cl_event)event);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseEventRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseEventRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong event)
+{
+    Logger::log(LOG_TRACE, "Executing clReleaseEvent (raw)\n");
+    if (clReleaseEventFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clReleaseEvent is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clReleaseEventFP)((cl_event)event);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainMemObjectRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainMemObjectRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong memobj)
+{
+    Logger::log(LOG_TRACE, "Executing clRetainMemObject (raw)\n");
+    if (clRetainMemObjectFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clRetainMemObject is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clRetainMemObjectFP)((cl_mem)memobj);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseMemObjectRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseMemObjectRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong memobj)
+{
+    Logger::log(LOG_TRACE, "Executing clReleaseMemObject (raw)\n");
+    if (clReleaseMemObjectFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clReleaseMemObject is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clReleaseMemObjectFP)((cl_mem)memobj);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainKernelRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainKernelRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel)
+{
+    Logger::log(LOG_TRACE, "Executing clRetainKernel (raw)\n");
+    if (clRetainKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clRetainKernel is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clRetainKernelFP)((cl_kernel)kernel);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseKernelRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseKernelRawNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong kernel)
+{
+    Logger::log(LOG_TRACE, "Executing clReleaseKernel (raw)\n");
+    if (clReleaseKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clReleaseKernel is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    return (clReleaseKernelFP)((cl_kernel)kernel);
+}
+
+
+
+//============================================================================
+// Functions that receive wait lists from EventList objects. The
+// event handles of an EventList are stored in a direct LongBuffer,
+// which is passed to OpenCL directly when the size of a cl_event
+// is the same as the size of a jlong.
+
+/**
+ * Returns a pointer to the events that are stored in the given direct
+ * buffer of an EventList. If the size of a cl_event is the size of a 
+ * jlong, this is the address of the buffer. Otherwise, a new array 
+ * containing the given number of events is created, and 'allocated' 
+ * is set to true. Returns NULL if the given buffer is NULL or the 
+ * number of events is 0. Returns NULL and sets 'error' to true and
+ * throws an exception if the address of the buffer can not be obtained
+ * or the array can not be allocated.
+ */
+static cl_event* getEventListEvents(JNIEnv *env, jobject eventList, cl_uint numEvents, bool *allocated, bool *error)
+{
+    *allocated = false;
+    *error = false;
+    if (eventList == NULL || numEvents == 0)
+    {
+        return NULL;
+    }
+    jlong *handles = (jlong*)env->GetDirectBufferAddress(eventList);
+    if (handles == NULL)
+    {
+        ThrowByName(env, "java/lang/IllegalArgumentException",
+            "The event list must be stored in a direct buffer");
+        *error = true;
+        return NULL;
+    }
+    if (sizeof(cl_event) == sizeof(jlong))
+    {
+        return (cl_event*)handles;
+    }
+    cl_event *events = new cl_event[numEvents];
+    if (events == NULL)
+    {
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory during event array creation");
+        *error = true;
+        return NULL;
+    }
+    for (cl_uint i=0; i<numEvents; i++)
+    {
+        events[i] = (cl_event)(size_t)handles[i];
+    }
+    *allocated = true;
+    return events;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNDRangeKernelEventListNative
+ * Signature: (JJIJJJJJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong kernel, jint work_dim, jlong global_work_offset0, jlong global_work_offset1, jlong global_work_offset2, jlong global_work_size0, jlong global_work_size1, jlong global_work_size2, jlong local_work_size0, jlong local_work_size1, jlong local_work_size2, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueNDRangeKernel\n");
+    if (clEnqueueNDRangeKernelFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueNDRangeKernel is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    NDRangeSizes sizes;
+    initNDRangeSizes(sizes, work_dim,
+        global_work_offset0, global_work_offset1, global_work_offset2,
+        global_work_size0, global_work_size1, global_work_size2,
+        local_work_size0, local_work_size1, local_work_size2);
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueNDRangeKernelFP)((cl_command_queue)command_queue, (cl_kernel)kernel, (cl_uint)work_dim, sizes.globalWorkOffsetPointer, sizes.globalWorkSize, sizes.localWorkSizePointer, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueWriteBufferEventListNative
+ * Signature: (JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueWriteBufferEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong buffer, jboolean blocking_write, jlong offset, jlong cb, jobject ptr, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueWriteBuffer\n");
+    if (clEnqueueWriteBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueWriteBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+    PointerData *ptrPointerData = initPointerData(env, ptr);
+    if (ptrPointerData == NULL)
+    {
+        if (allocated)
+        {
+            delete[] nativeEvent_wait_list;
+        }
+        return CL_INVALID_HOST_PTR;
+    }
+
+    int result = (clEnqueueWriteBufferFP)((cl_command_queue)command_queue, (cl_mem)buffer, (cl_bool)blocking_write, (size_t)offset, (size_t)cb, (void*)ptrPointerData->pointer, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    if (!releasePointerData(env, ptrPointerData, JNI_ABORT)) return CL_INVALID_HOST_PTR;
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueReadBufferEventListNative
+ * Signature: (JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueReadBufferEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong buffer, jboolean blocking_read, jlong offset, jlong cb, jobject ptr, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueReadBuffer\n");
+    if (clEnqueueReadBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueReadBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+    PointerData *ptrPointerData = initPointerData(env, ptr);
+    if (ptrPointerData == NULL)
+    {
+        if (allocated)
+        {
+            delete[] nativeEvent_wait_list;
+        }
+        return CL_INVALID_HOST_PTR;
+    }
+
+    int result = (clEnqueueReadBufferFP)((cl_command_queue)command_queue, (cl_mem)buffer, (cl_bool)blocking_read, (size_t)offset, (size_t)cb, (void*)ptrPointerData->pointer, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    // See notes about NON_BLOCKING_READ at end of file
+    if (!releasePointerData(env, ptrPointerData)) return CL_INVALID_HOST_PTR;
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCopyBufferEventListNative
+ * Signature: (JJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCopyBufferEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jlong src_buffer, jlong dst_buffer, jlong src_offset, jlong dst_offset, jlong cb, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueCopyBuffer\n");
+    if (clEnqueueCopyBufferFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueCopyBuffer is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueCopyBufferFP)((cl_command_queue)command_queue, (cl_mem)src_buffer, (cl_mem)dst_buffer, (size_t)src_offset, (size_t)dst_offset, (size_t)cb, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMarkerWithWaitListEventListNative
+ * Signature: (JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMarkerWithWaitListEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueMarkerWithWaitList\n");
+    if (clEnqueueMarkerWithWaitListFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueMarkerWithWaitList is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueMarkerWithWaitListFP)((cl_command_queue)command_queue, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueBarrierWithWaitListEventListNative
+ * Signature: (JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong command_queue, jint num_events_in_wait_list, jobject event_wait_list, jobject event)
+{
+    Logger::log(LOG_TRACE, "Executing clEnqueueBarrierWithWaitList\n");
+    if (clEnqueueBarrierWithWaitListFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clEnqueueBarrierWithWaitList is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_wait_list = getEventListEvents(env, event_wait_list, (cl_uint)num_events_in_wait_list, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT_WAIT_LIST;
+    }
+    cl_event nativeEvent = NULL;
+    cl_event *nativeEventPointer = event != NULL ? &nativeEvent : NULL;
+
+    int result = (clEnqueueBarrierWithWaitListFP)((cl_command_queue)command_queue, (cl_uint)num_events_in_wait_list, nativeEvent_wait_list, nativeEventPointer);
+
+    if (allocated)
+    {
+        delete[] nativeEvent_wait_list;
+    }
+    setNativePointer(env, event, (jlong)nativeEvent);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clWaitForEventsEventListNative
+ * Signature: (ILjava/nio/LongBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clWaitForEventsEventListNative
+  (JNIEnv *env, jclass UNUSED(cls), jint num_events, jobject event_list)
+{
+    Logger::log(LOG_TRACE, "Executing clWaitForEvents\n");
+    if (clWaitForEventsFP == NULL)
+    {
+        ThrowByName(env, "java/lang/UnsupportedOperationException",
+            "The function clWaitForEvents is not supported");
+        return CL_INVALID_OPERATION;
+    }
+
+    bool allocated = false;
+    bool error = false;
+    cl_event *nativeEvent_list = getEventListEvents(env, event_list, (cl_uint)num_events, &allocated, &error);
+    if (error)
+    {
+        return CL_INVALID_EVENT;
+    }
+
+    int result = (clWaitForEventsFP)((cl_uint)num_events, nativeEvent_list);
+
+    if (allocated)
+    {
+        delete[] nativeEvent_list;
+    }
+    return result;
+}
+
+/**
+ * Free the given memory that was allocated with _aligned_malloc
+ * or posix_memalign, respectively
+ */
+static void freeAlignedMemory(void *memory)
+{
+#ifdef _WIN32
+    _aligned_free(memory);
+#else
+    free(memory);
+#endif
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    allocateAlignedMemoryNative
+ * Signature: (JJ[J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_allocateAlignedMemoryNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong size, jlong alignment, jlongArray address)
+{
+    Logger::log(LOG_TRACE, "Executing allocateAlignedMemory\n");
+
+    void *memory = NULL;
+#ifdef _WIN32
+    memory = _aligned_malloc((size_t)size, (size_t)alignment);
+#else
+    if (posix_memalign(&memory, (size_t)alignment, (size_t)size) != 0)
+    {
+        memory = NULL;
+    }
+#endif
+    if (memory == NULL)
+    {
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory while allocating aligned memory");
+        return NULL;
+    }
+    memset(memory, 0, (size_t)size);
+
+    jobject result = env->NewDirectByteBuffer(memory, size);
+    if (result == NULL)
+    {
+        freeAlignedMemory(memory);
+        return NULL;
+    }
+    jlong nativeAddress = (jlong)memory;
+    env->SetLongArrayRegion(address, 0, 1, &nativeAddress);
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    freeAlignedMemoryNative
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_jocl_CL_freeAlignedMemoryNative
+  (JNIEnv *UNUSED(env), jclass UNUSED(cls), jlong address)
+{
+    Logger::log(LOG_TRACE, "Executing freeAlignedMemory\n");
+
+    freeAlignedMemory((void*)address);
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    getPageSizeNative
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_org_jocl_CL_getPageSizeNative
+  (JNIEnv *UNUSED(env), jclass UNUSED(cls))
+{
+#ifdef _WIN32
+    SYSTEM_INFO systemInfo;
+    GetSystemInfo(&systemInfo);
+    return (jlong)systemInfo.dwPageSize;
+#else
+    return (jlong)sysconf(_SC_PAGESIZE);
+#endif
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    releaseScopeNative
+ * Signature: (I[I[J[J[Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_releaseScopeNative
+  (JNIEnv *env, jclass UNUSED(cls), jint count, jintArray types, jlongArray handles, jlongArray queues, jobjectArray buffers)
+{
+    Logger::log(LOG_TRACE, "Executing releaseScope\n");
+
+    jint *nativeTypes = new (std::nothrow) jint[count];
+    jlong *nativeHandles = new (std::nothrow) jlong[count];
+    jlong *nativeQueues = new (std::nothrow) jlong[count];
+    if (nativeTypes == NULL || nativeHandles == NULL || nativeQueues == NULL)
+    {
+        delete[] nativeTypes;
+        delete[] nativeHandles;
+        delete[] nativeQueues;
+        ThrowByName(env, "java/lang/OutOfMemoryError",
+            "Out of memory while releasing scope");
+        return CL_OUT_OF_HOST_MEMORY;
+    }
+    env->GetIntArrayRegion(types, 0, count, nativeTypes);
+    env->GetLongArrayRegion(handles, 0, count, nativeHandles);
+    env->GetLongArrayRegion(queues, 0, count, nativeQueues);
+
+    // Release the entries in reverse order, and continue after errors,
+    // so that all entries are released. The first error is returned.
+    cl_int result = CL_SUCCESS;
+    for (jint i = count - 1; i >= 0; i--)
+    {
+        jlong handle = nativeHandles[i];
+        if (handle == 0)
+        {
+            continue;
+        }
+        cl_int entryResult = CL_SUCCESS;
+        switch (nativeTypes[i])
+        {
+            case RESOURCE_SCOPE_TYPE_MEM:
+                entryResult = clReleaseMemObjectFP == NULL ? CL_INVALID_OPERATION : (clReleaseMemObjectFP)((cl_mem)handle);
+                break;
+
+            case RESOURCE_SCOPE_TYPE_KERNEL:
+                entryResult = clReleaseKernelFP == NULL ? CL_INVALID_OPERATION : (clReleaseKernelFP)((cl_kernel)handle);
+                break;
+
+            case RESOURCE_SCOPE_TYPE_PROGRAM:
+                entryResult = clReleaseProgramFP == NULL ? CL_INVALID_OPERATION : (clReleaseProgramFP)((cl_program)handle);
+                break;
+
+            case RESOURCE_SCOPE_TYPE_EVENT:
+                entryResult = clReleaseEventFP == NULL ? CL_INVALID_OPERATION : (clReleaseEventFP)((cl_event)handle);
+                break;
+
+            case RESOURCE_SCOPE_TYPE_SAMPLER:
+                entryResult = clReleaseSamplerFP == NULL ? CL_INVALID_OPERATION : (clReleaseSamplerFP)((cl_sampler)handle);
+                break;
+
+            case RESOURCE_SCOPE_TYPE_MAPPED:
+            {
+                if (clEnqueueUnmapMemObjectFP == NULL)
+                {
+                    entryResult = CL_INVALID_OPERATION;
+                    break;
+                }
+                jobject buffer = env->GetObjectArrayElement(buffers, i);
+                void *mappedPointer = buffer == NULL ? NULL : env->GetDirectBufferAddress(buffer);
+                env->DeleteLocalRef(buffer);
+                entryResult = (clEnqueueUnmapMemObjectFP)((cl_command_queue)nativeQueues[i], (cl_mem)handle, mappedPointer, 0, NULL, NULL);
+                break;
+            }
+
+            default:
+                entryResult = CL_INVALID_VALUE;
+                break;
+        }
+        if (entryResult != CL_SUCCESS)
+        {
+            Logger::log(LOG_ERROR, "Could not release scope entry %d: %d\n", (int)i, (int)entryResult);
+            if (result == CL_SUCCESS)
+            {
+                result = entryResult;
+            }
+        }
+    }
+    delete[] nativeTypes;
+    delete[] nativeHandles;
+    delete[] nativeQueues;
+    return result;
+}
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    createDirectByteBufferNative
+ * Signature: (JJ)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_createDirectByteBufferNative
+  (JNIEnv *env, jclass UNUSED(cls), jlong address, jlong size)
+{
+    Logger::log(LOG_TRACE, "Executing createDirectByteBuffer\n");
+    return env->NewDirectByteBuffer((void*)address, size);
+}
+
+
+
 // Notes about NON_BLOCKING_READ:
 // When a non-blocking read operation is enqueued, there are two options:
 // 1. The memory may be read into a direct buffer
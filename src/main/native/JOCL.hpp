@@ -1410,6 +1410,14 @@ JNIEXPORT jobject JNICALL Java_org_jocl_CL_clCreateKernelNative
 JNIEXPORT jint JNICALL Java_org_jocl_CL_clCreateKernelsInProgramNative
   (JNIEnv *, jclass, jobject, jint, jobjectArray, jintArray);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clCloneKernelNative
+ * Signature: (Lorg/jocl/cl_kernel;[I)Lorg/jocl/cl_kernel;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_clCloneKernelNative
+  (JNIEnv *, jclass, jobject, jintArray);
+
 /*
  * Class:     org_jocl_CL
  * Method:    clRetainKernelNative
@@ -1434,6 +1442,62 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseKernelNative
 JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgNative
   (JNIEnv *, jclass, jobject, jint, jlong, jobject);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgsNative
+ * Signature: (JLjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgsNative
+  (JNIEnv *, jclass, jlong, jobject, jint);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgIntNative
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgIntNative
+  (JNIEnv *, jclass, jlong, jint, jint);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgLongNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgLongNative
+  (JNIEnv *, jclass, jlong, jint, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgFloatNative
+ * Signature: (JIF)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgFloatNative
+  (JNIEnv *, jclass, jlong, jint, jfloat);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgDoubleNative
+ * Signature: (JID)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgDoubleNative
+  (JNIEnv *, jclass, jlong, jint, jdouble);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgHandleNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgHandleNative
+  (JNIEnv *, jclass, jlong, jint, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetKernelArgLocalNative
+ * Signature: (JIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetKernelArgLocalNative
+  (JNIEnv *, jclass, jlong, jint, jlong);
+
 /*
  * Class:     org_jocl_CL
  * Method:    clSetKernelArgSVMPointerNative
@@ -1530,6 +1594,14 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetUserEventStatusNative
 JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetEventCallbackNative
   (JNIEnv *, jclass, jobject, jint, jobject, jobject);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clSetEventCallbackRawNative
+ * Signature: (JILorg/jocl/EventCallbackFunction;Ljava/lang/Object;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clSetEventCallbackRawNative
+  (JNIEnv *, jclass, jlong, jint, jobject, jobject);
+
 /*
  * Class:     org_jocl_CL
  * Method:    clGetEventProfilingInfoNative
@@ -1698,6 +1770,14 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMigrateMemObjectsNative
 JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelNative
   (JNIEnv *, jclass, jobject, jobject, jint, jlongArray, jlongArray, jlongArray, jint, jobjectArray, jobject);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNDRangeKernelSizesNative
+ * Signature: (JJIJJJJJJJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelSizesNative
+  (JNIEnv *, jclass, jlong, jlong, jint, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jint, jobjectArray, jobject);
+
 /*
  * Class:     org_jocl_CL
  * Method:    clEnqueueTaskNative
@@ -1730,6 +1810,14 @@ JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMarkerWithWaitListNative
 JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListNative
   (JNIEnv *, jclass, jobject, jint, jobjectArray, jobject);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCommandBatchNative
+ * Signature: (JLjava/nio/ByteBuffer;II[Ljava/lang/Object;Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCommandBatchNative
+  (JNIEnv *, jclass, jlong, jobject, jint, jint, jobjectArray, jobject);
+
 /*
  * Class:     org_jocl_CL
  * Method:    clSetPrintfCallbackNative
@@ -1898,6 +1986,230 @@ JNIEXPORT jobject JNICALL Java_org_jocl_CL_allocateAlignedNative
 JNIEXPORT void JNICALL Java_org_jocl_CL_freeAlignedNative
   (JNIEnv *, jclass, jobject);
 
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNDRangeKernelRawNative
+ * Signature: (JJIJJJJJJJJJI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelRawNative
+  (JNIEnv *, jclass, jlong, jlong, jint, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueWriteBufferRawNative
+ * Signature: (JJZJJLjava/nio/Buffer;JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueWriteBufferRawNative
+  (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jobject, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueReadBufferRawNative
+ * Signature: (JJZJJLjava/nio/Buffer;JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueReadBufferRawNative
+  (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jobject, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCopyBufferRawNative
+ * Signature: (JJJJJJI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCopyBufferRawNative
+  (JNIEnv *, jclass, jlong, jlong, jlong, jlong, jlong, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMarkerWithWaitListRawNative
+ * Signature: (JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMarkerWithWaitListRawNative
+  (JNIEnv *, jclass, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueBarrierWithWaitListRawNative
+ * Signature: (JI[J[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListRawNative
+  (JNIEnv *, jclass, jlong, jint, jlongArray, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clWaitForEventsRawNative
+ * Signature: (I[J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clWaitForEventsRawNative
+  (JNIEnv *, jclass, jint, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clFlushRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clFlushRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clFinishRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clFinishRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainEventRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainEventRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseEventRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseEventRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainMemObjectRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainMemObjectRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseMemObjectRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseMemObjectRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clRetainKernelRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clRetainKernelRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clReleaseKernelRawNative
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clReleaseKernelRawNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueNDRangeKernelEventListNative
+ * Signature: (JJIJJJJJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueNDRangeKernelEventListNative
+  (JNIEnv *, jclass, jlong, jlong, jint, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jlong, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueWriteBufferEventListNative
+ * Signature: (JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueWriteBufferEventListNative
+  (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jobject, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueReadBufferEventListNative
+ * Signature: (JJZJJLorg/jocl/Pointer;ILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueReadBufferEventListNative
+  (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jobject, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueCopyBufferEventListNative
+ * Signature: (JJJJJJILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueCopyBufferEventListNative
+  (JNIEnv *, jclass, jlong, jlong, jlong, jlong, jlong, jlong, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMarkerWithWaitListEventListNative
+ * Signature: (JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueMarkerWithWaitListEventListNative
+  (JNIEnv *, jclass, jlong, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueBarrierWithWaitListEventListNative
+ * Signature: (JILjava/nio/LongBuffer;Lorg/jocl/cl_event;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clEnqueueBarrierWithWaitListEventListNative
+  (JNIEnv *, jclass, jlong, jint, jobject, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clWaitForEventsEventListNative
+ * Signature: (ILjava/nio/LongBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_clWaitForEventsEventListNative
+  (JNIEnv *, jclass, jint, jobject);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    allocateAlignedMemoryNative
+ * Signature: (JJ[J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_allocateAlignedMemoryNative
+  (JNIEnv *, jclass, jlong, jlong, jlongArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    freeAlignedMemoryNative
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_jocl_CL_freeAlignedMemoryNative
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    getPageSizeNative
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_org_jocl_CL_getPageSizeNative
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    releaseScopeNative
+ * Signature: (I[I[J[J[Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jocl_CL_releaseScopeNative
+  (JNIEnv *, jclass, jint, jintArray, jlongArray, jlongArray, jobjectArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    clEnqueueMapBufferAddressNative
+ * Signature: (Lorg/jocl/cl_command_queue;Lorg/jocl/cl_mem;ZJJJI[Lorg/jocl/cl_event;Lorg/jocl/cl_event;[I)J
+ */
+JNIEXPORT jlong JNICALL Java_org_jocl_CL_clEnqueueMapBufferAddressNative
+  (JNIEnv *, jclass, jobject, jobject, jboolean, jlong, jlong, jlong, jint, jobjectArray, jobject, jintArray);
+
+/*
+ * Class:     org_jocl_CL
+ * Method:    createDirectByteBufferNative
+ * Signature: (JJ)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_jocl_CL_createDirectByteBufferNative
+  (JNIEnv *, jclass, jlong, jlong);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,69 @@
+package org.jocl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test whether the {@link LongObjectMap} behaves like a map when 
+ * entries are removed from the middle of probe sequences, and when
+ * it is resized
+ */
+public class TestLongObjectMap
+{
+    @Test
+    public void testRandomOperations()
+    {
+        Random random = new Random(0);
+        LongObjectMap<Object> map = new LongObjectMap<Object>();
+        Map<Long, Object> expected = new HashMap<Long, Object>();
+        List<Long> keys = new ArrayList<Long>();
+        
+        // Aligned keys from a small range, as for native handles,
+        // cause long probe sequences, and the number of entries 
+        // grows beyond the initial capacity
+        for (int i = 0; i < 20000; i++)
+        {
+            if (keys.isEmpty() || random.nextInt(3) != 0)
+            {
+                long key = (1 + random.nextInt(4096)) * 16L;
+                Object value = new Object();
+                assertSame(expected.put(key, value), map.put(key, value));
+                keys.add(key);
+            }
+            else
+            {
+                long key = keys.remove(random.nextInt(keys.size()));
+                assertSame(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 16; key <= 4097 * 16; key += 16)
+        {
+            assertSame(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.values().size());
+        
+        // Removing all entries leaves an empty map
+        for (Long key : expected.keySet())
+        {
+            assertSame(expected.get(key), map.remove(key));
+        }
+        assertEquals(0, map.size());
+        assertNull(map.get(16));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroKey()
+    {
+        new LongObjectMap<Object>().put(0, new Object());
+    }
+}
@@ -0,0 +1,87 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jocl.*;
+
+/**
+ * A benchmark for the throughput of event callbacks. The callbacks are
+ * registered for the events of marker commands, so that they are called
+ * by the threads of the OpenCL implementation when the commands complete,
+ * and not by the thread that sets the status of a user event. These
+ * threads are attached to the JVM only once, so later rounds should not 
+ * be slower than the first one. This is not part of the test suite, and 
+ * has to be started manually.
+ */
+public class EventCallbackBenchmark extends JOCLAbstractTest
+{
+    /**
+     * The entry point of this benchmark
+     * 
+     * @param args Not used
+     * @throws Exception If an error occurs
+     */
+    public static void main(String args[]) throws Exception
+    {
+        new EventCallbackBenchmark().run();
+    }
+
+    /**
+     * Run the benchmark
+     * 
+     * @throws Exception If an error occurs
+     */
+    private void run() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int rounds = 5;
+        int n = 10000;
+        for (int r=0; r<rounds; r++)
+        {
+            final CountDownLatch latch = new CountDownLatch(n);
+            EventCallbackFunction callback = new EventCallbackFunction()
+            {
+                @Override
+                public void function(
+                    cl_event event, int command_exec_callback_type,
+                    Object user_data)
+                {
+                    latch.countDown();
+                }
+            };
+
+            cl_event events[] = new cl_event[n];
+            long before = System.nanoTime();
+            for (int i=0; i<n; i++)
+            {
+                events[i] = new cl_event();
+                clEnqueueMarkerWithWaitList(commandQueue, 0, null, events[i]);
+                clSetEventCallback(events[i], CL_COMPLETE, callback, null);
+            }
+            clFlush(commandQueue);
+            boolean completed = latch.await(60, TimeUnit.SECONDS);
+            long after = System.nanoTime();
+            clFinish(commandQueue);
+            for (int i=0; i<n; i++)
+            {
+                clReleaseEvent(events[i]);
+            }
+            if (!completed)
+            {
+                System.out.println("Missing callbacks: " + latch.getCount());
+                break;
+            }
+
+            double ms = (after - before) / 1e6;
+            System.out.println(String.format(Locale.ENGLISH,
+                "Round %d: %d callbacks in %.2f ms, %.0f callbacks/s",
+                r, n, ms, n / (ms / 1000.0)));
+        }
+        shutdownCL();
+    }
+}
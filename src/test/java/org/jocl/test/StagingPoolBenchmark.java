@@ -0,0 +1,76 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+import org.jocl.*;
+
+/**
+ * A benchmark that compares the bandwidth of uploads through a 
+ * {@link StagingPool} with {@link CL#clEnqueueWriteBuffer} from a 
+ * direct buffer. This is not part of the test suite, and has to be
+ * started manually.
+ */
+public class StagingPoolBenchmark extends JOCLAbstractTest
+{
+    /**
+     * The entry point of this benchmark
+     * 
+     * @param args Not used
+     * @throws Exception If an error occurs
+     */
+    public static void main(String args[]) throws Exception
+    {
+        new StagingPoolBenchmark().run();
+    }
+
+    /**
+     * Run the benchmark
+     * 
+     * @throws Exception If an error occurs
+     */
+    private void run() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int sliceSize = 4 << 20;
+        int sliceCount = 4;
+        StagingPool pool =
+            new StagingPool(context, commandQueue, sliceSize, sliceCount);
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            sliceSize, null, null);
+
+        int runs = 100;
+        long before = System.nanoTime();
+        for (int r = 0; r < runs; r++)
+        {
+            StagingPool.Slice s = pool.acquire();
+            s.upload(commandQueue, mem, 0, sliceSize);
+            clFlush(commandQueue);
+        }
+        clFinish(commandQueue);
+        long stagedNs = System.nanoTime() - before;
+
+        ByteBuffer direct =
+            ByteBuffer.allocateDirect(sliceSize).order(ByteOrder.nativeOrder());
+        before = System.nanoTime();
+        for (int r = 0; r < runs; r++)
+        {
+            clEnqueueWriteBuffer(commandQueue, mem, CL_BLOCKING, 0,
+                sliceSize, Pointer.to(direct), 0, null, null);
+        }
+        long directNs = System.nanoTime() - before;
+
+        double megabytes = (double)runs * sliceSize / (1 << 20);
+        System.out.println(String.format(Locale.ENGLISH,
+            "Staging pool: %.1f MB/s, clEnqueueWriteBuffer: %.1f MB/s",
+            megabytes / (stagedNs / 1e9), megabytes / (directNs / 1e9)));
+
+        clReleaseMemObject(mem);
+        pool.release();
+        shutdownCL();
+    }
+}
@@ -0,0 +1,59 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a buffer from {@link AlignedMemory} can be used for
+ * creating a memory object with CL_MEM_USE_HOST_PTR, and whether it
+ * can only be freed once
+ */
+public class TestAlignedMemory extends JOCLAbstractTest
+{
+    @Test
+    public void testAlignedMemory()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int n = 1000;
+        ByteBuffer buffer = AlignedMemory.allocate(context, n * Sizeof.cl_int);
+        assertEquals(n * Sizeof.cl_int, buffer.capacity());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+
+        int expected[] = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            expected[i] = i;
+        }
+        buffer.asIntBuffer().put(expected);
+
+        cl_mem mem = clCreateBuffer(context,
+            CL_MEM_READ_WRITE | CL_MEM_USE_HOST_PTR, n * Sizeof.cl_int,
+            Pointer.to(buffer), null);
+        int actual[] = new int[n];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0,
+            n * Sizeof.cl_int, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(expected, actual);
+        clReleaseMemObject(mem);
+
+        AlignedMemory.free(buffer);
+        try
+        {
+            AlignedMemory.free(buffer);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+        shutdownCL();
+    }
+}
@@ -0,0 +1,223 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the references that are owned by registrations of
+ * {@link AutoRelease} are released explicitly, or after the
+ * registered object became unreachable
+ */
+public class TestAutoRelease extends JOCLAbstractTest
+{
+    @Test
+    public void testAutoRelease() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("test", "__kernel void test(__global float *a) { }");
+
+        // The program object that is returned for the kernel is a new
+        // Java object for the same OpenCL program
+        cl_program program = programOf(kernel);
+        int initialCount = referenceCountOf(program);
+
+        // Explicit release
+        clRetainProgram(program);
+        AutoRelease.Registration registration = AutoRelease.register(program);
+        assertEquals(initialCount + 1, referenceCountOf(program));
+        registration.close();
+        registration.close();
+        assertTrue(registration.isReleased());
+        assertEquals(initialCount, referenceCountOf(program));
+
+        // Automatic release
+        int registeredCount = AutoRelease.getRegisteredCount();
+        clRetainProgram(program);
+        registerUnreachable(kernel);
+        awaitRegisteredCount(registeredCount);
+        assertEquals(initialCount, referenceCountOf(program));
+
+        shutdownKernel();
+        shutdownCL();
+    }
+
+    @Test
+    public void testAutoReleaseMem() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            1024, null, null);
+        cl_buffer_region region = new cl_buffer_region(0, 512);
+        cl_mem subBuffer = clCreateSubBuffer(mem, CL_MEM_READ_WRITE,
+            CL_BUFFER_CREATE_TYPE_REGION, region, null);
+        int initialCount = referenceCountOf(mem);
+
+        // Explicit release
+        clRetainMemObject(mem);
+        AutoRelease.Registration registration = AutoRelease.register(mem);
+        assertEquals(initialCount + 1, referenceCountOf(mem));
+        registration.close();
+        assertEquals(initialCount, referenceCountOf(mem));
+
+        // Automatic release of a new object for the same memory object,
+        // which is obtained as the parent of the sub-buffer
+        int registeredCount = AutoRelease.getRegisteredCount();
+        clRetainMemObject(mem);
+        registerUnreachableParent(subBuffer);
+        awaitRegisteredCount(registeredCount);
+        assertEquals(initialCount, referenceCountOf(mem));
+
+        clReleaseMemObject(subBuffer);
+        clReleaseMemObject(mem);
+        shutdownCL();
+    }
+
+    @Test
+    public void testAutoReleaseEvent() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        cl_event event = clCreateUserEvent(context, null);
+        int initialCount = referenceCountOf(event);
+
+        // Explicit release
+        clRetainEvent(event);
+        AutoRelease.Registration registration = AutoRelease.register(event);
+        assertEquals(initialCount + 1, referenceCountOf(event));
+        registration.close();
+        assertEquals(initialCount, referenceCountOf(event));
+
+        // Automatic release of a new object for the same event, which
+        // is obtained from an event list
+        int registeredCount = AutoRelease.getRegisteredCount();
+        clRetainEvent(event);
+        registerUnreachableCopy(event);
+        awaitRegisteredCount(registeredCount);
+        assertEquals(initialCount, referenceCountOf(event));
+
+        clSetUserEventStatus(event, CL_COMPLETE);
+        clReleaseEvent(event);
+        shutdownCL();
+    }
+
+    /**
+     * Wait until the number of registered objects is the given count,
+     * running the garbage collector, and fail if this does not happen
+     * within about one second
+     *
+     * @param count The expected count
+     * @throws InterruptedException If the thread is interrupted
+     */
+    private static void awaitRegisteredCount(int count) 
+        throws InterruptedException
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            if (AutoRelease.getRegisteredCount() == count)
+            {
+                break;
+            }
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(count, AutoRelease.getRegisteredCount());
+    }
+
+    /**
+     * Register a new memory object for the parent of the given 
+     * sub-buffer, which becomes unreachable when this method returns
+     *
+     * @param subBuffer The sub-buffer
+     */
+    private static void registerUnreachableParent(cl_mem subBuffer)
+    {
+        cl_mem parent = new cl_mem();
+        clGetMemObjectInfo(subBuffer, CL_MEM_ASSOCIATED_MEMOBJECT, 
+            Sizeof.cl_mem, Pointer.to(parent), null);
+        AutoRelease.register(parent);
+    }
+
+    /**
+     * Register a new program object for the program of the given
+     * kernel, which becomes unreachable when this method returns
+     *
+     * @param kernel The kernel
+     */
+    private static void registerUnreachable(cl_kernel kernel)
+    {
+        AutoRelease.register(programOf(kernel));
+    }
+
+    /**
+     * Returns a new program object for the program of the given kernel
+     *
+     * @param kernel The kernel
+     * @return The program
+     */
+    private static cl_program programOf(cl_kernel kernel)
+    {
+        cl_program program = new cl_program();
+        clGetKernelInfo(kernel, CL_KERNEL_PROGRAM, Sizeof.cl_program,
+            Pointer.to(program), null);
+        return program;
+    }
+
+    /**
+     * Register a new event object for the given event, which becomes 
+     * unreachable when this method returns
+     *
+     * @param event The event
+     */
+    private static void registerUnreachableCopy(cl_event event)
+    {
+        cl_event events[] = new EventList(event).toArray();
+        AutoRelease.register(events[0]);
+    }
+
+    /**
+     * Returns the reference count of the given memory object
+     *
+     * @param mem The memory object
+     * @return The reference count
+     */
+    private static int referenceCountOf(cl_mem mem)
+    {
+        int count[] = new int[1];
+        clGetMemObjectInfo(mem, CL_MEM_REFERENCE_COUNT, Sizeof.cl_uint,
+            Pointer.to(count), null);
+        return count[0];
+    }
+
+    /**
+     * Returns the reference count of the given event
+     *
+     * @param event The event
+     * @return The reference count
+     */
+    private static int referenceCountOf(cl_event event)
+    {
+        int count[] = new int[1];
+        clGetEventInfo(event, CL_EVENT_REFERENCE_COUNT, Sizeof.cl_uint,
+            Pointer.to(count), null);
+        return count[0];
+    }
+
+    /**
+     * Returns the reference count of the given program
+     *
+     * @param program The program
+     * @return The reference count
+     */
+    private static int referenceCountOf(cl_program program)
+    {
+        int count[] = new int[1];
+        clGetProgramInfo(program, CL_PROGRAM_REFERENCE_COUNT, Sizeof.cl_uint,
+            Pointer.to(count), null);
+        return count[0];
+    }
+}
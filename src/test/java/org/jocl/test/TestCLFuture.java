@@ -0,0 +1,110 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a write operation, a kernel launch and a read operation
+ * can be chained with {@link CLFuture#thenEnqueue(CLFuture.Command)},
+ * and whether the futures and their listeners are completed
+ */
+public class TestCLFuture extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global float *a)"+
+        "{"+
+        "    int gid = get_global_id(0);"+
+        "    a[gid] = a[gid] * 2.0f;"+
+        "}";
+    
+    @Test
+    public void testCLFuture() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        final int n = 16;
+        final FloatBuffer buffer = ByteBuffer.allocateDirect(
+            n * Sizeof.cl_float).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i=0; i<n; i++)
+        {
+            buffer.put(i, i);
+        }
+        final cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        clSetKernelArg(kernel, 0, mem);
+        
+        CLFuture write = CLFuture.enqueue(new CLFuture.Command()
+        {
+            @Override
+            public int enqueue(EventList waitList, cl_event event)
+            {
+                return clEnqueueWriteBuffer(commandQueue, mem, 
+                    CL_NON_BLOCKING, 0, Sizeof.cl_float * n, 
+                    Pointer.to(buffer), waitList, event);
+            }
+        });
+        CLFuture launch = write.thenEnqueue(new CLFuture.Command()
+        {
+            @Override
+            public int enqueue(EventList waitList, cl_event event)
+            {
+                return clEnqueueNDRangeKernel(commandQueue, kernel, 
+                    0, n, 0, waitList, event);
+            }
+        });
+        CLFuture read = launch.thenEnqueue(new CLFuture.Command()
+        {
+            @Override
+            public int enqueue(EventList waitList, cl_event event)
+            {
+                return clEnqueueReadBuffer(commandQueue, mem, 
+                    CL_NON_BLOCKING, 0, Sizeof.cl_float * n, 
+                    Pointer.to(buffer), waitList, event);
+            }
+        });
+        final CountDownLatch listenerLatch = new CountDownLatch(1);
+        read.addListener(new CLFuture.Listener()
+        {
+            @Override
+            public void completed(CLFuture future)
+            {
+                listenerLatch.countDown();
+            }
+        });
+        clFlush(commandQueue);
+        
+        assertEquals(CL_COMPLETE, read.get(10, TimeUnit.SECONDS).intValue());
+        assertTrue(listenerLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(write.isDone());
+        assertTrue(launch.isDone());
+        
+        float expected[] = new float[n];
+        float actual[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            expected[i] = i * 2.0f;
+        }
+        buffer.get(actual);
+        assertArrayEquals(expected, actual, 0.0f);
+        
+        clReleaseMemObject(mem);
+        shutdownKernel();
+        shutdownCL();
+    }
+}
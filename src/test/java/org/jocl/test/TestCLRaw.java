@@ -0,0 +1,95 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a kernel can be executed using only the raw handles
+ * of the OpenCL objects, with the functions in {@link CLRaw}
+ */
+public class TestCLRaw extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global const float *a,"+
+        "             __global float *b,"+
+        "             float factor)"+
+        "{"+
+        "    int gid = get_global_id(0);"+
+        "    b[gid] = a[gid] * factor;"+
+        "}";
+    
+    @Test
+    public void testCLRaw()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int n = 16;
+        FloatBuffer srcBuffer = createFloatBuffer(n);
+        FloatBuffer dstBuffer = createFloatBuffer(n);
+        for (int i=0; i<n; i++)
+        {
+            srcBuffer.put(i, i);
+        }
+        long queue = commandQueue.getNativePointer();
+        long k = kernel.getNativePointer();
+        long srcMem = clCreateBuffer(context, CL_MEM_READ_ONLY, 
+            Sizeof.cl_float * n, null, null).getNativePointer();
+        long dstMem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null).getNativePointer();
+        
+        long writeEvent[] = new long[1];
+        CLRaw.clEnqueueWriteBuffer(queue, srcMem, false, 0, 
+            Sizeof.cl_float * n, Pointer.to(srcBuffer), 0, null, writeEvent);
+        assertTrue(writeEvent[0] != 0);
+        
+        CLRaw.clSetKernelArgHandle(k, 0, srcMem);
+        CLRaw.clSetKernelArgHandle(k, 1, dstMem);
+        CLRaw.clSetKernelArg(k, 2, 2.0f);
+        long launchEvent[] = new long[1];
+        CLRaw.clEnqueueNDRangeKernel(queue, k, 0, n, 0, 
+            1, writeEvent, launchEvent);
+        CLRaw.clEnqueueReadBuffer(queue, dstMem, true, 0, 
+            Sizeof.cl_float * n, Pointer.to(dstBuffer), 1, launchEvent, null);
+        CLRaw.clReleaseEvent(writeEvent[0]);
+        CLRaw.clReleaseEvent(launchEvent[0]);
+        
+        float expected[] = new float[n];
+        float actual[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            expected[i] = i * 2.0f;
+        }
+        dstBuffer.get(actual);
+        assertArrayEquals(expected, actual, 0.0f);
+        
+        CLRaw.clReleaseMemObject(srcMem);
+        CLRaw.clReleaseMemObject(dstMem);
+        shutdownKernel();
+        shutdownCL();
+    }
+    
+    /**
+     * Creates a direct float buffer with the given size
+     * 
+     * @param n The size
+     * @return The buffer
+     */
+    private static FloatBuffer createFloatBuffer(int n)
+    {
+        return ByteBuffer.allocateDirect(n * Sizeof.cl_float).order(
+            ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
@@ -0,0 +1,105 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a {@link CommandBatch} containing a write operation,
+ * a kernel launch and a non-blocking read operation can be enqueued
+ * with a single call, using the command indices for the wait lists
+ */
+public class TestCommandBatch extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global const float *a,"+
+        "             __global float *b,"+
+        "             float factor)"+
+        "{"+
+        "    int gid = get_global_id(0);"+
+        "    b[gid] = a[gid] * factor;"+
+        "}";
+    
+    @Test
+    public void testCommandBatch()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int n = 16;
+        FloatBuffer srcBuffer = createFloatBuffer(n);
+        FloatBuffer dstBuffer = createFloatBuffer(n);
+        for (int i=0; i<n; i++)
+        {
+            srcBuffer.put(i, i);
+        }
+        cl_mem srcMem = clCreateBuffer(context, 
+            CL_MEM_READ_ONLY, Sizeof.cl_float * n, null, null);
+        cl_mem dstMem = clCreateBuffer(context, 
+            CL_MEM_READ_WRITE, Sizeof.cl_float * n, null, null);
+        
+        KernelArgs args = new KernelArgs();
+        args.setMem(0, srcMem);
+        args.setMem(1, dstMem);
+        args.setFloat(2, 2.0f);
+        
+        CommandBatch batch = new CommandBatch();
+        int write = batch.enqueueWriteBuffer(srcMem, false, 0, 
+            Sizeof.cl_float * n, Pointer.to(srcBuffer));
+        batch.setKernelArgs(kernel, args);
+        int launch = batch.enqueueNDRangeKernel(kernel, 1, null, 
+            new long[]{ n }, null, write);
+        int read = batch.enqueueReadBuffer(dstMem, false, 0, 
+            Sizeof.cl_float * n, Pointer.to(dstBuffer), launch);
+        batch.requestEvent(read);
+        assertEquals(4, batch.getCommandCount());
+        
+        clEnqueueCommandBatch(commandQueue, batch);
+        for (int i=0; i<batch.getCommandCount(); i++)
+        {
+            assertEquals(CL_SUCCESS, batch.getErrorCode(i));
+        }
+        cl_event readEvent = batch.getEvent(read);
+        assertNotNull(readEvent);
+        clWaitForEvents(1, new cl_event[]{ readEvent });
+        clReleaseEvent(readEvent);
+        
+        float expected[] = new float[n];
+        float actual[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            expected[i] = i * 2.0f;
+        }
+        dstBuffer.get(actual);
+        assertArrayEquals(expected, actual, 0.0f);
+        
+        clReleaseMemObject(srcMem);
+        clReleaseMemObject(dstMem);
+        shutdownKernel();
+        shutdownCL();
+    }
+    
+    /**
+     * Creates a direct float buffer with the given size
+     * 
+     * @param n The size
+     * @return The buffer
+     */
+    private static FloatBuffer createFloatBuffer(int n)
+    {
+        return ByteBuffer.allocateDirect(n * Sizeof.cl_float).order(
+            ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
@@ -0,0 +1,97 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether an {@link EventList} can be reused as the wait list
+ * for multiple enqueue operations, and be converted into an array
+ */
+public class TestEventList extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global float *a)"+
+        "{"+
+        "    int gid = get_global_id(0);"+
+        "    a[gid] = a[gid] + 1.0f;"+
+        "}";
+    
+    @Test
+    public void testEventList()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int n = 16;
+        int runs = 20;
+        FloatBuffer buffer = ByteBuffer.allocateDirect(n * Sizeof.cl_float)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        clSetKernelArg(kernel, 0, mem);
+        
+        // Each launch waits for all previous events. The initial 
+        // capacity of the list is exceeded, so that it has to grow
+        EventList waitList = new EventList(2);
+        cl_event events[] = new cl_event[runs + 1];
+        events[0] = new cl_event();
+        clEnqueueWriteBuffer(commandQueue, mem, true, 0, 
+            Sizeof.cl_float * n, Pointer.to(buffer), waitList, events[0]);
+        for (int r = 1; r <= runs; r++)
+        {
+            waitList.clear();
+            for (int i = 0; i < r; i++)
+            {
+                waitList.add(events[i]);
+            }
+            assertEquals(r, waitList.size());
+            events[r] = new cl_event();
+            clEnqueueNDRangeKernel(commandQueue, kernel, 
+                0, n, 0, waitList, events[r]);
+        }
+        waitList.clear();
+        waitList.add(events[runs]);
+        clWaitForEvents(waitList);
+        clEnqueueReadBuffer(commandQueue, mem, true, 0, 
+            Sizeof.cl_float * n, Pointer.to(buffer), waitList, null);
+        
+        // Functions without an overload for event lists receive
+        // the events as an array
+        cl_event waitEvents[] = waitList.toArray();
+        assertEquals(events[runs].getNativePointer(), 
+            waitEvents[0].getNativePointer());
+        clWaitForEvents(waitEvents.length, waitEvents);
+        waitList.clear();
+        assertNull(waitList.toArray());
+        for (cl_event event : events)
+        {
+            clReleaseEvent(event);
+        }
+        
+        float expected[] = new float[n];
+        float actual[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            expected[i] = runs;
+        }
+        buffer.get(actual);
+        assertArrayEquals(expected, actual, 0.0f);
+        
+        clReleaseMemObject(mem);
+        shutdownKernel();
+        shutdownCL();
+    }
+}
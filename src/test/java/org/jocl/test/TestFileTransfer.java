@@ -0,0 +1,86 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the contents of a file arrive in a buffer object when
+ * they are uploaded with {@link FileTransfer} in several windows, and
+ * whether the contents of a buffer object arrive in a file when they
+ * are downloaded
+ */
+public class TestFileTransfer extends JOCLAbstractTest
+{
+    @Test
+    public void testUpload() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int size = 100000;
+        byte data[] = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte)(i * 31);
+        }
+        File file = File.createTempFile("TestFileTransfer", ".bin");
+        file.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(data);
+        outputStream.close();
+
+        // Upload everything except the first 10 bytes of the file, 
+        // starting at offset 10 in the buffer
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            size, null, null);
+        FileTransfer.upload(commandQueue, file, 10, mem, 10, size - 10, 
+            4096, 3);
+
+        byte actual[] = new byte[size - 10];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 10, size - 10,
+            Pointer.to(actual), 0, null, null);
+        byte expected[] = new byte[size - 10];
+        System.arraycopy(data, 10, expected, 0, size - 10);
+        assertArrayEquals(expected, actual);
+
+        clReleaseMemObject(mem);
+        file.delete();
+        shutdownCL();
+    }
+
+    @Test
+    public void testDownload() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int size = 100000;
+        byte data[] = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte)(i * 31);
+        }
+        cl_mem mem = clCreateBuffer(context, 
+            CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, size, 
+            Pointer.to(data), null);
+        File file = File.createTempFile("TestFileTransfer", ".bin");
+        file.deleteOnExit();
+        FileTransfer.download(commandQueue, mem, 0, size, file, 0, 
+            4096, 3);
+        clReleaseMemObject(mem);
+
+        byte actual[] = new byte[size];
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        randomAccessFile.readFully(actual);
+        randomAccessFile.close();
+        assertArrayEquals(data, actual);
+
+        file.delete();
+        shutdownCL();
+    }
+}
@@ -0,0 +1,203 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a write operation that is enqueued with a 
+ * {@link HostEvent} in its wait list waits for the host work, and
+ * whether it is terminated when the host work fails
+ */
+public class TestHostEvent extends JOCLAbstractTest
+{
+    @Test
+    public void testHostEvent() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        
+        final int n = 16;
+        final FloatBuffer srcBuffer = createFloatBuffer(n);
+        FloatBuffer dstBuffer = createFloatBuffer(n);
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        
+        // The host work waits until the write operation was enqueued,
+        // and only then fills the source buffer
+        final CountDownLatch enqueued = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        HostEvent hostEvent = HostEvent.submit(context, executor, 
+            new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    enqueued.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i=0; i<n; i++)
+                {
+                    srcBuffer.put(i, i);
+                }
+            }
+        });
+        EventList waitList = new EventList(hostEvent.getEvent());
+        clEnqueueWriteBuffer(commandQueue, mem, CL_NON_BLOCKING, 0, 
+            Sizeof.cl_float * n, Pointer.to(srcBuffer), waitList, null);
+        hostEvent.release();
+        clFlush(commandQueue);
+        enqueued.countDown();
+        
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0, 
+            Sizeof.cl_float * n, Pointer.to(dstBuffer), 0, null, null);
+        assertTrue(hostEvent.isDone());
+        
+        float expected[] = new float[n];
+        float actual[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            expected[i] = i;
+        }
+        dstBuffer.get(actual);
+        assertArrayEquals(expected, actual, 0.0f);
+        
+        executor.shutdown();
+        clReleaseMemObject(mem);
+        shutdownCL();
+    }
+    
+    @Test
+    public void testHostEventFailedWithThrowable() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        
+        // The host work throws an exception after the write operation
+        // was enqueued
+        final CountDownLatch enqueued = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        HostEvent hostEvent = HostEvent.submit(context, executor, 
+            new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    enqueued.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Host work failed");
+            }
+        });
+        cl_event writeEvent = enqueueWaitingWrite(hostEvent);
+        enqueued.countDown();
+        
+        assertTerminated(writeEvent);
+        assertTrue(hostEvent.isDone());
+        assertFalse(hostEvent.complete());
+        
+        clReleaseEvent(writeEvent);
+        executor.shutdown();
+        shutdownCL();
+    }
+    
+    @Test
+    public void testHostEventFailedWithStatus() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        
+        HostEvent hostEvent = HostEvent.create(context);
+        cl_event writeEvent = enqueueWaitingWrite(hostEvent);
+        assertTrue(hostEvent.fail(HostEvent.FAILED));
+        assertFalse(hostEvent.fail(HostEvent.FAILED));
+        
+        assertTerminated(writeEvent);
+        assertTrue(hostEvent.isDone());
+        
+        clReleaseEvent(writeEvent);
+        shutdownCL();
+    }
+    
+    /**
+     * Enqueue a non-blocking write operation that waits for the given
+     * host event, release the host event, and return the event of the
+     * write operation
+     * 
+     * @param hostEvent The host event
+     * @return The event of the write operation
+     */
+    private cl_event enqueueWaitingWrite(HostEvent hostEvent)
+    {
+        int n = 16;
+        FloatBuffer srcBuffer = createFloatBuffer(n);
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        cl_event writeEvent = new cl_event();
+        EventList waitList = new EventList(hostEvent.getEvent());
+        clEnqueueWriteBuffer(commandQueue, mem, CL_NON_BLOCKING, 0, 
+            Sizeof.cl_float * n, Pointer.to(srcBuffer), waitList, 
+            writeEvent);
+        hostEvent.release();
+        clReleaseMemObject(mem);
+        clFlush(commandQueue);
+        return writeEvent;
+    }
+    
+    /**
+     * Assert that the given event, of a command that waited for a 
+     * failed host event, was terminated: Waiting for the event has
+     * to cause an exception, and its execution status has to be 
+     * negative.
+     * 
+     * @param event The event
+     */
+    private static void assertTerminated(cl_event event)
+    {
+        try
+        {
+            clWaitForEvents(1, new cl_event[] { event });
+            fail("Expected a CLException for a terminated command");
+        }
+        catch (CLException e)
+        {
+            // Expected
+        }
+        int status[] = new int[1];
+        clGetEventInfo(event, CL_EVENT_COMMAND_EXECUTION_STATUS, 
+            Sizeof.cl_int, Pointer.to(status), null);
+        assertTrue("Expected a negative status, but got " + status[0],
+            status[0] < 0);
+    }
+    
+    /**
+     * Creates a direct float buffer with the given size
+     * 
+     * @param n The size
+     * @return The buffer
+     */
+    private static FloatBuffer createFloatBuffer(int n)
+    {
+        return ByteBuffer.allocateDirect(n * Sizeof.cl_float).order(
+            ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
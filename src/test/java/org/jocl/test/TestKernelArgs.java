@@ -0,0 +1,82 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the arguments of a kernel can be set with a 
+ * {@link KernelArgs} object, and whether the object can be 
+ * reused for multiple launches
+ */
+public class TestKernelArgs extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global const float *a,"+
+        "             __global float *b,"+
+        "             __local float *l,"+
+        "             float factor,"+
+        "             int summand)"+
+        "{"+
+        "    int gid = get_global_id(0);"+
+        "    l[get_local_id(0)] = a[gid] * factor;"+
+        "    b[gid] = l[get_local_id(0)] + summand;"+
+        "}";
+    
+    @Test
+    public void testKernelArgs()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int n = 16;
+        float srcArray[] = new float[n];
+        for (int i=0; i<n; i++)
+        {
+            srcArray[i] = i;
+        }
+        cl_mem srcMem = clCreateBuffer(context, 
+            CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
+            Sizeof.cl_float * n, Pointer.to(srcArray), null);
+        cl_mem dstMem = clCreateBuffer(context, 
+            CL_MEM_READ_WRITE, Sizeof.cl_float * n, null, null);
+        
+        KernelArgs args = new KernelArgs();
+        args.setMem(0, srcMem);
+        args.setMem(1, dstMem);
+        args.setLocal(2, Sizeof.cl_float * n);
+        args.setFloat(3, 2.0f);
+        assertEquals(4, args.getCount());
+        
+        for (int summand = 0; summand < 3; summand++)
+        {
+            args.setInt(4, summand);
+            clSetKernelArgs(kernel, args);
+            clEnqueueNDRangeKernel(commandQueue, kernel, 0, n, n, 0, null, null);
+            
+            float dstArray[] = new float[n];
+            clEnqueueReadBuffer(commandQueue, dstMem, CL_TRUE, 0,
+                n * Sizeof.cl_float, Pointer.to(dstArray), 0, null, null);
+            
+            float expected[] = new float[n];
+            for (int i=0; i<n; i++)
+            {
+                expected[i] = srcArray[i] * 2.0f + summand;
+            }
+            assertArrayEquals(expected, dstArray, 0.0f);
+        }
+        assertEquals(5, args.getCount());
+        
+        clReleaseMemObject(srcMem);
+        clReleaseMemObject(dstMem);
+        shutdownKernel();
+        shutdownCL();
+    }
+}
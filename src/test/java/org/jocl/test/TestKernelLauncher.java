@@ -0,0 +1,136 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the arguments of a {@link KernelLauncher} can be bound
+ * by name, whether binding an argument with the wrong type is rejected,
+ * and whether the kernel is launched with the bound values
+ */
+public class TestKernelLauncher extends JOCLAbstractTest
+{
+    @Test
+    public void testKernelLauncher()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        String source =
+            "__kernel void scale(__global float *data, float factor, int n)" +
+            "{" +
+            "    int i = get_global_id(0);" +
+            "    if (i < n) data[i] *= factor;" +
+            "}";
+        cl_program program = clCreateProgramWithSource(context, 1,
+            new String[] { source }, null, null);
+        clBuildProgram(program, 0, null, "-cl-kernel-arg-info", null, null);
+        cl_kernel scale = clCreateKernel(program, "scale", null);
+
+        KernelLauncher launcher = new KernelLauncher(scale);
+        KernelLauncher.Signature signature = launcher.getSignature();
+        assertEquals("scale", signature.getFunctionName());
+        assertEquals(3, signature.getArgCount());
+        assertEquals(1, signature.indexOf("factor"));
+        assertEquals(CL_KERNEL_ARG_ADDRESS_GLOBAL,
+            signature.getArgAddressQualifier(0));
+
+        try
+        {
+            launcher.intArg("factor");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+
+        KernelLauncher.MemArg data = launcher.memArg("data");
+        KernelLauncher.FloatArg factor = launcher.floatArg("factor");
+        KernelLauncher.IntArg n = launcher.intArg("n");
+
+        int size = 100;
+        float input[] = new float[size];
+        float expected[] = new float[size];
+        for (int i = 0; i < size; i++)
+        {
+            input[i] = i;
+            expected[i] = i < size / 2 ? i * 3.0f : i;
+        }
+        cl_mem mem = clCreateBuffer(context,
+            CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, size * Sizeof.cl_float,
+            Pointer.to(input), null);
+        data.set(mem);
+        factor.set(3.0f);
+        n.set(size / 2);
+        launcher.launch(commandQueue, 1, null, new long[] { size }, null);
+
+        float actual[] = new float[size];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0,
+            size * Sizeof.cl_float, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(expected, actual, 0.0f);
+
+        clReleaseMemObject(mem);
+        clReleaseKernel(scale);
+        clReleaseProgram(program);
+        shutdownCL();
+    }
+
+    @Test
+    public void testValueArgSize()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        String source =
+            "__kernel void offset(__global float4 *data, float4 delta)" +
+            "{" +
+            "    data[get_global_id(0)] += delta;" +
+            "}";
+        cl_program program = clCreateProgramWithSource(context, 1,
+            new String[] { source }, null, null);
+        clBuildProgram(program, 0, null, "-cl-kernel-arg-info", null, null);
+        cl_kernel offset = clCreateKernel(program, "offset", null);
+
+        KernelLauncher launcher = new KernelLauncher(offset);
+        assertEquals(16, launcher.getSignature().getArgSize(1));
+        KernelLauncher.ValueArg delta = launcher.valueArg("delta");
+        try
+        {
+            delta.set(new byte[Sizeof.cl_float * 2]);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+
+        float values[] = { 1.0f, 2.0f, 3.0f, 4.0f };
+        ByteBuffer bytes = ByteBuffer.allocate(Sizeof.cl_float4).order(
+            ByteOrder.nativeOrder());
+        bytes.asFloatBuffer().put(values);
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float4, null, null);
+        clEnqueueFillBuffer(commandQueue, mem, Pointer.to(new float[1]), 
+            Sizeof.cl_float, 0, Sizeof.cl_float4, 0, null, null);
+        launcher.memArg("data").set(mem);
+        delta.set(bytes.array());
+        launcher.launch(commandQueue, 1, null, new long[] { 1 }, null);
+
+        float actual[] = new float[4];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0,
+            Sizeof.cl_float4, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(values, actual, 0.0f);
+
+        clReleaseMemObject(mem);
+        clReleaseKernel(offset);
+        clReleaseProgram(program);
+        shutdownCL();
+    }
+}
@@ -0,0 +1,81 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether kernels from a {@link KernelPool} can be launched from
+ * multiple threads concurrently, each with its own arguments
+ */
+public class TestKernelPool extends JOCLAbstractTest
+{
+    @Test
+    public void testKernelPool() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("fill", 
+            "__kernel void fill(__global int *a, int value) " + 
+            "{ a[get_global_id(0)] = value; }");
+
+        final KernelPool pool = new KernelPool(kernel);
+        final int n = 256;
+        int threads = 4;
+        int tasks = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Future<?> futures[] = new Future<?>[tasks];
+        for (int t = 0; t < tasks; t++)
+        {
+            final int value = t;
+            futures[t] = executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+                        n * Sizeof.cl_int, null, null);
+                    cl_kernel k = pool.acquire();
+                    try
+                    {
+                        clSetKernelArg(k, 0, Sizeof.cl_mem, Pointer.to(mem));
+                        clSetKernelArg(k, 1, Sizeof.cl_int, 
+                            Pointer.to(new int[] { value }));
+                        clEnqueueNDRangeKernel(commandQueue, k, 1, null, 
+                            new long[] { n }, null, 0, null, null);
+                    }
+                    finally
+                    {
+                        pool.release(k);
+                    }
+                    int actual[] = new int[n];
+                    clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0, 
+                        n * Sizeof.cl_int, Pointer.to(actual), 0, null, null);
+                    clReleaseMemObject(mem);
+                    int expected[] = new int[n];
+                    Arrays.fill(expected, value);
+                    assertArrayEquals(expected, actual);
+                    return null;
+                }
+            });
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(pool.getCreatedCount() <= threads);
+        
+        pool.shutdown();
+        shutdownKernel();
+        shutdownCL();
+    }
+}
@@ -0,0 +1,62 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether buffers that are returned to a {@link MemObjectPool}
+ * are handed out again, and whether the byte limit and the idle
+ * time are respected
+ */
+public class TestMemObjectPool extends JOCLAbstractTest
+{
+    @Test
+    public void testMemObjectPool() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        MemObjectPool pool = new MemObjectPool(context, 4096, 60000);
+
+        cl_mem mem0 = pool.acquire(CL_MEM_READ_WRITE, 1000);
+        long size[] = new long[1];
+        clGetMemObjectInfo(mem0, CL_MEM_SIZE, Sizeof.size_t,
+            Pointer.to(size), null);
+        assertEquals(1024, size[0]);
+        pool.release(mem0);
+        assertEquals(1024, pool.getPooledBytes());
+
+        // The same size class and flags yield the same buffer
+        cl_mem mem1 = pool.acquire(CL_MEM_READ_WRITE, 600);
+        assertSame(mem0, mem1);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getPooledBytes());
+
+        // Other flags require a new buffer
+        cl_mem mem2 = pool.acquire(CL_MEM_READ_ONLY, 600);
+        assertEquals(2, pool.getMissCount());
+
+        // A buffer that exceeds the byte limit is released immediately
+        cl_mem mem3 = pool.acquire(CL_MEM_READ_WRITE, 8192);
+        pool.release(mem1);
+        pool.release(mem2);
+        pool.release(mem3);
+        assertEquals(2, pool.getPooledCount());
+        assertEquals(2048, pool.getPooledBytes());
+
+        // Idle buffers are evicted
+        MemObjectPool idlePool = new MemObjectPool(context, 4096, 0);
+        idlePool.release(idlePool.acquire(CL_MEM_READ_WRITE, 1000));
+        Thread.sleep(10);
+        assertEquals(1, idlePool.evictIdle());
+        assertEquals(0, idlePool.getPooledBytes());
+
+        pool.shutdown();
+        idlePool.shutdown();
+        assertEquals(0, pool.getPooledCount());
+        shutdownCL();
+    }
+}
@@ -0,0 +1,67 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the {@link MemoryTracker} accounts for the memory objects
+ * that are created and released. This requires the tracking to be 
+ * enabled with the <code>org.jocl.memoryTracking</code> system property
+ * when the JVM is started. The surefire configuration runs this test in 
+ * a separate JVM where the property is set, and the other tests without
+ * tracking.
+ */
+public class TestMemoryTracker extends JOCLAbstractTest
+{
+    @Test
+    public void testMemoryTracker()
+    {
+        assumeTrue(MemoryTracker.ENABLED);
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        long liveBytes = MemoryTracker.getLiveBytes(context);
+        int liveCount = MemoryTracker.getLiveCount();
+        
+        int size = 4096;
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, null);
+        assertEquals(liveBytes + size, MemoryTracker.getLiveBytes(context));
+        assertEquals(liveCount + 1, MemoryTracker.getLiveCount());
+
+        // The dump contains the summary and the record of the buffer
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MemoryTracker.dump(new PrintStream(outputStream));
+        String dump = outputStream.toString();
+        assertTrue(dump, dump.startsWith((liveCount + 1) + " live objects, " + 
+            (liveBytes + size) + " bytes"));
+        assertTrue(dump, dump.contains("cl_mem[0x" + 
+            Long.toHexString(mem.getNativePointer()) + ",size=" + size));
+
+        // A sub-buffer is recorded, but shares the memory of its parent
+        cl_buffer_region region = new cl_buffer_region(0, size / 2);
+        cl_mem subBuffer = clCreateSubBuffer(mem, CL_MEM_READ_WRITE,
+            CL_BUFFER_CREATE_TYPE_REGION, region, null);
+        assertEquals(liveBytes + size, MemoryTracker.getLiveBytes(context));
+        assertEquals(liveCount + 2, MemoryTracker.getLiveCount());
+
+        // Only the last release removes the record, even though the
+        // implementation still holds a reference for the sub-buffer
+        clRetainMemObject(mem);
+        clReleaseMemObject(mem);
+        assertEquals(liveBytes + size, MemoryTracker.getLiveBytes(context));
+        clReleaseMemObject(mem);
+        assertEquals(liveBytes, MemoryTracker.getLiveBytes(context));
+        assertEquals(liveCount + 1, MemoryTracker.getLiveCount());
+        clReleaseMemObject(subBuffer);
+        assertEquals(liveCount, MemoryTracker.getLiveCount());
+        assertTrue(MemoryTracker.getHighWaterMark(context) >= liveBytes + size);
+        shutdownCL();
+    }
+}
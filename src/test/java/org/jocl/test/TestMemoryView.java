@@ -0,0 +1,105 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a {@link MemoryView} of a mapped buffer can be read and 
+ * written with long offsets, also across the boundaries of its internal
+ * windows when the device supports allocations of that size, and 
+ * whether copies of pointers keep referring to the same memory
+ */
+public class TestMemoryView extends JOCLAbstractTest
+{
+    @Test
+    public void testMemoryView()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        long windowSize = 1L << 30;
+        long size = Math.min(maxMemAllocSize(), windowSize + 4096);
+        cl_mem mem = clCreateBuffer(context, 
+            CL_MEM_READ_WRITE | CL_MEM_ALLOC_HOST_PTR, size, null, null);
+        MemoryView view = clEnqueueMapBufferView(commandQueue, mem, CL_TRUE,
+            CL_MAP_READ | CL_MAP_WRITE, 0, size, 0, null, null, null);
+        assertEquals(size, view.getSize());
+
+        // Values that start directly before the end of the first window
+        long boundary = Math.min(windowSize, size - 1024);
+        view.putLong(boundary - 4, 0x0123456789ABCDEFL);
+        assertEquals(0x0123456789ABCDEFL, view.getLong(boundary - 4));
+        
+        float expected[] = new float[256];
+        for (int i = 0; i < expected.length; i++)
+        {
+            expected[i] = i;
+        }
+        long offset = boundary - 2 - 100 * Sizeof.cl_float;
+        view.put(offset, expected, 0, expected.length);
+        float actual[] = new float[expected.length];
+        view.get(offset, actual, 0, actual.length);
+        assertArrayEquals(expected, actual, 0.0f);
+        assertEquals(100.0f, view.slice(offset, 1024).asByteBuffer(
+            100 * Sizeof.cl_float, Sizeof.cl_float).getFloat(0), 0.0f);
+
+        // A copy of the pointer with a byte offset keeps the address
+        Pointer pointer = view.getPointer();
+        assertEquals(pointer.getNativePointer(), 
+            pointer.withByteOffset(16).getNativePointer());
+
+        clEnqueueUnmapMemObject(commandQueue, mem, view, 0, null, null);
+        clFinish(commandQueue);
+        clReleaseMemObject(mem);
+        shutdownCL();
+    }
+    
+    @Test
+    public void testPointerCopies()
+    {
+        // Copies of pointers to buffers and arrays do not receive
+        // a native pointer, and still refer to the same buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16).order(
+            ByteOrder.nativeOrder());
+        buffer.putInt(8, 42);
+        Pointer bufferPointer = Pointer.to(buffer).withByteOffset(8);
+        assertEquals(0, bufferPointer.getNativePointer());
+        assertEquals(42, bufferPointer.getByteBuffer(8, 4).order(
+            ByteOrder.nativeOrder()).getInt(0));
+        
+        Pointer arrayPointer = Pointer.to(new float[4]).withByteOffset(4);
+        assertEquals(0, arrayPointer.getNativePointer());
+        assertNull(arrayPointer.getByteBuffer(0, 4));
+    }
+    
+    @Test
+    public void testGetByteBufferBeyond2GB()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        assertNull(Pointer.to(buffer).getByteBuffer(Integer.MAX_VALUE - 4, 8));
+    }
+    
+    /**
+     * Returns the maximum size of a memory object on the device of
+     * the context
+     * 
+     * @return The maximum size
+     */
+    private long maxMemAllocSize()
+    {
+        cl_device_id device = new cl_device_id();
+        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id,
+            Pointer.to(device), null);
+        long size[] = new long[1];
+        clGetDeviceInfo(device, CL_DEVICE_MAX_MEM_ALLOC_SIZE, Sizeof.cl_ulong,
+            Pointer.to(size), null);
+        return size[0];
+    }
+}
@@ -0,0 +1,100 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the overloads of clEnqueueNDRangeKernel that receive 
+ * the work sizes as primitive values yield the same result as the
+ * array-based method
+ */
+public class TestNDRangeKernelOverloads extends JOCLAbstractTest
+{
+    /**
+     * The source code of the OpenCL program to execute
+     */
+    private static String programSource =
+        "__kernel void "+
+        "sampleKernel(__global float *c)"+
+        "{"+
+        "    int gid = get_global_id(0) + get_global_id(1) * get_global_size(0);"+
+        "    c[gid] = gid;"+
+        "}";
+    
+    @Test
+    public void testOneDimensional()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int n = 64;
+        float expected[] = run(n, new long[]{ n }, null);
+        float actual[] = new float[n];
+        
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(mem));
+        clEnqueueNDRangeKernel(commandQueue, kernel, 0, n, 0, 0, null, null);
+        clEnqueueReadBuffer(commandQueue, mem, CL_TRUE, 0,
+            n * Sizeof.cl_float, Pointer.to(actual), 0, null, null);
+        clReleaseMemObject(mem);
+        
+        shutdownKernel();
+        shutdownCL();
+        
+        assertArrayEquals(expected, actual, 0.0f);
+    }
+    
+    @Test
+    public void testTwoDimensional()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("sampleKernel", programSource);
+        
+        int sizeX = 8;
+        int sizeY = 4;
+        int n = sizeX * sizeY;
+        float expected[] = run(n, new long[]{ sizeX, sizeY }, null);
+        float actual[] = new float[n];
+        
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(mem));
+        clEnqueueNDRangeKernel(commandQueue, kernel, 
+            0, 0, sizeX, sizeY, 0, 0, 0, null, null);
+        clEnqueueReadBuffer(commandQueue, mem, CL_TRUE, 0,
+            n * Sizeof.cl_float, Pointer.to(actual), 0, null, null);
+        clReleaseMemObject(mem);
+        
+        shutdownKernel();
+        shutdownCL();
+        
+        assertArrayEquals(expected, actual, 0.0f);
+    }
+    
+    /**
+     * Run the kernel using the array-based clEnqueueNDRangeKernel method,
+     * and return the result
+     * 
+     * @param n The number of elements
+     * @param globalWorkSize The global work size
+     * @param localWorkSize The local work size
+     * @return The result
+     */
+    private float[] run(int n, long globalWorkSize[], long localWorkSize[])
+    {
+        float result[] = new float[n];
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            Sizeof.cl_float * n, null, null);
+        clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(mem));
+        clEnqueueNDRangeKernel(commandQueue, kernel, globalWorkSize.length, 
+            null, globalWorkSize, localWorkSize, 0, null, null);
+        clEnqueueReadBuffer(commandQueue, mem, CL_TRUE, 0,
+            n * Sizeof.cl_float, Pointer.to(result), 0, null, null);
+        clReleaseMemObject(mem);
+        return result;
+    }
+}
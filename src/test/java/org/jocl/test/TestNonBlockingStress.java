@@ -0,0 +1,139 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Stress test for non-blocking operations: Enqueues a large number of
+ * non-blocking write- and read operations whose host buffers are not
+ * referenced by the caller, while the garbage collector runs, and 
+ * checks that the operations complete with the expected results, 
+ * without creating a thread for each pending operation
+ */
+public class TestNonBlockingStress extends JOCLAbstractTest
+{
+    /**
+     * The number of non-blocking operations
+     */
+    private static final int NUM_OPERATIONS = 100000;
+    
+    /**
+     * The maximum number of additional threads that may be created
+     * while the operations are pending
+     */
+    private static final int MAX_ADDITIONAL_THREADS = 16;
+    
+    @Test
+    public void testNonBlockingStress()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        
+        int n = 4;
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, 
+            NUM_OPERATIONS * n * Sizeof.cl_int, null, null);
+        
+        int initialThreads = Thread.activeCount();
+        int maxThreads = initialThreads;
+        for (int i = 0; i < NUM_OPERATIONS; i++)
+        {
+            ByteBuffer buffer = createBuffer(n);
+            for (int j = 0; j < n; j++)
+            {
+                buffer.putInt(j * Sizeof.cl_int, i);
+            }
+            clEnqueueWriteBuffer(commandQueue, mem, CL_NON_BLOCKING, 
+                i * n * Sizeof.cl_int, n * Sizeof.cl_int, 
+                Pointer.to(buffer), 0, null, null);
+            if (i % 1000 == 0)
+            {
+                clFlush(commandQueue);
+                maxThreads = Math.max(maxThreads, Thread.activeCount());
+            }
+            if (i % 10000 == 0)
+            {
+                System.gc();
+            }
+        }
+        System.gc();
+        clFinish(commandQueue);
+        
+        // The source buffers of the writes were only referenced by the
+        // pending operations. Check that all of them arrived.
+        int all[] = new int[NUM_OPERATIONS * n];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0, 
+            all.length * Sizeof.cl_int, Pointer.to(all), 0, null, null);
+        for (int i = 0; i < all.length; i++)
+        {
+            assertEquals(i / n, all[i]);
+        }
+        
+        // Read the data back into buffers that are only referenced
+        // by the pending operations. Only weak references are kept
+        // to some of them, so that the garbage collector may collect
+        // them as soon as the operations are finished. The ones that 
+        // have not been collected are checked.
+        List<WeakReference<ByteBuffer>> references = 
+            new ArrayList<WeakReference<ByteBuffer>>();
+        for (int i = 0; i < NUM_OPERATIONS; i++)
+        {
+            ByteBuffer buffer = createBuffer(n);
+            clEnqueueReadBuffer(commandQueue, mem, CL_NON_BLOCKING, 
+                i * n * Sizeof.cl_int, n * Sizeof.cl_int, 
+                Pointer.to(buffer), 0, null, null);
+            if (i % 1000 == 0)
+            {
+                references.add(new WeakReference<ByteBuffer>(buffer));
+                clFlush(commandQueue);
+                maxThreads = Math.max(maxThreads, Thread.activeCount());
+            }
+            if (i % 10000 == 0)
+            {
+                System.gc();
+            }
+        }
+        System.gc();
+        clFinish(commandQueue);
+        
+        for (int r = 0; r < references.size(); r++)
+        {
+            ByteBuffer buffer = references.get(r).get();
+            if (buffer == null)
+            {
+                continue;
+            }
+            for (int j = 0; j < n; j++)
+            {
+                assertEquals(r * 1000, buffer.getInt(j * Sizeof.cl_int));
+            }
+        }
+        assertTrue("Created " + (maxThreads - initialThreads) + 
+            " threads for pending operations", 
+            maxThreads - initialThreads <= MAX_ADDITIONAL_THREADS);
+        
+        clReleaseMemObject(mem);
+        shutdownCL();
+    }
+    
+    /**
+     * Creates a direct byte buffer with native byte order that can 
+     * store the given number of int values
+     * 
+     * @param n The number of int values
+     * @return The buffer
+     */
+    private static ByteBuffer createBuffer(int n)
+    {
+        return ByteBuffer.allocateDirect(n * Sizeof.cl_int).order(
+            ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,78 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a {@link ProgramBinaryCache} stores the binaries of a 
+ * program that was built from source, uses them for the next build,
+ * and falls back to the source when a cache file is corrupt, and 
+ * whether it deletes temporary files that have been left over
+ */
+public class TestProgramBinaryCache extends JOCLAbstractTest
+{
+    @Test
+    public void testProgramBinaryCache() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        File directory = File.createTempFile("TestProgramBinaryCache", "");
+        directory.delete();
+        ProgramBinaryCache cache = 
+            new ProgramBinaryCache(directory, 16 << 20);
+        cache.clear();
+        
+        cl_device_id device = new cl_device_id();
+        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id,
+            Pointer.to(device), null);
+        cl_device_id devices[] = { device };
+        String source = "__kernel void test(__global float *a) { a[0] = 1; }";
+        
+        clReleaseProgram(cache.build(context, devices, source, null));
+        assertEquals(1, cache.getMissCount());
+        assertTrue(cache.getSize() > 0);
+
+        clReleaseProgram(cache.build(context, devices, source, null));
+        assertEquals(1, cache.getHitCount());
+
+        // Corrupt the cache file, which causes a build from source
+        File files[] = directory.listFiles();
+        assertEquals(1, files.length);
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        file.seek(file.length() - 1);
+        int last = file.read();
+        file.seek(file.length() - 1);
+        file.write(last ^ 0xFF);
+        file.close();
+        
+        // A temporary file that was left over by a terminated process
+        // is deleted when the binaries are stored, but a recent one 
+        // may still be written, and is kept
+        File orphanedFile = new File(directory, "binary0.tmp");
+        orphanedFile.createNewFile();
+        orphanedFile.setLastModified(
+            System.currentTimeMillis() - 2 * 60 * 60 * 1000L);
+        File recentFile = new File(directory, "binary1.tmp");
+        recentFile.createNewFile();
+        
+        cl_program program = cache.build(context, devices, source, null);
+        assertEquals(2, cache.getMissCount());
+        assertFalse(orphanedFile.exists());
+        assertTrue(recentFile.exists());
+        recentFile.delete();
+        clReleaseKernel(clCreateKernel(program, "test", null));
+        clReleaseProgram(program);
+
+        cache.clear();
+        directory.delete();
+        shutdownCL();
+    }
+}
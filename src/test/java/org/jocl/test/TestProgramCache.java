@@ -0,0 +1,75 @@
+package org.jocl.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether concurrent requests for the same program from a 
+ * {@link ProgramCache} share one program, and whether its kernels
+ * can be looked up by name
+ */
+public class TestProgramCache extends JOCLAbstractTest
+{
+    @Test
+    public void testProgramCache() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        final String source = 
+            "__kernel void a(__global float *x) { x[0] = 1; }\n" + 
+            "__kernel void b(__global float *x) { x[0] = 2; }\n";
+        final ProgramCache cache = new ProgramCache();
+        
+        int n = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(n);
+        Future<?> futures[] = new Future<?>[n];
+        for (int i = 0; i < n; i++)
+        {
+            futures[i] = executor.submit(new Callable<cl_program>()
+            {
+                @Override
+                public cl_program call()
+                {
+                    return cache.getProgram(context, source, null);
+                }
+            });
+        }
+        cl_program program = cache.getProgram(context, source, null);
+        for (int i = 0; i < n; i++)
+        {
+            assertSame(program, futures[i].get());
+        }
+        executor.shutdown();
+        assertEquals(1, cache.size());
+
+        cl_kernel a = cache.getKernel(context, source, null, "a");
+        assertSame(a, cache.getKernel(context, source, null, "a"));
+        cache.getKernel(context, source, null, "b");
+        try
+        {
+            cache.getKernel(context, source, null, "c");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+        
+        // Other options yield another program
+        cache.getProgram(context, source, "-cl-fast-relaxed-math");
+        assertEquals(2, cache.size());
+
+        cache.release(context);
+        assertEquals(0, cache.size());
+        shutdownCL();
+    }
+}
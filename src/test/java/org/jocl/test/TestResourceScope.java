@@ -0,0 +1,143 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the objects that are created while a {@link ResourceScope}
+ * is open are added to the innermost scope, and released when the
+ * scope is closed
+ */
+public class TestResourceScope extends JOCLAbstractTest
+{
+    @Test
+    public void testResourceScope()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int size = 1024;
+        cl_mem mem = null;
+        ResourceScope outer = ResourceScope.open();
+        try
+        {
+            mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, null);
+            cl_event event = outer.newEvent();
+            clEnqueueWriteBuffer(commandQueue, mem, CL_BLOCKING, 0, size,
+                Pointer.to(new byte[size]), 0, null, event);
+            assertEquals(2, outer.size());
+
+            ResourceScope inner = ResourceScope.open();
+            assertSame(inner, ResourceScope.current());
+            ByteBuffer mapped = clEnqueueMapBuffer(commandQueue, mem,
+                CL_TRUE, CL_MAP_READ, 0, size, 0, null, null, null);
+            assertEquals(size, mapped.capacity());
+            assertEquals(1, inner.size());
+            inner.close();
+            clFinish(commandQueue);
+            assertSame(outer, ResourceScope.current());
+
+            // Keep one reference, to check that the scope released its own
+            clRetainMemObject(mem);
+        }
+        finally
+        {
+            outer.close();
+        }
+        assertNull(ResourceScope.current());
+        assertEquals(1, referenceCountOf(mem));
+        clReleaseMemObject(mem);
+
+        shutdownCL();
+    }
+
+    @Test
+    public void testUnmapInScope()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        CL.setExceptionsEnabled(true);
+
+        int size = 1024;
+        ResourceScope scope = ResourceScope.open();
+        try
+        {
+            cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size,
+                null, null);
+            ByteBuffer mapped = clEnqueueMapBuffer(commandQueue, mem,
+                CL_TRUE, CL_MAP_WRITE, 0, size, 0, null, null, null);
+            assertEquals(2, scope.size());
+            mapped.put(0, (byte)1);
+
+            // The explicitly unmapped region is removed from the scope,
+            // and closing the scope does not unmap it again
+            clEnqueueUnmapMemObject(commandQueue, mem, mapped, 0, null, null);
+            assertEquals(1, scope.size());
+            clFinish(commandQueue);
+        }
+        finally
+        {
+            scope.close();
+            CL.setExceptionsEnabled(false);
+        }
+        shutdownCL();
+    }
+
+    @Test
+    public void testExplicitReleaseInScope()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        CL.setExceptionsEnabled(true);
+
+        int size = 1024;
+        ResourceScope outer = ResourceScope.open();
+        try
+        {
+            cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE, size,
+                null, null);
+            cl_event event = clCreateUserEvent(context, null);
+            assertEquals(2, outer.size());
+
+            // An object of the parent scope that is released explicitly
+            // is removed from the parent scope
+            ResourceScope inner = ResourceScope.open();
+            clReleaseMemObject(mem);
+            inner.close();
+            assertEquals(1, outer.size());
+
+            // An object that is registered for automatic release is 
+            // owned by the registration, and removed from the scope
+            AutoRelease.Registration registration = 
+                AutoRelease.register(event);
+            assertEquals(0, outer.size());
+            clSetUserEventStatus(event, CL_COMPLETE);
+            registration.close();
+        }
+        finally
+        {
+            // This would throw if the objects were released again
+            outer.close();
+            CL.setExceptionsEnabled(false);
+        }
+        shutdownCL();
+    }
+
+    /**
+     * Returns the reference count of the given memory object
+     *
+     * @param mem The memory object
+     * @return The reference count
+     */
+    private static int referenceCountOf(cl_mem mem)
+    {
+        int count[] = new int[1];
+        clGetMemObjectInfo(mem, CL_MEM_REFERENCE_COUNT, Sizeof.cl_uint,
+            Pointer.to(count), null);
+        return count[0];
+    }
+}
@@ -0,0 +1,99 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether uploads through a {@link StagingPool} arrive in the
+ * device buffer and recycle their slices, and whether acquiring a 
+ * slice fails after the pool was released
+ */
+public class TestStagingPool extends JOCLAbstractTest
+{
+    @Test
+    public void testStagingPool() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        int sliceSize = 4 << 20;
+        int sliceCount = 4;
+        StagingPool pool =
+            new StagingPool(context, commandQueue, sliceSize, sliceCount);
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            sliceSize, null, null);
+
+        int n = 1000;
+        int data[] = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            data[i] = i;
+        }
+        StagingPool.Slice slice = pool.acquire();
+        slice.getBuffer().asIntBuffer().put(data);
+        CLFuture future = slice.upload(commandQueue, mem, 0, n * Sizeof.cl_int);
+        clFlush(commandQueue);
+        future.get();
+
+        int actual[] = new int[n];
+        clEnqueueReadBuffer(commandQueue, mem, CL_BLOCKING, 0,
+            n * Sizeof.cl_int, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(data, actual);
+
+        // The slice is recycled by a listener of the future, which
+        // may run shortly after the future was completed
+        for (int i = 0; i < 100 && pool.getAvailableCount() < sliceCount; i++)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(sliceCount, pool.getAvailableCount());
+
+        clReleaseMemObject(mem);
+        pool.release();
+        try
+        {
+            pool.acquire();
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // Expected
+        }
+
+        // A thread that is waiting for a slice fails when the pool 
+        // is released
+        final StagingPool singlePool =
+            new StagingPool(context, commandQueue, 1024, 1);
+        singlePool.acquire();
+        final AtomicReference<Throwable> thrown = 
+            new AtomicReference<Throwable>();
+        Thread waiter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    singlePool.acquire();
+                }
+                catch (Throwable t)
+                {
+                    thrown.set(t);
+                }
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        singlePool.release();
+        waiter.join(5000);
+        assertTrue(thrown.get() instanceof IllegalStateException);
+        shutdownCL();
+    }
+}
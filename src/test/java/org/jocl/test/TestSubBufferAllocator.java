@@ -0,0 +1,84 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the regions that are handed out by a
+ * {@link SubBufferAllocator} are aligned, usable and independent,
+ * and whether freed regions are merged again
+ */
+public class TestSubBufferAllocator extends JOCLAbstractTest
+{
+    @Test
+    public void testSubBufferAllocator()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        SubBufferAllocator allocator =
+            new SubBufferAllocator(context, CL_MEM_READ_WRITE, 1 << 20);
+        long blockSize = allocator.getBlockSize();
+
+        int sizes[] = { 4, 100, 1000, 4096, 12345, 4, 64 };
+        List<SubBufferAllocator.Allocation> allocations =
+            new ArrayList<SubBufferAllocator.Allocation>();
+        for (int i = 0; i < sizes.length; i++)
+        {
+            SubBufferAllocator.Allocation allocation =
+                allocator.allocate(sizes[i] * Sizeof.cl_int);
+            assertEquals(0, allocation.getOrigin() % blockSize);
+            allocations.add(allocation);
+
+            int data[] = new int[sizes[i]];
+            for (int j = 0; j < data.length; j++)
+            {
+                data[j] = i * 100000 + j;
+            }
+            clEnqueueWriteBuffer(commandQueue, allocation.getMem(),
+                CL_BLOCKING, 0, data.length * Sizeof.cl_int,
+                Pointer.to(data), 0, null, null);
+        }
+        assertEquals(1, allocator.getArenaCount());
+        assertTrue(allocator.getOccupancy() > 0.0);
+
+        for (int i = 0; i < sizes.length; i++)
+        {
+            int expected[] = new int[sizes[i]];
+            for (int j = 0; j < expected.length; j++)
+            {
+                expected[j] = i * 100000 + j;
+            }
+            int actual[] = new int[sizes[i]];
+            clEnqueueReadBuffer(commandQueue, allocations.get(i).getMem(),
+                CL_BLOCKING, 0, actual.length * Sizeof.cl_int,
+                Pointer.to(actual), 0, null, null);
+            assertArrayEquals(expected, actual);
+        }
+
+        SubBufferAllocator.Allocation dedicated =
+            allocator.allocate(allocator.getArenaSize() + 1);
+        assertTrue(dedicated.isDedicated());
+        allocator.free(dedicated);
+
+        for (SubBufferAllocator.Allocation allocation : allocations)
+        {
+            allocator.free(allocation);
+        }
+        assertEquals(0, allocator.getAllocatedBytes());
+        assertEquals(0.0, allocator.getFragmentation(), 0.0);
+        assertEquals(allocator.getArenaSize(),
+            allocator.getLargestFreeBlockSize());
+        assertEquals(1, allocator.trim());
+
+        allocator.release();
+        shutdownCL();
+    }
+}
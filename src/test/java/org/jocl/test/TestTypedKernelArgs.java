@@ -0,0 +1,156 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether the values that are passed to the typed overloads of
+ * {@link CL#clSetKernelArg} and to {@link CL#clSetKernelArgLocal}
+ * arrive in a kernel
+ */
+public class TestTypedKernelArgs extends JOCLAbstractTest
+{
+    @Test
+    public void testScalarsMemAndLocal()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("test",
+            "__kernel void test(__global long *out, int i, long l, " +
+            "    float f, __local int *tmp) " +
+            "{ " +
+            "    tmp[get_local_id(0)] = i; " +
+            "    barrier(CLK_LOCAL_MEM_FENCE); " +
+            "    out[0] = tmp[0]; " +
+            "    out[1] = l; " +
+            "    out[2] = (long)(f * 2.0f); " +
+            "}");
+
+        cl_mem out = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            3 * Sizeof.cl_long, null, null);
+        long l = (1L << 40) + 3;
+        clSetKernelArg(kernel, 0, out);
+        clSetKernelArg(kernel, 1, -7);
+        clSetKernelArg(kernel, 2, l);
+        clSetKernelArg(kernel, 3, 1.5f);
+        clSetKernelArgLocal(kernel, 4, Sizeof.cl_int);
+        clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
+            new long[] { 1 }, new long[] { 1 }, 0, null, null);
+
+        long actual[] = new long[3];
+        clEnqueueReadBuffer(commandQueue, out, CL_BLOCKING, 0,
+            3 * Sizeof.cl_long, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(new long[] { -7, l, 3 }, actual);
+
+        clReleaseMemObject(out);
+        shutdownKernel();
+        shutdownCL();
+    }
+
+    @Test
+    public void testDouble()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        cl_device_id device = getDevice();
+        assumeTrue(getDeviceString(device, CL_DEVICE_EXTENSIONS)
+            .contains("cl_khr_fp64"));
+        initKernel("test",
+            "#pragma OPENCL EXTENSION cl_khr_fp64 : enable\n" +
+            "__kernel void test(__global double *out, double d) " +
+            "{ out[0] = d * 2.0; }");
+
+        cl_mem out = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            Sizeof.cl_double, null, null);
+        clSetKernelArg(kernel, 0, out);
+        clSetKernelArg(kernel, 1, 0.1);
+        clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
+            new long[] { 1 }, null, 0, null, null);
+
+        double actual[] = new double[1];
+        clEnqueueReadBuffer(commandQueue, out, CL_BLOCKING, 0,
+            Sizeof.cl_double, Pointer.to(actual), 0, null, null);
+        assertEquals(0.2, actual[0], 0.0);
+
+        clReleaseMemObject(out);
+        shutdownKernel();
+        shutdownCL();
+    }
+
+    @Test
+    public void testSampler()
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        cl_device_id device = getDevice();
+        int imageSupport[] = new int[1];
+        clGetDeviceInfo(device, CL_DEVICE_IMAGE_SUPPORT, Sizeof.cl_int,
+            Pointer.to(imageSupport), null);
+        assumeTrue(imageSupport[0] != 0);
+        initKernel("test",
+            "__kernel void test(__read_only image2d_t image, " +
+            "    sampler_t sampler, __global float4 *out) " +
+            "{ out[0] = read_imagef(image, sampler, (int2)(0, 0)); }");
+
+        cl_image_format format = new cl_image_format();
+        format.image_channel_order = CL_RGBA;
+        format.image_channel_data_type = CL_FLOAT;
+        float expected[] = { 1.0f, 2.0f, 3.0f, 4.0f };
+        cl_mem image = clCreateImage2D(context,
+            CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
+            new cl_image_format[] { format }, 1, 1, 0,
+            Pointer.to(expected), null);
+        cl_sampler sampler = clCreateSampler(context, false,
+            CL_ADDRESS_CLAMP_TO_EDGE, CL_FILTER_NEAREST, null);
+        cl_mem out = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            4 * Sizeof.cl_float, null, null);
+        clSetKernelArg(kernel, 0, image);
+        clSetKernelArg(kernel, 1, sampler);
+        clSetKernelArg(kernel, 2, out);
+        clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
+            new long[] { 1 }, null, 0, null, null);
+
+        float actual[] = new float[4];
+        clEnqueueReadBuffer(commandQueue, out, CL_BLOCKING, 0,
+            4 * Sizeof.cl_float, Pointer.to(actual), 0, null, null);
+        assertArrayEquals(expected, actual, 0.0f);
+
+        clReleaseMemObject(out);
+        clReleaseSampler(sampler);
+        clReleaseMemObject(image);
+        shutdownKernel();
+        shutdownCL();
+    }
+
+    /**
+     * Returns the device of the context
+     *
+     * @return The device
+     */
+    private cl_device_id getDevice()
+    {
+        cl_device_id device = new cl_device_id();
+        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id,
+            Pointer.to(device), null);
+        return device;
+    }
+
+    /**
+     * Returns the value of the given string parameter of the given device
+     *
+     * @param device The device
+     * @param paramName The parameter name
+     * @return The value
+     */
+    private static String getDeviceString(cl_device_id device, int paramName)
+    {
+        long size[] = new long[1];
+        clGetDeviceInfo(device, paramName, 0, null, size);
+        byte buffer[] = new byte[(int)size[0]];
+        clGetDeviceInfo(device, paramName, buffer.length,
+            Pointer.to(buffer), null);
+        return new String(buffer, 0, Math.max(0, buffer.length - 1));
+    }
+}
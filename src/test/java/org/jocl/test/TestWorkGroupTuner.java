@@ -0,0 +1,156 @@
+package org.jocl.test;
+
+import static org.jocl.CL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.jocl.*;
+import org.junit.Test;
+
+/**
+ * Test whether a {@link WorkGroupTuner} tunes a kernel once, stores
+ * the best local work size in its database file, and uses the stored
+ * local work size for later launches, also in a new tuner instance, 
+ * whether global work sizes in the same bucket do not cause the
+ * kernel to be tuned repeatedly, and whether kernels with the same name
+ * from different programs that were created from binaries are stored
+ * under different keys
+ */
+public class TestWorkGroupTuner extends JOCLAbstractTest
+{
+    @Test
+    public void testWorkGroupTuner() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+        initKernel("test",
+            "__kernel void test(__global float *a) " +
+            "{ a[get_global_id(0)] += 1.0f; }");
+
+        cl_device_id device = new cl_device_id();
+        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id,
+            Pointer.to(device), null);
+        cl_command_queue profilingQueue = clCreateCommandQueue(
+            context, device, CL_QUEUE_PROFILING_ENABLE, null);
+
+        int n = 1 << 16;
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            n * Sizeof.cl_float, null, null);
+        clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(mem));
+
+        File file = File.createTempFile("TestWorkGroupTuner", ".properties");
+        file.delete();
+
+        WorkGroupTuner tuner = new WorkGroupTuner(file);
+        long globalWorkSize[] = new long[] { n };
+        tuner.launch(profilingQueue, kernel, 1, null, globalWorkSize, null);
+        tuner.launch(profilingQueue, kernel, 1, null, globalWorkSize, null);
+        clFinish(profilingQueue);
+        assertEquals(1, tuner.getTuneCount());
+        assertEquals(1, tuner.size());
+
+        // A new tuner reads the stored local work size
+        WorkGroupTuner reloaded = new WorkGroupTuner(file);
+        assertEquals(1, reloaded.size());
+        reloaded.launch(profilingQueue, kernel, 1, null, globalWorkSize, null);
+        clFinish(profilingQueue);
+        assertEquals(0, reloaded.getTuneCount());
+
+        // Global work sizes in the same bucket, with different divisors,
+        // are tuned at most once each, and stored under the same key
+        long oddGlobalWorkSize[] = new long[] { n - 1 };
+        for (int i = 0; i < 3; i++)
+        {
+            reloaded.launch(profilingQueue, kernel, 1, null, 
+                oddGlobalWorkSize, null);
+            reloaded.launch(profilingQueue, kernel, 1, null, 
+                globalWorkSize, null);
+        }
+        clFinish(profilingQueue);
+        assertTrue(reloaded.getTuneCount() <= 1);
+        assertEquals(1, reloaded.size());
+
+        reloaded.clear();
+        clReleaseMemObject(mem);
+        clReleaseCommandQueue(profilingQueue);
+        shutdownKernel();
+        shutdownCL();
+    }
+
+    @Test
+    public void testBinaryPrograms() throws Exception
+    {
+        initCL(defaultPlatformIndex, defaultDeviceType, defaultDeviceIndex);
+
+        cl_device_id device = new cl_device_id();
+        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id,
+            Pointer.to(device), null);
+        cl_command_queue profilingQueue = clCreateCommandQueue(
+            context, device, CL_QUEUE_PROFILING_ENABLE, null);
+        cl_program programA = createBinaryProgram(device, 
+            "__kernel void test(__global float *a) " +
+            "{ a[get_global_id(0)] += 1.0f; }");
+        cl_program programB = createBinaryProgram(device, 
+            "__kernel void test(__global float *a) " +
+            "{ a[get_global_id(0)] *= 2.0f; }");
+        cl_kernel kernelA = clCreateKernel(programA, "test", null);
+        cl_kernel kernelB = clCreateKernel(programB, "test", null);
+
+        int n = 1 << 16;
+        cl_mem mem = clCreateBuffer(context, CL_MEM_READ_WRITE,
+            n * Sizeof.cl_float, null, null);
+        clSetKernelArg(kernelA, 0, Sizeof.cl_mem, Pointer.to(mem));
+        clSetKernelArg(kernelB, 0, Sizeof.cl_mem, Pointer.to(mem));
+
+        File file = File.createTempFile("TestWorkGroupTuner", ".properties");
+        file.delete();
+
+        // The programs do not have a source code, and both kernels are
+        // tuned and stored separately
+        WorkGroupTuner tuner = new WorkGroupTuner(file);
+        long globalWorkSize[] = new long[] { n };
+        tuner.launch(profilingQueue, kernelA, 1, null, globalWorkSize, null);
+        tuner.launch(profilingQueue, kernelB, 1, null, globalWorkSize, null);
+        clFinish(profilingQueue);
+        assertEquals(2, tuner.getTuneCount());
+        assertEquals(2, tuner.size());
+
+        tuner.clear();
+        clReleaseMemObject(mem);
+        clReleaseKernel(kernelA);
+        clReleaseKernel(kernelB);
+        clReleaseProgram(programA);
+        clReleaseProgram(programB);
+        clReleaseCommandQueue(profilingQueue);
+        shutdownCL();
+    }
+
+    /**
+     * Build a program from the given source code, and create a new 
+     * program from its binary
+     * 
+     * @param device The device
+     * @param source The source code
+     * @return The program that was created from the binary
+     */
+    private cl_program createBinaryProgram(cl_device_id device, String source)
+    {
+        cl_program sourceProgram = clCreateProgramWithSource(context, 1,
+            new String[] { source }, null, null);
+        clBuildProgram(sourceProgram, 0, null, null, null, null);
+        long size[] = new long[1];
+        clGetProgramInfo(sourceProgram, CL_PROGRAM_BINARY_SIZES, 
+            Sizeof.size_t, Pointer.to(size), null);
+        byte binary[] = new byte[(int)size[0]];
+        clGetProgramInfo(sourceProgram, CL_PROGRAM_BINARIES, Sizeof.POINTER,
+            Pointer.to(Pointer.to(binary)), null);
+        clReleaseProgram(sourceProgram);
+
+        cl_program program = clCreateProgramWithBinary(context, 1, 
+            new cl_device_id[] { device }, new long[] { binary.length }, 
+            new byte[][] { binary }, null, null);
+        clBuildProgram(program, 0, null, null, null, null);
+        return program;
+    }
+}